@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.tourniquet.measure.ExecutionStopWatch;
+import io.tourniquet.measure.MeasuredExecutionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the overhead of measuring a task with the {@link ExecutionStopWatch} compared to executing the task
+ * directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecutionStopWatchBenchmark {
+
+    private long value;
+
+    private Long task() {
+
+        return value++;
+    }
+
+    @Benchmark
+    public Long baseline() {
+
+        return task();
+    }
+
+    @Benchmark
+    public MeasuredExecutionResult<Long> runMeasured() {
+
+        return ExecutionStopWatch.runMeasured(this::task);
+    }
+}
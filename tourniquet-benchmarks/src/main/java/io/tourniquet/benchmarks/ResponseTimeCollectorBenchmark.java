@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.tourniquet.measure.CollectionMode;
+import io.tourniquet.measure.ResponseTimeCollector;
+import io.tourniquet.measure.ResponseTimes;
+import io.tourniquet.measure.TransactionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for starting and stopping transactions using the {@link ResponseTimeCollector} of the benchmark thread.
+ * The response times are aggregated in histograms so that the memory does not grow during the benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseTimeCollectorBenchmark {
+
+    private static final String TX = "benchmark";
+
+    private final int txId = TransactionRegistry.idOf(TX);
+
+    private ResponseTimeCollector collector;
+
+    @Setup
+    public void setUp() {
+
+        ResponseTimes.current().setCollectionMode(CollectionMode.HISTOGRAM);
+        collector = new ResponseTimeCollector();
+        collector.startCollecting();
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        collector.stopCollecting();
+        ResponseTimes.current().clear();
+    }
+
+    @Benchmark
+    public void startStopTxByName() {
+
+        ResponseTimeCollector.startTx(TX);
+        ResponseTimeCollector.stopTx(TX);
+    }
+
+    @Benchmark
+    public void startStopTxById() {
+
+        ResponseTimeCollector.startTx(txId);
+        ResponseTimeCollector.stopTx(txId);
+    }
+
+    @Benchmark
+    public void nestedTxByName() {
+
+        ResponseTimeCollector.startTx(TX);
+        ResponseTimeCollector.startTx("nested");
+        ResponseTimeCollector.stopTx("nested");
+        ResponseTimeCollector.stopTx(TX);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.benchmarks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import io.tourniquet.measure.CollectionMode;
+import io.tourniquet.measure.ResponseTime;
+import io.tourniquet.measure.ResponseTimes;
+import io.tourniquet.measure.RetentionPolicy;
+import io.tourniquet.measure.TransactionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for collecting response times into the thread-local and the global {@link ResponseTimes}. As the
+ * benchmarks record millions of response times, the unlimited retention of raw response times is not benchmarked.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseTimesBenchmark {
+
+    private static final String TX = "benchmark";
+
+    /**
+     * The way the response times are stored, either aggregated in histograms or retaining the latest response times
+     */
+    @Param({"histogram", "latest"})
+    public String store;
+
+    private int txId;
+
+    private Instant start;
+
+    private Duration duration;
+
+    @Setup
+    public void setUp() {
+
+        txId = TransactionRegistry.idOf(TX);
+        start = Instant.now();
+        duration = Duration.ofMillis(10);
+        configure(ResponseTimes.global());
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        ResponseTimes.global().clear();
+    }
+
+    /**
+     * Configures the store of the response times
+     *
+     * @param responseTimes
+     *         the response times to configure
+     */
+    void configure(ResponseTimes responseTimes) {
+
+        if ("histogram".equals(store)) {
+            responseTimes.setCollectionMode(CollectionMode.HISTOGRAM);
+        } else {
+            responseTimes.setCollectionMode(CollectionMode.RAW);
+            responseTimes.setRetentionPolicy(RetentionPolicy.latest(1024));
+        }
+    }
+
+    /**
+     * The response times of the benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Local {
+
+        ResponseTimes responseTimes;
+
+        @Setup
+        public void setUp(ResponseTimesBenchmark benchmark) {
+
+            responseTimes = ResponseTimes.current();
+            benchmark.configure(responseTimes);
+        }
+
+        @TearDown
+        public void tearDown() {
+
+            responseTimes.clear();
+        }
+    }
+
+    @Benchmark
+    public ResponseTime collectResponseTime(Local local) {
+
+        return local.responseTimes.collect(new ResponseTime(TX, start, duration));
+    }
+
+    @Benchmark
+    public void collectById(Local local) {
+
+        local.responseTimes.collect(txId, System.nanoTime(), 10_000_000L);
+    }
+
+    @Benchmark
+    public ResponseTime collectGlobalResponseTime() {
+
+        return ResponseTimes.global().collect(new ResponseTime(TX, start, duration));
+    }
+
+    @Benchmark
+    public void collectGlobalById() {
+
+        ResponseTimes.global().collect(txId, System.nanoTime(), 10_000_000L);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.tourniquet.measure.CollectionMode;
+import io.tourniquet.measure.ResponseTimeCollector;
+import io.tourniquet.measure.ResponseTimes;
+import io.tourniquet.tx.Transaction;
+import io.tourniquet.tx.TransactionHelper;
+import io.tourniquet.tx.TransactionSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for invoking methods of a page object enhanced with transaction support by the {@link TransactionHelper}
+ * compared to invoking the methods of the plain page object.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionHelperBenchmark {
+
+    private Page plain;
+
+    private Page proxied;
+
+    private ResponseTimeCollector collector;
+
+    @Setup
+    public void setUp() {
+
+        ResponseTimes.current().setCollectionMode(CollectionMode.HISTOGRAM);
+        collector = new ResponseTimeCollector();
+        collector.startCollecting();
+        plain = new Page();
+        proxied = TransactionHelper.addTransactionSupport(new Page());
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        collector.stopCollecting();
+        ResponseTimes.current().clear();
+    }
+
+    @Benchmark
+    public int plainInvocation() {
+
+        return plain.login();
+    }
+
+    @Benchmark
+    public int transactionalInvocation() {
+
+        return proxied.login();
+    }
+
+    @Benchmark
+    public int nonTransactionalInvocation() {
+
+        return proxied.noTransaction();
+    }
+
+    /**
+     * A page object with a transactional and a non-transactional method
+     */
+    @Transaction
+    public static class Page implements TransactionSupport {
+
+        private int counter;
+
+        @Transaction
+        public int login() {
+
+            return counter++;
+        }
+
+        public int noTransaction() {
+
+            return counter++;
+        }
+    }
+}
@@ -18,14 +18,24 @@ package io.tourniquet.junit.http.rules;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import io.undertow.io.IoCallback;
+import io.undertow.server.HttpServerExchange;
 
 /**
- * Handler for serving data from a byte array.
+ * Handler for serving data from a byte array. The data is served directly on the IO thread of the server from a direct
+ * buffer that is shared by all requests.
  */
-public class ByteArrayResourceHandler extends ResourceHandler {
+public class ByteArrayResourceHandler extends ResourceHandler implements IoThreadHandler {
 
     private final byte[] data;
 
+    /**
+     * Read-only direct buffer of the data, each request sends a duplicate of it
+     */
+    private final ByteBuffer buffer;
+
     /**
      * Creates a new byte array handler.
      * @param resource
@@ -35,6 +45,17 @@ public class ByteArrayResourceHandler extends ResourceHandler {
     public ByteArrayResourceHandler(final byte[] resource) { //NOSONAR
         this.data = new byte[resource.length];
         System.arraycopy(resource, 0, this.data, 0, resource.length);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(resource.length);
+        direct.put(resource).flip();
+        this.buffer = direct.asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean handleInIoThread(final HttpServerExchange exchange) {
+
+        exchange.setResponseContentLength(data.length);
+        exchange.getResponseSender().send(buffer.duplicate(), IoCallback.END_EXCHANGE);
+        return true;
     }
 
     @Override
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+import org.slf4j.Logger;
+
+/**
+ * A resource whose content is served from a {@link ResourceCache}. The content is loaded from the underlying resource
+ * when it is first served. All metadata except the ETag, the content length and the cache key are provided by the
+ * underlying resource. The length of the cached content is used once the content is cached, its ETag only if the
+ * underlying resource provides none. Metadata queries never load the content. If the content can not be loaded or is
+ * too large to be cached, the resource behaves like the underlying one.
+ */
+class CachedResource implements RangeAwareResource {
+
+    private static final Logger LOG = getLogger(CachedResource.class);
+
+    private final Resource delegate;
+
+    private final String key;
+
+    private final ResourceCache cache;
+
+    /**
+     * Creates a cached resource.
+     * @param delegate
+     *  the resource providing the content and metadata
+     * @param key
+     *  the key of the resource in the cache
+     * @param cache
+     *  the cache holding the content
+     */
+    CachedResource(final Resource delegate, final String key, final ResourceCache cache) {
+        this.delegate = delegate;
+        this.key = key;
+        this.cache = cache;
+    }
+
+    private ResourceCache.Entry entry() {
+
+        try {
+            return cache.get(key, this::load);
+        } catch (IOException e) {
+            LOG.debug("Could not cache resource {}", key, e);
+            return null;
+        }
+    }
+
+    private InputStream load() throws IOException {
+
+        final Path path = delegate.getFilePath();
+        if (path != null) {
+            return Files.newInputStream(path);
+        }
+        return delegate.getUrl().openStream();
+    }
+
+    @Override
+    public String getPath() {
+
+        return delegate.getPath();
+    }
+
+    @Override
+    public Date getLastModified() {
+
+        return delegate.getLastModified();
+    }
+
+    @Override
+    public String getLastModifiedString() {
+
+        return delegate.getLastModifiedString();
+    }
+
+    @Override
+    public ETag getETag() {
+
+        //the tag of the underlying resource is preferred, so the tag does not change once the content is cached
+        final ETag etag = delegate.getETag();
+        if (etag != null) {
+            return etag;
+        }
+        final ResourceCache.Entry entry = cache.get(key);
+        return entry == null ? null : entry.getETag();
+    }
+
+    @Override
+    public String getName() {
+
+        return delegate.getName();
+    }
+
+    @Override
+    public boolean isDirectory() {
+
+        return delegate.isDirectory();
+    }
+
+    @Override
+    public List<Resource> list() {
+
+        return delegate.list();
+    }
+
+    @Override
+    public String getContentType(final MimeMappings mimeMappings) {
+
+        return delegate.getContentType(mimeMappings);
+    }
+
+    @Override
+    public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback ioCallback) {
+
+        final ResourceCache.Entry entry = entry();
+        if (entry == null) {
+            delegate.serve(sender, exchange, ioCallback);
+        } else {
+            sender.send(entry.getContent(), ioCallback);
+        }
+    }
+
+    @Override
+    public void serveRange(final Sender sender,
+                           final HttpServerExchange exchange,
+                           final long start,
+                           final long end,
+                           final IoCallback ioCallback) {
+
+        final ResourceCache.Entry entry = entry();
+        if (entry == null && delegate instanceof RangeAwareResource) {
+            ((RangeAwareResource) delegate).serveRange(sender, exchange, start, end, ioCallback);
+        } else if (entry == null) {
+            ioCallback.onException(exchange, sender, new IOException("Could not serve range of " + key));
+        } else {
+            final ByteBuffer content = entry.getContent();
+            content.position((int) start).limit((int) end + 1);
+            sender.send(content, ioCallback);
+        }
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+
+        return cache.get(key) != null
+                || delegate instanceof RangeAwareResource && ((RangeAwareResource) delegate).isRangeSupported();
+    }
+
+    @Override
+    public Long getContentLength() {
+
+        final ResourceCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            return delegate.getContentLength();
+        }
+        return (long) entry.getSize();
+    }
+
+    @Override
+    public String getCacheKey() {
+
+        return key;
+    }
+
+    @Override
+    public File getFile() {
+
+        return delegate.getFile();
+    }
+
+    @Override
+    public Path getFilePath() {
+
+        return delegate.getFilePath();
+    }
+
+    @Override
+    public File getResourceManagerRoot() {
+
+        return delegate.getResourceManagerRoot();
+    }
+
+    @Override
+    public Path getResourceManagerRootPath() {
+
+        return delegate.getResourceManagerRootPath();
+    }
+
+    @Override
+    public URL getUrl() {
+
+        return delegate.getUrl();
+    }
+}
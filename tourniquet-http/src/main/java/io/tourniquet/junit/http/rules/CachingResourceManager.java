@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.io.IOException;
+
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+
+/**
+ * A {@link io.undertow.server.handlers.resource.ResourceManager} that keeps the content of the resources of another
+ * manager in a {@link ResourceCache}. Only the content of files is cached, directories are provided by the underlying
+ * manager.
+ */
+class CachingResourceManager implements ResourceManager {
+
+    private final ResourceManager delegate;
+
+    private final String keyPrefix;
+
+    private final ResourceCache cache;
+
+    /**
+     * Creates a caching manager for the resources of another manager.
+     * @param delegate
+     *  the manager providing the resources
+     * @param keyPrefix
+     *  the prefix of the keys of the resources in the cache, identifying the underlying manager
+     * @param cache
+     *  the cache for the content of the resources
+     */
+    CachingResourceManager(final ResourceManager delegate, final String keyPrefix, final ResourceCache cache) {
+        this.delegate = delegate;
+        this.keyPrefix = keyPrefix;
+        this.cache = cache;
+    }
+
+    @Override
+    public Resource getResource(final String path) throws IOException {
+
+        final Resource resource = delegate.getResource(path);
+        if (resource == null || resource.isDirectory()) {
+            return resource;
+        }
+        return new CachedResource(resource, keyPrefix + '!' + path, cache);
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+
+        return false;
+    }
+
+    @Override
+    public void registerResourceChangeListener(final ResourceChangeListener resourceChangeListener) {
+        //not supported
+    }
+
+    @Override
+    public void removeResourceChangeListener(final ResourceChangeListener resourceChangeListener) {
+        //not supported
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
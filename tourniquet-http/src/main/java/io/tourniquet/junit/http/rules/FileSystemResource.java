@@ -20,11 +20,16 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -33,16 +38,24 @@ import java.util.List;
 import io.undertow.io.IoCallback;
 import io.undertow.io.Sender;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
 import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.DateUtils;
 import io.undertow.util.ETag;
 import io.undertow.util.MimeMappings;
 import org.slf4j.Logger;
 
 /**
  * A resource inside a {@link java.nio.file.FileSystem}. This resource uses the java.nio Files API which makes it
- * flexible for hosting files from various types of filesystems, such as ZipFileSystem.
+ * flexible for hosting files from various types of filesystems, such as ZipFileSystem. Files of the default
+ * filesystem are transferred to the client without blocking and without copying their content through the heap.
  */
-public class FileSystemResource implements Resource {
+public class FileSystemResource implements RangeAwareResource {
+
+    /**
+     * Size of the buffer used to copy a range of a file of a filesystem other than the default
+     */
+    private static final int COPY_BUFFER_SIZE = 8192;
 
     private static final Logger LOG = getLogger(FileSystemResource.class);
 
@@ -79,17 +92,32 @@ public class FileSystemResource implements Resource {
     @Override
     public String getLastModifiedString() {
 
+        return DateUtils.toDateString(getLastModified());
+    }
+
+    @Override
+    public ETag getETag() {
+
         try {
-            return Files.getLastModifiedTime(path).toString();
+            return etagOf(Files.readAttributes(path, BasicFileAttributes.class));
         } catch (IOException e) {
-            throw new AssertionError("Could not determine last modified time", e);
+            LOG.debug("Could not read attributes of {}", path, e);
+            return null;
         }
     }
 
-    @Override
-    public ETag getETag() {
+    /**
+     * Creates a strong entity tag for a file, derived from its size and last modification time.
+     * @param attributes
+     *  the attributes of the file
+     * @return
+     *  the entity tag of the file
+     */
+    static ETag etagOf(BasicFileAttributes attributes) {
 
-        return null;
+        return new ETag(false,
+                        Long.toHexString(attributes.size()) + '-'
+                                + Long.toHexString(attributes.lastModifiedTime().toMillis()));
     }
 
     @Override
@@ -145,6 +173,16 @@ public class FileSystemResource implements Resource {
     @Override
     public void serve(final Sender sender, final HttpServerExchange exchange, final IoCallback ioCallback) {
 
+        if (isDefaultFileSystem()) {
+            try {
+                final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                FileTransfer.transfer(exchange, sender, channel, 0, channel.size(), ioCallback);
+            } catch (IOException e) {
+                LOG.error("Could not serve content file", e);
+                ioCallback.onException(exchange, sender, e);
+            }
+            return;
+        }
         exchange.startBlocking();
         final OutputStream outStream = exchange.getOutputStream();
         try {
@@ -156,6 +194,65 @@ public class FileSystemResource implements Resource {
         }
     }
 
+    @Override
+    public void serveRange(final Sender sender,
+                           final HttpServerExchange exchange,
+                           final long start,
+                           final long end,
+                           final IoCallback ioCallback) {
+
+        final long length = end - start + 1;
+        try {
+            if (isDefaultFileSystem()) {
+                final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                FileTransfer.transfer(exchange, sender, channel, start, length, ioCallback);
+                return;
+            }
+            exchange.startBlocking();
+            try (InputStream inStream = Files.newInputStream(path)) {
+                copyRange(inStream, exchange.getOutputStream(), start, length);
+            }
+            ioCallback.onComplete(exchange, sender);
+        } catch (IOException e) {
+            LOG.error("Could not serve content file", e);
+            ioCallback.onException(exchange, sender, e);
+        }
+    }
+
+    private static void copyRange(InputStream inStream, OutputStream outStream, long start, long length)
+            throws IOException {
+
+        long skip = start;
+        while (skip > 0) {
+            final long skipped = inStream.skip(skip);
+            if (skipped <= 0) {
+                throw new IOException("Range start " + start + " exceeds content length");
+            }
+            skip -= skipped;
+        }
+        final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long remaining = length;
+        while (remaining > 0) {
+            final int read = inStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new IOException("Range end exceeds content length");
+            }
+            outStream.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+
+        return true;
+    }
+
+    private boolean isDefaultFileSystem() {
+
+        return path.getFileSystem() == FileSystems.getDefault();
+    }
+
     @Override
     public Long getContentLength() {
 
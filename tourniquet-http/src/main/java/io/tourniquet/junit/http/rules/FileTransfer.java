@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import org.slf4j.Logger;
+import org.xnio.ChannelListener;
+import org.xnio.channels.StreamSinkChannel;
+
+/**
+ * Non-blocking transfer of a region of a file to the response channel of an exchange. The region is written using
+ * {@link StreamSinkChannel#transferFrom(FileChannel, long, long)} so that the operating system may send the file
+ * content directly to the socket without copying it through the heap. If the response channel can not take more
+ * data, the transfer is resumed once the channel becomes writable again. The file channel is closed once the transfer
+ * is completed or failed.
+ */
+final class FileTransfer implements ChannelListener<StreamSinkChannel> {
+
+    private static final Logger LOG = getLogger(FileTransfer.class);
+
+    private final HttpServerExchange exchange;
+    private final Sender sender;
+    private final FileChannel source;
+    private final IoCallback callback;
+
+    private long position;
+    private long remaining;
+
+    private FileTransfer(final HttpServerExchange exchange,
+                         final Sender sender,
+                         final FileChannel source,
+                         final long position,
+                         final long count,
+                         final IoCallback callback) {
+
+        this.exchange = exchange;
+        this.sender = sender;
+        this.source = source;
+        this.position = position;
+        this.remaining = count;
+        this.callback = callback;
+    }
+
+    /**
+     * Transfers a region of a file to the response channel of the exchange. The method returns immediately, the
+     * callback is notified when the transfer is completed or failed.
+     *
+     * @param exchange
+     *         the exchange to whose response the file content is written
+     * @param sender
+     *         the sender of the exchange that is passed to the callback
+     * @param source
+     *         the channel to the file to transfer. The channel is closed once the transfer is finished.
+     * @param position
+     *         the position in the file of the first byte to transfer
+     * @param count
+     *         the number of bytes to transfer
+     * @param callback
+     *         the callback to notify when the transfer is finished
+     */
+    static void transfer(final HttpServerExchange exchange,
+                         final Sender sender,
+                         final FileChannel source,
+                         final long position,
+                         final long count,
+                         final IoCallback callback) {
+
+        new FileTransfer(exchange, sender, source, position, count, callback).handleEvent(exchange.getResponseChannel());
+    }
+
+    @Override
+    public void handleEvent(final StreamSinkChannel channel) {
+
+        try {
+            while (remaining > 0) {
+                //some of the response conduits read from the current position of the source instead of the given one
+                source.position(position);
+                final long transferred = channel.transferFrom(source, position, remaining);
+                if (transferred == 0) {
+                    if (position >= source.size()) {
+                        throw new EOFException("File was truncated during transfer");
+                    }
+                    channel.getWriteSetter().set(this);
+                    channel.resumeWrites();
+                    return;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        } catch (IOException e) {
+            channel.suspendWrites();
+            close();
+            callback.onException(exchange, sender, e);
+            return;
+        }
+        channel.suspendWrites();
+        close();
+        callback.onComplete(exchange, sender);
+    }
+
+    private void close() {
+
+        try {
+            source.close();
+        } catch (IOException e) {
+            LOG.debug("Could not close file channel", e);
+        }
+    }
+}
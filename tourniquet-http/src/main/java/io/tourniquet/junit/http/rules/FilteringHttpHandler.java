@@ -14,42 +14,111 @@
  * limitations under the License.
  */
 
+
 package io.tourniquet.junit.http.rules;
 
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
 
 /**
  * Handler for HTTP request that dispatches incoming request to matching handler. The request is handled by the first
  * matching handler.
+ * <br>
+ * To avoid evaluating the filters of all handlers for every request, handlers registered with a request method and
+ * parameters are indexed by method and by the value of one of their parameters. For a request, only the filters of the
+ * handlers whose method and indexed parameter value match the request and of the handlers that are not indexed are
+ * evaluated. The parameters of a request are parsed only once.
+ * <br>
+ * Requests are routed on the IO thread of the server and served there if the matching handler is able to respond
+ * without blocking, such as the handlers for static content. Otherwise the request is dispatched to a worker thread
+ * together with the routing result and the handler is invoked with blocking streams. Only if a filter that may block,
+ * i.e. by reading the request payload, has to be evaluated, the request is routed on the worker thread.
  */
 public class FilteringHttpHandler implements HttpHandler {
 
-    private final Map<Predicate<HttpExchange>, Consumer<HttpExchange>> handlers = new LinkedHashMap<>();
+    /**
+     * Routes that can not be indexed, in the order of their registration
+     */
+    private final List<Route> unindexed = new CopyOnWriteArrayList<>();
+
+    /**
+     * Indexed routes per request method
+     */
+    private final Map<String, MethodRoutes> methods = new ConcurrentHashMap<>();
+
+    /**
+     * The result of routing a request on the IO thread, passed to the worker thread when the request is dispatched
+     */
+    private static final AttachmentKey<Routed> ROUTED = AttachmentKey.create(Routed.class);
+
+    /**
+     * Marker for requests that can not be routed on the IO thread because a filter that may block has to be evaluated
+     */
+    private static final Route UNDECIDED = new Route(Integer.MAX_VALUE, x -> false, x -> {}, true);
+
+    private int sequence;
 
     @Override
     public void handleRequest(final HttpServerExchange exchange) throws Exception {
 
         if (exchange.isInIoThread()) {
-            exchange.dispatch(this);
+            if (!handleInIoThread(exchange)) {
+                exchange.dispatch(this);
+            }
         } else {
             exchange.startBlocking();
-            final HttpExchange ex = new HttpExchange(exchange);
-            this.handlers.entrySet()
-                         .stream()
-                         .filter(e -> e.getKey().test(ex))
-                         .map(Map.Entry::getValue)
-                         .findFirst()
-                         .ifPresent(handler -> handler.accept(ex));
+            final Routed routed = exchange.removeAttachment(ROUTED);
+            final HttpExchange ex = routed != null ? routed.exchange : new HttpExchange(exchange);
+            final RecordedRequest recorded = exchange.getAttachment(RequestJournal.RECORDED_REQUEST);
+            if (recorded != null && recorded.getBodyLimit() > 0) {
+                //one more byte than recorded is read to detect truncated bodies
+                recorded.setBody(ex.peekPayload(recorded.getBodyLimit() + 1));
+            }
+            final Route route = routed != null ? routed.route : route(ex, false);
+            if (route != null) {
+                route.handler.accept(ex);
+            }
         }
 
     }
 
+    /**
+     * Routes the request on the IO thread and lets the matching handler respond if it does not block. If the handler
+     * has to block, the routing result is attached to the exchange, so that the request is not routed again on the
+     * worker thread.
+     * @param exchange
+     *  the request
+     * @return
+     *  <code>true</code> if the request was handled, <code>false</code> if it has to be dispatched to a worker
+     *  thread
+     */
+    private boolean handleInIoThread(final HttpServerExchange exchange) {
+
+        final HttpExchange ex = new HttpExchange(exchange);
+        final Route route = route(ex, true);
+        if (route == UNDECIDED) {
+            return false;
+        }
+        if (route != null
+                && route.handler instanceof IoThreadHandler
+                && ((IoThreadHandler) route.handler).handleInIoThread(exchange)) {
+            return true;
+        }
+        exchange.putAttachment(ROUTED, new Routed(ex, route));
+        return false;
+    }
+
     /**
      * Adds a new handler that will receive requests, when specified predicate returns true.
      * @param filter
@@ -57,8 +126,200 @@ public class FilteringHttpHandler implements HttpHandler {
      * @param handler
      *  the handler to process the request.
      */
-    public void addHandler(Predicate<HttpExchange> filter, Consumer<HttpExchange> handler) {
+    public synchronized void addHandler(Predicate<HttpExchange> filter, Consumer<HttpExchange> handler) {
+
+        this.unindexed.add(new Route(sequence++, filter, handler, true));
+    }
+
+    /**
+     * Adds a new handler whose filter does not block, so that requests can be routed on the IO thread. Handlers
+     * implementing {@link IoThreadHandler} respond to the request on the IO thread.
+     * @param filter
+     *  the filter that activates the handler, it must not block
+     * @param handler
+     *  the handler to process the request.
+     */
+    synchronized void addNonBlockingHandler(Predicate<HttpExchange> filter, Consumer<HttpExchange> handler) {
+
+        this.unindexed.add(new Route(sequence++, filter, handler, false));
+    }
+
+    /**
+     * Adds a new handler for requests of the specified method and with the specified parameters. The handler is
+     * indexed, so that its filter is only evaluated for requests that may match.
+     * @param method
+     *  the request method of requests handled by the handler
+     * @param params
+     *  the parameters a request must contain to be handled by the handler, see
+     *  {@link HttpPredicates#matchesParams(Map, HttpMethod)}
+     * @param filter
+     *  the filter that activates the handler, it must include the match of the method and the parameters
+     * @param blocking
+     *  whether the filter may block, i.e. because it reads the payload of the request. Requests are only routed to
+     *  handlers with a blocking filter on a worker thread.
+     * @param handler
+     *  the handler to process the request.
+     */
+    synchronized void addHandler(HttpMethod method,
+                                 Map<String, List<String>> params,
+                                 Predicate<HttpExchange> filter,
+                                 boolean blocking,
+                                 Consumer<HttpExchange> handler) {
+
+        final Route route = new Route(sequence++, filter, handler, blocking);
+        final MethodRoutes routes = this.methods.computeIfAbsent(method.toString(),
+                                                                  m -> new MethodRoutes(method == HttpMethod.POST));
+        //a matching request contains one of the values of each parameter, so indexing a single parameter suffices
+        final Optional<Map.Entry<String, List<String>>> indexParam = new TreeMap<>(params).entrySet()
+                                                                                          .stream()
+                                                                                          .findFirst();
+        if (indexParam.isPresent()) {
+            final Map<String, List<Route>> byValue = routes.byParam.computeIfAbsent(indexParam.get().getKey(),
+                                                                                    k -> new ConcurrentHashMap<>());
+            indexParam.get()
+                      .getValue()
+                      .stream()
+                      .distinct()
+                      .forEach(value -> byValue.computeIfAbsent(value, v -> new CopyOnWriteArrayList<>()).add(route));
+        } else {
+            routes.withoutParams.add(route);
+        }
+    }
+
+    /**
+     * Determines the first registered route matching the request.
+     * @param exchange
+     *  the request
+     * @param nonBlocking
+     *  whether the request must be routed without blocking. If a filter that may block would have to be evaluated,
+     *  routing stops and {@link #UNDECIDED} is returned
+     * @return
+     *  the matching route with the lowest sequence number, <code>null</code> if no route matches or
+     *  {@link #UNDECIDED}
+     */
+    private Route route(HttpExchange exchange, boolean nonBlocking) {
+
+        Route first = first(this.unindexed, exchange, null, nonBlocking);
+        final MethodRoutes routes = this.methods.get(exchange.getRequestMethod());
+        if (routes != null && first != UNDECIDED) {
+            first = first(routes.withoutParams, exchange, first, nonBlocking);
+            if (!routes.byParam.isEmpty() && first != UNDECIDED) {
+                if (routes.formParams && nonBlocking) {
+                    //form parameters are parsed from the payload
+                    return UNDECIDED;
+                }
+                final Map<String, List<String>> params = routes.formParams
+                                                         ? exchange.getParsedFormParams()
+                                                         : exchange.getParsedQueryParams();
+                for (Map.Entry<String, List<String>> param : params.entrySet()) {
+                    final Map<String, List<Route>> byValue = routes.byParam.get(param.getKey());
+                    if (byValue != null) {
+                        for (String value : param.getValue()) {
+                            first = first(byValue.getOrDefault(value, Collections.emptyList()),
+                                          exchange,
+                                          first,
+                                          nonBlocking);
+                            if (first == UNDECIDED) {
+                                return UNDECIDED;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Finds the first route of the candidates that matches the request and was registered before the current match.
+     * @param candidates
+     *  the candidate routes, ordered by their sequence number
+     * @param exchange
+     *  the request
+     * @param current
+     *  the current match, may be <code>null</code>
+     * @param nonBlocking
+     *  whether filters that may block must not be evaluated
+     * @return
+     *  the route that matches and was registered first or {@link #UNDECIDED} if a filter that may block would have to
+     *  be evaluated
+     */
+    private static Route first(List<Route> candidates, HttpExchange exchange, Route current, boolean nonBlocking) {
+
+        for (Route route : candidates) {
+            if (current != null && route.sequence > current.sequence) {
+                return current;
+            }
+            if (nonBlocking && route.blocking) {
+                return UNDECIDED;
+            }
+            if (route.filter.test(exchange)) {
+                return route;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The routes registered for a single request method.
+     */
+    private static final class MethodRoutes {
+
+        /**
+         * Whether the parameters of requests are parsed from the payload instead of the query
+         */
+        private final boolean formParams;
+
+        private final List<Route> withoutParams = new CopyOnWriteArrayList<>();
+
+        /**
+         * Routes indexed by the name and a value of one of their parameters
+         */
+        private final Map<String, Map<String, List<Route>>> byParam = new ConcurrentHashMap<>();
+
+        MethodRoutes(final boolean formParams) {
+
+            this.formParams = formParams;
+        }
+    }
+
+    /**
+     * A handler together with the filter activating it.
+     */
+    private static final class Route {
+
+        private final int sequence;
+        private final Predicate<HttpExchange> filter;
+        private final Consumer<HttpExchange> handler;
+        private final boolean blocking;
+
+        Route(final int sequence,
+              final Predicate<HttpExchange> filter,
+              final Consumer<HttpExchange> handler,
+              final boolean blocking) {
 
-        this.handlers.put(filter, handler);
+            this.sequence = sequence;
+            this.filter = filter;
+            this.handler = handler;
+            this.blocking = blocking;
+        }
+    }
+
+    /**
+     * A request routed on the IO thread together with the matching route.
+     */
+    private static final class Routed {
+
+        private final HttpExchange exchange;
+        /**
+         * The matching route, <code>null</code> if no route matched
+         */
+        private final Route route;
+
+        Routed(final HttpExchange exchange, final Route route) {
+
+            this.exchange = exchange;
+            this.route = route;
+        }
     }
 }
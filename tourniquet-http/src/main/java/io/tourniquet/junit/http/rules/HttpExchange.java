@@ -16,24 +16,37 @@
 
 package io.tourniquet.junit.http.rules;
 
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.Cookie;
 import io.undertow.server.handlers.CookieImpl;
 import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 /**
  * Represents a communication between client and server. The exchange provides access to all relevant data received
@@ -41,11 +54,66 @@ import org.apache.commons.io.IOUtils;
  */
 public class HttpExchange {
 
+    private static final Pattern QUERY_PARAMS = Pattern.compile("[^\\s&=]+=[^&=]*((&amp;|&)[^\\s&=]+=[^&=]*)*");
+    private static final Pattern QUERY_PARAM_SEPARATOR = Pattern.compile("&amp;|&");
+    private static final Pattern FORM_PARAMS = Pattern.compile("[^\\s&=:]+(:|=).*((&amp;|&|\\n)[^\\s&=:]+(:|=).*)*");
+    private static final Pattern FORM_PARAM_SEPARATOR = Pattern.compile("&amp;|&\\n?");
+    private static final Pattern FORM_VALUE_SEPARATOR = Pattern.compile(":|=");
+
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
     private final HttpServerExchange exchange;
+    private final OutputStream outputStream;
     private byte[] payload;
+    private byte[] payloadHead;
+    private boolean payloadStreamed;
+    private long payloadChecksum = -1;
+    private Map<String, List<String>> queryParams;
+    private Map<String, List<String>> formParams;
 
     HttpExchange(HttpServerExchange exchange) {
         this.exchange = exchange;
+        this.outputStream = null;
+    }
+
+    private HttpExchange(HttpExchange source, OutputStream outputStream) {
+        this.exchange = source.exchange;
+        this.outputStream = outputStream;
+        this.payload = source.payload;
+        this.payloadHead = source.payloadHead;
+        this.payloadStreamed = source.payloadStreamed;
+        this.payloadChecksum = source.payloadChecksum;
+        this.queryParams = source.queryParams;
+        this.formParams = source.formParams;
+    }
+
+    /**
+     * Creates a view of this exchange whose response content is written to the specified stream instead of the
+     * response. The already read payload and parsed parameters are shared with this exchange.
+     * @param outputStream
+     *  the stream to write the response content to
+     * @return
+     *  a new exchange for the same request
+     */
+    HttpExchange withOutputStream(OutputStream outputStream) {
+        return new HttpExchange(this, outputStream);
+    }
+
+    /**
+     * @return
+     *  <code>true</code> if the response content is written directly to the response, <code>false</code> if it is
+     *  written to a stream set by {@link #withOutputStream(OutputStream)}
+     */
+    boolean writesToResponse() {
+        return this.outputStream == null;
+    }
+
+    /**
+     * @return
+     *  the underlying Undertow exchange
+     */
+    HttpServerExchange getServerExchange() {
+        return this.exchange;
     }
 
     public String getRequestMethod(){
@@ -66,25 +134,221 @@ public class HttpExchange {
         return this.exchange.getHostAndPort();
     }
 
+    /**
+     * Provides a stream of the payload of the request. The stream reads the payload that is kept by the exchange, so
+     * the payload may be read multiple times without being copied.
+     * @return
+     *  a new stream of the payload
+     */
     public InputStream getInputStream() {
-        return new ByteArrayInputStream(getPayload());
+        return new ByteArrayInputStream(readPayload());
     }
 
+    /**
+     * Provides a stream of the payload of the request for reading large payloads without keeping them in memory. If
+     * the payload has already been read, i.e. to match it against a stub, the stream reads the payload that is kept
+     * by the exchange. Otherwise the payload is streamed from the request, so it can not be read again afterwards.
+     * @return
+     *  a stream of the payload
+     * @throws IllegalStateException
+     *  if the payload has already been streamed from the request
+     */
+    public InputStream streamPayload() {
+        if (this.payload != null) {
+            return new ByteArrayInputStream(this.payload);
+        }
+        checkNotStreamed();
+        this.payloadStreamed = true;
+        return payloadStream();
+    }
+
+    /**
+     * Provides a copy of the payload of the request. Use {@link #getPayloadBuffer()} to access large payloads without
+     * copying them.
+     * @return
+     *  a copy of the payload
+     */
     public byte[] getPayload() {
-        if(this.payload == null){
+        final byte[] data = readPayload();
+        final byte[] copy = new byte[data.length];
+        System.arraycopy(data, 0, copy, 0, data.length);
+        return copy;
+    }
+
+    /**
+     * Provides a read-only view of the payload of the request. The payload is not copied.
+     * @return
+     *  a read-only buffer of the payload
+     */
+    public ByteBuffer getPayloadBuffer() {
+        return ByteBuffer.wrap(readPayload()).asReadOnlyBuffer();
+    }
+
+    /**
+     * The payload of the request. The payload is read from the request once per exchange and not copied, so the
+     * returned array must not be modified.
+     * @return
+     *  the payload kept by the exchange
+     */
+    byte[] readPayload() {
+        if (this.payload == null) {
+            checkNotStreamed();
             try {
-                this.payload = IOUtils.toByteArray(this.exchange.getInputStream());
+                this.payload = read(payloadStream(),
+                                    this.exchange.getRequestHeaders().getFirst(Headers.CONTENT_LENGTH));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
-        final byte[] data = new byte[this.payload.length];
-        System.arraycopy(this.payload, 0, data, 0, this.payload.length);
-        return data;
+        return this.payload;
+    }
+
+    /**
+     * The first bytes of the payload of the request. Only the requested bytes are read from the request, they are
+     * kept by the exchange and provided again when the payload is read, so the payload is still readable entirely.
+     * Requests without a body are not read at all. The bytes are read into an array in the size of the payload if
+     * its length is known, otherwise the array is grown while reading.
+     * @param limit
+     *  the maximum number of bytes to read
+     * @return
+     *  the first bytes of the payload, fewer than the limit if the payload is shorter
+     */
+    byte[] peekPayload(int limit) {
+        if (this.payload != null) {
+            return Arrays.copyOf(this.payload, Math.min(limit, this.payload.length));
+        }
+        if (this.payloadHead == null) {
+            checkNotStreamed();
+            final long contentLength = this.exchange.getRequestContentLength();
+            if (contentLength == 0 || contentLength < 0 && !hasChunkedBody()) {
+                return NO_PAYLOAD;
+            }
+            try {
+                this.payloadHead = contentLength > 0 && contentLength <= limit
+                                   ? IOUtils.toByteArray(this.exchange.getInputStream(), contentLength)
+                                   : IOUtils.toByteArray(new BoundedInputStream(this.exchange.getInputStream(),
+                                                                                limit));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return this.payloadHead;
+    }
+
+    private boolean hasChunkedBody() {
+        final String transferEncoding = this.exchange.getRequestHeaders().getFirst(Headers.TRANSFER_ENCODING);
+        return transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked");
+    }
+
+    private void checkNotStreamed() {
+        if (this.payloadStreamed) {
+            throw new IllegalStateException("The payload has already been streamed from the request");
+        }
+    }
+
+    /**
+     * The stream of the payload, starting with the bytes already read by {@link #peekPayload(int)}.
+     */
+    private InputStream payloadStream() {
+        if (this.payloadHead == null) {
+            return this.exchange.getInputStream();
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(this.payloadHead), this.exchange.getInputStream());
+    }
+
+    /**
+     * Reads the payload into an array. If the length of the payload is known, the array is allocated once in the size
+     * of the payload, otherwise the array is grown while reading.
+     */
+    private static byte[] read(InputStream in, String contentLength) throws IOException {
+        if (contentLength != null) {
+            try {
+                final long length = Long.parseLong(contentLength);
+                if (length >= 0 && length < Integer.MAX_VALUE) {
+                    return IOUtils.toByteArray(in, length);
+                }
+            } catch (NumberFormatException e) {
+                //the payload is read until the end of the stream
+            }
+        }
+        return IOUtils.toByteArray(in);
+    }
+
+    /**
+     * The checksum of the payload of the request, which allows to compare the payload with multiple expected payloads
+     * without comparing the entire content. The checksum is calculated once per exchange.
+     * @return
+     *  the CRC32 checksum of the payload
+     */
+    long getPayloadChecksum() {
+        if (this.payloadChecksum < 0) {
+            this.payloadChecksum = checksum(readPayload());
+        }
+        return this.payloadChecksum;
+    }
+
+    /**
+     * Calculates the checksum of a payload as used by {@link #getPayloadChecksum()}
+     * @param data
+     *  the payload
+     * @return
+     *  the CRC32 checksum of the payload
+     */
+    static long checksum(byte[] data) {
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    /**
+     * The parameters of the query string of the request. The query is parsed once per exchange.
+     * @return
+     *  a map of parameter names and the values of that parameter. The map is empty if the query string contains no
+     *  well-formed parameters
+     */
+    Map<String, List<String>> getParsedQueryParams() {
+        if (this.queryParams == null) {
+            final String query = getQueryString();
+            if (QUERY_PARAMS.matcher(query).matches()) {
+                this.queryParams = QUERY_PARAM_SEPARATOR.splitAsStream(query)
+                                                        .map(nameValuePair -> nameValuePair.split("="))
+                                                        .collect(groupingBy(s -> s[0],
+                                                                            mapping(s -> s.length > 1 ? s[1] : "",
+                                                                                    toList())));
+            } else {
+                this.queryParams = Collections.emptyMap();
+            }
+        }
+        return this.queryParams;
+    }
+
+    /**
+     * The form parameters contained in the payload of the request. The payload is parsed once per exchange.
+     * @return
+     *  a map of parameter names and the values of that parameter. The map is empty if the payload contains no
+     *  well-formed parameters
+     */
+    Map<String, List<String>> getParsedFormParams() {
+        if (this.formParams == null) {
+            final String content = new String(readPayload());
+            if (FORM_PARAMS.matcher(content).matches()) {
+                this.formParams = FORM_PARAM_SEPARATOR.splitAsStream(content)
+                                                      .map(FORM_VALUE_SEPARATOR::split)
+                                                      .collect(groupingBy(s -> s[0],
+                                                                          mapping(s -> s.length > 1 ? s[1] : "",
+                                                                                  toList())));
+            } else {
+                this.formParams = Collections.emptyMap();
+            }
+        }
+        return this.formParams;
     }
 
     public OutputStream getOutputStream() {
 
+        if (this.outputStream != null) {
+            return this.outputStream;
+        }
         return this.exchange.getOutputStream();
     }
 
@@ -16,17 +16,11 @@
 
 package io.tourniquet.junit.http.rules;
 
-import static java.util.stream.Collectors.groupingBy;
-
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Predicates for matching incoming requests
@@ -63,7 +57,8 @@ final class HttpPredicates {
      * Predicate to match the parameters of a request. If the request is a GET request, the query parameters
      * are checked. If it is a POST request, the content of the request is parsed to form parameters and compared
      * with the expected parameters. All expected parameters defined has to be contained in the request. If the
-     * request contains more parameters they are ignored.
+     * request contains more parameters they are ignored. The parameters of the request are parsed once per exchange and
+     * not at all if no parameters are expected.
      * @param params
      *  the expected parameters
      * @param method
@@ -73,46 +68,30 @@ final class HttpPredicates {
      */
     public static Predicate<HttpExchange> matchesParams(Map<String,List<String>> params, HttpMethod method) {
 
-        return x -> params.entrySet().stream().allMatch(matchesParam(() -> {
-            if (method == HttpMethod.POST) {
-                return getFormParams(x);
-            } else {
-                return getQueryParams(x);
-            }
-        }));
+        if (params.isEmpty()) {
+            return x -> true;
+        }
+        return x -> {
+            final Map<String, List<String>> requestParams = method == HttpMethod.POST
+                                                            ? x.getParsedFormParams()
+                                                            : x.getParsedQueryParams();
+            return params.entrySet().stream().allMatch(matchesParam(requestParams));
+        };
     }
 
-    private static Predicate<Map.Entry<String, List<String>>> matchesParam(Supplier<Map<String, List<String>>> requestParams) {
+    private static Predicate<Map.Entry<String, List<String>>> matchesParam(Map<String, List<String>> params) {
 
-        final Map<String, List<String>> params = requestParams.get();
         return e -> params.containsKey(e.getKey()) && params.get(e.getKey()).stream().anyMatch(s -> e.getValue().contains(s));
     }
 
-    private static Map<String,List<String>> getQueryParams(final HttpExchange x) {
-        String query = x.getQueryString();
-        if (query.matches("[^\\s&=]+=[^&=]*((&amp;|&)[^\\s&=]+=[^&=]*)*")) {
-            return Stream.of(query.split("&amp;|&"))
-                         .map(nameValuePair -> nameValuePair.split("="))
-                         .collect(groupingBy(s -> s[0], Collectors.mapping(s -> s[1], Collectors.toList())));
-        }
-        return Collections.emptyMap();
-    }
-
-    private static Map<String, List<String>> getFormParams(final HttpExchange x) {
-        String payload = new String(x.getPayload());
-        if (payload.matches("[^\\s&=:]+(:|=).*((&amp;|&|\\n)[^\\s&=:]+(:|=).*)*")) {
-            return Stream.of(payload.split("&amp;|&\\n?"))
-                         .map(nameValuePair -> nameValuePair.split(":|="))
-                         .collect(groupingBy(s -> s[0], Collectors.mapping(s -> s.length > 1 ? s[1] : "", Collectors
-                                 .toList())));
-        }
-        return Collections.emptyMap();
-    }
-
     /**
      * Predicate to match the payload of a request. The content of the request is byte-wise compared agains the
      * expected payload. As payloads are optional, the expected payload is optional, too, and can be empty. If the
      * optional is empty, all requests match.
+     * <br>
+     * The checksum of the expected payload is calculated once, so that requests with a different length or checksum are
+     * rejected without comparing their content. The payload of a request is neither copied nor checksummed more than
+     * once, even if it is matched against many stubs.
      * @param payload
      *  the expected payload
      * @return
@@ -120,7 +99,17 @@ final class HttpPredicates {
      */
     public static Predicate<HttpExchange> matchedPayload(Optional<byte[]> payload) {
 
-        return x -> payload.map(pl -> Arrays.equals(pl, x.getPayload())).orElse(true);
+        if (!payload.isPresent()) {
+            return x -> true;
+        }
+        final byte[] expected = payload.get();
+        final long checksum = HttpExchange.checksum(expected);
+        return x -> {
+            final byte[] actual = x.readPayload();
+            return actual.length == expected.length
+                    && x.getPayloadChecksum() == checksum
+                    && Arrays.equals(expected, actual);
+        };
     }
 
     /**
@@ -29,6 +29,7 @@ import java.nio.file.FileSystem;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -56,6 +57,16 @@ public class HttpServer extends ExternalResource {
 
     private static final Logger LOG = getLogger(HttpServer.class);
 
+    /**
+     * Number of requests recorded in the journal if recording is enabled without specifying a capacity
+     */
+    static final int DEFAULT_JOURNAL_CAPACITY = 1000;
+
+    /**
+     * Number of bytes of the body of each request recorded in the journal if no body limit is specified
+     */
+    static final int DEFAULT_JOURNAL_BODY_LIMIT = 16 * 1024;
+
     private final String hostname;
 
     private final int port;
@@ -64,6 +75,12 @@ public class HttpServer extends ExternalResource {
 
     private final Map<String, FilteringHttpHandler> actionHandlers = new LinkedHashMap<>();
 
+    private final ResourceCache resourceCache;
+
+    private final HttpServerOptions options;
+
+    private final RequestJournal journal;
+
     private Undertow server;
 
     private PathHandler pathHandler;
@@ -103,9 +120,45 @@ public class HttpServer extends ExternalResource {
      */
     public HttpServer(final String hostname, final int port, final Map<String, Object> resources) {
 
+        this(hostname,
+             port,
+             resources,
+             null,
+             new HttpServerOptions(),
+             null);
+    }
+
+    /**
+     * Creates a http server for the specified hostname and tcp port. The server serves the content on the context paths
+     * provided in the resource map. The content of zip and URL resources is kept in the specified cache, the
+     * Undertow server is tuned using the specified options and received requests are recorded in the journal.
+     *
+     * @param hostname
+     *         the hostname the server listens on.
+     * @param port
+     *         the tcp port the server is accepting incoming connections.
+     * @param resources
+     *         the resources to serve, mapped by their context path
+     * @param resourceCache
+     *         the cache for the content of zip and URL resources, may be <code>null</code> to disable caching
+     * @param options
+     *         the tuning options of the server
+     * @param journal
+     *         the journal recording the received requests, may be <code>null</code> to disable recording
+     */
+    HttpServer(final String hostname,
+               final int port,
+               final Map<String, Object> resources,
+               final ResourceCache resourceCache,
+               final HttpServerOptions options,
+               final RequestJournal journal) {
+
         this.hostname = hostname;
         this.port = port;
         this.resources = resources;
+        this.resourceCache = resourceCache;
+        this.options = options;
+        this.journal = journal;
     }
 
     @Override
@@ -131,7 +184,15 @@ public class HttpServer extends ExternalResource {
             addResource(path, resource);
         }
 
-        this.server = Undertow.builder().addHttpListener(this.port, this.hostname).setHandler(pathHandler).build();
+        final HttpHandler rootHandler;
+        if (this.journal == null) {
+            rootHandler = pathHandler;
+        } else {
+            this.journal.clear();
+            this.journal.open();
+            rootHandler = new JournalingHandler(this.journal, pathHandler);
+        }
+        this.server = options.applyTo(Undertow.builder().addHttpListener(this.port, this.hostname), rootHandler).build();
         LOG.info("Starting HTTP server");
         this.server.start();
         LOG.info("HTTP Server running");
@@ -173,16 +234,16 @@ public class HttpServer extends ExternalResource {
                 addPrefixPath(path, new ResourceHandler(new PathResourceManager(resourcePath, 1024)));
             } else if (resource instanceof TemporaryFile) {
                 final Path resourcePath = ((TemporaryFile) resource).getFile().toPath();
-                addAction(path, matchesQuery(query), new PathResourceHandler(resourcePath));
+                addResourceAction(path, matchesQuery(query), new PathResourceHandler(resourcePath));
             } else if (resource instanceof URL) {
                 final URL url = (URL) resource;
                 if (url.getPath().endsWith(".zip")) {
                     addPrefixPath(path, createZipResourceHandler(url));
                 } else {
-                    addAction(path, matchesQuery(query), new UrlResourceHandler(url));
+                    addResourceAction(path, matchesQuery(query), new UrlResourceHandler(url, resourceCache));
                 }
             } else if (resource instanceof byte[]) {
-                addAction(path, matchesQuery(query), new ByteArrayResourceHandler((byte[]) resource));
+                addResourceAction(path, matchesQuery(query), new ByteArrayResourceHandler((byte[]) resource));
             }
         } catch (IOException e) {
             throw new AssertionError("Could not add Resource", e);
@@ -195,11 +256,32 @@ public class HttpServer extends ExternalResource {
         this.pathHandler.addPrefixPath(path, httpHandler);
     }
 
-    void addAction(String path, Predicate<HttpExchange> filter, Consumer<HttpExchange> handler) {
+    void addAction(String path,
+                   HttpMethod method,
+                   Map<String, List<String>> params,
+                   Predicate<HttpExchange> filter,
+                   boolean blocking,
+                   Consumer<HttpExchange> handler) {
+
+        actionHandler(path).addHandler(method, params, filter, blocking, handler);
+    }
+
+    private void addResourceAction(String path,
+                                   Predicate<HttpExchange> filter,
+                                   io.tourniquet.junit.http.rules.ResourceHandler handler) {
+
+        actionHandler(path).addNonBlockingHandler(filter, handler);
+    }
+
+    private FilteringHttpHandler actionHandler(String path) {
 
-        this.actionHandlers.putIfAbsent(path, new FilteringHttpHandler());
-        this.actionHandlers.get(path).addHandler(filter, handler);
-        this.pathHandler.addExactPath(path, this.actionHandlers.get(path));
+        FilteringHttpHandler handler = this.actionHandlers.get(path);
+        if (handler == null) {
+            handler = new FilteringHttpHandler();
+            this.actionHandlers.put(path, handler);
+            this.pathHandler.addExactPath(path, handler);
+        }
+        return handler;
     }
 
     /**
@@ -221,7 +303,10 @@ public class HttpServer extends ExternalResource {
             throw new RuntimeException("Could not access zip file", e);
         }
         final ResourceManager resMgr = new FileSystemResourceManager(fileSystem);
-        return new ResourceHandler(resMgr);
+        if (resourceCache == null) {
+            return new ResourceHandler(resMgr);
+        }
+        return new ResourceHandler(new CachingResourceManager(resMgr, zipFile.toString(), resourceCache));
     }
 
     @Override
@@ -229,6 +314,12 @@ public class HttpServer extends ExternalResource {
 
         LOG.info("Stopping HTTP server");
         this.server.stop();
+        if (this.resourceCache != null) {
+            this.resourceCache.clear();
+        }
+        if (this.journal != null) {
+            this.journal.close();
+        }
         LOG.info("HTTP Server stopped");
     }
 
@@ -266,6 +357,38 @@ public class HttpServer extends ExternalResource {
         return new ResponseStubbing(this).method(method);
     }
 
+    /**
+     * Provides the journal of the requests received by the server.
+     *
+     * @return the request journal
+     *
+     * @throws IllegalStateException
+     *         if the server does not record requests, see {@link HttpServerBuilder#recordRequests()}
+     */
+    public RequestJournal getJournal() {
+
+        if (journal == null) {
+            throw new IllegalStateException("Request journal is disabled, enable it with recordRequests()");
+        }
+        return journal;
+    }
+
+    /**
+     * Entry point for verifying the requests received by the server, i.e.
+     * <pre>
+     *     server.verify(GET("/index.html")).times(3);
+     * </pre>
+     *
+     * @param pattern
+     *         the pattern the requests to verify have to match
+     *
+     * @return a verification of the number of matching requests
+     */
+    public RequestVerification verify(RequestPattern pattern) {
+
+        return new RequestVerification(getJournal(), pattern);
+    }
+
     /**
      * Creates an URL to the root path of the http server, i.e. 'http://localhost:8080/'
      *
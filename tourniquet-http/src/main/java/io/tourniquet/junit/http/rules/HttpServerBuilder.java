@@ -17,6 +17,8 @@
 package io.tourniquet.junit.http.rules;
 
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.junit.rules.TemporaryFolder;
@@ -41,6 +43,11 @@ public class HttpServerBuilder implements Builder<HttpServer> {
     private String serverHostname = "localhost";
     private final ResourceResolver resolver = new ResourceResolver(true);
     private final Map<String, Object> resources = new LinkedHashMap<>();
+    private long resourceCacheSize;
+    private final HttpServerOptions options = new HttpServerOptions();
+    private int journalCapacity;
+    private int journalBodyLimit = HttpServer.DEFAULT_JOURNAL_BODY_LIMIT;
+    private Path journalSpillFile;
 
     @Override
     public HttpServer build() {
@@ -48,7 +55,11 @@ public class HttpServerBuilder implements Builder<HttpServer> {
         if(port < 0){
             port = NetworkUtils.findAvailablePort();
         }
-        return new HttpServer(serverHostname, port, resources);
+        final ResourceCache cache = resourceCacheSize > 0 ? new ResourceCache(resourceCacheSize) : null;
+        final RequestJournal journal = journalCapacity > 0
+                                       ? new RequestJournal(journalCapacity, journalBodyLimit, journalSpillFile)
+                                       : null;
+        return new HttpServer(serverHostname, port, resources, cache, options, journal);
     }
 
     /**
@@ -137,4 +148,179 @@ public class HttpServerBuilder implements Builder<HttpServer> {
         resources.put(path, resource);
         return this;
     }
+
+    /**
+     * Defines static content to be hosted on the specified path. The content is served directly by the IO threads of
+     * the server.
+     * @param path
+     *  the path where the content is accessible from the server
+     * @param content
+     *  the content to be served
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder contentFrom(final String path, final byte[] content) {
+        resources.put(path, content);
+        return this;
+    }
+
+    /**
+     * Enables an off-heap cache for the content of zip and URL resources. The content is read from the zip file or
+     * the URL on the first request and served from memory afterwards, together with an ETag derived from the content.
+     * If the cached content exceeds the maximum size, the least recently used content is evicted.
+     * @param maxSize
+     *  the maximum number of bytes of cached content
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder cacheResources(final long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.resourceCacheSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of IO threads of the server. The IO threads accept connections and read requests. Static
+     * content is served directly by the IO threads.
+     * @param ioThreads
+     *  the number of IO threads, at least 2. By default the server uses one IO thread per CPU core.
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder ioThreads(final int ioThreads) {
+        this.options.setIoThreads(ioThreads);
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads of the server. The worker threads process stubbed responses.
+     * @param workerThreads
+     *  the number of worker threads. By default the server uses 8 worker threads per IO thread.
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder workerThreads(final int workerThreads) {
+        this.options.setWorkerThreads(workerThreads);
+        return this;
+    }
+
+    /**
+     * Sets the size of the buffers the server uses for reading requests and writing responses.
+     * @param bufferSize
+     *  the size of a buffer in bytes
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder bufferSize(final int bufferSize) {
+        this.options.setBufferSize(bufferSize);
+        return this;
+    }
+
+    /**
+     * Defines whether the buffers of the server are allocated off-heap.
+     * @param directBuffers
+     *  <code>true</code> to use direct buffers
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder directBuffers(final boolean directBuffers) {
+        this.options.setDirectBuffers(directBuffers);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pending connections that have not been accepted by the server yet.
+     * @param backlog
+     *  the size of the backlog of the server socket
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder backlog(final int backlog) {
+        this.options.setBacklog(backlog);
+        return this;
+    }
+
+    /**
+     * Sets the time after which an idle keep-alive connection is closed by the server.
+     * @param idleTimeout
+     *  the maximum idle time of a connection
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder idleTimeout(final Duration idleTimeout) {
+        this.options.setIdleTimeout(idleTimeout);
+        return this;
+    }
+
+    /**
+     * Enables HTTP/2 over plain text (h2c). Clients may either upgrade a HTTP/1.1 connection or use HTTP/2 with
+     * prior knowledge. HTTP/1.1 clients are served as before.
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder http2() {
+        this.options.setHttp2(true);
+        return this;
+    }
+
+    /**
+     * Records the received requests in a request journal, so that they can be verified after the test. The journal
+     * keeps the last 1000 requests unless a different capacity is set. By default requests are not recorded.
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder recordRequests() {
+        if (this.journalCapacity == 0) {
+            this.journalCapacity = HttpServer.DEFAULT_JOURNAL_CAPACITY;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of requests the server keeps in its request journal for verification. If more requests are
+     * received, the oldest requests are evicted from the journal.
+     * @param capacity
+     *  the maximum number of recorded requests, 0 disables the journal. By default requests are not recorded.
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder journalCapacity(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Journal capacity must not be negative");
+        }
+        this.journalCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes of the body of each request that are recorded in the request journal. Longer
+     * bodies are truncated, only the recorded bytes are read ahead of the handler of the request.
+     * @param bodyLimit
+     *  the maximum number of bytes, 0 to not record bodies at all. By default 16 KiB are recorded.
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder journalBodyLimit(final int bodyLimit) {
+        if (bodyLimit < 0) {
+            throw new IllegalArgumentException("Body limit must not be negative");
+        }
+        this.journalBodyLimit = bodyLimit;
+        return this;
+    }
+
+    /**
+     * Writes requests that are evicted from the request journal to the specified file, so that they are available for
+     * analysis after the test. The requests are written by a background thread. If it can not keep up with the
+     * server, evicted requests are dropped.
+     * @param spillFile
+     *  the file to append the evicted requests to
+     * @return
+     *  this builder
+     */
+    public HttpServerBuilder journalSpillTo(final Path spillFile) {
+        this.journalSpillFile = spillFile;
+        return this;
+    }
 }
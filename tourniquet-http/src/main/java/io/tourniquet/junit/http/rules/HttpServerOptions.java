@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.time.Duration;
+
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.protocol.http2.Http2UpgradeHandler;
+import org.xnio.Options;
+
+/**
+ * Tuning options of the Undertow server of a {@link HttpServer}. Options that are not set keep the defaults of
+ * Undertow.
+ */
+class HttpServerOptions {
+
+    private int ioThreads;
+    private int workerThreads;
+    private int bufferSize;
+    private Boolean directBuffers;
+    private int backlog;
+    private Duration idleTimeout;
+    private boolean http2;
+
+    void setIoThreads(final int ioThreads) {
+        //Undertow balances accepted connections between the IO threads which requires at least two of them
+        if (ioThreads < 2) {
+            throw new IllegalArgumentException("At least 2 IO threads are required");
+        }
+        this.ioThreads = ioThreads;
+    }
+
+    void setWorkerThreads(final int workerThreads) {
+        this.workerThreads = requirePositive(workerThreads, "Worker threads");
+    }
+
+    void setBufferSize(final int bufferSize) {
+        this.bufferSize = requirePositive(bufferSize, "Buffer size");
+    }
+
+    void setDirectBuffers(final boolean directBuffers) {
+        this.directBuffers = directBuffers;
+    }
+
+    void setBacklog(final int backlog) {
+        this.backlog = requirePositive(backlog, "Backlog");
+    }
+
+    void setIdleTimeout(final Duration idleTimeout) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        this.idleTimeout = idleTimeout;
+    }
+
+    void setHttp2(final boolean http2) {
+        this.http2 = http2;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * Applies the options to the builder of an Undertow server.
+     * @param builder
+     *  the builder of the server
+     * @param rootHandler
+     *  the handler for all requests to the server
+     * @return
+     *  the builder
+     */
+    Undertow.Builder applyTo(final Undertow.Builder builder, final HttpHandler rootHandler) {
+        if (ioThreads > 0) {
+            builder.setIoThreads(ioThreads);
+        }
+        if (workerThreads > 0) {
+            builder.setWorkerThreads(workerThreads);
+        }
+        if (bufferSize > 0) {
+            builder.setBufferSize(bufferSize);
+        }
+        if (directBuffers != null) {
+            builder.setDirectBuffers(directBuffers);
+        }
+        if (backlog > 0) {
+            builder.setSocketOption(Options.BACKLOG, backlog);
+        }
+        if (idleTimeout != null) {
+            builder.setServerOption(UndertowOptions.IDLE_TIMEOUT, (int) Math.min(Integer.MAX_VALUE,
+                                                                                   idleTimeout.toMillis()));
+        }
+        if (http2) {
+            //the plain http listener only speaks h2c when connections are upgraded by the upgrade handler
+            builder.setServerOption(UndertowOptions.ENABLE_HTTP2, true);
+            builder.setHandler(new Http2UpgradeHandler(rootHandler));
+        } else {
+            builder.setHandler(rootHandler);
+        }
+        return builder;
+    }
+}
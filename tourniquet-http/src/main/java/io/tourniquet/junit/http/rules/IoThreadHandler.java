@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import io.undertow.server.HttpServerExchange;
+
+/**
+ * A handler that is able to respond to a request directly on the IO thread of the server using asynchronous writes,
+ * without dispatching the request to a worker thread. Handlers of static content implement this interface so that
+ * requests to such content are served without a thread hop.
+ */
+interface IoThreadHandler {
+
+    /**
+     * Responds to a request on the IO thread. The handler must not block.
+     *
+     * @param exchange
+     *         the exchange to respond to
+     *
+     * @return <code>true</code> if the request was handled, <code>false</code> if the handler can not respond to the
+     * request without blocking and the request has to be dispatched to a worker thread
+     */
+    boolean handleInIoThread(HttpServerExchange exchange);
+}
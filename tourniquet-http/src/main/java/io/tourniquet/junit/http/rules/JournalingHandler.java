@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+
+/**
+ * Handler recording every request in a {@link RequestJournal} before passing it on to the next handler. The request
+ * is recorded on the IO thread. Its body is added by the {@link FilteringHttpHandler} once the body has been read on a
+ * worker thread.
+ */
+class JournalingHandler implements HttpHandler {
+
+    private final RequestJournal journal;
+
+    private final HttpHandler next;
+
+    JournalingHandler(final RequestJournal journal, final HttpHandler next) {
+
+        this.journal = journal;
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+
+        exchange.putAttachment(RequestJournal.RECORDED_REQUEST, journal.record(exchange));
+        next.handleRequest(exchange);
+    }
+}
@@ -16,16 +16,39 @@
 
 package io.tourniquet.junit.http.rules;
 
+import static org.slf4j.LoggerFactory.getLogger;
+
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+
+import io.undertow.io.IoCallback;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ByteRange;
+import io.undertow.util.DateUtils;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.slf4j.Logger;
 
 /**
  * ResourceHandler that serves resources from a FileSystem {@link java.nio.file.Path}. The path may be of a physical
- * {@link java.nio.file.FileSystem} or a virtual one, such as a ZipFileSystem.
+ * {@link java.nio.file.FileSystem} or a virtual one, such as a ZipFileSystem. Files of the default file system are
+ * transferred directly on the IO thread of the server without copying the content through the heap. For those files
+ * the handler sets the <code>Content-Length</code>, <code>ETag</code> and <code>Last-Modified</code> headers, answers
+ * conditional requests and single byte range requests. Files of other file systems are served by a worker thread.
  */
-public class PathResourceHandler extends ResourceHandler {
+public class PathResourceHandler extends ResourceHandler implements IoThreadHandler {
+
+    private static final Logger LOG = getLogger(PathResourceHandler.class);
 
     private final Path path;
 
@@ -38,6 +61,86 @@ public class PathResourceHandler extends ResourceHandler {
         this.path = resourcePath;
     }
 
+    @Override
+    public boolean handleInIoThread(final HttpServerExchange exchange) {
+
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            return false;
+        }
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            LOG.error("Could not read attributes of {}", path, e);
+            exchange.setStatusCode(500);
+            exchange.endExchange();
+            return true;
+        }
+        final long size = attributes.size();
+        final Date lastModified = new Date(attributes.lastModifiedTime().toMillis());
+        final ETag etag = FileSystemResource.etagOf(attributes);
+
+        final HeaderMap headers = exchange.getResponseHeaders();
+        headers.put(Headers.ETAG, etag.toString());
+        headers.put(Headers.LAST_MODIFIED, DateUtils.toDateString(lastModified));
+        headers.put(Headers.ACCEPT_RANGES, "bytes");
+        if (!ETagUtils.handleIfNoneMatch(exchange, etag, true)
+                || !DateUtils.handleIfModifiedSince(exchange, lastModified)) {
+            exchange.setStatusCode(304);
+            exchange.endExchange();
+            return true;
+        }
+
+        long start = 0;
+        long length = size;
+        String contentRange = null;
+        final ByteRange range = ByteRange.parse(exchange.getRequestHeaders().getFirst(Headers.RANGE));
+        //multiple ranges are not supported, the entire file is sent instead which is a valid response to such request
+        if (range != null && range.getRanges() == 1) {
+            long first = range.getStart(0);
+            long last = range.getEnd(0);
+            if (first == -1) {
+                //suffix range, the end denotes the number of bytes
+                first = Math.max(0, size - last);
+                last = size - 1;
+            } else if (last == -1 || last >= size) {
+                last = size - 1;
+            }
+            if (first >= size || first > last) {
+                exchange.setStatusCode(416);
+                headers.put(Headers.CONTENT_RANGE, "bytes */" + size);
+                exchange.endExchange();
+                return true;
+            }
+            contentRange = "bytes " + first + "-" + last + "/" + size;
+            start = first;
+            length = last - first + 1;
+        }
+
+        FileChannel channel = null;
+        if (!Methods.HEAD.equals(exchange.getRequestMethod())) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (IOException e) {
+                LOG.error("Could not open {}", path, e);
+                exchange.setStatusCode(500);
+                exchange.endExchange();
+                return true;
+            }
+        }
+        if (contentRange != null) {
+            exchange.setStatusCode(206);
+            headers.put(Headers.CONTENT_RANGE, contentRange);
+        }
+        exchange.setResponseContentLength(length);
+        if (channel == null) {
+            exchange.endExchange();
+            return true;
+        }
+        FileTransfer.transfer(exchange, exchange.getResponseSender(), channel, start, length, IoCallback.END_EXCHANGE);
+        return true;
+    }
+
     @Override
     protected void writeResource(final OutputStream outputStream, String queryString) throws IOException {
             Files.copy(path, outputStream);
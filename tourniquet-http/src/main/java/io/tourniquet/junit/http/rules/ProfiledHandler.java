@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.undertow.server.Connectors;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.SameThreadExecutor;
+import org.slf4j.Logger;
+import org.xnio.IoUtils;
+import org.xnio.Options;
+import org.xnio.XnioWorker;
+
+/**
+ * Handler applying a {@link ResponseProfile} to the response of another handler. The delay of the profile is awaited on
+ * the IO thread of the exchange, so no worker thread is blocked while the response is delayed. Afterwards the other
+ * handler is invoked on a worker thread. If the bandwidth of the profile is limited, its content is sent by the IO
+ * thread at the limited rate using a {@link ThrottledTransfer}, so no worker thread sleeps while the response is
+ * throttled. The content is never buffered entirely, so large, generated and endless streaming responses may be
+ * profiled as well.
+ */
+class ProfiledHandler implements Consumer<HttpExchange> {
+
+    private static final Logger LOG = getLogger(ProfiledHandler.class);
+
+    /**
+     * Interval in milliseconds in which the bandwidth budget of a throttled response is renewed
+     */
+    static final long TICK_MILLIS = 50;
+
+    private final ResponseProfile profile;
+
+    private final Consumer<HttpExchange> handler;
+
+    /**
+     * Creates a handler applying the profile to the response of the specified handler.
+     * @param profile
+     *  the profile defining delay, bandwidth and faults of the response
+     * @param handler
+     *  the handler producing the response
+     */
+    ProfiledHandler(final ResponseProfile profile, final Consumer<HttpExchange> handler) {
+        this.profile = profile;
+        this.handler = handler;
+    }
+
+    @Override
+    public void accept(final HttpExchange httpExchange) {
+
+        final HttpServerExchange exchange = httpExchange.getServerExchange();
+        final double fault = ThreadLocalRandom.current().nextDouble();
+        final Runnable response;
+        if (fault < profile.getResetRate()) {
+            response = () -> reset(exchange);
+        } else if (fault < profile.getResetRate() + profile.getErrorRate()) {
+            exchange.setStatusCode(profile.getErrorStatusCode());
+            response = () -> {
+                exchange.setResponseContentLength(0);
+                exchange.endExchange();
+            };
+        } else {
+            final long bandwidth = profile.getBandwidth();
+            final XnioWorker worker = exchange.getConnection().getWorker();
+            if (bandwidth > 0) {
+                //the handler writes the content on a worker thread while the IO thread sends it at the limited rate
+                final ThrottledTransfer transfer = new ThrottledTransfer(exchange, bandwidth, TICK_MILLIS);
+                final HttpExchange throttled = httpExchange.withOutputStream(transfer.getOutputStream());
+                response = () -> {
+                    worker.execute(() -> {
+                        try {
+                            handler.accept(throttled);
+                            transfer.complete();
+                        } catch (RuntimeException e) {
+                            transfer.fail(e);
+                        }
+                    });
+                    transfer.run();
+                };
+            } else {
+                //the handler streams the content on a worker thread, the exchange is ended when it returns
+                response = () -> worker.execute(() -> Connectors.executeRootHandler(ex -> handler.accept(httpExchange),
+                                                                                    exchange));
+            }
+        }
+        final long delay = profile.nextDelay().toNanos();
+        //the exchange is not ended when the worker returns, the response is completed after the delay
+        exchange.dispatch(SameThreadExecutor.INSTANCE,
+                          () -> exchange.getIoThread().executeAfter(response, delay, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Resets the connection of the exchange. Lingering is disabled before the connection is closed, so the client
+     * receives a TCP reset instead of an orderly shutdown of the connection.
+     */
+    private static void reset(final HttpServerExchange exchange) {
+
+        final ServerConnection connection = exchange.getConnection();
+        try {
+            connection.setOption(Options.CLOSE_ABORT, true);
+        } catch (IOException e) {
+            LOG.debug("Could not disable lingering of the connection", e);
+        }
+        IoUtils.safeClose(connection);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request received by the {@link HttpServer} and recorded in its {@link RequestJournal}. The body of the request is
+ * only recorded when the request is processed by a worker thread, such as requests to stubbed responses, and only up
+ * to the body limit of the journal.
+ */
+public class RecordedRequest {
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final long sequence;
+    private final Instant timestamp;
+    private final String method;
+    private final String path;
+    private final String queryString;
+    private final Map<String, List<String>> headers;
+    private final int bodyLimit;
+
+    private volatile byte[] body = NO_BODY;
+    private volatile boolean bodyTruncated;
+
+    RecordedRequest(final long sequence,
+                    final Instant timestamp,
+                    final String method,
+                    final String path,
+                    final String queryString,
+                    final Map<String, List<String>> headers,
+                    final int bodyLimit) {
+
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.method = method;
+        this.path = path;
+        this.queryString = queryString;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.bodyLimit = bodyLimit;
+    }
+
+    /**
+     * Records the body of the request.
+     *
+     * @param payload
+     *         the beginning of the body of the request, only the first bytes up to the body limit are recorded. If the
+     *         payload is longer than the limit, the body is marked as truncated
+     */
+    void setBody(byte[] payload) {
+
+        this.bodyTruncated = payload.length > bodyLimit;
+        this.body = bodyTruncated ? Arrays.copyOf(payload, bodyLimit) : payload;
+    }
+
+    /**
+     * @return the maximum number of bytes of the body to record
+     */
+    int getBodyLimit() {
+
+        return bodyLimit;
+    }
+
+    long getSequence() {
+
+        return sequence;
+    }
+
+    /**
+     * @return the time the request was received
+     */
+    public Instant getTimestamp() {
+
+        return timestamp;
+    }
+
+    /**
+     * @return the request method, i.e. GET
+     */
+    public String getMethod() {
+
+        return method;
+    }
+
+    /**
+     * @return the path of the request without the query string
+     */
+    public String getPath() {
+
+        return path;
+    }
+
+    /**
+     * @return the query string of the request, which is empty if the request has no query
+     */
+    public String getQueryString() {
+
+        return queryString;
+    }
+
+    /**
+     * @return the headers of the request, the names of the headers are case sensitive
+     */
+    public Map<String, List<String>> getHeaders() {
+
+        return headers;
+    }
+
+    /**
+     * Provides the first value of a request header.
+     *
+     * @param name
+     *         the name of the header, ignoring case
+     *
+     * @return the first value of the header or <code>null</code> if the request has no such header
+     */
+    public String getHeader(String name) {
+
+        return headers.entrySet()
+                      .stream()
+                      .filter(e -> e.getKey().equalsIgnoreCase(name) && !e.getValue().isEmpty())
+                      .map(e -> e.getValue().get(0))
+                      .findFirst()
+                      .orElse(null);
+    }
+
+    /**
+     * @return the recorded body of the request. The body is empty if it was not recorded.
+     */
+    public byte[] getBody() {
+
+        final byte[] data = this.body;
+        return Arrays.copyOf(data, data.length);
+    }
+
+    /**
+     * @return the recorded body of the request as UTF-8 string
+     */
+    public String getBodyAsString() {
+
+        return new String(this.body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return <code>true</code> if the body exceeded the body limit of the journal and was only recorded partially
+     */
+    public boolean isBodyTruncated() {
+
+        return bodyTruncated;
+    }
+
+    @Override
+    public String toString() {
+
+        return method + ' ' + path + (queryString.isEmpty() ? "" : '?' + queryString);
+    }
+}
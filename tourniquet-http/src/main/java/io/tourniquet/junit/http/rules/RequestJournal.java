@@ -0,0 +1,289 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HeaderValues;
+import org.slf4j.Logger;
+
+/**
+ * Journal of the requests received by a {@link HttpServer}. The journal keeps the most recent requests in a ring
+ * buffer of fixed capacity. Recording a request does not lock the ring buffer, it only allocates the recorded request
+ * and a copy of the request headers, so that journaling does not become a bottleneck under load. Request bodies are
+ * recorded up to a configurable limit, larger bodies are not read ahead of the handler of the request.
+ * <br>
+ * Optionally, requests that are evicted from the ring buffer are written to a spill file by a background thread. The
+ * spill file is a plain text dump of the requests for analysis after the test, evicted requests can not be queried.
+ * Evicted requests are passed to the background thread through a bounded queue, which briefly locks when a request
+ * is evicted. If the background thread can not keep up, evicted requests are dropped rather than blocking the server.
+ */
+public class RequestJournal {
+
+    /**
+     * Attachment of the recorded request to the exchange of the request
+     */
+    static final AttachmentKey<RecordedRequest> RECORDED_REQUEST = AttachmentKey.create(RecordedRequest.class);
+
+    private static final Logger LOG = getLogger(RequestJournal.class);
+
+    private final int capacity;
+
+    private final int bodyLimit;
+
+    private final Path spillFile;
+
+    private final AtomicReferenceArray<RecordedRequest> entries;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private volatile Spill spill;
+
+    /**
+     * Creates a new journal.
+     * @param capacity
+     *  the maximum number of requests kept in memory
+     * @param bodyLimit
+     *  the maximum number of bytes of the body of each request to record
+     * @param spillFile
+     *  the file to write evicted requests to, may be <code>null</code> to discard evicted requests
+     */
+    RequestJournal(final int capacity, final int bodyLimit, final Path spillFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (bodyLimit < 0) {
+            throw new IllegalArgumentException("Body limit must not be negative");
+        }
+        this.capacity = capacity;
+        this.bodyLimit = bodyLimit;
+        this.spillFile = spillFile;
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Records a request when it is received.
+     * @param exchange
+     *  the exchange of the request
+     * @return
+     *  the recorded request
+     */
+    RecordedRequest record(final HttpServerExchange exchange) {
+
+        final Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (HeaderValues values : exchange.getRequestHeaders()) {
+            headers.put(values.getHeaderName().toString(), new ArrayList<>(values));
+        }
+        final long seq = sequence.getAndIncrement();
+        final RecordedRequest request = new RecordedRequest(seq,
+                                                            Instant.now(),
+                                                            exchange.getRequestMethod().toString(),
+                                                            exchange.getRequestPath(),
+                                                            exchange.getQueryString(),
+                                                            headers,
+                                                            bodyLimit);
+        final RecordedRequest evicted = entries.getAndSet((int) (seq % capacity), request);
+        final Spill currentSpill = this.spill;
+        if (evicted != null && currentSpill != null && !currentSpill.queue.offer(evicted)) {
+            droppedCount.incrementAndGet();
+        }
+        return request;
+    }
+
+    /**
+     * Provides all requests in the journal.
+     *
+     * @return the requests in the order they were received
+     */
+    public List<RecordedRequest> getRequests() {
+
+        return getRequests(r -> true);
+    }
+
+    /**
+     * Provides all requests in the journal that match the specified pattern.
+     *
+     * @param pattern
+     *         the pattern to match the requests
+     *
+     * @return the matching requests in the order they were received
+     */
+    public List<RecordedRequest> getRequests(Predicate<RecordedRequest> pattern) {
+
+        final List<RecordedRequest> result = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            final RecordedRequest request = entries.get(i);
+            if (request != null && pattern.test(request)) {
+                result.add(request);
+            }
+        }
+        result.sort(Comparator.comparingLong(RecordedRequest::getSequence));
+        return result;
+    }
+
+    /**
+     * @return the total number of requests recorded since the journal was cleared, including evicted requests
+     */
+    public long getRecordedCount() {
+
+        return sequence.get();
+    }
+
+    /**
+     * @return the number of evicted requests that could not be written to the spill file
+     */
+    public long getDroppedCount() {
+
+        return droppedCount.get();
+    }
+
+    /**
+     * Removes all requests from the journal.
+     */
+    void clear() {
+
+        for (int i = 0; i < capacity; i++) {
+            entries.set(i, null);
+        }
+        sequence.set(0);
+        droppedCount.set(0);
+    }
+
+    /**
+     * Starts writing evicted requests to the spill file, if one is configured.
+     */
+    void open() throws IOException {
+
+        if (spillFile != null && spill == null) {
+            final Spill newSpill = new Spill(Files.newOutputStream(spillFile,
+                                                                  StandardOpenOption.CREATE,
+                                                                  StandardOpenOption.APPEND));
+            newSpill.start();
+            this.spill = newSpill;
+        }
+    }
+
+    /**
+     * Writes the pending evicted requests to the spill file and stops the background thread.
+     */
+    void close() {
+
+        final Spill currentSpill = this.spill;
+        this.spill = null;
+        if (currentSpill != null) {
+            currentSpill.shutdown();
+        }
+    }
+
+    /**
+     * Background thread writing evicted requests to the spill file.
+     */
+    private final class Spill extends Thread {
+
+        private final BlockingQueue<RecordedRequest> queue = new ArrayBlockingQueue<>(capacity);
+
+        private final OutputStream out;
+
+        private volatile boolean running = true;
+
+        Spill(OutputStream out) {
+
+            super("tourniquet-request-journal");
+            setDaemon(true);
+            this.out = new BufferedOutputStream(out);
+        }
+
+        @Override
+        public void run() {
+
+            try {
+                while (running || !queue.isEmpty()) {
+                    final RecordedRequest request = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (request != null) {
+                        write(request);
+                    } else {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                LOG.error("Could not write request journal to {}", spillFile, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    LOG.debug("Could not close request journal {}", spillFile, e);
+                }
+            }
+        }
+
+        private void write(RecordedRequest request) throws IOException {
+
+            final StringBuilder buf = new StringBuilder(256);
+            buf.append("### ").append(request.getTimestamp()).append('\n').append(request).append('\n');
+            request.getHeaders()
+                   .forEach((name, values) -> buf.append(name)
+                                                 .append(": ")
+                                                 .append(values.stream().collect(Collectors.joining(", ")))
+                                                 .append('\n'));
+            buf.append('\n');
+            out.write(buf.toString().getBytes(StandardCharsets.UTF_8));
+            out.write(request.getBody());
+            if (request.isBodyTruncated()) {
+                out.write("\n[truncated]".getBytes(StandardCharsets.UTF_8));
+            }
+            out.write('\n');
+        }
+
+        void shutdown() {
+
+            running = false;
+            try {
+                join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A pattern to find requests in the {@link RequestJournal} of a {@link HttpServer}, for example:
+ * <pre>
+ *     server.verify(GET("/index.html").withParam("lang", "en")).times(3);
+ * </pre>
+ */
+public class RequestPattern implements Predicate<RecordedRequest> {
+
+    private static final Pattern PARAM_SEPARATOR = Pattern.compile("&amp;|&");
+
+    private final Optional<String> method;
+    private final String path;
+    private final Map<String, String> params = new LinkedHashMap<>();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private Optional<byte[]> body = Optional.empty();
+
+    private RequestPattern(final Optional<String> method, final String path) {
+
+        this.method = method;
+        this.path = path;
+    }
+
+    /**
+     * Creates a pattern matching GET requests to the specified path.
+     *
+     * @param path
+     *         the path of the requests, without query
+     *
+     * @return a new pattern
+     */
+    public static RequestPattern GET(String path) { //NOSONAR
+
+        return request(HttpMethod.GET, path);
+    }
+
+    /**
+     * Creates a pattern matching POST requests to the specified path.
+     *
+     * @param path
+     *         the path of the requests, without query
+     *
+     * @return a new pattern
+     */
+    public static RequestPattern POST(String path) { //NOSONAR
+
+        return request(HttpMethod.POST, path);
+    }
+
+    /**
+     * Creates a pattern matching requests of the specified method to the specified path.
+     *
+     * @param method
+     *         the method of the requests
+     * @param path
+     *         the path of the requests, without query
+     *
+     * @return a new pattern
+     */
+    public static RequestPattern request(HttpMethod method, String path) {
+
+        return new RequestPattern(Optional.of(method.toString()), path);
+    }
+
+    /**
+     * Creates a pattern matching requests of any method to the specified path.
+     *
+     * @param path
+     *         the path of the requests, without query
+     *
+     * @return a new pattern
+     */
+    public static RequestPattern anyRequest(String path) {
+
+        return new RequestPattern(Optional.empty(), path);
+    }
+
+    /**
+     * Restricts the pattern to requests whose query contains the specified parameter.
+     *
+     * @param name
+     *         the name of the query parameter
+     * @param value
+     *         the value of the query parameter
+     *
+     * @return this pattern
+     */
+    public RequestPattern withParam(String name, String value) {
+
+        this.params.put(name, value);
+        return this;
+    }
+
+    /**
+     * Restricts the pattern to requests with the specified header.
+     *
+     * @param name
+     *         the name of the header, ignoring case
+     * @param value
+     *         the value of the header
+     *
+     * @return this pattern
+     */
+    public RequestPattern withHeader(String name, String value) {
+
+        this.headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Restricts the pattern to requests with the specified body. Requests whose body was truncated by the journal
+     * never match.
+     *
+     * @param data
+     *         the exact body of the requests
+     *
+     * @return this pattern
+     */
+    public RequestPattern withBody(byte[] data) {
+
+        this.body = Optional.of(Arrays.copyOf(data, data.length));
+        return this;
+    }
+
+    /**
+     * Restricts the pattern to requests with the specified body.
+     *
+     * @param content
+     *         the exact body of the requests as UTF-8 string
+     *
+     * @return this pattern
+     */
+    public RequestPattern withBody(String content) {
+
+        return withBody(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean test(final RecordedRequest request) {
+
+        return method.map(m -> m.equals(request.getMethod())).orElse(true)
+                && path.equals(request.getPath())
+                && matchesParams(request)
+                && headers.entrySet().stream().allMatch(h -> h.getValue().equals(request.getHeader(h.getKey())))
+                && body.map(b -> !request.isBodyTruncated() && Arrays.equals(b, request.getBody())).orElse(true);
+    }
+
+    private boolean matchesParams(final RecordedRequest request) {
+
+        if (params.isEmpty()) {
+            return true;
+        }
+        final Map<String, List<String>> query = parseQuery(request.getQueryString());
+        return params.entrySet()
+                     .stream()
+                     .allMatch(p -> query.getOrDefault(p.getKey(), Collections.emptyList()).contains(p.getValue()));
+    }
+
+    private static Map<String, List<String>> parseQuery(String queryString) {
+
+        return PARAM_SEPARATOR.splitAsStream(queryString)
+                              .filter(kv -> !kv.isEmpty())
+                              .map(kv -> kv.split("=", 2))
+                              .collect(groupingBy(kv -> kv[0], mapping(kv -> kv.length > 1 ? kv[1] : "", toList())));
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder buf = new StringBuilder();
+        buf.append(method.orElse("*")).append(' ').append(path);
+        if (!params.isEmpty()) {
+            buf.append(" with params ").append(params);
+        }
+        if (!headers.isEmpty()) {
+            buf.append(" with headers ").append(headers);
+        }
+        body.ifPresent(b -> buf.append(" with body of ").append(b.length).append(" bytes"));
+        return buf.toString();
+    }
+}
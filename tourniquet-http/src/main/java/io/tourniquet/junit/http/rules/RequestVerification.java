@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Verification of the number of requests matching a {@link RequestPattern} that were received by a
+ * {@link HttpServer}. Only requests still held in the {@link RequestJournal} are considered.
+ */
+public class RequestVerification {
+
+    private final RequestJournal journal;
+
+    private final RequestPattern pattern;
+
+    RequestVerification(final RequestJournal journal, final RequestPattern pattern) {
+
+        this.journal = journal;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @return the recorded requests matching the pattern
+     */
+    public List<RecordedRequest> getRequests() {
+
+        return journal.getRequests(pattern);
+    }
+
+    /**
+     * Verifies the server received exactly the specified number of matching requests.
+     *
+     * @param expected
+     *         the expected number of requests
+     *
+     * @throws AssertionError
+     *         if the number of matching requests differs
+     */
+    public void times(int expected) {
+
+        verify(n -> n == expected, "exactly " + expected);
+    }
+
+    /**
+     * Verifies the server received exactly one matching request.
+     */
+    public void once() {
+
+        times(1);
+    }
+
+    /**
+     * Verifies the server received no matching request.
+     */
+    public void never() {
+
+        times(0);
+    }
+
+    /**
+     * Verifies the server received at least the specified number of matching requests.
+     *
+     * @param expected
+     *         the minimum number of requests
+     */
+    public void atLeast(int expected) {
+
+        verify(n -> n >= expected, "at least " + expected);
+    }
+
+    /**
+     * Verifies the server received at most the specified number of matching requests.
+     *
+     * @param expected
+     *         the maximum number of requests
+     */
+    public void atMost(int expected) {
+
+        verify(n -> n <= expected, "at most " + expected);
+    }
+
+    private void verify(IntPredicate condition, String expectation) {
+
+        final int count = getRequests().size();
+        if (!condition.test(count)) {
+            final List<RecordedRequest> all = journal.getRequests();
+            throw new AssertionError("Expected " + expectation + " requests " + pattern + " but received " + count
+                                             + ". Recorded requests:\n" + all.stream()
+                                                                               .map(r -> "  " + r)
+                                                                               .collect(Collectors.joining("\n")));
+        }
+    }
+}
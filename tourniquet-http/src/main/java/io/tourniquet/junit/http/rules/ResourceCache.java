@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import io.undertow.util.ETag;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * A bounded cache for the content of static resources. The content is held off-heap in read-only direct buffers and
+ * is keyed by the path of the resource. When the total size of the cached content exceeds the maximum size, the least
+ * recently used entries are evicted. Content that is larger than the maximum size is not cached at all, it is read
+ * only up to the maximum size once to determine that it is too large.
+ */
+final class ResourceCache {
+
+    /**
+     * Opens the content of a resource that is not present in the cache.
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        InputStream open() throws IOException;
+    }
+
+    private final long maxSize;
+
+    /**
+     * The entries in access order, the eldest entry is the least recently used one
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The keys of the resources whose content exceeds the maximum size
+     */
+    private final Set<String> oversized = new HashSet<>();
+
+    private long size;
+
+    /**
+     * Creates a new cache.
+     * @param maxSize
+     *  the maximum number of bytes of all cached content
+     */
+    ResourceCache(final long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Provides the cached content of a resource.
+     * @param key
+     *  the key of the resource
+     * @return
+     *  the cache entry or <code>null</code> if the resource is not cached
+     */
+    synchronized Entry get(final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Provides the cached content of a resource, loading it if it is not cached yet. The content is loaded outside of
+     * the lock of the cache so concurrent misses of the same resource may load it more than once.
+     * @param key
+     *  the key of the resource
+     * @param loader
+     *  the loader for the content of the resource
+     * @return
+     *  the cache entry of the resource or <code>null</code> if the content exceeds the maximum size of the cache, so
+     *  that the content has to be served from the resource itself
+     * @throws IOException
+     *  if the content could not be loaded
+     */
+    Entry get(final String key, final Loader loader) throws IOException {
+        Entry entry = get(key);
+        if (entry == null && !isOversized(key)) {
+            final byte[] data;
+            try (InputStream in = new BoundedInputStream(loader.open(), maxSize + 1)) {
+                data = IOUtils.toByteArray(in);
+            }
+            if (data.length > maxSize) {
+                markOversized(key);
+                return null;
+            }
+            entry = new Entry(data);
+            put(key, entry);
+        }
+        return entry;
+    }
+
+    private synchronized boolean isOversized(final String key) {
+        return oversized.contains(key);
+    }
+
+    private synchronized void markOversized(final String key) {
+        oversized.add(key);
+    }
+
+    private synchronized void put(final String key, final Entry entry) {
+        final Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            size -= previous.getSize();
+        }
+        size += entry.getSize();
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while (size > maxSize) {
+            size -= eldest.next().getSize();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @return
+     *  the total number of bytes of the cached content
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return
+     *  the number of cached resources
+     */
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    synchronized void clear() {
+        entries.clear();
+        oversized.clear();
+        size = 0;
+    }
+
+    /**
+     * The cached content of a single resource.
+     */
+    static final class Entry {
+
+        private final ByteBuffer content;
+
+        private final ETag etag;
+
+        Entry(final byte[] data) {
+            final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data).flip();
+            this.content = direct.asReadOnlyBuffer();
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+            this.etag = new ETag(false, Integer.toHexString(data.length) + '-' + Long.toHexString(crc.getValue()));
+        }
+
+        /**
+         * @return
+         *  a new read-only buffer of the content, positioned at its start
+         */
+        ByteBuffer getContent() {
+            return content.duplicate();
+        }
+
+        /**
+         * @return
+         *  a strong entity tag derived from the content
+         */
+        ETag getETag() {
+            return etag;
+        }
+
+        int getSize() {
+            return content.capacity();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import io.undertow.io.IoCallback;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.SameThreadExecutor;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Handlers producing the content of stubbed responses. Except for static content, the handlers stream their content
+ * to the response with a small buffer, so that the content is never held in memory entirely. Responses of unknown
+ * length are sent with chunked transfer encoding.
+ */
+final class Responders {
+
+    /**
+     * Size of the buffer used for copying content to the response
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    private Responders() {
+
+    }
+
+    /**
+     * Responds with static content.
+     * @param content
+     *  the content of the response, it is not copied and must not be modified
+     * @return
+     *  the handler producing the response
+     */
+    static Consumer<HttpExchange> content(byte[] content) {
+
+        return x -> {
+            try {
+                x.getOutputStream().write(content);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Responds with the content of a stream. A new stream is opened for every request. As the length of the content
+     * is unknown, it is sent in chunks.
+     * @param source
+     *  the source of the content
+     * @return
+     *  the handler producing the response
+     */
+    static Consumer<HttpExchange> stream(ResponseStubbing.ContentSource source) {
+
+        return x -> {
+            try (InputStream in = source.open()) {
+                IOUtils.copyLarge(in, x.getOutputStream(), new byte[BUFFER_SIZE]);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Responds with the content of a file. The file is read on every request. Files of the default file system are
+     * transferred to the response without copying them through the heap, unless the response content is written to
+     * another stream, i.e. to throttle it.
+     * @param file
+     *  the file to send
+     * @return
+     *  the handler producing the response
+     */
+    static Consumer<HttpExchange> file(Path file) {
+
+        final boolean transferable = file.getFileSystem() == FileSystems.getDefault();
+        return x -> {
+            try {
+                if (transferable && x.writesToResponse()) {
+                    transfer(x.getServerExchange(), file);
+                } else {
+                    x.setResponseContentLength(Files.size(file));
+                    Files.copy(file, x.getOutputStream());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Transfers a file to the response once the current handler returned. The exchange is ended when the transfer is
+     * finished.
+     */
+    private static void transfer(HttpServerExchange exchange, Path file) throws IOException {
+
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        final long size = channel.size();
+        exchange.setResponseContentLength(size);
+        exchange.dispatch(SameThreadExecutor.INSTANCE,
+                          () -> FileTransfer.transfer(exchange,
+                                                      exchange.getResponseSender(),
+                                                      channel,
+                                                      0,
+                                                      size,
+                                                      IoCallback.END_EXCHANGE));
+    }
+
+    /**
+     * Responds with synthetic content of the specified size. The content consists of the repeated lowercase
+     * alphabet and is generated from a single buffer.
+     * @param size
+     *  the number of bytes to send
+     * @return
+     *  the handler producing the response
+     */
+    static Consumer<HttpExchange> generated(long size) {
+
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        final byte[] pattern = new byte[BUFFER_SIZE];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = (byte) ('a' + i % 26);
+        }
+        return x -> {
+            x.setResponseContentLength(size);
+            try {
+                final OutputStream out = x.getOutputStream();
+                long remaining = size;
+                while (remaining > 0) {
+                    final int len = (int) Math.min(remaining, pattern.length);
+                    out.write(pattern, 0, len);
+                    remaining -= len;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Responds with a sequence of chunks. Every chunk is flushed to the client as soon as it is produced, so that the
+     * supplied stream may produce its elements over a long period of time.
+     * @param chunks
+     *  supplier of the stream of chunks, it is invoked for every request
+     * @return
+     *  the handler producing the response
+     */
+    static Consumer<HttpExchange> chunks(Supplier<Stream<String>> chunks) {
+
+        return x -> {
+            try (Stream<String> stream = chunks.get()) {
+                final OutputStream out = x.getOutputStream();
+                final Iterator<String> it = stream.iterator();
+                while (it.hasNext()) {
+                    out.write(it.next().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Responds with a stream of server-sent events. Every element of the supplied stream is sent as data of a single
+     * event, multi-line elements are sent as multiple data lines of the same event.
+     * @param events
+     *  supplier of the stream of event data, it is invoked for every request
+     * @return
+     *  the handler producing the response
+     */
+    static Consumer<HttpExchange> events(Supplier<Stream<String>> events) {
+
+        final Consumer<HttpExchange> chunks = chunks(() -> events.get().map(Responders::toEvent));
+        return x -> {
+            x.addResponseHeader("Content-Type", "text/event-stream;charset=UTF-8");
+            x.addResponseHeader("Cache-Control", "no-cache");
+            chunks.accept(x);
+        };
+    }
+
+    private static String toEvent(String data) {
+
+        final StringBuilder buf = new StringBuilder(data.length() + 8);
+        for (String line : data.split("\r\n|\r|\n", -1)) {
+            buf.append("data: ").append(line).append('\n');
+        }
+        return buf.append('\n').toString();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Profile of the behavior of a stubbed response to simulate a slow or unreliable backend. A profile defines the delay
+ * before a response is sent, the bandwidth at which the response content is sent and the rates at which requests fail
+ * with a server error or a reset of the connection. For example:
+ * <pre>
+ *     server.on(GET).resource("/slow")
+ *           .withProfile(new ResponseProfile().withDelay(ofMillis(100), ofMillis(500)).withErrorRate(0.1))
+ *           .respond("content");
+ * </pre>
+ * Delays and throttling are implemented using timers of the IO threads of the server, no worker thread is blocked
+ * while a response is delayed.
+ */
+public class ResponseProfile {
+
+    private Supplier<Duration> delay = () -> Duration.ZERO;
+
+    private long bandwidth;
+
+    private double errorRate;
+
+    private int errorStatusCode = 500;
+
+    private double resetRate;
+
+    /**
+     * Delays every response by the specified duration.
+     *
+     * @param duration
+     *         the delay before the response is sent
+     *
+     * @return this profile
+     */
+    public ResponseProfile withDelay(Duration duration) {
+
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        this.delay = () -> duration;
+        return this;
+    }
+
+    /**
+     * Delays every response by a random duration, uniformly distributed between the specified durations.
+     *
+     * @param min
+     *         the minimum delay before the response is sent
+     * @param max
+     *         the maximum delay before the response is sent
+     *
+     * @return this profile
+     */
+    public ResponseProfile withDelay(Duration min, Duration max) {
+
+        if (min.isNegative() || max.compareTo(min) < 0) {
+            throw new IllegalArgumentException("Invalid delay range " + min + " - " + max);
+        }
+        final long minNanos = min.toNanos();
+        final long maxNanos = max.toNanos();
+        this.delay = () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(minNanos, maxNanos + 1));
+        return this;
+    }
+
+    /**
+     * Delays every response by a duration provided by the specified supplier. The supplier may implement any
+     * distribution of delays and is invoked once per request.
+     *
+     * @param delays
+     *         the supplier of the delay of each response
+     *
+     * @return this profile
+     */
+    public ResponseProfile withDelay(Supplier<Duration> delays) {
+
+        this.delay = delays;
+        return this;
+    }
+
+    /**
+     * Limits the bandwidth at which the content of each response is sent.
+     *
+     * @param bytesPerSecond
+     *         the number of bytes sent per second
+     *
+     * @return this profile
+     */
+    public ResponseProfile withBandwidth(long bytesPerSecond) {
+
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Bandwidth must be positive");
+        }
+        this.bandwidth = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Lets the specified fraction of requests fail with status code 500.
+     *
+     * @param rate
+     *         the fraction of requests to fail, between 0 and 1
+     *
+     * @return this profile
+     */
+    public ResponseProfile withErrorRate(double rate) {
+
+        return withErrorRate(rate, 500);
+    }
+
+    /**
+     * Lets the specified fraction of requests fail with the specified server error.
+     *
+     * @param rate
+     *         the fraction of requests to fail, between 0 and 1
+     * @param statusCode
+     *         the status code of the failed requests, must be a server error (5xx)
+     *
+     * @return this profile
+     */
+    public ResponseProfile withErrorRate(double rate, int statusCode) {
+
+        if (statusCode < 500 || statusCode > 599) {
+            throw new IllegalArgumentException("Status code " + statusCode + " is no server error");
+        }
+        checkRates(rate, resetRate);
+        this.errorRate = rate;
+        this.errorStatusCode = statusCode;
+        return this;
+    }
+
+    /**
+     * Lets the server close the connection of the specified fraction of requests without sending a response.
+     *
+     * @param rate
+     *         the fraction of requests whose connection is reset, between 0 and 1
+     *
+     * @return this profile
+     */
+    public ResponseProfile withResetRate(double rate) {
+
+        checkRates(errorRate, rate);
+        this.resetRate = rate;
+        return this;
+    }
+
+    private static void checkRates(double errorRate, double resetRate) {
+
+        if (errorRate < 0 || errorRate > 1 || resetRate < 0 || resetRate > 1) {
+            throw new IllegalArgumentException("Rates must be between 0 and 1");
+        }
+        if (errorRate + resetRate > 1) {
+            throw new IllegalArgumentException("Error and reset rate must not exceed 1 in total");
+        }
+    }
+
+    Duration nextDelay() {
+
+        return delay.get();
+    }
+
+    long getBandwidth() {
+
+        return bandwidth;
+    }
+
+    double getErrorRate() {
+
+        return errorRate;
+    }
+
+    int getErrorStatusCode() {
+
+        return errorStatusCode;
+    }
+
+    double getResetRate() {
+
+        return resetRate;
+    }
+}
@@ -23,7 +23,9 @@ import static io.tourniquet.junit.http.rules.HttpPredicates.matchesPath;
 import static java.util.stream.Collectors.groupingBy;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -33,19 +35,38 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import org.apache.commons.io.IOUtils;
+import java.util.stream.Stream;
 
 /**
  * Class for fluently create http responses.
  */
 public class ResponseStubbing {
 
+    /**
+     * Source of the content of a streamed response.
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+
+        /**
+         * Opens a new stream of the content. The stream is closed after the content has been sent.
+         *
+         * @return a new stream of the content
+         *
+         * @throws IOException
+         *         if the content could not be opened
+         */
+        InputStream open() throws IOException;
+    }
+
     private final HttpServer server;
     private HttpMethod method = HttpMethod.GET;
     private final Map<String, List<String>> params = new HashMap<>();
     private Optional<String> path = Optional.empty();
     private Optional<byte[]> payload = Optional.empty();
+    private Optional<ResponseProfile> profile = Optional.empty();
 
     ResponseStubbing(HttpServer server) {
 
@@ -136,6 +157,21 @@ public class ResponseStubbing {
         return this;
     }
 
+    /**
+     * Defines the profile of the response, such as its delay, its bandwidth or the rate of failed requests. Without a
+     * profile the response is sent immediately.
+     *
+     * @param responseProfile
+     *         the profile to apply to the response
+     *
+     * @return this stubbing
+     */
+    public ResponseStubbing withProfile(ResponseProfile responseProfile) {
+
+        this.profile = Optional.ofNullable(responseProfile);
+        return this;
+    }
+
     /**
      * Defines static content to be served upon the request.
      *
@@ -144,18 +180,13 @@ public class ResponseStubbing {
      */
     public void respond(String someContent) {
 
-        execute(x -> {
-            try {
-                x.getOutputStream().write(someContent.getBytes());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        execute(Responders.content(someContent.getBytes()));
     }
 
     /**
      * Defines a resource whose content should be sent in response to a request. This is usefull for providing content
-     * from static files in the classpath that have been recorded.
+     * from static files in the classpath that have been recorded. The content is streamed from the resource on every
+     * request.
      * @param resource
      *  the url to the resource containing the content. This should refer to a classpath resource in order to maintain
      *  self-sufficiency of the test. In case external content is used, the availability of the external resource should
@@ -167,11 +198,69 @@ public class ResponseStubbing {
      *
      */
     public void respond(URL resource) {
-        try {
-            respond(IOUtils.toString(resource));
-        } catch (IOException e) {
-            throw new RuntimeException("Resource could not be retrieved", e);
-        }
+
+        respond(resource::openStream);
+    }
+
+    /**
+     * Defines a file whose content should be sent in response to a request. The file is streamed on every request, so
+     * it may be larger than the available heap.
+     *
+     * @param file
+     *         the file containing the content
+     */
+    public void respond(Path file) {
+
+        execute(Responders.file(file));
+    }
+
+    /**
+     * Defines a source of content that is streamed in response to a request. The source is opened for every request
+     * and the content is sent in chunks, as its length is not known in advance.
+     *
+     * @param source
+     *         the source of the content
+     */
+    public void respond(ContentSource source) {
+
+        execute(Responders.stream(source));
+    }
+
+    /**
+     * Responds with synthetic content of the specified size. The content is generated while it is sent, so this is
+     * useful for stubbing large downloads.
+     *
+     * @param size
+     *         the number of bytes of the response
+     */
+    public void respondWithData(long size) {
+
+        execute(Responders.generated(size));
+    }
+
+    /**
+     * Responds with a sequence of chunks using chunked transfer encoding. Each chunk is sent to the client as soon as
+     * the stream provides it, so the stream may be used to emulate long-lived streaming APIs, i.e. by delaying its
+     * elements.
+     *
+     * @param chunks
+     *         supplier of the stream of chunks, it is invoked for every request
+     */
+    public void respondInChunks(Supplier<Stream<String>> chunks) {
+
+        execute(Responders.chunks(chunks));
+    }
+
+    /**
+     * Responds with a stream of server-sent events. Each element of the stream is sent as the data of one event as
+     * soon as the stream provides it.
+     *
+     * @param events
+     *         supplier of the stream of event data, it is invoked for every request
+     */
+    public void respondWithEvents(Supplier<Stream<String>> events) {
+
+        execute(Responders.events(events));
     }
 
     /**
@@ -185,7 +274,12 @@ public class ResponseStubbing {
     public void execute(Consumer<HttpExchange> exchangeHandler) {
         //TODO don't mix query params with non query params
         params.putAll(getQueryParams());
-        this.server.addAction(getPath(), getPredicate(), exchangeHandler);
+        final Consumer<HttpExchange> handler = profile.isPresent()
+                                               ? new ProfiledHandler(profile.get(), exchangeHandler)
+                                               : exchangeHandler;
+        //the filter only blocks if it has to read the payload
+        final boolean blocking = payload.isPresent() || method == HttpMethod.POST && !params.isEmpty();
+        this.server.addAction(getPath(), method, params, getPredicate(), blocking, handler);
 
     }
 
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import io.undertow.server.HttpServerExchange;
+import org.slf4j.Logger;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSinkChannel;
+
+/**
+ * Transfer of response content to the response channel of an exchange at a limited rate. A handler writes the content
+ * to the {@link #getOutputStream() output stream} of the transfer. In each tick, the IO thread of the exchange writes
+ * the bytes permitted per tick to the response channel without blocking and schedules the next tick with a timer.
+ * <br>
+ * The written content is buffered up to a bounded number of bytes. A handler writing more content waits until the IO
+ * thread has sent enough of it, so the content is never buffered entirely. Handlers of small responses return
+ * immediately and do not occupy their thread while the content is sent.
+ */
+final class ThrottledTransfer implements Runnable {
+
+    private static final Logger LOG = getLogger(ThrottledTransfer.class);
+
+    /**
+     * Minimum number of bytes of written content that are buffered before the writing thread has to wait
+     */
+    static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+    private final HttpServerExchange exchange;
+    private final long tickMillis;
+    private final long bytesPerTick;
+    private final long capacity;
+    private final OutputStream outputStream = new ContentStream();
+
+    private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+    private long pendingBytes;
+    private boolean closed;
+    private RuntimeException failure;
+    private IOException aborted;
+
+    /**
+     * The response channel, it is only accessed by the IO thread
+     */
+    private StreamSinkChannel channel;
+
+    /**
+     * Creates a transfer to the response of the exchange.
+     * @param exchange
+     *  the exchange to whose response the content is written
+     * @param bytesPerSecond
+     *  the maximum number of bytes to send per second
+     * @param tickMillis
+     *  the interval in milliseconds in which the budget of bytes to send is renewed
+     */
+    ThrottledTransfer(final HttpServerExchange exchange, final long bytesPerSecond, final long tickMillis) {
+        this.exchange = exchange;
+        this.tickMillis = tickMillis;
+        this.bytesPerTick = Math.max(1, bytesPerSecond * tickMillis / 1000);
+        this.capacity = Math.max(MIN_BUFFER_SIZE, bytesPerTick);
+    }
+
+    /**
+     * @return
+     *  the stream to write the response content to. Closing the stream completes the transfer.
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Completes the transfer once the written content has been sent. The exchange is ended afterwards.
+     */
+    synchronized void complete() {
+        this.closed = true;
+    }
+
+    /**
+     * Aborts the transfer because the handler producing the content failed. If no content has been sent yet, the
+     * request is answered with a server error, otherwise the connection is closed after the written content.
+     * @param e
+     *  the failure of the handler
+     */
+    synchronized void fail(final RuntimeException e) {
+        this.failure = e;
+        this.closed = true;
+    }
+
+    /**
+     * Sends the content permitted for one tick. Must be invoked on the IO thread of the exchange.
+     */
+    @Override
+    public void run() {
+
+        final boolean done;
+        final RuntimeException handlerFailure;
+        try {
+            synchronized (this) {
+                long budget = bytesPerTick;
+                while (budget > 0 && !pending.isEmpty()) {
+                    if (channel == null) {
+                        channel = exchange.getResponseChannel();
+                    }
+                    final ByteBuffer buffer = pending.peek();
+                    final int limit = buffer.limit();
+                    buffer.limit((int) Math.min(limit, buffer.position() + budget));
+                    final int written;
+                    try {
+                        written = channel.write(buffer);
+                    } finally {
+                        buffer.limit(limit);
+                    }
+                    budget -= written;
+                    pendingBytes -= written;
+                    if (buffer.hasRemaining()) {
+                        break;
+                    }
+                    pending.poll();
+                }
+                notifyAll();
+                done = closed && pending.isEmpty();
+                handlerFailure = failure;
+            }
+            if (channel != null) {
+                channel.flush();
+            }
+        } catch (IOException e) {
+            LOG.debug("Could not send throttled response", e);
+            abort(e);
+            IoUtils.safeClose(exchange.getConnection());
+            return;
+        }
+        if (!done) {
+            exchange.getIoThread().executeAfter(this, tickMillis, TimeUnit.MILLISECONDS);
+        } else if (handlerFailure == null) {
+            exchange.endExchange();
+        } else if (channel == null) {
+            LOG.error("Could not create response", handlerFailure);
+            exchange.setStatusCode(500);
+            exchange.endExchange();
+        } else {
+            LOG.error("Could not complete response", handlerFailure);
+            IoUtils.safeClose(exchange.getConnection());
+        }
+    }
+
+    private synchronized void abort(final IOException e) {
+        this.aborted = e;
+        this.pending.clear();
+        this.pendingBytes = 0;
+        notifyAll();
+    }
+
+    /**
+     * Stream buffering the content written by the handler until it is sent by the IO thread.
+     */
+    private final class ContentStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            synchronized (ThrottledTransfer.this) {
+                int offset = off;
+                int remaining = len;
+                while (remaining > 0) {
+                    awaitCapacity();
+                    final int chunk = (int) Math.min(remaining, capacity - pendingBytes);
+                    pending.add(ByteBuffer.wrap(Arrays.copyOfRange(b, offset, offset + chunk)));
+                    pendingBytes += chunk;
+                    offset += chunk;
+                    remaining -= chunk;
+                }
+            }
+        }
+
+        private void awaitCapacity() throws IOException {
+            while (aborted == null && !closed && pendingBytes >= capacity) {
+                try {
+                    ThrottledTransfer.this.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the response to be sent");
+                }
+            }
+            if (aborted != null) {
+                throw new IOException("Response could not be sent", aborted);
+            }
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+
+        @Override
+        public void close() {
+            complete();
+        }
+    }
+}
@@ -20,19 +20,85 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.channels.Channels;
 
+import io.undertow.io.IoCallback;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
 import org.apache.commons.io.IOUtils;
 
 /**
  * A {@link ResourceHandler} that serves the content of a URL. It's intended for serving classpath resources
  * referenced by URL but it may also serves resource from the local filesystem or from a network resource.
+ * <br>
+ * If the handler is created with a {@link ResourceCache}, the content of the URL is read only on the first request and
+ * served from the cache afterwards, unless it is too large to be cached. Requests to cached content are answered directly on the IO thread of the server.
  */
-public class UrlResourceHandler extends ResourceHandler {
+public class UrlResourceHandler extends ResourceHandler implements IoThreadHandler {
 
     private final URL resource;
 
+    private final ResourceCache cache;
+
     public UrlResourceHandler(URL resource ){
+        this(resource, null);
+    }
+
+    /**
+     * Creates a handler for the specified URL whose content is cached.
+     * @param resource
+     *  the URL to the content
+     * @param cache
+     *  the cache to keep the content in, may be <code>null</code> to read the content on every request
+     */
+    UrlResourceHandler(URL resource, ResourceCache cache) {
         this.resource = resource;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean handleInIoThread(final HttpServerExchange exchange) {
+
+        if (cache == null) {
+            return false;
+        }
+        final ResourceCache.Entry entry = cache.get(resource.toString());
+        if (entry == null) {
+            //the content has to be loaded on a worker thread
+            return false;
+        }
+        exchange.getResponseHeaders().put(Headers.ETAG, entry.getETag().toString());
+        if (!ETagUtils.handleIfNoneMatch(exchange, entry.getETag(), true)) {
+            exchange.setStatusCode(304);
+            exchange.endExchange();
+            return true;
+        }
+        exchange.setResponseContentLength(entry.getSize());
+        exchange.getResponseSender().send(entry.getContent(), IoCallback.END_EXCHANGE);
+        return true;
+    }
+
+    @Override
+    public void accept(final HttpExchange httpExchange) {
+
+        if (cache == null) {
+            super.accept(httpExchange);
+            return;
+        }
+        try {
+            final ResourceCache.Entry entry = cache.get(resource.toString(), resource::openStream);
+            if (entry == null) {
+                //the content is too large to be cached
+                super.accept(httpExchange);
+                return;
+            }
+            httpExchange.addResponseHeader(Headers.ETAG_STRING, entry.getETag().toString());
+            httpExchange.setResponseContentLength(entry.getSize());
+            Channels.newChannel(httpExchange.getOutputStream()).write(entry.getContent());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.getString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Tests for serving zip and URL resources from the resource cache of the {@link HttpServer}
+ */
+public class CachingResourceManagerTest {
+
+    @ClassRule
+    public static HttpServer server = new HttpServerBuilder()
+            .cacheResources(1024 * 1024)
+            .contentFrom("/zip", CachingResourceManagerTest.class.getResource("examples/example.zip"))
+            .contentFrom("/text", CachingResourceManagerTest.class.getResource("UrlResourceHandlerTest_test.txt"))
+            .build();
+
+    private CloseableHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        client = HttpClients.createDefault();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getPort() + path;
+    }
+
+    @Test
+    public void testZipContent_cachedWithETag() throws Exception {
+        //prepare
+        final String etag;
+        final String content;
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url("/zip/index.html")))) {
+            assertNotNull(response.getFirstHeader("ETag"));
+            etag = response.getFirstHeader("ETag").getValue();
+            content = getString(response.getEntity());
+        }
+
+        //act
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url("/zip/index.html")))) {
+
+            //assert
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(etag, response.getFirstHeader("ETag").getValue());
+            assertEquals(content, getString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testZipContent_ifNoneMatch_notModified() throws Exception {
+        //prepare
+        final HttpGet get = new HttpGet(url("/zip/index.html"));
+        try (CloseableHttpResponse response = client.execute(get)) {
+            get.setHeader("If-None-Match", response.getFirstHeader("ETag").getValue());
+        }
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get)) {
+
+            //assert
+            assertEquals(304, response.getStatusLine().getStatusCode());
+        }
+    }
+
+    @Test
+    public void testZipContent_range() throws Exception {
+        //prepare
+        final String content;
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url("/zip/index.html")))) {
+            content = getString(response.getEntity());
+        }
+        final HttpGet get = new HttpGet(url("/zip/index.html"));
+        get.setHeader("Range", "bytes=2-9");
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get)) {
+
+            //assert
+            assertEquals(206, response.getStatusLine().getStatusCode());
+            assertEquals(content.substring(2, 10), getString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testUrlContent_cachedWithETag() throws Exception {
+        //prepare
+        final HttpGet get = new HttpGet(url("/text"));
+        final String etag;
+        try (CloseableHttpResponse response = client.execute(get)) {
+            assertEquals("test", getString(response.getEntity()).trim());
+            etag = response.getFirstHeader("ETag").getValue();
+        }
+
+        //act
+        final String cached;
+        try (CloseableHttpResponse response = client.execute(get)) {
+            cached = getString(response.getEntity()).trim();
+            assertEquals(etag, response.getFirstHeader("ETag").getValue());
+        }
+        get.setHeader("If-None-Match", etag);
+        try (CloseableHttpResponse response = client.execute(get)) {
+
+            //assert
+            assertEquals("test", cached);
+            assertEquals(304, response.getStatusLine().getStatusCode());
+        }
+    }
+}
@@ -50,6 +50,7 @@ import io.undertow.io.Sender;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.ServerConnection;
 import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.ETag;
 import io.undertow.util.MimeMappings;
 import org.junit.Before;
 import org.junit.Test;
@@ -162,17 +163,47 @@ public class FileSystemResourceTest {
         String lmString = subject.getLastModifiedString();
 
         //assert
-        assertEquals("1970-01-01T00:02:03.456Z", lmString);
+        assertEquals("Thu, 01 Jan 1970 00:02:03 GMT", lmString);
     }
 
     @Test
     public void testGetETag() throws Exception {
         //prepare
+        when(basicFileAttributes.size()).thenReturn(255L);
+        when(basicFileAttributes.lastModifiedTime()).thenReturn(FileTime.fromMillis(4096L));
 
         //act
-        assertNull(subject.getETag());
+        ETag etag = subject.getETag();
 
         //assert
+        assertNotNull(etag);
+        assertFalse(etag.isWeak());
+        assertEquals("ff-1000", etag.getTag());
+    }
+
+    @Test
+    public void testGetETag_noAttributes_null() throws Exception {
+        //prepare
+        when(fileSystemProvider.readAttributes(eq(path),
+                                               eq(BasicFileAttributes.class),
+                                               (LinkOption[]) anyVararg())).thenThrow(new IOException());
+
+        //act
+        ETag etag = subject.getETag();
+
+        //assert
+        assertNull(etag);
+    }
+
+    @Test
+    public void testIsRangeSupported() throws Exception {
+        //prepare
+
+        //act
+        boolean supported = subject.isRangeSupported();
+
+        //assert
+        assertTrue(supported);
     }
 
     @Test
@@ -341,6 +372,46 @@ public class FileSystemResourceTest {
         verify(ioCallback).onException(eq(exchange), eq(sender), any(IOException.class));
     }
 
+    @Test
+    public void testServeRange_noException() throws Exception {
+        //prepare
+        final ByteBuffer buffer = ByteBuffer.allocate(8);
+        final HttpServerExchange exchange = new HttpServerExchange(serverConnection);
+        when(serverConnection.getByteBufferPool()).thenReturn(byteBufferPool);
+        when(byteBufferPool.allocate()).thenReturn(pooledByteBuffer);
+        when(pooledByteBuffer.getBuffer()).thenReturn(buffer);
+        final InputStream is = new ByteArrayInputStream("0123456789".getBytes());
+        when(fileSystemProvider.newInputStream(eq(path), (OpenOption[]) anyVararg())).thenReturn(is);
+
+        //act
+        subject.serveRange(sender, exchange, 2, 5, ioCallback);
+
+        //assert
+        verify(ioCallback).onComplete(exchange, sender);
+        buffer.rewind();
+        byte[] data = new byte[4];
+        buffer.get(data);
+        assertEquals("2345", new String(data));
+    }
+
+    @Test
+    public void testServeRange_beyondContent_exception() throws Exception {
+        //prepare
+        final ByteBuffer buffer = ByteBuffer.allocate(8);
+        final HttpServerExchange exchange = new HttpServerExchange(serverConnection);
+        when(serverConnection.getByteBufferPool()).thenReturn(byteBufferPool);
+        when(byteBufferPool.allocate()).thenReturn(pooledByteBuffer);
+        when(pooledByteBuffer.getBuffer()).thenReturn(buffer);
+        final InputStream is = new ByteArrayInputStream("0123".getBytes());
+        when(fileSystemProvider.newInputStream(eq(path), (OpenOption[]) anyVararg())).thenReturn(is);
+
+        //act
+        subject.serveRange(sender, exchange, 2, 5, ioCallback);
+
+        //assert
+        verify(ioCallback).onException(eq(exchange), eq(sender), any(IOException.class));
+    }
+
     @Test
     public void testGetContentLength() throws Exception {
         //prepare
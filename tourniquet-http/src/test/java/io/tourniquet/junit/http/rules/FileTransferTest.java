@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import io.tourniquet.junit.rules.TemporaryFile;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the transfer of files served by the {@link PathResourceHandler}
+ */
+public class FileTransferTest {
+
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+
+    private final TemporaryFolder folder = new TemporaryFolder();
+
+    private final TemporaryFile file = new TemporaryFile(folder, "content.bin");
+
+    private final HttpServer server = new HttpServerBuilder().build();
+
+    @Rule
+    public RuleChain rules = RuleChain.outerRule(folder).around(file).around(server);
+
+    private CloseableHttpClient client;
+
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        Files.write(file.getFile().toPath(), content);
+        server.addResource("/content.bin", file);
+        client = HttpClients.createDefault();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getPort() + "/content.bin";
+    }
+
+    private HttpGet get(String range) {
+        final HttpGet get = new HttpGet(url());
+        get.setHeader("Range", range);
+        return get;
+    }
+
+    @Test
+    public void testTransfer_entireFile() throws Exception {
+        //prepare
+
+        //act
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url()))) {
+
+            //assert
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(String.valueOf(FILE_SIZE), response.getFirstHeader("Content-Length").getValue());
+            assertEquals("bytes", response.getFirstHeader("Accept-Ranges").getValue());
+            assertNotNull(response.getFirstHeader("ETag"));
+            assertNotNull(response.getFirstHeader("Last-Modified"));
+            assertArrayEquals(content, EntityUtils.toByteArray(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testTransfer_range() throws Exception {
+        //prepare
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get("bytes=1000-4999999"))) {
+
+            //assert
+            assertEquals(206, response.getStatusLine().getStatusCode());
+            assertEquals("bytes 1000-4999999/" + FILE_SIZE, response.getFirstHeader("Content-Range").getValue());
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 5000000),
+                              EntityUtils.toByteArray(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testTransfer_openRange() throws Exception {
+        //prepare
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get("bytes=100-"))) {
+
+            //assert
+            assertEquals(206, response.getStatusLine().getStatusCode());
+            assertEquals("bytes 100-" + (FILE_SIZE - 1) + "/" + FILE_SIZE,
+                         response.getFirstHeader("Content-Range").getValue());
+            assertArrayEquals(Arrays.copyOfRange(content, 100, FILE_SIZE),
+                              EntityUtils.toByteArray(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testTransfer_suffixRange() throws Exception {
+        //prepare
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get("bytes=-10"))) {
+
+            //assert
+            assertEquals(206, response.getStatusLine().getStatusCode());
+            assertArrayEquals(Arrays.copyOfRange(content, FILE_SIZE - 10, FILE_SIZE),
+                              EntityUtils.toByteArray(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testTransfer_unsatisfiableRange() throws Exception {
+        //prepare
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get("bytes=" + FILE_SIZE + "-"))) {
+
+            //assert
+            assertEquals(416, response.getStatusLine().getStatusCode());
+            assertEquals("bytes */" + FILE_SIZE, response.getFirstHeader("Content-Range").getValue());
+        }
+    }
+
+    @Test
+    public void testTransfer_ifNoneMatch_notModified() throws Exception {
+        //prepare
+        final String etag;
+        try (CloseableHttpResponse response = client.execute(new HttpHead(url()))) {
+            etag = response.getFirstHeader("ETag").getValue();
+        }
+        final HttpGet get = new HttpGet(url());
+        get.setHeader("If-None-Match", etag);
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get)) {
+
+            //assert
+            assertEquals(304, response.getStatusLine().getStatusCode());
+        }
+    }
+
+    @Test
+    public void testTransfer_head() throws Exception {
+        //prepare
+
+        //act
+        try (CloseableHttpResponse response = client.execute(new HttpHead(url()))) {
+
+            //assert
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(String.valueOf(FILE_SIZE), response.getFirstHeader("Content-Length").getValue());
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.HttpMethod.GET;
+import static io.tourniquet.junit.http.rules.HttpMethod.POST;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.get;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.getString;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.param;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.post;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import io.tourniquet.junit.net.NetworkUtils;
+import io.undertow.Undertow;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests for the routing of the {@link FilteringHttpHandler}
+ */
+public class FilteringHttpHandlerTest {
+
+    @Rule
+    public HttpServer server = new HttpServerBuilder().build();
+
+    private CloseableHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        client = HttpClients.createDefault();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+    }
+
+    private String url(String pathAndQuery) {
+        return "http://localhost:" + server.getPort() + pathAndQuery;
+    }
+
+    private String request(HttpUriRequest request) throws IOException {
+        try (CloseableHttpResponse response = client.execute(request)) {
+            return getString(response.getEntity());
+        }
+    }
+
+    @Test
+    public void testRoute_manyStubsByParamValue() throws Exception {
+        //prepare
+        for (int i = 0; i < 500; i++) {
+            server.on(GET).resource("/item?id=" + i).respond("item" + i);
+        }
+        server.on(GET).resource("/item").respond("default");
+
+        //act
+        String item = request(get(url("/item?id=123")));
+        String otherParam = request(get(url("/item?other=1")));
+        String unknownValue = request(get(url("/item?id=1000")));
+
+        //assert
+        assertEquals("item123", item);
+        assertEquals("default", otherParam);
+        assertEquals("default", unknownValue);
+    }
+
+    @Test
+    public void testRoute_firstRegisteredWins() throws Exception {
+        //prepare
+        server.on(GET).resource("/path").respond("default");
+        server.on(GET).resource("/path?a=1").respond("specific");
+
+        //act
+        String result = request(get(url("/path?a=1")));
+
+        //assert
+        assertEquals("default", result);
+    }
+
+    @Test
+    public void testRoute_multipleParams() throws Exception {
+        //prepare
+        server.on(GET).resource("/path?a=1&b=2").respond("a1b2");
+        server.on(GET).resource("/path?a=1&b=3").respond("a1b3");
+        server.on(GET).resource("/path?b=3").respond("b3");
+
+        //act
+        String a1b3 = request(get(url("/path?b=3&a=1")));
+        String b3 = request(get(url("/path?b=3&a=2")));
+
+        //assert
+        assertEquals("a1b3", a1b3);
+        assertEquals("b3", b3);
+    }
+
+    @Test
+    public void testRoute_methods() throws Exception {
+        //prepare
+        server.on(POST).resource("/action").withParam("field", "value").respond("post");
+        server.on(GET).resource("/action?field=value").respond("get");
+
+        //act
+        String postResult = request(post(url("/action"), param("field", "value")));
+        String getResult = request(get(url("/action?field=value")));
+
+        //assert
+        assertEquals("post", postResult);
+        assertEquals("get", getResult);
+    }
+
+    @Test
+    public void testRoute_formParams() throws Exception {
+        //prepare
+        AtomicInteger handled = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            final int id = i;
+            server.on(POST).resource("/form").withParam("id", String.valueOf(i)).execute(x -> {
+                handled.incrementAndGet();
+                try {
+                    x.getOutputStream().write(("form" + id + ":" + x.getParsedFormParams().get("id")).getBytes());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        //act
+        String result = request(post(url("/form"), param("id", "7")));
+
+        //assert
+        assertEquals("form7:[7]", result);
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    public void testRoute_staticContent() throws Exception {
+        //prepare
+        server.addResource("/data", "staticContent".getBytes());
+        server.addResource("/data?v=2", "otherContent".getBytes());
+
+        //act
+        String first = request(get(url("/data")));
+        String second = request(get(url("/data")));
+        String query = request(get(url("/data?v=2")));
+
+        //assert
+        assertEquals("staticContent", first);
+        assertEquals("staticContent", second);
+        //the resource without query is registered first and matches all queries
+        assertEquals("staticContent", query);
+    }
+
+    @Test
+    public void testRoute_staticContentAndStubbing() throws Exception {
+        //prepare
+        server.on(GET).resource("/mixed?a=1").respond("stub");
+        server.addResource("/mixed", "staticContent".getBytes());
+
+        //act
+        String stub = request(get(url("/mixed?a=1")));
+        String staticContent = request(get(url("/mixed")));
+
+        //assert
+        assertEquals("stub", stub);
+        assertEquals("staticContent", staticContent);
+    }
+
+    @Test
+    public void testRoute_nonBlockingFilter_routedOnceOnIoThread() throws Exception {
+        //prepare
+        List<Boolean> filterInIoThread = new CopyOnWriteArrayList<>();
+        List<Boolean> handlerInIoThread = new CopyOnWriteArrayList<>();
+        FilteringHttpHandler handler = new FilteringHttpHandler();
+        handler.addHandler(GET, params("a", "1"), recording(filterInIoThread), false,
+                           x -> handlerInIoThread.add(x.getServerExchange().isInIoThread()));
+
+        //act
+        serve(handler, "/path?a=1");
+
+        //assert
+        assertEquals(1, filterInIoThread.size());
+        assertTrue(filterInIoThread.get(0));
+        assertEquals(1, handlerInIoThread.size());
+        assertFalse(handlerInIoThread.get(0));
+    }
+
+    @Test
+    public void testRoute_blockingFilter_routedOnWorkerThread() throws Exception {
+        //prepare
+        List<Boolean> filterInIoThread = new CopyOnWriteArrayList<>();
+        AtomicInteger handled = new AtomicInteger();
+        FilteringHttpHandler handler = new FilteringHttpHandler();
+        handler.addHandler(GET, params("a", "1"), recording(filterInIoThread), true, x -> handled.incrementAndGet());
+
+        //act
+        serve(handler, "/path?a=1");
+
+        //assert
+        assertEquals(1, filterInIoThread.size());
+        assertFalse(filterInIoThread.get(0));
+        assertEquals(1, handled.get());
+    }
+
+    private static Map<String, List<String>> params(String name, String value) {
+        return Collections.singletonMap(name, Collections.singletonList(value));
+    }
+
+    private static Predicate<HttpExchange> recording(List<Boolean> inIoThread) {
+        return x -> {
+            inIoThread.add(x.getServerExchange().isInIoThread());
+            return true;
+        };
+    }
+
+    private void serve(FilteringHttpHandler handler, String pathAndQuery) throws IOException {
+        final int port = NetworkUtils.findAvailablePort();
+        final Undertow undertow = Undertow.builder().addHttpListener(port, "localhost", handler).build();
+        undertow.start();
+        try {
+            request(get("http://localhost:" + port + pathAndQuery));
+        } finally {
+            undertow.stop();
+        }
+    }
+}
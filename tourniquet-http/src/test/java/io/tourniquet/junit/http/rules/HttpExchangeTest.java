@@ -18,16 +18,24 @@ package io.tourniquet.junit.http.rules;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import io.undertow.UndertowOptions;
 import io.undertow.server.BlockingHttpExchange;
@@ -134,6 +142,33 @@ public class HttpExchangeTest {
         assertEquals("content", IOUtils.toString(is));
     }
 
+    @Test
+    public void testStreamPayload_payloadNotRead_streamed() throws Exception {
+        //prepare
+        ByteArrayInputStream request = new ByteArrayInputStream("content".getBytes());
+        when(blockingHttpExchange.getInputStream()).thenReturn(request);
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        InputStream is = subject.streamPayload();
+        int first = is.read();
+
+        //assert
+        assertEquals('c', first);
+        assertEquals(6, request.available());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStreamPayload_streamedTwice_exception() throws Exception {
+        //prepare
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream("content".getBytes()));
+        exchange.startBlocking(blockingHttpExchange);
+        IOUtils.toString(subject.streamPayload());
+
+        //act
+        subject.getPayload();
+    }
+
     @Test
     public void testGetInputStream_reRead() throws Exception {
         //prepare
@@ -161,6 +196,130 @@ public class HttpExchangeTest {
         assertArrayEquals(data, payload);
     }
 
+    @Test
+    public void testGetPayload_modified_notShared() throws Exception {
+        //prepare
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream("content".getBytes()));
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        subject.getPayload()[0] = 'X';
+
+        //assert
+        assertEquals("content", new String(subject.getPayload()));
+    }
+
+    @Test
+    public void testPeekPayload_noBody_notRead() throws Exception {
+        //prepare
+        InputStream request = mock(InputStream.class);
+        when(blockingHttpExchange.getInputStream()).thenReturn(request);
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        byte[] head = subject.peekPayload(3);
+
+        //assert
+        assertEquals(0, head.length);
+        verifyZeroInteractions(request);
+    }
+
+    @Test
+    public void testPeekPayload_chunked_payloadStillReadable() throws Exception {
+        //prepare
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream("content".getBytes()));
+        exchange.getRequestHeaders().put(Headers.TRANSFER_ENCODING, "chunked");
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        byte[] head = subject.peekPayload(3);
+
+        //assert
+        assertEquals("con", new String(head));
+        assertEquals("content", new String(subject.getPayload()));
+    }
+
+    @Test
+    public void testPeekPayload_payloadStillReadable() throws Exception {
+        //prepare
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream("content".getBytes()));
+        exchange.getRequestHeaders().put(Headers.CONTENT_LENGTH, 7);
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        byte[] head = subject.peekPayload(3);
+
+        //assert
+        assertEquals("con", new String(head));
+        assertEquals("content", new String(subject.getPayload()));
+    }
+
+    @Test
+    public void testGetPayload_contentLength() throws Exception {
+        //prepare
+        byte[] data = "content".getBytes();
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream(data));
+        exchange.getRequestHeaders().put(Headers.CONTENT_LENGTH, data.length);
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        byte[] payload = subject.getPayload();
+
+        //assert
+        assertArrayEquals(data, payload);
+    }
+
+    @Test
+    public void testGetPayloadBuffer_readOnlyView() throws Exception {
+        //prepare
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream("content".getBytes()));
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        ByteBuffer buffer = subject.getPayloadBuffer();
+
+        //assert
+        assertTrue(buffer.isReadOnly());
+        assertEquals(7, buffer.remaining());
+        assertEquals('c', buffer.get(0));
+        //the payload is read once and shared by all views
+        assertSame(subject.readPayload(), subject.readPayload());
+    }
+
+    @Test
+    public void testGetPayloadChecksum() throws Exception {
+        //prepare
+        byte[] data = "content".getBytes();
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream(data));
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        long checksum = subject.getPayloadChecksum();
+
+        //assert
+        assertEquals(HttpExchange.checksum(data), checksum);
+        assertTrue(checksum >= 0);
+    }
+
+    @Test
+    public void testMatchedPayload() throws Exception {
+        //prepare
+        when(blockingHttpExchange.getInputStream()).thenReturn(new ByteArrayInputStream("content".getBytes()));
+        exchange.startBlocking(blockingHttpExchange);
+
+        //act
+        boolean same = HttpPredicates.matchedPayload(Optional.of("content".getBytes())).test(subject);
+        boolean sameLength = HttpPredicates.matchedPayload(Optional.of("CONTENT".getBytes())).test(subject);
+        boolean other = HttpPredicates.matchedPayload(Optional.of("other".getBytes())).test(subject);
+        boolean any = HttpPredicates.matchedPayload(Optional.empty()).test(subject);
+
+        //assert
+        assertTrue(same);
+        assertFalse(sameLength);
+        assertFalse(other);
+        assertTrue(any);
+    }
+
     @Test
     public void testGetOutputStream() throws Exception {
         //prepare
@@ -239,6 +398,33 @@ public class HttpExchangeTest {
         assertEquals("querystring", query);
     }
 
+    @Test
+    public void testGetParsedQueryParams() throws Exception {
+        //prepare
+        exchange.setQueryString("a=1&b=2&a=3&c=");
+
+        //act
+        Map<String, List<String>> params = subject.getParsedQueryParams();
+
+        //assert
+        assertEquals(Arrays.asList("1", "3"), params.get("a"));
+        assertEquals(Arrays.asList("2"), params.get("b"));
+        assertEquals(Arrays.asList(""), params.get("c"));
+        assertSame(params, subject.getParsedQueryParams());
+    }
+
+    @Test
+    public void testGetParsedQueryParams_malformed() throws Exception {
+        //prepare
+        exchange.setQueryString("noParams");
+
+        //act
+        Map<String, List<String>> params = subject.getParsedQueryParams();
+
+        //assert
+        assertTrue(params.isEmpty());
+    }
+
     @Test
     public void testGetRequestURI() throws Exception {
         //prepare
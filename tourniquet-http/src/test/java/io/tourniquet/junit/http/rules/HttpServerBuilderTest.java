@@ -116,6 +116,36 @@ public class HttpServerBuilderTest {
 
     }
 
+    @Test
+    public void testContentFrom_byteArray() throws Exception {
+        //prepare
+
+        //act
+        HttpServerBuilder builder = subject.contentFrom("/data", "content".getBytes());
+
+        //assert
+        assertSame(subject, builder);
+    }
+
+    @Test
+    public void testCacheResources() throws Exception {
+        //prepare
+
+        //act
+        HttpServerBuilder builder = subject.cacheResources(1024);
+
+        //assert
+        assertSame(subject, builder);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheResources_zeroSize_exception() throws Exception {
+        //prepare
+
+        //act
+        subject.cacheResources(0);
+    }
+
     @Test
     public void testContentFrom_temporaryFile() throws Exception {
         //prepare
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.HttpMethod.GET;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.getString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Test;
+
+public class HttpServerOptionsTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetIoThreads_single_exception() throws Exception {
+        //prepare
+
+        //act
+        new HttpServerOptions().setIoThreads(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetIdleTimeout_zero_exception() throws Exception {
+        //prepare
+
+        //act
+        new HttpServerOptions().setIdleTimeout(Duration.ZERO);
+    }
+
+    @Test
+    public void testTunedServer() throws Throwable {
+        //prepare
+        final HttpServer server = new HttpServerBuilder().ioThreads(2)
+                                                         .workerThreads(2)
+                                                         .bufferSize(4096)
+                                                         .directBuffers(false)
+                                                         .backlog(512)
+                                                         .idleTimeout(Duration.ofSeconds(5))
+                                                         .build();
+        server.before();
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            server.on(GET).resource("/test").respond("ok");
+
+            //act
+            try (CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+                //assert
+                assertEquals("ok", getString(response.getEntity()));
+            }
+        } finally {
+            server.after();
+        }
+    }
+
+    @Test
+    public void testHttp2_upgrade() throws Throwable {
+        //prepare
+        final HttpServer server = new HttpServerBuilder().http2().build();
+        server.before();
+        try (Socket socket = new Socket(server.getHostname(), server.getPort())) {
+            final OutputStream out = socket.getOutputStream();
+
+            //act
+            out.write(("GET / HTTP/1.1\r\n"
+                    + "Host: " + server.getHostname() + "\r\n"
+                    + "Connection: Upgrade, HTTP2-Settings\r\n"
+                    + "Upgrade: h2c\r\n"
+                    + "HTTP2-Settings: AAMAAABkAARAAAAAAAIAAAAA\r\n"
+                    + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            //assert
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                                   StandardCharsets.US_ASCII));
+            assertEquals("HTTP/1.1 101 Switching Protocols", reader.readLine());
+        } finally {
+            server.after();
+        }
+    }
+
+    @Test
+    public void testHttp2_priorKnowledge() throws Throwable {
+        //prepare
+        final HttpServer server = new HttpServerBuilder().http2().build();
+        server.before();
+        try (Socket socket = new Socket(server.getHostname(), server.getPort())) {
+            final OutputStream out = socket.getOutputStream();
+
+            //act
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            //empty SETTINGS frame
+            out.write(new byte[] { 0, 0, 0, 4, 0, 0, 0, 0, 0 });
+            out.flush();
+
+            //assert
+            final InputStream in = socket.getInputStream();
+            final byte[] header = new byte[9];
+            int read = 0;
+            while (read < header.length) {
+                final int n = in.read(header, read, header.length - read);
+                assertTrue("connection closed", n > 0);
+                read += n;
+            }
+            //the server starts with a SETTINGS frame
+            assertEquals(4, header[3]);
+        } finally {
+            server.after();
+        }
+    }
+}
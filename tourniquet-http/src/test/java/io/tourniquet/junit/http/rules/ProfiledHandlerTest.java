@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.HttpMethod.GET;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.getString;
+import static java.time.Duration.ofMillis;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests for stubbed responses with a {@link ResponseProfile}
+ */
+public class ProfiledHandlerTest {
+
+    @Rule
+    public HttpServer server = new HttpServerBuilder().build();
+
+    private CloseableHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        client = HttpClients.custom().setMaxConnPerRoute(100).setMaxConnTotal(100).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+    }
+
+    private HttpGet get(String path) {
+        return new HttpGet("http://localhost:" + server.getPort() + path);
+    }
+
+    @Test
+    public void testDelay() throws Exception {
+        //prepare
+        server.on(GET).resource("/delayed").withProfile(new ResponseProfile().withDelay(ofMillis(300))).respond("ok");
+
+        //act
+        final long start = System.nanoTime();
+        try (CloseableHttpResponse response = client.execute(get("/delayed"))) {
+
+            //assert
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("ok", getString(response.getEntity()));
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= 300);
+        }
+    }
+
+    @Test
+    public void testDelay_concurrentRequests() throws Exception {
+        //prepare
+        server.on(GET).resource("/delayed").withProfile(new ResponseProfile().withDelay(ofMillis(500))).respond("ok");
+        final ExecutorService pool = Executors.newFixedThreadPool(100);
+        final List<Future<String>> results = new ArrayList<>();
+
+        //act
+        final long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            results.add(pool.submit(() -> {
+                try (CloseableHttpResponse response = client.execute(get("/delayed"))) {
+                    return getString(response.getEntity());
+                }
+            }));
+        }
+        for (Future<String> result : results) {
+            assertEquals("ok", result.get());
+        }
+        final long duration = (System.nanoTime() - start) / 1_000_000;
+        pool.shutdown();
+
+        //assert
+        //the delayed responses do not occupy the worker threads, so they are not delayed sequentially
+        assertTrue("Took " + duration + " ms", duration < 2500);
+    }
+
+    @Test
+    public void testBandwidth() throws Exception {
+        //prepare
+        final byte[] content = new byte[20000];
+        Arrays.fill(content, (byte) 'x');
+        server.on(GET)
+              .resource("/throttled")
+              .withProfile(new ResponseProfile().withBandwidth(40000))
+              .respond(new String(content));
+
+        //act
+        final long start = System.nanoTime();
+        try (CloseableHttpResponse response = client.execute(get("/throttled"))) {
+
+            //assert
+            assertEquals(new String(content), getString(response.getEntity()));
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= 400);
+        }
+    }
+
+    @Test
+    public void testBandwidth_concurrentRequests_workerNotOccupied() throws Throwable {
+        //prepare
+        final HttpServer singleWorker = new HttpServerBuilder().workerThreads(1).build();
+        final byte[] content = new byte[2000];
+        Arrays.fill(content, (byte) 'x');
+        final ExecutorService pool = Executors.newFixedThreadPool(5);
+        final List<Future<String>> results = new ArrayList<>();
+        singleWorker.before();
+        try {
+            singleWorker.on(GET)
+                        .resource("/throttled")
+                        .withProfile(new ResponseProfile().withBandwidth(4000))
+                        .respond(new String(content));
+
+            //act
+            final long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                results.add(pool.submit(() -> {
+                    try (CloseableHttpResponse response = client.execute(
+                            new HttpGet("http://localhost:" + singleWorker.getPort() + "/throttled"))) {
+                        return getString(response.getEntity());
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(new String(content), result.get());
+            }
+            final long duration = (System.nanoTime() - start) / 1_000_000;
+
+            //assert
+            //the throttled responses are sent by the IO thread, so they are not sent sequentially by the worker
+            assertTrue("Took " + duration + " ms", duration < 2000);
+        } finally {
+            pool.shutdown();
+            singleWorker.after();
+        }
+    }
+
+    @Test
+    public void testBandwidth_generatedData_streamed() throws Exception {
+        //prepare
+        server.on(GET)
+              .resource("/generated")
+              .withProfile(new ResponseProfile().withBandwidth(2 * 1024 * 1024))
+              .respondWithData(1024 * 1024);
+
+        //act
+        final long start = System.nanoTime();
+        try (CloseableHttpResponse response = client.execute(get("/generated"))) {
+
+            //assert
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(1024 * 1024, EntityUtils.toByteArray(response.getEntity()).length);
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= 450);
+        }
+    }
+
+    @Test
+    public void testBandwidth_chunks_completed() throws Exception {
+        //prepare
+        server.on(GET)
+              .resource("/chunks")
+              .withProfile(new ResponseProfile().withDelay(ofMillis(100)).withBandwidth(1000))
+              .respondInChunks(() -> Stream.of("one", "two", "three"));
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get("/chunks"))) {
+
+            //assert
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("onetwothree", getString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testErrorRate() throws Exception {
+        //prepare
+        server.on(GET).resource("/error").withProfile(new ResponseProfile().withErrorRate(1, 503)).respond("ok");
+
+        //act
+        try (CloseableHttpResponse response = client.execute(get("/error"))) {
+
+            //assert
+            assertEquals(503, response.getStatusLine().getStatusCode());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testResetRate() throws Exception {
+        //prepare
+        server.on(GET).resource("/reset").withProfile(new ResponseProfile().withResetRate(1)).respond("ok");
+
+        //act
+        client.execute(get("/reset")).close();
+    }
+
+    @Test
+    public void testResetRate_connectionReset() throws Exception {
+        //prepare
+        server.on(GET).resource("/reset").withProfile(new ResponseProfile().withResetRate(1)).respond("ok");
+
+        //act
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.getOutputStream().write("GET /reset HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes());
+            socket.getInputStream().read();
+            fail("SocketException expected");
+        } catch (SocketException e) {
+            //assert
+            assertTrue(e.getMessage(), e.getMessage().contains("reset"));
+        }
+    }
+}
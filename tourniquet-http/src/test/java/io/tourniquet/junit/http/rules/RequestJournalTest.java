@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.RequestPattern.GET;
+import static io.tourniquet.junit.http.rules.RequestPattern.POST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RequestJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The class under test
+     */
+    private RequestJournal subject = new RequestJournal(3, 4, null);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNew_zeroCapacity_exception() throws Exception {
+        //prepare
+
+        //act
+        new RequestJournal(0, 4, null);
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        //prepare
+        HttpServerExchange exchange = exchange("GET", "/test", "a=b");
+        exchange.getRequestHeaders().put(Headers.ACCEPT, "text/plain");
+
+        //act
+        RecordedRequest request = subject.record(exchange);
+
+        //assert
+        assertEquals("GET", request.getMethod());
+        assertEquals("/test", request.getPath());
+        assertEquals("a=b", request.getQueryString());
+        assertEquals("text/plain", request.getHeader("accept"));
+        assertEquals(0, request.getBody().length);
+        assertEquals(1, subject.getRecordedCount());
+        assertEquals(1, subject.getRequests().size());
+    }
+
+    @Test
+    public void testSetBody_exceedsLimit_truncated() throws Exception {
+        //prepare
+        RecordedRequest request = subject.record(exchange("POST", "/test", ""));
+
+        //act
+        request.setBody("123456".getBytes(StandardCharsets.UTF_8));
+
+        //assert
+        assertEquals("1234", request.getBodyAsString());
+        assertTrue(request.isBodyTruncated());
+    }
+
+    @Test
+    public void testGetRequests_capacityExceeded_oldestEvicted() throws Exception {
+        //prepare
+        for (int i = 0; i < 5; i++) {
+            subject.record(exchange("GET", "/" + i, ""));
+        }
+
+        //act
+        List<RecordedRequest> requests = subject.getRequests();
+
+        //assert
+        assertEquals(5, subject.getRecordedCount());
+        assertEquals("/2,/3,/4", requests.stream().map(RecordedRequest::getPath).collect(Collectors.joining(",")));
+    }
+
+    @Test
+    public void testGetRequests_pattern() throws Exception {
+        //prepare
+        subject.record(exchange("GET", "/a", ""));
+        subject.record(exchange("POST", "/a", ""));
+        subject.record(exchange("GET", "/b", ""));
+
+        //act
+        List<RecordedRequest> gets = subject.getRequests(GET("/a"));
+        List<RecordedRequest> posts = subject.getRequests(POST("/b"));
+
+        //assert
+        assertEquals(1, gets.size());
+        assertEquals("GET", gets.get(0).getMethod());
+        assertTrue(posts.isEmpty());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        //prepare
+        subject.record(exchange("GET", "/a", ""));
+
+        //act
+        subject.clear();
+
+        //assert
+        assertEquals(0, subject.getRecordedCount());
+        assertTrue(subject.getRequests().isEmpty());
+    }
+
+    @Test
+    public void testSpill_evictedRequestsWritten() throws Exception {
+        //prepare
+        Path spillFile = folder.getRoot().toPath().resolve("journal.txt");
+        RequestJournal journal = new RequestJournal(1, 4, spillFile);
+        journal.open();
+        RecordedRequest first = journal.record(exchange("POST", "/first", "x=1"));
+        first.setBody("body".getBytes(StandardCharsets.UTF_8));
+
+        //act
+        journal.record(exchange("GET", "/second", ""));
+        journal.close();
+
+        //assert
+        String content = new String(Files.readAllBytes(spillFile), StandardCharsets.UTF_8);
+        assertTrue(content, content.contains("POST /first?x=1"));
+        assertTrue(content, content.contains("body"));
+        assertFalse(content, content.contains("/second"));
+        assertEquals(0, journal.getDroppedCount());
+    }
+
+    private static HttpServerExchange exchange(String method, String path, String query) {
+
+        HttpServerExchange exchange = new HttpServerExchange(null);
+        exchange.setRequestMethod(HttpString.tryFromString(method));
+        exchange.setRequestPath(path);
+        exchange.setQueryString(query);
+        return exchange;
+    }
+}
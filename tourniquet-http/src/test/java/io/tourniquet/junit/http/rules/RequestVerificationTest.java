@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.RequestPattern.GET;
+import static io.tourniquet.junit.http.rules.RequestPattern.POST;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.getString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class RequestVerificationTest {
+
+    @Rule
+    public HttpServer server = new HttpServerBuilder().recordRequests().journalBodyLimit(8).build();
+
+    @Test
+    public void testTimes() throws Exception {
+        //prepare
+        server.on(HttpMethod.GET).resource("/test").respond("ok");
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("ok", execute(client, new HttpGet(server.getBaseUrl() + "test?i=" + i)));
+            }
+        }
+
+        //assert
+        server.verify(GET("/test")).times(3);
+        server.verify(GET("/test").withParam("i", "1")).once();
+        server.verify(POST("/test")).never();
+        server.verify(GET("/test")).atLeast(2);
+        server.verify(GET("/test")).atMost(3);
+    }
+
+    @Test
+    public void testTimes_mismatch_assertionError() throws Exception {
+        //prepare
+        server.on(HttpMethod.GET).resource("/test").respond("ok");
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            execute(client, new HttpGet(server.getBaseUrl() + "test"));
+        }
+
+        //act
+        try {
+            server.verify(GET("/other")).once();
+            fail("AssertionError expected");
+        } catch (AssertionError e) {
+            //assert
+            assertTrue(e.getMessage(), e.getMessage().contains("GET /test"));
+        }
+    }
+
+    @Test
+    public void testVerify_postBody() throws Exception {
+        //prepare
+        server.on(HttpMethod.POST).resource("/test").respond("ok");
+        final HttpPost post = new HttpPost(server.getBaseUrl() + "test");
+        post.setEntity(new StringEntity("0123456789"));
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            execute(client, post);
+        }
+
+        //assert
+        server.verify(POST("/test")).once();
+        //truncated bodies never match an expected body
+        server.verify(POST("/test").withBody("01234567")).never();
+        RecordedRequest request = server.getJournal().getRequests().get(0);
+        assertEquals("01234567", request.getBodyAsString());
+        assertTrue(request.isBodyTruncated());
+    }
+
+    @Test
+    public void testVerify_postBody_handlerReadsEntireBody() throws Exception {
+        //prepare
+        server.on(HttpMethod.POST).resource("/echo").execute(x -> {
+            try {
+                x.getOutputStream().write(x.getPayload());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        final HttpPost post = new HttpPost(server.getBaseUrl() + "echo");
+        post.setEntity(new StringEntity("0123456789"));
+
+        //act
+        final String result;
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            result = execute(client, post);
+        }
+
+        //assert
+        assertEquals("0123456789", result);
+        RecordedRequest request = server.getJournal().getRequests().get(0);
+        assertEquals("01234567", request.getBodyAsString());
+        assertTrue(request.isBodyTruncated());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testVerify_journalDisabled_exception() throws Exception {
+        //prepare
+        HttpServer disabled = new HttpServerBuilder().build();
+
+        //act
+        disabled.verify(GET("/test"));
+    }
+
+    private static String execute(CloseableHttpClient client, HttpUriRequest request) throws IOException {
+
+        try (CloseableHttpResponse response = client.execute(request)) {
+            return getString(response.getEntity());
+        }
+    }
+}
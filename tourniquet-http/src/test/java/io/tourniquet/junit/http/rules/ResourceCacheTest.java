@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ResourceCacheTest {
+
+    /**
+     * The class under test
+     */
+    private ResourceCache subject = new ResourceCache(10);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNew_zeroSize_exception() throws Exception {
+        //prepare
+
+        //act
+        new ResourceCache(0);
+    }
+
+    @Test
+    public void testGet_notCached_null() throws Exception {
+        //prepare
+
+        //act
+        ResourceCache.Entry entry = subject.get("key");
+
+        //assert
+        assertNull(entry);
+    }
+
+    @Test
+    public void testGet_loader_loadedOnce() throws Exception {
+        //prepare
+        final AtomicInteger loads = new AtomicInteger();
+        final ResourceCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream("test".getBytes());
+        };
+
+        //act
+        ResourceCache.Entry first = subject.get("key", loader);
+        ResourceCache.Entry second = subject.get("key", loader);
+
+        //assert
+        assertSame(first, second);
+        assertSame(first, subject.get("key"));
+        assertEquals(1, loads.get());
+        assertEquals(4, subject.getSize());
+        ByteBuffer content = first.getContent();
+        byte[] data = new byte[content.remaining()];
+        content.get(data);
+        assertEquals("test", new String(data));
+        //the content of the entry is not affected by reading a buffer
+        assertEquals(4, first.getContent().remaining());
+    }
+
+    @Test
+    public void testGet_exceedsMaxSize_leastRecentlyUsedEvicted() throws Exception {
+        //prepare
+        subject.get("a", () -> new ByteArrayInputStream(new byte[4]));
+        subject.get("b", () -> new ByteArrayInputStream(new byte[4]));
+        subject.get("a");
+
+        //act
+        subject.get("c", () -> new ByteArrayInputStream(new byte[4]));
+
+        //assert
+        assertNotNull(subject.get("a"));
+        assertNull(subject.get("b"));
+        assertNotNull(subject.get("c"));
+        assertEquals(2, subject.getEntryCount());
+        assertEquals(8, subject.getSize());
+    }
+
+    @Test
+    public void testGet_largerThanMaxSize_notCached() throws Exception {
+        //prepare
+
+        //act
+        ResourceCache.Entry entry = subject.get("key", () -> new ByteArrayInputStream(new byte[11]));
+
+        //assert
+        assertNull(entry);
+        assertNull(subject.get("key"));
+        assertEquals(0, subject.getSize());
+    }
+
+    @Test
+    public void testGet_largerThanMaxSize_notLoadedAgain() throws Exception {
+        //prepare
+        final AtomicInteger loads = new AtomicInteger();
+        final ResourceCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(new byte[1000]);
+        };
+
+        //act
+        ResourceCache.Entry first = subject.get("key", loader);
+        ResourceCache.Entry second = subject.get("key", loader);
+
+        //assert
+        assertNull(first);
+        assertNull(second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testEntry_etag() throws Exception {
+        //prepare
+
+        //act
+        ResourceCache.Entry entry1 = new ResourceCache.Entry("test".getBytes());
+        ResourceCache.Entry entry2 = new ResourceCache.Entry("test".getBytes());
+        ResourceCache.Entry entry3 = new ResourceCache.Entry("tesT".getBytes());
+
+        //assert
+        assertEquals(entry1.getETag(), entry2.getETag());
+        assertNotEquals(entry1.getETag(), entry3.getETag());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        //prepare
+        subject.get("key", () -> new ByteArrayInputStream(new byte[4]));
+
+        //act
+        subject.clear();
+
+        //assert
+        assertNull(subject.get("key"));
+        assertEquals(0, subject.getSize());
+    }
+}
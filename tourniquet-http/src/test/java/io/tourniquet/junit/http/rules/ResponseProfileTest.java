@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static java.time.Duration.ofMillis;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+public class ResponseProfileTest {
+
+    /**
+     * The class under test
+     */
+    private ResponseProfile subject = new ResponseProfile();
+
+    @Test
+    public void testNextDelay_default_zero() throws Exception {
+        //prepare
+
+        //act
+        Duration delay = subject.nextDelay();
+
+        //assert
+        assertEquals(Duration.ZERO, delay);
+    }
+
+    @Test
+    public void testWithDelay_fixed() throws Exception {
+        //prepare
+
+        //act
+        subject.withDelay(ofMillis(100));
+
+        //assert
+        assertEquals(ofMillis(100), subject.nextDelay());
+    }
+
+    @Test
+    public void testWithDelay_range() throws Exception {
+        //prepare
+
+        //act
+        subject.withDelay(ofMillis(100), ofMillis(200));
+
+        //assert
+        for (int i = 0; i < 100; i++) {
+            Duration delay = subject.nextDelay();
+            assertTrue(delay.compareTo(ofMillis(100)) >= 0);
+            assertTrue(delay.compareTo(ofMillis(200)) <= 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithDelay_invalidRange_exception() throws Exception {
+        //prepare
+
+        //act
+        subject.withDelay(ofMillis(200), ofMillis(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithBandwidth_zero_exception() throws Exception {
+        //prepare
+
+        //act
+        subject.withBandwidth(0);
+    }
+
+    @Test
+    public void testWithErrorRate() throws Exception {
+        //prepare
+
+        //act
+        subject.withErrorRate(0.5, 503);
+
+        //assert
+        assertEquals(0.5, subject.getErrorRate(), 0.0);
+        assertEquals(503, subject.getErrorStatusCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithErrorRate_noServerError_exception() throws Exception {
+        //prepare
+
+        //act
+        subject.withErrorRate(0.5, 404);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithErrorRate_invalidRate_exception() throws Exception {
+        //prepare
+
+        //act
+        subject.withErrorRate(1.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithResetRate_exceedsTotal_exception() throws Exception {
+        //prepare
+        subject.withErrorRate(0.6);
+
+        //act
+        subject.withResetRate(0.6);
+    }
+}
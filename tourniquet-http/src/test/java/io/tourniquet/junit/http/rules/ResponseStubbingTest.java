@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.junit.http.rules;
+
+import static io.tourniquet.junit.http.rules.HttpMethod.GET;
+import static io.tourniquet.junit.http.rules.examples.HttpClientHelper.getString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResponseStubbingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public HttpServer server = new HttpServerBuilder().build();
+
+    @Test
+    public void testRespond_url_streamed() throws Exception {
+        //prepare
+        server.on(GET).resource("/test").respond(getClass().getResource("ResponseStubbingTest.class"));
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+            //assert
+            byte[] expected = IOUtils.toByteArray(getClass().getResource("ResponseStubbingTest.class"));
+            assertArrayEquals(expected, IOUtils.toByteArray(response.getEntity().getContent()));
+        }
+    }
+
+    @Test
+    public void testRespond_path() throws Exception {
+        //prepare
+        Path file = folder.newFile("content.txt").toPath();
+        Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+        server.on(GET).resource("/test").respond(file);
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+            //assert
+            assertEquals("12", response.getFirstHeader("Content-Length").getValue());
+            assertEquals("file content", getString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testRespond_largePath_transferredCompletely() throws Exception {
+        //prepare
+        Path file = folder.newFile("large.bin").toPath();
+        byte[] data = new byte[4 * 1024 * 1024];
+        new Random(42).nextBytes(data);
+        Files.write(file, data);
+        server.on(GET).resource("/test").respond(file);
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            for (int i = 0; i < 2; i++) {
+                try (CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+                    //assert
+                    assertArrayEquals(data, IOUtils.toByteArray(response.getEntity().getContent()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRespond_path_profiled() throws Exception {
+        //prepare
+        Path file = folder.newFile("content.txt").toPath();
+        Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+        server.on(GET).resource("/test").withProfile(new ResponseProfile().withBandwidth(1000)).respond(file);
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+            //assert
+            assertEquals("file content", getString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testRespond_contentSource_chunked() throws Exception {
+        //prepare
+        byte[] data = new byte[100_000];
+        server.on(GET).resource("/test").respond(() -> new ByteArrayInputStream(data));
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+            //assert
+            assertEquals("chunked", response.getFirstHeader("Transfer-Encoding").getValue());
+            assertEquals(data.length, IOUtils.toByteArray(response.getEntity().getContent()).length);
+        }
+    }
+
+    @Test
+    public void testRespondWithData() throws Exception {
+        //prepare
+        server.on(GET).resource("/test").respondWithData(1_000_000);
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+            //assert
+            assertEquals("1000000", response.getFirstHeader("Content-Length").getValue());
+            InputStream in = response.getEntity().getContent();
+            assertEquals('a', in.read());
+            assertEquals('b', in.read());
+            assertEquals(1_000_000 - 2, IOUtils.toByteArray(in).length);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRespondWithData_negative_exception() throws Exception {
+        //prepare
+
+        //act
+        server.on(GET).resource("/test").respondWithData(-1);
+    }
+
+    @Test
+    public void testRespondInChunks() throws Exception {
+        //prepare
+        server.on(GET).resource("/test").respondInChunks(() -> Stream.of("one", "two", "three"));
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "test"))) {
+
+            //assert
+            assertEquals("chunked", response.getFirstHeader("Transfer-Encoding").getValue());
+            assertNull(response.getFirstHeader("Content-Length"));
+            assertEquals("onetwothree", getString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testRespondWithEvents() throws Exception {
+        //prepare
+        server.on(GET).resource("/events").respondWithEvents(() -> Stream.of("first", "multi\nline"));
+
+        //act
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(server.getBaseUrl() + "events"))) {
+
+            //assert
+            assertTrue(response.getFirstHeader("Content-Type").getValue().startsWith("text/event-stream"));
+            assertEquals("data: first\n\ndata: multi\ndata: line\n\n",
+                         IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+        }
+    }
+}
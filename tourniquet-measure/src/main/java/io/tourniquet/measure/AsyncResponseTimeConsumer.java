@@ -0,0 +1,461 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+/**
+ * Consumer of response times that dispatches the response times asynchronously to another consumer, so that a slow
+ * consumer, i.e. one writing to a file or socket, does not delay the measuring thread. Every thread passing response
+ * times to the consumer writes into its own bounded single-producer queue. The queues are drained by a background
+ * thread that passes the response times in batches to the target consumer, so the target consumer is only invoked by a
+ * single thread and does not have to be thread-safe.
+ * <br>
+ * If the queue of a thread is full, the {@link OverflowPolicy} defines whether the thread waits for the background
+ * thread to catch up or whether the response time is dropped. Dropped response times are counted. If the consumer is
+ * not started, a thread with a full queue drains the queues itself. Example:
+ * <pre>
+ *     AsyncResponseTimeConsumer async = AsyncResponseTimeConsumer.batching(batch -&gt; writer.write(batch))
+ *                                                                .withOverflowPolicy(OverflowPolicy.DROP)
+ *                                                                .start();
+ *     ResponseTimes.current().onMeasureEnd(async);
+ *     ...
+ *     async.close();
+ * </pre>
+ * As the consumer is a {@link ResponseTimeSink}, response times collected by transaction id are queued without creating
+ * {@link ResponseTime} objects on the measuring thread.
+ */
+public final class AsyncResponseTimeConsumer implements ResponseTimeSink, Closeable {
+
+    private static final Logger LOG = getLogger(AsyncResponseTimeConsumer.class);
+
+    /**
+     * The default number of response times a single thread can queue.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The default maximum number of response times passed to the target consumer at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    /**
+     * Time the background thread pauses when all queues are empty
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Policy how to handle a response time if the queue of the producing thread is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The producing thread waits until the background thread has made room in its queue. No response time is lost,
+         * but a slow target consumer delays the producing thread once its queue is full.
+         */
+        BLOCK,
+        /**
+         * The response time is dropped and counted, the producing thread is never delayed.
+         */
+        DROP,
+    }
+
+    private final Consumer<? super List<ResponseTime>> target;
+
+    private int capacity = DEFAULT_CAPACITY;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    /**
+     * Kind of queue entries holding a {@link ResponseTime}
+     */
+    private static final byte RESPONSE_TIME = 1;
+    /**
+     * Kind of queue entries holding the transaction name, start and duration of a response time
+     */
+    private static final byte RECORDED = 2;
+
+    private final Set<SingleWriterBuffer> queues = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<SingleWriterBuffer> localQueue = ThreadLocal.withInitial(this::newQueue);
+
+    private final AtomicReference<Thread> dispatcher = new AtomicReference<>();
+    private volatile boolean closed;
+
+    /**
+     * Serializes the draining of the queues, so the target consumer is never invoked concurrently, even if queues are
+     * drained by producing threads.
+     */
+    private final Object drainLock = new Object();
+
+    /**
+     * Number of completed drain rounds of the background thread
+     */
+    private final AtomicLong rounds = new AtomicLong();
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private AsyncResponseTimeConsumer(final Consumer<? super List<ResponseTime>> target) {
+
+        Objects.requireNonNull(target, "Target consumer must not be null");
+        this.target = target;
+    }
+
+    /**
+     * Creates an asynchronous consumer passing every response time separately to the target consumer.
+     *
+     * @param consumer
+     *         the consumer to pass the response times to
+     *
+     * @return a new, not yet started consumer
+     */
+    public static AsyncResponseTimeConsumer of(Consumer<? super ResponseTime> consumer) {
+
+        Objects.requireNonNull(consumer, "Consumer must not be null");
+        return new AsyncResponseTimeConsumer(batch -> batch.forEach(consumer));
+    }
+
+    /**
+     * Creates an asynchronous consumer passing the response times in batches to the target consumer. The list passed
+     * to the target consumer is only valid during the invocation of the consumer.
+     *
+     * @param batchConsumer
+     *         the consumer to pass the batches of response times to
+     *
+     * @return a new, not yet started consumer
+     */
+    public static AsyncResponseTimeConsumer batching(Consumer<? super List<ResponseTime>> batchConsumer) {
+
+        return new AsyncResponseTimeConsumer(batchConsumer);
+    }
+
+    /**
+     * Sets the number of response times a single thread can queue before the {@link OverflowPolicy} applies. The
+     * capacity is rounded up to the next power of 2.
+     *
+     * @param capacity
+     *         the capacity of the queue of each thread
+     *
+     * @return this consumer
+     */
+    public AsyncResponseTimeConsumer withCapacity(int capacity) {
+
+        requirePositive(capacity, "Capacity");
+        requireNotStarted();
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of response times passed to the target consumer at once.
+     *
+     * @param batchSize
+     *         the maximum size of a batch
+     *
+     * @return this consumer
+     */
+    public AsyncResponseTimeConsumer withBatchSize(int batchSize) {
+
+        requirePositive(batchSize, "Batch size");
+        requireNotStarted();
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the policy how to handle response times if the queue of the producing thread is full. Default is {@link
+     * OverflowPolicy#BLOCK}.
+     *
+     * @param policy
+     *         the overflow policy
+     *
+     * @return this consumer
+     */
+    public AsyncResponseTimeConsumer withOverflowPolicy(OverflowPolicy policy) {
+
+        Objects.requireNonNull(policy, "Overflow policy must not be null");
+        requireNotStarted();
+        this.overflowPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Starts the background thread dispatching the response times to the target consumer.
+     *
+     * @return this consumer
+     */
+    public AsyncResponseTimeConsumer start() {
+
+        final Thread thread = new Thread(this::dispatch, "tourniquet-async-consumer-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        if (!dispatcher.compareAndSet(null, thread)) {
+            throw new IllegalStateException("Consumer is already started");
+        }
+        thread.start();
+        return this;
+    }
+
+    @Override
+    public void accept(final ResponseTime responseTime) {
+
+        enqueue(RESPONSE_TIME, responseTime, 0L, 0L);
+    }
+
+    @Override
+    public void accept(final String transaction, final long startEpochNanos, final long durationNanos) {
+
+        enqueue(RECORDED, transaction, startEpochNanos, durationNanos);
+    }
+
+    private void enqueue(final byte kind, final Object item, final long startEpochNanos, final long durationNanos) {
+
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        final SingleWriterBuffer queue = localQueue.get();
+        while (!queue.offer(kind, item, startEpochNanos, durationNanos)) {
+            if (overflowPolicy == OverflowPolicy.DROP || closed) {
+                dropped.increment();
+                return;
+            }
+            final Thread thread = dispatcher.get();
+            if (thread == null) {
+                //without background thread nobody makes room in the queue
+                drain(new ArrayList<>(batchSize));
+            } else {
+                LockSupport.unpark(thread);
+                Thread.yield();
+            }
+        }
+        queue.fence();
+        if (closed) {
+            //the consumer may have been closed and drained after the check above, before the response time was queued
+            drain(new ArrayList<>(batchSize));
+        }
+    }
+
+    private SingleWriterBuffer newQueue() {
+
+        final SingleWriterBuffer queue = new SingleWriterBuffer(Thread.currentThread(), capacity);
+        queues.add(queue);
+        return queue;
+    }
+
+    /**
+     * The loop of the background thread
+     */
+    private void dispatch() {
+
+        final List<ResponseTime> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            final int count = drain(batch);
+            rounds.incrementAndGet();
+            if (count == 0) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+        drain(batch);
+        rounds.incrementAndGet();
+    }
+
+    /**
+     * Drains all queues and passes the response times to the target consumer. The queues are usually drained by the
+     * background thread, but are drained by a producing thread if its queue is full and the consumer is not started or
+     * if it queued a response time while the consumer was closed.
+     *
+     * @param batch
+     *         the list to collect the batch in
+     *
+     * @return the number of drained response times
+     */
+    private int drain(List<ResponseTime> batch) {
+
+        synchronized (drainLock) {
+            return drainQueues(batch);
+        }
+    }
+
+    private int drainQueues(List<ResponseTime> batch) {
+
+        final SingleWriterBuffer.EntryConsumer toBatch = (kind, item, start, duration) -> batch.add(
+                kind == RESPONSE_TIME
+                ? (ResponseTime) item
+                : new ResponseTime((String) item, NanoTime.ofEpochNanos(start), Duration.ofNanos(duration)));
+        int count = 0;
+        for (SingleWriterBuffer queue : queues) {
+            int drained;
+            do {
+                drained = Math.max(0, queue.drainTo(toBatch, batchSize - batch.size()));
+                count += drained;
+                if (batch.size() == batchSize) {
+                    dispatchBatch(batch);
+                }
+            } while (drained > 0);
+            if (queue.isOrphaned() && queue.isEmpty()) {
+                queues.remove(queue);
+            }
+        }
+        if (!batch.isEmpty()) {
+            dispatchBatch(batch);
+        }
+        return count;
+    }
+
+    private void dispatchBatch(List<ResponseTime> batch) {
+
+        try {
+            target.accept(batch);
+            dispatched.add(batch.size());
+        } catch (RuntimeException e) {
+            LOG.warn("Consumer failed to process {} response times", batch.size(), e);
+            failed.add(batch.size());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Waits until all response times passed to this consumer by the current thread before invoking this method are
+     * dispatched to the target consumer.
+     *
+     * @param timeout
+     *         the maximum time to wait
+     *
+     * @return <code>true</code> if the response times were dispatched, <code>false</code> if the timeout elapsed
+     *
+     * @throws InterruptedException
+     *         if the current thread was interrupted while waiting
+     */
+    public boolean flush(Duration timeout) throws InterruptedException {
+
+        final Thread thread = dispatcher.get();
+        if (thread == null) {
+            throw new IllegalStateException("Consumer is not started");
+        }
+        //the current round may have started before the response times were queued, so a full round has to complete
+        final long round = rounds.get() + 2;
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        LockSupport.unpark(thread);
+        while (rounds.get() < round && thread.isAlive()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, IDLE_NANOS / 10);
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting response times, dispatches all queued response times and stops the background thread. Response
+     * times passed to the consumer after it was closed are dropped.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+        final Thread thread = dispatcher.get();
+        if (thread == null) {
+            drain(new ArrayList<>(batchSize));
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The number of response times passed to the target consumer.
+     *
+     * @return the number of dispatched response times
+     */
+    public long getDispatchedCount() {
+
+        return dispatched.sum();
+    }
+
+    /**
+     * The number of response times dropped because the queue of the producing thread was full or the consumer was
+     * closed.
+     *
+     * @return the number of dropped response times
+     */
+    public long getDroppedCount() {
+
+        return dropped.sum();
+    }
+
+    /**
+     * The number of response times that were passed to the target consumer, but the consumer failed with an exception.
+     *
+     * @return the number of response times of failed batches
+     */
+    public long getFailedCount() {
+
+        return failed.sum();
+    }
+
+    /**
+     * The number of response times queued but not yet dispatched.
+     *
+     * @return the number of pending response times
+     */
+    public long getPendingCount() {
+
+        return queues.stream().mapToLong(SingleWriterBuffer::size).sum();
+    }
+
+    private void requireNotStarted() {
+
+        if (dispatcher.get() != null) {
+            throw new IllegalStateException("Consumer is already started");
+        }
+    }
+
+    private static void requirePositive(final int value, final String name) {
+
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive, but was " + value);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The response time statistics of a previous run that the statistics of the current run are compared to. A baseline
+ * is persisted as a compact binary file containing the compressed histogram of each transaction, so its size does not
+ * depend on the number of recorded response times.
+ *
+ * @see BaselineComparison
+ */
+public final class Baseline {
+
+    /**
+     * Identifies a baseline file, the ASCII characters "TQBL"
+     */
+    private static final int MAGIC = 0x5451424C;
+
+    private static final int VERSION = 1;
+
+    private final Map<String, ResponseTimeStatistics> statistics;
+
+    private Baseline(final Map<String, ResponseTimeStatistics> statistics) {
+
+        this.statistics = Collections.unmodifiableMap(new TreeMap<>(statistics));
+    }
+
+    /**
+     * Creates a baseline from statistics.
+     *
+     * @param statistics
+     *         a map of transaction names and the statistics of that transaction, i.e. as provided by {@link
+     *         ResponseTimes#getStatistics()}
+     *
+     * @return a new baseline
+     */
+    public static Baseline of(Map<String, ResponseTimeStatistics> statistics) {
+
+        return new Baseline(statistics);
+    }
+
+    /**
+     * Reads a baseline from a file written by {@link #write(Path)}.
+     *
+     * @param file
+     *         the file to read
+     *
+     * @return the baseline read from the file
+     *
+     * @throws IOException
+     *         if the file could not be read or is no valid baseline file
+     */
+    public static Baseline read(Path file) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a baseline file");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported baseline version " + version + " of " + file);
+            }
+            final int count = in.readInt();
+            final Map<String, byte[]> encoded = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                final String transaction = in.readUTF();
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                encoded.put(transaction, bytes);
+            }
+            return new Baseline(ResponseTimeCodec.decodeStatistics(encoded));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid baseline file " + file, e);
+        }
+    }
+
+    /**
+     * Writes the baseline to a file. An existing file is overwritten.
+     *
+     * @param file
+     *         the file to write the baseline to
+     *
+     * @throws IOException
+     *         if the file could not be written
+     */
+    public void write(Path file) throws IOException {
+
+        final Map<String, byte[]> encoded = ResponseTimeCodec.encodeStatistics(statistics);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(encoded.size());
+            for (Map.Entry<String, byte[]> e : new TreeMap<>(encoded).entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().length);
+                out.write(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * The statistics of all transactions of the baseline
+     *
+     * @return an unmodifiable map of the transaction names and the statistics of that transaction
+     */
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        return statistics;
+    }
+
+    /**
+     * The statistics of a single transaction of the baseline
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the statistics of the transaction or the empty optional if the baseline contains no such transaction
+     */
+    public Optional<ResponseTimeStatistics> getStatistics(String transaction) {
+
+        return Optional.ofNullable(statistics.get(transaction));
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+/**
+ * Compares the response times of the current run with a {@link Baseline} to detect performance regressions. For each
+ * transaction contained in both, the distributions are compared using a one-sided two-sample Kolmogorov-Smirnov test
+ * on the histograms, testing whether the current response times are stochastically greater than those of the
+ * baseline. As with many samples even negligible differences become statistically significant, a transaction is only
+ * considered a regression if the difference is significant <em>and</em> a percentile of the response times increased
+ * by more than a tolerance. Example:
+ * <pre>
+ *     BaselineComparison comparison = BaselineComparison.against(Baseline.read(file))
+ *                                                       .withTolerance(99.0, 0.2);
+ *     List&lt;TransactionComparison&gt; regressions = comparison.regressions(ResponseTimes.current().getStatistics());
+ * </pre>
+ */
+public final class BaselineComparison {
+
+    /**
+     * The default significance level of the test
+     */
+    public static final double DEFAULT_SIGNIFICANCE = 0.01;
+
+    /**
+     * The default percentile whose increase is compared to the tolerance
+     */
+    public static final double DEFAULT_PERCENTILE = 95.0;
+
+    /**
+     * The default tolerated relative increase of the percentile
+     */
+    public static final double DEFAULT_TOLERANCE = 0.1;
+
+    private final Baseline baseline;
+    private double significance = DEFAULT_SIGNIFICANCE;
+    private double percentile = DEFAULT_PERCENTILE;
+    private double tolerance = DEFAULT_TOLERANCE;
+
+    private BaselineComparison(final Baseline baseline) {
+
+        Objects.requireNonNull(baseline, "Baseline must not be null");
+        this.baseline = baseline;
+    }
+
+    /**
+     * Creates a comparison against a baseline using the default significance and tolerance.
+     *
+     * @param baseline
+     *         the baseline to compare to
+     *
+     * @return a new comparison
+     */
+    public static BaselineComparison against(Baseline baseline) {
+
+        return new BaselineComparison(baseline);
+    }
+
+    /**
+     * Sets the significance level of the test. A difference of the distributions is significant if the p-value of the
+     * test is below the significance level.
+     *
+     * @param significance
+     *         the significance level, i.e. 0.01
+     *
+     * @return this comparison
+     */
+    public BaselineComparison withSignificance(double significance) {
+
+        if (significance <= 0.0 || significance >= 1.0) {
+            throw new IllegalArgumentException("Significance must be within 0.0 and 1.0, but was " + significance);
+        }
+        this.significance = significance;
+        return this;
+    }
+
+    /**
+     * Sets the tolerated increase of a percentile of the response times. A significant difference of the
+     * distributions is only considered a regression if the percentile increased by more than the tolerance.
+     *
+     * @param percentile
+     *         the percentile to compare, in the range of 0.0 to 100.0
+     * @param relativeIncrease
+     *         the tolerated increase relative to the baseline, i.e. 0.1 for 10%
+     *
+     * @return this comparison
+     */
+    public BaselineComparison withTolerance(double percentile, double relativeIncrease) {
+
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be within 0.0 and 100.0, but was " + percentile);
+        }
+        if (relativeIncrease < 0.0) {
+            throw new IllegalArgumentException("Tolerance must not be negative, but was " + relativeIncrease);
+        }
+        this.percentile = percentile;
+        this.tolerance = relativeIncrease;
+        return this;
+    }
+
+    /**
+     * Compares the statistics of all transactions contained in both, the baseline and the current statistics.
+     *
+     * @param current
+     *         a map of transaction names and the current statistics of that transaction
+     *
+     * @return the comparisons ordered by transaction name
+     */
+    public List<TransactionComparison> compare(Map<String, ResponseTimeStatistics> current) {
+
+        final List<TransactionComparison> result = new ArrayList<>();
+        new TreeMap<>(current).forEach((tx, stats) -> baseline.getStatistics(tx)
+                                                             .filter(base -> base.getCount() > 0)
+                                                             .filter(base -> stats.getCount() > 0)
+                                                             .ifPresent(base -> result.add(compare(base, stats))));
+        return result;
+    }
+
+    /**
+     * Compares the statistics with the baseline and returns the transactions that regressed.
+     *
+     * @param current
+     *         a map of transaction names and the current statistics of that transaction
+     *
+     * @return the comparisons of the regressed transactions ordered by transaction name
+     */
+    public List<TransactionComparison> regressions(Map<String, ResponseTimeStatistics> current) {
+
+        return compare(current).stream().filter(TransactionComparison::isRegression).collect(Collectors.toList());
+    }
+
+    private TransactionComparison compare(ResponseTimeStatistics base, ResponseTimeStatistics current) {
+
+        final double d = maxCdfExcess(base.getHistogram(), current.getHistogram());
+        final double n = base.getCount();
+        final double m = current.getCount();
+        //asymptotic distribution of the one-sided statistic
+        final double pValue = Math.min(1.0, Math.exp(-2.0 * d * d * n * m / (n + m)));
+        final long basePercentile = base.getPercentile(percentile).toNanos();
+        final long currentPercentile = current.getPercentile(percentile).toNanos();
+        final double relativeIncrease = basePercentile == 0L
+                                        ? (currentPercentile == 0L ? 0.0 : Double.POSITIVE_INFINITY)
+                                        : (double) (currentPercentile - basePercentile) / basePercentile;
+        final boolean regression = pValue < significance && relativeIncrease > tolerance;
+        return new TransactionComparison(base, current, percentile, relativeIncrease, d, pValue, regression);
+    }
+
+    /**
+     * Calculates the one-sided Kolmogorov-Smirnov statistic of two histograms, that is the maximum amount by which the
+     * cumulative distribution of the baseline exceeds that of the current response times. Both histograms must have
+     * the same precision, so that their buckets are aligned.
+     *
+     * @param baseline
+     *         the histogram of the baseline
+     * @param current
+     *         the histogram of the current response times
+     *
+     * @return the statistic in the range of 0.0 to 1.0
+     */
+    static double maxCdfExcess(Histogram baseline, Histogram current) {
+
+        final double n = baseline.getTotalCount();
+        final double m = current.getTotalCount();
+        final Cursor b = new Cursor(baseline);
+        final Cursor c = new Cursor(current);
+        long cumulatedBaseline = 0;
+        long cumulatedCurrent = 0;
+        double max = 0.0;
+        while (b.hasValue() || c.hasValue()) {
+            final long value = Math.min(b.value, c.value);
+            if (b.value == value) {
+                cumulatedBaseline += b.count;
+                b.next();
+            }
+            if (c.value == value) {
+                cumulatedCurrent += c.count;
+                c.next();
+            }
+            max = Math.max(max, cumulatedBaseline / n - cumulatedCurrent / m);
+        }
+        return max;
+    }
+
+    /**
+     * Iterates over the recorded values of a histogram. The value of an exhausted cursor is {@link Long#MAX_VALUE}.
+     */
+    private static final class Cursor {
+
+        private final Iterator<HistogramIterationValue> values;
+        private long value;
+        private long count;
+
+        Cursor(Histogram histogram) {
+
+            this.values = histogram.recordedValues().iterator();
+            next();
+        }
+
+        void next() {
+
+            if (values.hasNext()) {
+                //the iteration value is reused by the iterator, so its fields are copied
+                final HistogramIterationValue v = values.next();
+                value = v.getValueIteratedTo();
+                count = v.getCountAtValueIteratedTo();
+            } else {
+                value = Long.MAX_VALUE;
+                count = 0;
+            }
+        }
+
+        boolean hasValue() {
+
+            return value != Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * The result of the comparison of a single transaction with the baseline.
+     */
+    public static final class TransactionComparison {
+
+        private final ResponseTimeStatistics baseline;
+        private final ResponseTimeStatistics current;
+        private final double percentile;
+        private final double relativeIncrease;
+        private final double statistic;
+        private final double pValue;
+        private final boolean regression;
+
+        TransactionComparison(final ResponseTimeStatistics baseline,
+                              final ResponseTimeStatistics current,
+                              final double percentile,
+                              final double relativeIncrease,
+                              final double statistic,
+                              final double pValue,
+                              final boolean regression) {
+
+            this.baseline = baseline;
+            this.current = current;
+            this.percentile = percentile;
+            this.relativeIncrease = relativeIncrease;
+            this.statistic = statistic;
+            this.pValue = pValue;
+            this.regression = regression;
+        }
+
+        /**
+         * The name of the compared transaction
+         *
+         * @return the transaction name
+         */
+        public String getTransaction() {
+
+            return current.getTransaction();
+        }
+
+        /**
+         * The statistics of the transaction in the baseline
+         *
+         * @return the baseline statistics
+         */
+        public ResponseTimeStatistics getBaseline() {
+
+            return baseline;
+        }
+
+        /**
+         * The statistics of the transaction in the current run
+         *
+         * @return the current statistics
+         */
+        public ResponseTimeStatistics getCurrent() {
+
+            return current;
+        }
+
+        /**
+         * The difference of a percentile of the current run and the baseline.
+         *
+         * @param percentile
+         *         the percentile, in the range of 0.0 to 100.0
+         *
+         * @return the difference, which is negative if the current run was faster
+         */
+        public Duration getPercentileDelta(double percentile) {
+
+            return current.getPercentile(percentile).minus(baseline.getPercentile(percentile));
+        }
+
+        /**
+         * The increase of the compared percentile relative to the baseline.
+         *
+         * @return the relative increase, i.e. 0.1 for an increase by 10%. The value is negative if the current run was
+         * faster.
+         */
+        public double getRelativeIncrease() {
+
+            return relativeIncrease;
+        }
+
+        /**
+         * The one-sided Kolmogorov-Smirnov statistic, that is the maximum amount by which the cumulative distribution
+         * of the baseline exceeds that of the current run.
+         *
+         * @return the test statistic in the range of 0.0 to 1.0
+         */
+        public double getStatistic() {
+
+            return statistic;
+        }
+
+        /**
+         * The probability to observe the difference if the current response times are not greater than those of the
+         * baseline.
+         *
+         * @return the p-value of the test
+         */
+        public double getPValue() {
+
+            return pValue;
+        }
+
+        /**
+         * Indicates whether the transaction regressed, that is the difference is significant and the compared
+         * percentile increased by more than the tolerance.
+         *
+         * @return <code>true</code> if the transaction regressed
+         */
+        public boolean isRegression() {
+
+            return regression;
+        }
+
+        @Override
+        public String toString() {
+
+            return String.format(Locale.ROOT,
+                                 "%s: p%s %s -> %s (%+.1f%%), D=%.3f, p-value=%.4f",
+                                 getTransaction(),
+                                 percentile,
+                                 baseline.getPercentile(percentile),
+                                 current.getPercentile(percentile),
+                                 relativeIncrease * 100.0,
+                                 statistic,
+                                 pValue);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+/**
+ * Defines how a {@link ResponseTimes} collection keeps the recorded response times.
+ */
+public enum CollectionMode {
+
+    /**
+     * Every single response time is kept in memory and is accessible via {@link ResponseTimes#getResponseTimes()}.
+     * This is the default mode.
+     */
+    RAW,
+
+    /**
+     * Response times are not kept individually but aggregated per transaction into a high dynamic range histogram
+     * that requires a constant amount of memory, regardless of the number of recorded response times. The aggregated
+     * values are accessible via {@link ResponseTimes#getStatistics()}.
+     */
+    HISTOGRAM,
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Store that does not keep any response time.
+ */
+class DiscardingResponseTimeStore implements ResponseTimeStore {
+
+    @Override
+    public void started(final ResponseTime responseTime) {
+        //discarded
+    }
+
+    @Override
+    public void finished(final ResponseTime responseTime) {
+        //discarded
+    }
+
+    @Override
+    public void record(final String transaction, final long startNanos, final long durationNanos) {
+        //discarded
+    }
+
+    @Override
+    public Map<String, List<ResponseTime>> getResponseTimes() {
+
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void cleanup(final Consumer<Map<UUID, ResponseTime>> cleanupStrategy) {
+        //nothing to clean up
+    }
+
+    @Override
+    public void clear() {
+        //nothing to clear
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Store aggregating the durations of finished response times into one histogram per transaction. The store does not
+ * keep any individual response time, so its memory footprint only depends on the number of transactions and the
+ * range of the recorded durations.
+ */
+class HistogramResponseTimeStore implements ResponseTimeStore {
+
+    private final Map<String, ResponseTimeAggregate> aggregates = new ConcurrentHashMap<>();
+
+    @Override
+    public void started(final ResponseTime responseTime) {
+        //unfinished response times have no duration to aggregate
+    }
+
+    @Override
+    public void finished(final ResponseTime responseTime) {
+
+        aggregate(responseTime.getTransaction()).record(responseTime);
+    }
+
+    @Override
+    public void record(final String transaction, final long startNanos, final long durationNanos) {
+
+        aggregate(transaction).record(NanoTime.toEpochNanos(startNanos), durationNanos);
+    }
+
+    private ResponseTimeAggregate aggregate(String transaction) {
+
+        //lookup first as computeIfAbsent locks the bin even if the aggregate is already present
+        final ResponseTimeAggregate aggregate = aggregates.get(transaction);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        return aggregates.computeIfAbsent(transaction, tx -> ResponseTimeAggregate.newConcurrentAggregate());
+    }
+
+    @Override
+    public Map<String, List<ResponseTime>> getResponseTimes() {
+
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        final Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        aggregates.forEach((tx, a) -> result.put(tx, a.toStatistics(tx)));
+        return result;
+    }
+
+    @Override
+    public Optional<ResponseTimeStatistics> getStatistics(final String transaction) {
+
+        return Optional.ofNullable(aggregates.get(transaction)).map(a -> a.toStatistics(transaction));
+    }
+
+    @Override
+    public void cleanup(final Consumer<Map<UUID, ResponseTime>> cleanupStrategy) {
+        //no individual response times to clean up
+    }
+
+    @Override
+    public void clear() {
+
+        aggregates.clear();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Factory for the histograms used to aggregate response times. All histograms record durations in nanoseconds with a
+ * resolution of one microsecond and, unless specified otherwise, three significant digits. The histograms resize
+ * automatically so that they may cover any duration.
+ */
+final class Histograms {
+
+    /**
+     * The smallest duration in nanoseconds that can be distinguished from 0.
+     */
+    static final long LOWEST_DISCERNIBLE_VALUE = 1_000L;
+
+    /**
+     * The initial highest trackable value in nanoseconds. The histograms are auto-resized to cover higher values, so
+     * the initial value is kept low to keep the footprint of histograms with short durations small.
+     */
+    static final long INITIAL_HIGHEST_TRACKABLE_VALUE = 10_000_000L;
+
+    /**
+     * The number of significant value digits of each recorded value.
+     */
+    static final int SIGNIFICANT_DIGITS = 3;
+
+    private Histograms() {
+
+    }
+
+    /**
+     * Creates a new histogram that is not thread-safe.
+     *
+     * @return a new, empty histogram
+     */
+    static Histogram newHistogram() {
+
+        return newHistogram(SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a new histogram that is not thread-safe with a specific precision. Each significant digit less reduces
+     * the footprint of the histogram by roughly the factor of 10.
+     *
+     * @param significantDigits
+     *         the number of significant value digits of each recorded value
+     *
+     * @return a new, empty histogram
+     */
+    static Histogram newHistogram(int significantDigits) {
+
+        final Histogram histogram = new Histogram(LOWEST_DISCERNIBLE_VALUE,
+                                                  INITIAL_HIGHEST_TRACKABLE_VALUE,
+                                                  significantDigits);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    /**
+     * Creates a new histogram that supports wait-free concurrent recording of values.
+     *
+     * @return a new, empty histogram
+     */
+    static Histogram newConcurrentHistogram() {
+
+        final Histogram histogram = new ConcurrentHistogram(LOWEST_DISCERNIBLE_VALUE,
+                                                            INITIAL_HIGHEST_TRACKABLE_VALUE,
+                                                            SIGNIFICANT_DIGITS);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    /**
+     * Records a duration in a histogram. Negative durations are recorded as 0.
+     *
+     * @param histogram
+     *         the histogram to record the value in
+     * @param durationNanos
+     *         the duration in nanoseconds
+     */
+    static void record(Histogram histogram, long durationNanos) {
+
+        histogram.recordValue(Math.max(0L, durationNanos));
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+
+/**
+ * Generator to put load on a system under test by repeatedly executing a task. The generator supports two load
+ * models:
+ * <ul>
+ * <li><b>open model</b> - the task is started at a fixed rate, regardless of how long previous executions took. The
+ * latency of each execution is measured from the time the execution was <em>intended</em> to start according to the
+ * rate, not from when it actually started. Thereby executions that were delayed because the system (or the
+ * generator) was not able to keep up are accounted for, which corrects the coordinated omission problem.</li>
+ * <li><b>closed model</b> - a fixed number of users execute the task repeatedly, each starting the next execution as
+ * soon as the previous one finished.</li>
+ * </ul>
+ * The latency of every execution is recorded as response time of the configured transaction in a {@link
+ * ResponseTimes} collector, by default the collector of the thread invoking {@link #run(Duration)}. Executions that
+ * fail with an exception are additionally recorded as failures of the transaction. If a {@link ResponseTimeCollector}
+ * is running for the invoking thread, it is propagated to the executing threads so that transactions recorded by the
+ * task itself are collected as well. Example:
+ * <pre>
+ *     LoadResult result = LoadGenerator.fixedRate(() -&gt; client.get("/"), 100)
+ *                                      .withThreads(8)
+ *                                      .withTransaction("getIndex")
+ *                                      .run(Duration.ofSeconds(10));
+ *     assertTrue(result.getLatency().getPercentile(99.0).compareTo(Duration.ofMillis(50)) &lt; 0);
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final Logger LOG = getLogger(LoadGenerator.class);
+
+    /**
+     * The default transaction name under which the response times are recorded.
+     */
+    public static final String DEFAULT_TRANSACTION = "load";
+
+    private final Callable<?> task;
+    /**
+     * Interval in nanoseconds between two intended starts in the open model, 0 for the closed model
+     */
+    private final long intervalNanos;
+
+    private int threads;
+    private boolean virtualThreads;
+    private String transaction = DEFAULT_TRANSACTION;
+    private ResponseTimes responseTimes;
+
+    private LoadGenerator(final Callable<?> task, final long intervalNanos, final int threads) {
+
+        Objects.requireNonNull(task, "Task must not be null");
+        this.task = task;
+        this.intervalNanos = intervalNanos;
+        this.threads = threads;
+    }
+
+    /**
+     * Creates a load generator for the open model, starting the task at a fixed rate. The number of threads used to
+     * execute the task defaults to the number of available processors.
+     *
+     * @param task
+     *         the task to execute
+     * @param ratePerSecond
+     *         the number of executions to start per second
+     *
+     * @return a new load generator
+     */
+    public static LoadGenerator fixedRate(Callable<?> task, double ratePerSecond) {
+
+        if (ratePerSecond <= 0.0) {
+            throw new IllegalArgumentException("Rate must be positive, but was " + ratePerSecond);
+        }
+        final long interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        return new LoadGenerator(task, interval, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a load generator for the closed model, executing the task repeatedly by a fixed number of concurrent
+     * users. Every user is served by its own thread.
+     *
+     * @param task
+     *         the task to execute
+     * @param concurrency
+     *         the number of concurrent users
+     *
+     * @return a new load generator
+     */
+    public static LoadGenerator fixedConcurrency(Callable<?> task, int concurrency) {
+
+        requirePositive(concurrency, "Concurrency");
+        return new LoadGenerator(task, 0L, concurrency);
+    }
+
+    /**
+     * Sets the number of threads used to execute the task.
+     *
+     * @param threads
+     *         the number of threads
+     *
+     * @return this generator
+     */
+    public LoadGenerator withThreads(int threads) {
+
+        requirePositive(threads, "Number of threads");
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Executes the task on virtual threads instead of a pool of platform threads. Every thread set by {@link
+     * #withThreads(int)} or every user of the closed model is a separate virtual thread, so that many thousands of
+     * concurrent users can be emulated. On JDKs without virtual threads, a platform thread is started per thread
+     * instead.
+     *
+     * @return this generator
+     *
+     * @see MeasureExecutors#newVirtualThreadExecutor()
+     */
+    public LoadGenerator withVirtualThreads() {
+
+        this.virtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Sets the name of the transaction under which the response times are recorded.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return this generator
+     */
+    public LoadGenerator withTransaction(String transaction) {
+
+        Objects.requireNonNull(transaction, "Transaction must not be null");
+        this.transaction = transaction;
+        return this;
+    }
+
+    /**
+     * Sets the collector into which the response times are recorded.
+     *
+     * @param responseTimes
+     *         the response times collector
+     *
+     * @return this generator
+     */
+    public LoadGenerator recordTo(ResponseTimes responseTimes) {
+
+        Objects.requireNonNull(responseTimes, "ResponseTimes must not be null");
+        this.responseTimes = responseTimes;
+        return this;
+    }
+
+    /**
+     * Generates load for the given duration. In the open model no execution is started whose intended start is after
+     * the duration elapsed. In the closed model no user starts a new execution after the duration elapsed. The method
+     * returns after all started executions completed.
+     *
+     * @param duration
+     *         the duration to generate load
+     *
+     * @return the result of the load generation
+     *
+     * @throws InterruptedException
+     *         if the invoking thread was interrupted while waiting for the executions to complete
+     */
+    public LoadResult run(Duration duration) throws InterruptedException {
+
+        final ResponseTimes target = responseTimes != null ? responseTimes : ResponseTimes.current();
+        final int txId = TransactionRegistry.idOf(transaction);
+        final Histogram latencies = Histograms.newConcurrentHistogram();
+        final Histogram serviceTimes = Histograms.newConcurrentHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong sequence = new AtomicLong();
+
+        final ExecutorService pool = virtualThreads
+                                     ? MeasureExecutors.newVirtualThreadExecutor()
+                                     : Executors.newFixedThreadPool(threads);
+        final long begin = System.nanoTime();
+        final long end = begin + duration.toNanos();
+        final List<Future<?>> workers = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(ResponseTimeCollector.propagate(() -> {
+                    long intendedStart;
+                    while ((intendedStart = nextStart(begin, sequence)) < end
+                            && !Thread.currentThread().isInterrupted()) {
+                        awaitStart(intendedStart);
+                        final long actualStart = System.nanoTime();
+                        final boolean success = execute();
+                        final long finish = System.nanoTime();
+                        Histograms.record(latencies, finish - intendedStart);
+                        Histograms.record(serviceTimes, finish - actualStart);
+                        target.collect(txId, intendedStart, finish - intendedStart);
+                        if (!success) {
+                            errors.incrementAndGet();
+                            target.collectFailure(transaction);
+                        }
+                    }
+                })));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        final long finish = System.nanoTime();
+        final long firstStart = NanoTime.toEpochNanos(begin);
+        final long lastEnd = NanoTime.toEpochNanos(finish);
+        return new LoadResult(new ResponseTimeStatistics(transaction, latencies.copy(), firstStart, lastEnd),
+                              new ResponseTimeStatistics(transaction, serviceTimes.copy(), firstStart, lastEnd),
+                              errors.get(),
+                              Duration.ofNanos(finish - begin));
+    }
+
+    /**
+     * Determines the intended start of the next execution.
+     *
+     * @param begin
+     *         the begin of the load generation as value of {@link System#nanoTime()}
+     * @param sequence
+     *         the sequence of executions started so far
+     *
+     * @return the intended start as value of {@link System#nanoTime()}
+     */
+    private long nextStart(final long begin, final AtomicLong sequence) {
+
+        if (intervalNanos == 0L) {
+            //closed model, the next execution is intended to start immediately
+            return System.nanoTime();
+        }
+        return begin + sequence.getAndIncrement() * intervalNanos;
+    }
+
+    private static void awaitStart(final long intendedStart) {
+
+        long remaining;
+        while ((remaining = intendedStart - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private boolean execute() {
+
+        try {
+            task.call();
+            return true;
+        } catch (Exception e) { //NOSONAR
+            LOG.debug("Execution failed", e);
+            return false;
+        }
+    }
+
+    private static void requirePositive(final int value, final String name) {
+
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive, but was " + value);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+
+/**
+ * The result of a load generated by a {@link LoadGenerator}.
+ */
+public final class LoadResult {
+
+    private final ResponseTimeStatistics latency;
+    private final ResponseTimeStatistics serviceTime;
+    private final long errorCount;
+    private final Duration duration;
+
+    LoadResult(final ResponseTimeStatistics latency,
+               final ResponseTimeStatistics serviceTime,
+               final long errorCount,
+               final Duration duration) {
+
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.errorCount = errorCount;
+        this.duration = duration;
+    }
+
+    /**
+     * The latency of the executions, measured from the intended start to the end of each execution. In the closed
+     * model the latency equals the service time.
+     *
+     * @return the statistics of the latencies
+     */
+    public ResponseTimeStatistics getLatency() {
+
+        return latency;
+    }
+
+    /**
+     * The service time of the executions, measured from the actual start to the end of each execution. In contrast to
+     * the latency, the service time does not include the time an execution was delayed.
+     *
+     * @return the statistics of the service times
+     */
+    public ResponseTimeStatistics getServiceTime() {
+
+        return serviceTime;
+    }
+
+    /**
+     * The total number of executions.
+     *
+     * @return the number of executions
+     */
+    public long getCount() {
+
+        return latency.getCount();
+    }
+
+    /**
+     * The number of executions that failed with an exception.
+     *
+     * @return the number of failed executions
+     */
+    public long getErrorCount() {
+
+        return errorCount;
+    }
+
+    /**
+     * The time it took to generate the load, including the time to complete the last executions.
+     *
+     * @return the duration of the load generation
+     */
+    public Duration getDuration() {
+
+        return duration;
+    }
+
+    /**
+     * The number of executions completed per second.
+     *
+     * @return the throughput in executions per second
+     */
+    public double getThroughput() {
+
+        final long nanos = duration.toNanos();
+        return nanos == 0 ? 0.0 : getCount() * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+
+        return new StringBuilder("LoadResult{").append("count=").append(getCount())
+                                               .append(", errors=").append(errorCount)
+                                               .append(", throughput=").append(getThroughput())
+                                               .append(", latency=").append(latency)
+                                               .append('}')
+                                               .toString();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+/**
+ * Factory for executors to run measured tasks. On JDKs that support virtual threads, tasks can be executed on virtual
+ * threads so that a single JVM can emulate many thousands of concurrent users. On older JDKs the executors fall back to
+ * platform threads.
+ */
+public final class MeasureExecutors {
+
+    private static final Logger LOG = getLogger(MeasureExecutors.class);
+
+    /**
+     * The factory method for virtual thread executors or <code>null</code> if virtual threads are not supported.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private MeasureExecutors() {
+
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) { //NOSONAR
+            LOG.debug("Virtual threads are not supported by this JVM");
+            return null;
+        }
+    }
+
+    /**
+     * Indicates whether this JVM supports virtual threads.
+     *
+     * @return <code>true</code> if tasks can be executed on virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task. If virtual threads are not supported, an
+     * executor that starts a new platform thread for each task, reusing idle threads, is created instead.
+     *
+     * @return a new executor
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+
+        if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOG.warn("Could not create virtual thread executor, using platform threads", e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Creates an executor that propagates the {@link ResponseTimeCollector} of the submitting thread to the executed
+     * tasks. The response times recorded by the tasks are collected in the response times of the submitting thread.
+     *
+     * @param executor
+     *         the executor to run the tasks
+     *
+     * @return an executor propagating the collector to the tasks
+     *
+     * @see ResponseTimeCollector#propagate(Runnable)
+     */
+    public static ExecutorService propagating(ExecutorService executor) {
+
+        return new PropagatingExecutorService(executor);
+    }
+
+    /**
+     * Executor that wraps every task so that it is executed with the collector of the submitting thread.
+     */
+    private static final class PropagatingExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        PropagatingExecutorService(final ExecutorService delegate) {
+
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+
+            delegate.execute(ResponseTimeCollector.propagate(command));
+        }
+
+        @Override
+        public void shutdown() {
+
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+/**
+ * Embedded HTTP endpoint exposing the live statistics of {@link ResponseTimes} in the Prometheus text format, so that
+ * long running tests can be monitored while they are running. The endpoint enables the live statistics of the
+ * response times, which are maintained incrementally, so a scrape does not process the individual response times.
+ * <br>
+ * The endpoint serves the metrics at the path {@value #PATH} and exposes per transaction
+ * <ul>
+ * <li><code>tourniquet_response_time_seconds</code> - a summary with the quantiles 0.5, 0.9, 0.95, 0.99 and
+ * 0.999, the count and sum of the response times</li>
+ * <li><code>tourniquet_response_time_max_seconds</code> - the maximum response time</li>
+ * <li><code>tourniquet_failures_total</code> - the number of failed transactions</li>
+ * </ul>
+ * The endpoint is based on the HTTP server of the JDK and requires no additional dependencies.
+ */
+public final class MetricsEndpoint implements Closeable {
+
+    private static final Logger LOG = getLogger(MetricsEndpoint.class);
+
+    /**
+     * The path at which the metrics are served
+     */
+    public static final String PATH = "/metrics";
+
+    /**
+     * The content type of the Prometheus text format
+     */
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+
+    private final ResponseTimes responseTimes;
+    private final HttpServer server;
+
+    private MetricsEndpoint(final ResponseTimes responseTimes, final HttpServer server) {
+
+        this.responseTimes = responseTimes;
+        this.server = server;
+    }
+
+    /**
+     * Starts an endpoint exposing the metrics of the global response times.
+     *
+     * @param port
+     *         the port to listen on, 0 for an arbitrary free port
+     *
+     * @return the started endpoint
+     *
+     * @throws IOException
+     *         if the server could not be started
+     */
+    public static MetricsEndpoint start(int port) throws IOException {
+
+        return start(ResponseTimes.global(), port);
+    }
+
+    /**
+     * Starts an endpoint exposing the metrics of the specified response times. The live statistics of the response
+     * times are enabled, only response times collected after the start are exposed.
+     *
+     * @param responseTimes
+     *         the response times to expose
+     * @param port
+     *         the port to listen on, 0 for an arbitrary free port
+     *
+     * @return the started endpoint
+     *
+     * @throws IOException
+     *         if the server could not be started
+     */
+    public static MetricsEndpoint start(ResponseTimes responseTimes, int port) throws IOException {
+
+        responseTimes.enableLiveStatistics(true);
+        final HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        final MetricsEndpoint endpoint = new MetricsEndpoint(responseTimes, server);
+        server.createContext(PATH, endpoint::handle);
+        server.start();
+        LOG.info("Serving response time metrics at {}", endpoint.getUri());
+        return endpoint;
+    }
+
+    /**
+     * The port the endpoint is listening on
+     *
+     * @return the port number
+     */
+    public int getPort() {
+
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * The URI of the metrics
+     *
+     * @return the URI at which the metrics are served on the local host
+     */
+    public URI getUri() {
+
+        return URI.create("http://localhost:" + getPort() + PATH);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody();
+                 Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+                writeMetrics(writer);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Writes the current metrics in the Prometheus text format.
+     *
+     * @param writer
+     *         the writer to write the metrics to
+     *
+     * @throws IOException
+     *         if the metrics could not be written
+     */
+    void writeMetrics(Writer writer) throws IOException {
+
+        final Map<String, ResponseTimeStatistics> stats = new TreeMap<>(responseTimes.getLiveStatistics());
+        final Map<String, Long> failures = responseTimes.getFailureCounts();
+
+        writer.write("# HELP tourniquet_response_time_seconds Response times of the transactions\n");
+        writer.write("# TYPE tourniquet_response_time_seconds summary\n");
+        for (ResponseTimeStatistics s : stats.values()) {
+            final String tx = escape(s.getTransaction());
+            for (double quantile : QUANTILES) {
+                writeSample(writer,
+                            "tourniquet_response_time_seconds{transaction=\"" + tx + "\",quantile=\"" + quantile
+                                    + "\"}",
+                            seconds(s.getPercentile(quantile * 100.0).toNanos()));
+            }
+            writeSample(writer,
+                        "tourniquet_response_time_seconds_sum{transaction=\"" + tx + "\"}",
+                        s.getHistogram().getMean() * s.getCount() / 1_000_000_000.0);
+            writer.write("tourniquet_response_time_seconds_count{transaction=\"" + tx + "\"} " + s.getCount() + '\n');
+        }
+        writer.write("# HELP tourniquet_response_time_max_seconds Maximum response time of the transactions\n");
+        writer.write("# TYPE tourniquet_response_time_max_seconds gauge\n");
+        for (ResponseTimeStatistics s : stats.values()) {
+            writeSample(writer,
+                        "tourniquet_response_time_max_seconds{transaction=\"" + escape(s.getTransaction()) + "\"}",
+                        seconds(s.getMax().toNanos()));
+        }
+        final Set<String> failedTransactions = new TreeSet<>(stats.keySet());
+        failedTransactions.addAll(failures.keySet());
+        writer.write("# HELP tourniquet_failures_total Number of failed transactions\n");
+        writer.write("# TYPE tourniquet_failures_total counter\n");
+        for (String tx : failedTransactions) {
+            writer.write("tourniquet_failures_total{transaction=\"" + escape(tx) + "\"} " + failures.getOrDefault(tx,
+                                                                                                              0L)
+                                 + '\n');
+        }
+        writer.flush();
+    }
+
+    private static void writeSample(Writer writer, String name, double value) throws IOException {
+
+        writer.write(name);
+        writer.write(' ');
+        writer.write(Double.toString(value));
+        writer.write('\n');
+    }
+
+    private static double seconds(long nanos) {
+
+        return nanos / 1_000_000_000.0;
+    }
+
+    /**
+     * Escapes a label value as required by the Prometheus text format.
+     *
+     * @param value
+     *         the label value
+     *
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Stops the endpoint. The live statistics of the response times remain enabled.
+     */
+    @Override
+    public void close() {
+
+        server.stop(0);
+    }
+}
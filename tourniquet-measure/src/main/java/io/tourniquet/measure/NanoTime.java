@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.time.Instant;
+
+/**
+ * Conversion between the values of {@link System#nanoTime()} and points in time. The conversion is based on an
+ * anchor of both clocks taken once when this class is initialized.
+ */
+final class NanoTime {
+
+    private static final long ANCHOR_NANO_TIME = System.nanoTime();
+    private static final Instant ANCHOR_INSTANT = Instant.now();
+    private static final long ANCHOR_EPOCH_NANOS = toEpochNanos(ANCHOR_INSTANT);
+
+    private NanoTime() {
+
+    }
+
+    /**
+     * Converts a value of {@link System#nanoTime()} to a point in time
+     *
+     * @param nanoTime
+     *         the nano time value
+     *
+     * @return the point in time corresponding to the nano time value
+     */
+    static Instant toInstant(long nanoTime) {
+
+        return ANCHOR_INSTANT.plusNanos(nanoTime - ANCHOR_NANO_TIME);
+    }
+
+    /**
+     * Converts a value of {@link System#nanoTime()} to the nanoseconds since the epoch.
+     *
+     * @param nanoTime
+     *         the nano time value
+     *
+     * @return the nanoseconds since 1970-01-01T00:00:00Z
+     */
+    static long toEpochNanos(long nanoTime) {
+
+        return ANCHOR_EPOCH_NANOS + (nanoTime - ANCHOR_NANO_TIME);
+    }
+
+    /**
+     * Converts a point in time to the nanoseconds since the epoch.
+     *
+     * @param instant
+     *         the point in time
+     *
+     * @return the nanoseconds since 1970-01-01T00:00:00Z
+     */
+    static long toEpochNanos(Instant instant) {
+
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Converts nanoseconds since the epoch to a point in time.
+     *
+     * @param epochNanos
+     *         the nanoseconds since 1970-01-01T00:00:00Z
+     *
+     * @return the point in time
+     */
+    static Instant ofEpochNanos(long epochNanos) {
+
+        return Instant.ofEpochSecond(0L, epochNanos);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Store keeping every single response time in memory. Unfinished response times are replaced by their finished
+ * counterpart. Statistics are calculated from the stored response times when they are requested, so they agree with
+ * the response times left by a cleanup strategy and recording does not pay for aggregation.
+ */
+class RawResponseTimeStore implements ResponseTimeStore {
+
+    /**
+     * ResponseTime collection.
+     */
+    private final Map<UUID, ResponseTime> times = new ConcurrentHashMap<>();
+
+    @Override
+    public void started(final ResponseTime responseTime) {
+
+        //the finished response time may have been stored before when merging the entries of multiple threads
+        times.putIfAbsent(responseTime.getUuid(), responseTime);
+    }
+
+    @Override
+    public void finished(final ResponseTime responseTime) {
+
+        times.put(responseTime.getUuid(), responseTime);
+    }
+
+    @Override
+    public void record(final String transaction, final long startNanos, final long durationNanos) {
+
+        finished(new ResponseTime(transaction, NanoTime.toInstant(startNanos), Duration.ofNanos(durationNanos)));
+    }
+
+    @Override
+    public Map<String, List<ResponseTime>> getResponseTimes() {
+
+        final Map<String, List<ResponseTime>> result = new HashMap<>();
+        times.values().forEach(trt -> result.computeIfAbsent(trt.getTransaction(), tx -> new ArrayList<>()).add(trt));
+        return result;
+    }
+
+    @Override
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        final Map<String, ResponseTimeAggregate> aggregates = new HashMap<>();
+        times.values()
+             .stream()
+             .filter(ResponseTime::isFinished)
+             .forEach(rt -> aggregates.computeIfAbsent(rt.getTransaction(), tx -> ResponseTimeAggregate.newAggregate())
+                                      .record(rt));
+        final Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        aggregates.forEach((tx, a) -> result.put(tx, a.toStatistics(tx)));
+        return result;
+    }
+
+    @Override
+    public Optional<ResponseTimeStatistics> getStatistics(final String transaction) {
+
+        ResponseTimeAggregate aggregate = null;
+        for (ResponseTime rt : times.values()) {
+            if (rt.isFinished() && transaction.equals(rt.getTransaction())) {
+                if (aggregate == null) {
+                    aggregate = ResponseTimeAggregate.newAggregate();
+                }
+                aggregate.record(rt);
+            }
+        }
+        return aggregate == null ? Optional.empty() : Optional.of(aggregate.toStatistics(transaction));
+    }
+
+    @Override
+    public void cleanup(final Consumer<Map<UUID, ResponseTime>> cleanupStrategy) {
+
+        cleanupStrategy.accept(times);
+    }
+
+    @Override
+    public void clear() {
+
+        times.clear();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Buffer retaining a uniform random sample of fixed size of all added response times (reservoir sampling).
+ */
+class ReservoirRetentionBuffer implements RetentionBuffer {
+
+    private final ResponseTime[] reservoir;
+    private long count;
+
+    ReservoirRetentionBuffer(int size) {
+
+        this.reservoir = new ResponseTime[size];
+    }
+
+    @Override
+    public synchronized void add(final ResponseTime responseTime) {
+
+        if (count < reservoir.length) {
+            reservoir[(int) count] = responseTime;
+        } else {
+            //the n-th response time replaces a random element of the reservoir with probability size/n
+            final long index = ThreadLocalRandom.current().nextLong(count + 1);
+            if (index < reservoir.length) {
+                reservoir[(int) index] = responseTime;
+            }
+        }
+        count++;
+    }
+
+    @Override
+    public synchronized List<ResponseTime> snapshot() {
+
+        return new ArrayList<>(Arrays.asList(reservoir).subList(0, (int) Math.min(count, reservoir.length)));
+    }
+}
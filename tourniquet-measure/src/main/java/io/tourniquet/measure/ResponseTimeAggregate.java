@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.util.concurrent.atomic.LongAccumulator;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Incremental aggregation of the response times of a single transaction. The aggregate records the durations in a
+ * histogram and tracks the time span covered by the response times, from the earliest start to the latest end. The
+ * time span is tracked thread-safe, the histogram is thread-safe if a concurrent histogram is used.
+ */
+final class ResponseTimeAggregate {
+
+    private final Histogram histogram;
+
+    private final LongAccumulator firstStart = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator lastEnd = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private ResponseTimeAggregate(final Histogram histogram) {
+
+        this.histogram = histogram;
+    }
+
+    /**
+     * Creates a new aggregate that must only be used by a single thread
+     *
+     * @return a new, empty aggregate
+     */
+    static ResponseTimeAggregate newAggregate() {
+
+        return new ResponseTimeAggregate(Histograms.newHistogram());
+    }
+
+    /**
+     * Creates a new aggregate that supports concurrent recording of response times.
+     *
+     * @return a new, empty aggregate
+     */
+    static ResponseTimeAggregate newConcurrentAggregate() {
+
+        return new ResponseTimeAggregate(Histograms.newConcurrentHistogram());
+    }
+
+    /**
+     * Records a finished response time.
+     *
+     * @param responseTime
+     *         the response time to record
+     */
+    void record(ResponseTime responseTime) {
+
+        record(NanoTime.toEpochNanos(responseTime.getStart()), responseTime.getDuration().toNanos());
+    }
+
+    /**
+     * Records the duration of a transaction.
+     *
+     * @param startEpochNanos
+     *         the start of the transaction in nanoseconds since the epoch
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     */
+    void record(long startEpochNanos, long durationNanos) {
+
+        Histograms.record(histogram, durationNanos);
+        firstStart.accumulate(startEpochNanos);
+        lastEnd.accumulate(startEpochNanos + Math.max(0L, durationNanos));
+    }
+
+    /**
+     * Creates an immutable snapshot of the aggregate.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the statistics of the recorded response times
+     */
+    ResponseTimeStatistics toStatistics(String transaction) {
+
+        return new ResponseTimeStatistics(transaction, histogram.copy(), firstStart.get(), lastEnd.get());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Codec for transferring response times and statistics across classloader boundaries. The encoded form consists
+ * solely of types of the bootstrap classloader, that is maps of transaction names to primitive arrays, so that the
+ * encoded response times can be passed between classloader hierarchies without serialization.
+ * <br>
+ * Each response time is encoded as {@value #LONGS_PER_RESPONSE_TIME} consecutive longs: the start in nanoseconds
+ * since the epoch, the duration in nanoseconds ({@link Long#MIN_VALUE} for unfinished response times) and the most
+ * and least significant bits of the unique id. The statistics are encoded as the covered time span, followed by the
+ * compressed histogram.
+ */
+final class ResponseTimeCodec {
+
+    static final int LONGS_PER_RESPONSE_TIME = 4;
+
+    private static final long UNFINISHED = Long.MIN_VALUE;
+
+    private ResponseTimeCodec() {
+
+    }
+
+    /**
+     * Encodes response times into primitive arrays.
+     *
+     * @param responseTimes
+     *         the response times to encode
+     *
+     * @return a map of transaction names and the encoded response times of that transaction
+     */
+    static Map<String, long[]> encodeResponseTimes(Map<String, List<ResponseTime>> responseTimes) {
+
+        final Map<String, long[]> result = new HashMap<>();
+        responseTimes.forEach((tx, rts) -> {
+            final long[] encoded = new long[rts.size() * LONGS_PER_RESPONSE_TIME];
+            int i = 0;
+            for (ResponseTime rt : rts) {
+                encoded[i++] = NanoTime.toEpochNanos(rt.getStart());
+                encoded[i++] = rt.isFinished() ? rt.getDuration().toNanos() : UNFINISHED;
+                encoded[i++] = rt.getUuid().getMostSignificantBits();
+                encoded[i++] = rt.getUuid().getLeastSignificantBits();
+            }
+            result.put(tx, encoded);
+        });
+        return result;
+    }
+
+    /**
+     * Decodes response times from primitive arrays. The decoded arrays are removed from the map as soon as they are
+     * decoded, so that the encoded and decoded form of all response times do not have to be kept in memory at the same
+     * time.
+     *
+     * @param encoded
+     *         a modifiable map of transaction names and the encoded response times of that transaction
+     *
+     * @return the decoded response times
+     */
+    static Map<String, List<ResponseTime>> decodeResponseTimes(Map<String, long[]> encoded) {
+
+        final Map<String, List<ResponseTime>> result = new HashMap<>();
+        final Iterator<Map.Entry<String, long[]>> it = encoded.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, long[]> entry = it.next();
+            final String tx = entry.getKey();
+            final long[] values = entry.getValue();
+            final List<ResponseTime> rts = new ArrayList<>(values.length / LONGS_PER_RESPONSE_TIME);
+            for (int i = 0; i < values.length; i += LONGS_PER_RESPONSE_TIME) {
+                final Duration duration = values[i + 1] == UNFINISHED
+                                          ? TimeMeasure.NEGATIVE
+                                          : Duration.ofNanos(values[i + 1]);
+                rts.add(new ResponseTime(new UUID(values[i + 2], values[i + 3]),
+                                         tx,
+                                         NanoTime.ofEpochNanos(values[i]),
+                                         duration));
+            }
+            it.remove();
+            result.put(tx, rts);
+        }
+        return result;
+    }
+
+    /**
+     * Encodes statistics into the time span and compressed histogram of each transaction.
+     *
+     * @param statistics
+     *         the statistics to encode
+     *
+     * @return a map of transaction names and the encoded statistics of that transaction
+     */
+    static Map<String, byte[]> encodeStatistics(Map<String, ResponseTimeStatistics> statistics) {
+
+        final Map<String, byte[]> result = new HashMap<>();
+        statistics.forEach((tx, stats) -> {
+            final Histogram histogram = stats.getHistogram();
+            final ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES + histogram.getNeededByteBufferCapacity());
+            buffer.putLong(stats.getFirstStartEpochNanos());
+            buffer.putLong(stats.getLastEndEpochNanos());
+            histogram.encodeIntoCompressedByteBuffer(buffer);
+            final byte[] encoded = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(encoded);
+            result.put(tx, encoded);
+        });
+        return result;
+    }
+
+    /**
+     * Decodes statistics from the time span and compressed histogram of each transaction.
+     *
+     * @param encoded
+     *         a map of transaction names and the encoded statistics of that transaction
+     *
+     * @return the decoded statistics
+     */
+    static Map<String, ResponseTimeStatistics> decodeStatistics(Map<String, byte[]> encoded) {
+
+        final Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        encoded.forEach((tx, bytes) -> {
+            try {
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                final long firstStart = buffer.getLong();
+                final long lastEnd = buffer.getLong();
+                final Histogram histogram = Histogram.decodeFromCompressedByteBuffer(buffer, 0);
+                result.put(tx, new ResponseTimeStatistics(tx, histogram, firstStart, lastEnd));
+            } catch (DataFormatException | BufferUnderflowException e) {
+                throw new IllegalArgumentException("Invalid histogram for transaction " + tx, e);
+            }
+        });
+        return result;
+    }
+}
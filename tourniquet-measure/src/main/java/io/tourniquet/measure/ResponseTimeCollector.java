@@ -20,19 +20,33 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 
 /**
- * A collector for tracking transactions for a single thread. The collctor does not support stacking transaction with
- * the same name. Every transaction should be closed before a new transaction with the same name is started. Upon
- * stopping collecting times, all open transactions are logged out. To start collecting response times, invoke the
+ * A collector for tracking transactions for a single thread. Transactions started by name are tracked as {@link Span}s
+ * on a stack. A transaction that is started while another transaction is open becomes a child of the open
+ * transaction, so nested transactions, even with the same name, are tracked separately. Stopping a transaction stops
+ * the most recently started open transaction with that name. Upon stopping collecting times, all open transactions
+ * are logged out. To start collecting response times, invoke the
  * {@link #startCollecting()} method, to stop recording, the {@link #stopCollecting()}. This will associate the time
  * collection for the current thread with the current instance.
+ * <br>
+ * For measuring with minimal overhead, the collector provides a recording path based on {@link System#nanoTime()} and
+ * transaction ids of the {@link TransactionRegistry}. Measures recorded this way are written into a preallocated
+ * buffer without allocating any objects and are flushed to the {@link ResponseTimes} when the buffer is full,
+ * when {@link #flush()} is invoked or when collecting is stopped.
+ * <br>
+ * Transactions started and stopped by the collector are emitted as Java Flight Recorder events of the type
+ * <code>io.tourniquet.Transaction</code> if the event type is enabled in a running recording. Measures passed to
+ * {@link #record(int, long, long)} directly are not emitted as events.
  */
 public class ResponseTimeCollector {
 
@@ -41,7 +55,88 @@ public class ResponseTimeCollector {
     private static final ThreadLocal<Optional<ResponseTimeCollector>> CURRENT_COLLECTOR = ThreadLocal.withInitial(
             Optional::empty);
 
-    private final Map<String, ResponseTime> responseTimes = new ConcurrentHashMap<>();
+    /**
+     * Default number of samples that are buffered before they are flushed to the {@link ResponseTimes}.
+     */
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+    /**
+     * The number of samples buffered by the collectors of propagated tasks. Tasks are typically short-lived and
+     * numerous, so their collectors are kept small and flush more often.
+     */
+    static final int CHILD_BUFFER_CAPACITY = 16;
+
+    private static final long[] NO_STARTS = new long[0];
+    private static final boolean[] NO_TRANSACTIONS = new boolean[0];
+    private static final Object[] NO_EVENTS = new Object[0];
+
+    /**
+     * The open spans, the most recently started span first.
+     */
+    private final Deque<Span> spans = new ArrayDeque<>();
+
+    private final SampleBuffer samples;
+
+    /**
+     * The response times into which this collector records. If not set, the collector records into the response times
+     * of the current thread.
+     */
+    private final ResponseTimes target;
+
+    /**
+     * The start times of the open transactions started by id, allocated when the first transaction is started by id
+     */
+    private long[] openStarts = NO_STARTS;
+
+    private boolean[] openTransactions = NO_TRANSACTIONS;
+
+    /**
+     * The Flight Recorder events of the open transactions started by id
+     */
+    private Object[] openEvents = NO_EVENTS;
+
+    /**
+     * Creates a new collector with the default buffer capacity.
+     */
+    public ResponseTimeCollector() {
+
+        this(DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Creates a new collector with the specified buffer capacity for measures recorded by transaction id.
+     *
+     * @param bufferCapacity
+     *         the number of samples that are buffered before they are flushed to the {@link ResponseTimes}
+     */
+    public ResponseTimeCollector(int bufferCapacity) {
+
+        this(null, bufferCapacity);
+    }
+
+    /**
+     * Creates a new collector that records into the specified response times, regardless of the thread it is used in.
+     *
+     * @param target
+     *         the response times to record into
+     * @param bufferCapacity
+     *         the number of samples that are buffered before they are flushed to the {@link ResponseTimes}
+     */
+    ResponseTimeCollector(ResponseTimes target, int bufferCapacity) {
+
+        this.target = target;
+        this.samples = new SampleBuffer(bufferCapacity);
+    }
+
+    /**
+     * The response times into which this collector records
+     *
+     * @return the target response times or the response times of the current thread
+     */
+    private ResponseTimes responseTimes() {
+
+        return target != null ? target : ResponseTimes.current();
+    }
 
     public static Optional<ResponseTimeCollector> current() {
 
@@ -62,10 +157,23 @@ public class ResponseTimeCollector {
     public void stopCollecting() {
 
         CURRENT_COLLECTOR.set(Optional.empty());
-        if (!responseTimes.isEmpty()) {
+        flush();
+        if (!spans.isEmpty()) {
             LOG.warn("Some Transactions have not been completed:\n{}",
-                     responseTimes.values().stream().map(ResponseTime::toString).collect(Collectors.joining("\n")));
-            responseTimes.clear();
+                     spans.stream()
+                          .map(Span::getResponseTime)
+                          .map(ResponseTime::toString)
+                          .collect(Collectors.joining("\n")));
+            spans.clear();
+        }
+        final String openTx = IntStream.range(0, openTransactions.length)
+                                       .filter(id -> openTransactions[id])
+                                       .mapToObj(TransactionRegistry::nameOf)
+                                       .collect(Collectors.joining(", "));
+        if (!openTx.isEmpty()) {
+            LOG.warn("Some Transactions have not been completed: {}", openTx);
+            Arrays.fill(openTransactions, false);
+            Arrays.fill(openEvents, null);
         }
     }
 
@@ -97,11 +205,12 @@ public class ResponseTimeCollector {
     public void captureTx(String txName, Instant start, Duration duration) {
 
         LOG.trace("TX {} started {} took {}", txName, start, duration);
-        ResponseTimes.current().collect(new ResponseTime(txName, start, duration));
+        responseTimes().collect(new ResponseTime(txName, start, duration));
     }
 
     /**
-     * Starts a new transaction time recording
+     * Starts a new transaction time recording. If another transaction is open, the new transaction becomes a child
+     * span of the most recently started open transaction.
      *
      * @param tx
      *         the name of the transaction
@@ -110,7 +219,7 @@ public class ResponseTimeCollector {
 
         final Instant now = Instant.now();
         LOG.trace("TX Start {} at {}", tx, now);
-        responseTimes.put(tx, ResponseTimes.current().startTx(tx, now));
+        spans.push(new Span(responseTimes().startTx(tx, now), spans.peek()));
     }
 
     /**
@@ -126,7 +235,9 @@ public class ResponseTimeCollector {
     }
 
     /**
-     * Stops the transaction at the specific time point
+     * Stops the transaction at the specific time point. If transactions nested inside the transaction are still open,
+     * they are stopped at the same time point before the transaction, so that the self and total times of the
+     * remaining spans stay consistent.
      *
      * @param tx
      *         the transaction to stop
@@ -135,11 +246,228 @@ public class ResponseTimeCollector {
      */
     public void stopTransaction(String tx, Instant endTime) {
 
-        if (!responseTimes.containsKey(tx)) {
+        if (spans.stream().noneMatch(s -> s.getTransaction().equals(tx))) {
             throw new IllegalStateException("Transaction " + tx + " not started");
         }
-        LOG.trace("TX End {} at {}", tx, endTime);
-        ResponseTimes.current().stopTx(responseTimes.remove(tx).finish(endTime));
+        Span span;
+        do {
+            span = spans.pop();
+            if (!span.getTransaction().equals(tx)) {
+                LOG.warn("Transaction {} stopped while nested transaction {} is open, stopping {}",
+                         tx,
+                         span.getPath(),
+                         span.getTransaction());
+            }
+            finish(span, endTime);
+        } while (!span.getTransaction().equals(tx));
+    }
+
+    private void finish(Span span, Instant endTime) {
+
+        LOG.trace("TX End {} at {}", span.getTransaction(), endTime);
+        final ResponseTimes target = responseTimes();
+        target.stopTx(span.finish(endTime));
+        target.collectSpan(span);
+    }
+
+    /**
+     * Stops a transaction that ended exceptionally. The response time of the transaction is recorded like for a
+     * transaction stopped with {@link #stopTransaction(String, Instant)} and additionally the transaction is counted as
+     * failure, so that the failure can be related to the total number of transactions.
+     *
+     * @param tx
+     *         the transaction that failed
+     * @param endTime
+     *         the time point when the transaction ended
+     *
+     * @see ResponseTimes#collectFailure(String)
+     */
+    public void failTransaction(String tx, Instant endTime) {
+
+        stopTransaction(tx, endTime);
+        collectFailure(tx);
+    }
+
+    /**
+     * Counts a failure of a transaction without recording a response time, i.e. for a transaction that has already
+     * been stopped.
+     *
+     * @param tx
+     *         the transaction that failed
+     *
+     * @see ResponseTimes#collectFailure(String)
+     */
+    public void collectFailure(String tx) {
+
+        LOG.trace("TX Failed {}", tx);
+        responseTimes().collectFailure(tx);
+    }
+
+    /**
+     * The most recently started span that is still open.
+     *
+     * @return the current span or the empty optional if no transaction is open
+     */
+    public Optional<Span> currentSpan() {
+
+        return Optional.ofNullable(spans.peek());
+    }
+
+    /**
+     * Starts a new transaction time recording using the transaction id. The transaction is not propagated to the
+     * consumers for the start of measures. A transaction started by id can not be nested in itself, use
+     * {@link #startTransaction(String)} for re-entrant transactions.
+     *
+     * @param txId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     *
+     * @throws IllegalStateException
+     *         if the transaction is already open
+     */
+    public void startTransaction(int txId) {
+
+        final long now = System.nanoTime();
+        if (txId >= openStarts.length) {
+            final int length = Math.max(Math.max(txId + 1, 16), openStarts.length * 2);
+            openStarts = Arrays.copyOf(openStarts, length);
+            openTransactions = Arrays.copyOf(openTransactions, length);
+            openEvents = Arrays.copyOf(openEvents, length);
+        }
+        if (openTransactions[txId]) {
+            throw new IllegalStateException("Transaction " + txId + " already started");
+        }
+        openEvents[txId] = TransactionEvents.begin(txId);
+        openStarts[txId] = now;
+        openTransactions[txId] = true;
+    }
+
+    /**
+     * Stops the recording of a transaction time that was started using the transaction id.
+     *
+     * @param txId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     */
+    public void stopTransaction(int txId) {
+
+        final long now = System.nanoTime();
+        if (txId < 0 || txId >= openTransactions.length || !openTransactions[txId]) {
+            throw new IllegalStateException("Transaction " + txId + " not started");
+        }
+        openTransactions[txId] = false;
+        TransactionEvents.end(openEvents[txId]);
+        openEvents[txId] = null;
+        record(txId, openStarts[txId], now);
+    }
+
+    /**
+     * Records a completed transaction that has been measured using {@link System#nanoTime()}. The measure is written
+     * to the buffer of this collector and flushed to the {@link ResponseTimes} when the buffer is full.
+     *
+     * @param txId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     * @param startNanos
+     *         the value of {@link System#nanoTime()} when the transaction started
+     * @param endNanos
+     *         the value of {@link System#nanoTime()} when the transaction ended
+     */
+    public void record(int txId, long startNanos, long endNanos) {
+
+        if (samples.add(txId, startNanos, endNanos - startNanos)) {
+            flush();
+        }
+    }
+
+    /**
+     * Flushes all buffered measures to the {@link ResponseTimes} of the current thread or the response times this
+     * collector was created for.
+     */
+    public void flush() {
+
+        samples.drainTo(responseTimes());
+    }
+
+    /**
+     * Wraps a task so that the response times recorded by the task are collected by the collector of the invoking
+     * thread. The task is executed with its own collector that records into the response times of the invoking thread,
+     * so that transactions of the task and the invoking thread do not interfere. If no collector is running for the
+     * invoking thread, the task is returned as is.
+     *
+     * @param task
+     *         the task to wrap
+     *
+     * @return the task with the propagated collector
+     */
+    public static Runnable propagate(Runnable task) {
+
+        if (!current().isPresent()) {
+            return task;
+        }
+        final ResponseTimes parent = current().get().responseTimes();
+        return () -> {
+            final Optional<ResponseTimeCollector> previous = startChild(parent);
+            try {
+                task.run();
+            } finally {
+                stopChild(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that the response times recorded by the task are collected by the collector of the invoking
+     * thread.
+     *
+     * @param task
+     *         the task to wrap
+     * @param <T>
+     *         the type of the result of the task
+     *
+     * @return the task with the propagated collector
+     *
+     * @see #propagate(Runnable)
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+
+        if (!current().isPresent()) {
+            return task;
+        }
+        final ResponseTimes parent = current().get().responseTimes();
+        return () -> {
+            final Optional<ResponseTimeCollector> previous = startChild(parent);
+            try {
+                return task.call();
+            } finally {
+                stopChild(previous);
+            }
+        };
+    }
+
+    /**
+     * Starts collecting with a new collector for the current thread that records into the response times of a parent
+     * collector.
+     *
+     * @param parent
+     *         the response times of the parent collector
+     *
+     * @return the collector of the current thread before the child collector was started
+     */
+    private static Optional<ResponseTimeCollector> startChild(ResponseTimes parent) {
+
+        final Optional<ResponseTimeCollector> previous = CURRENT_COLLECTOR.get();
+        new ResponseTimeCollector(parent, CHILD_BUFFER_CAPACITY).startCollecting();
+        return previous;
+    }
+
+    /**
+     * Stops collecting with the child collector of the current thread and restores the previous collector.
+     *
+     * @param previous
+     *         the collector of the current thread before the child collector was started
+     */
+    private static void stopChild(Optional<ResponseTimeCollector> previous) {
+
+        current().ifPresent(ResponseTimeCollector::stopCollecting);
+        CURRENT_COLLECTOR.set(previous);
     }
 
     /**
@@ -180,4 +508,47 @@ public class ResponseTimeCollector {
         current().ifPresent(rtc -> rtc.stopTransaction(txName, endTime));
     }
 
+    /**
+     * Stops a transaction that ended exceptionally and counts it as failure if response time collection is running.
+     * <br> this is convenience method for {@code current().ifPresent(rtc -> rtc.failTransaction(txName, endTime));}
+     *
+     * @param txName
+     *         the transaction that failed
+     * @param endTime
+     *         the time point when the transaction ended
+     */
+    public static void failTx(String txName, Instant endTime) {
+
+        current().ifPresent(rtc -> rtc.failTransaction(txName, endTime));
+    }
+
+    /**
+     * Starts a new transaction time recording using the transaction id if response time collection is running. In
+     * contrast to {@link #startTx(String)} this method does not allocate any objects.
+     *
+     * @param txId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     */
+    public static void startTx(int txId) {
+
+        final Optional<ResponseTimeCollector> current = current();
+        if (current.isPresent()) {
+            current.get().startTransaction(txId);
+        }
+    }
+
+    /**
+     * Stops the recording of a transaction time using the transaction id if response time collection is running. In
+     * contrast to {@link #stopTx(String)} this method does not allocate any objects.
+     *
+     * @param txId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     */
+    public static void stopTx(int txId) {
+
+        final Optional<ResponseTimeCollector> current = current();
+        if (current.isPresent()) {
+            current.get().stopTransaction(txId);
+        }
+    }
 }
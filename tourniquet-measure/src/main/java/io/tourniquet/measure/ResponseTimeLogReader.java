@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static io.tourniquet.measure.ResponseTimeLogWriter.RECORD_SIZE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reader for response time logs written by the {@link ResponseTimeLogWriter}. The reader reads the file through
+ * memory-mapped regions, so arbitrary large logs can be replayed or aggregated with a constant heap usage.
+ * <br>
+ * Logs whose writer was not closed are read up to the last written record.
+ */
+public class ResponseTimeLogReader implements Closeable {
+
+    /**
+     * Maximum size of a memory-mapped region, the largest multiple of the record size below 1 GB.
+     */
+    private static final long MAX_REGION_SIZE = (1L << 30) / RECORD_SIZE * RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long version;
+    /**
+     * The length of the log that the writer has forced to the storage device
+     */
+    private final long committed;
+
+    /**
+     * Opens a response time log for reading
+     *
+     * @param file
+     *         the path to the log file
+     *
+     * @throws IOException
+     *         if the file could not be opened or is not a response time log
+     */
+    public ResponseTimeLogReader(Path file) throws IOException {
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        final Cursor cursor = new Cursor();
+        if (!cursor.hasNext()) {
+            channel.close();
+            throw new IOException("File " + file + " is not a response time log");
+        }
+        final MappedByteBuffer header = cursor.next();
+        if (header.getInt() != ResponseTimeLogWriter.MAGIC) {
+            channel.close();
+            throw new IOException("File " + file + " is not a response time log");
+        }
+        this.version = header.getLong();
+        this.committed = header.getLong();
+        if (version < 1 || version > ResponseTimeLogWriter.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported version " + version + " of response time log " + file);
+        }
+    }
+
+    /**
+     * Replays all response times of the log in the order they were written.
+     *
+     * @param sink
+     *         the sink to pass the response times to
+     *
+     * @return the number of replayed response times
+     *
+     * @throws IOException
+     *         if the log could not be read
+     */
+    public long replay(ResponseTimeSink sink) throws IOException {
+
+        final List<String> transactions = new ArrayList<>();
+        final Cursor cursor = new Cursor();
+        //skip the header
+        cursor.next();
+        //version 1 logs use the transaction id as tag and are only readable if their writer was closed
+        final int idOffset = version == 1 ? 0 : 1;
+        long count = 0;
+        while (cursor.hasNext()) {
+            final long position = cursor.position;
+            final MappedByteBuffer record = cursor.next();
+            final int tag = record.getInt();
+            final long first = record.getLong();
+            final long second = record.getLong();
+            if (tag == 0 && idOffset == 1) {
+                if (position < committed) {
+                    throw new IOException("Corrupt response time log, record at " + position + " is not written");
+                }
+                //the end of a log that was not closed
+                break;
+            } else if (tag >= 0) {
+                final int id = tag - idOffset;
+                if (id >= transactions.size()) {
+                    throw new IOException("Corrupt response time log, undefined transaction " + id + " at " + position);
+                }
+                sink.accept(transactions.get(id), first, second);
+                count++;
+            } else {
+                transactions.add(readName(cursor, (int) first));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replays all response times of the log as {@link ResponseTime} objects in the order they were written.
+     *
+     * @param consumer
+     *         the consumer to pass the response times to
+     *
+     * @return the number of replayed response times
+     *
+     * @throws IOException
+     *         if the log could not be read
+     */
+    public long forEach(Consumer<ResponseTime> consumer) throws IOException {
+
+        return replay((tx, start, duration) -> consumer.accept(new ResponseTime(tx,
+                                                                                NanoTime.ofEpochNanos(start),
+                                                                                Duration.ofNanos(duration))));
+    }
+
+    /**
+     * Aggregates all response times of the log into statistics per transaction.
+     *
+     * @return a map of transaction names and the statistics of the response times of that transactions
+     *
+     * @throws IOException
+     *         if the log could not be read
+     */
+    public Map<String, ResponseTimeStatistics> aggregate() throws IOException {
+
+        final Map<String, ResponseTimeAggregate> aggregates = new HashMap<>();
+        replay((tx, start, duration) -> aggregates.computeIfAbsent(tx, t -> ResponseTimeAggregate.newAggregate())
+                                                  .record(start, duration));
+        final Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        aggregates.forEach((tx, a) -> result.put(tx, a.toStatistics(tx)));
+        return result;
+    }
+
+    private static String readName(Cursor cursor, int length) throws IOException {
+
+        final byte[] name = new byte[length];
+        for (int offset = 0; offset < length; offset += RECORD_SIZE) {
+            if (!cursor.hasNext()) {
+                throw new IOException("Incomplete transaction definition");
+            }
+            cursor.next().get(name, offset, Math.min(RECORD_SIZE, length - offset));
+        }
+        return new String(name, UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        channel.close();
+    }
+
+    /**
+     * Cursor over the records of the file, mapping region by region.
+     */
+    private final class Cursor {
+
+        private MappedByteBuffer region;
+        private long regionStart;
+        private long regionEnd;
+        private long position;
+
+        boolean hasNext() {
+
+            return position + RECORD_SIZE <= size;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return the buffer positioned at the start of the next record
+         */
+        MappedByteBuffer next() throws IOException {
+
+            if (region == null || position >= regionEnd) {
+                regionStart = position;
+                regionEnd = Math.min(size - size % RECORD_SIZE, regionStart + MAX_REGION_SIZE);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart);
+            }
+            region.position((int) (position - regionStart));
+            position += RECORD_SIZE;
+            return region;
+        }
+    }
+}
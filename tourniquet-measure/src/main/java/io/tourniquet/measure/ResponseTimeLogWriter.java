@@ -0,0 +1,298 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+/**
+ * Sink writing finished response times to a compact binary log file. The writer is intended to be registered as
+ * consumer for the end of measures using {@link ResponseTimes#onMeasureEnd(java.util.function.Consumer)}, in
+ * combination with {@link RetentionPolicy#none()} so that response times are streamed to disk instead of being kept in
+ * memory. The file is written through memory-mapped regions, so the heap usage of the writer does not depend on the
+ * number of written response times. The log can be read using the {@link ResponseTimeLogReader}.
+ * <br>
+ * The log consists of records of {@value #RECORD_SIZE} bytes, each consisting of an int tag and two long values.
+ * <ul>
+ * <li>The first record is the header, with the tag <code>0x54515254</code>, the format version and the number of bytes
+ * of the log that are known to be written to the storage device</li>
+ * <li>A record with a tag &gt; 0 is a response time, with the tag being the id of the transaction plus 1, the first
+ * value the start of the transaction in nanoseconds since the epoch and the second value the duration in
+ * nanoseconds</li>
+ * <li>A record with a negative tag defines the name of the transaction with the id <code>-tag - 1</code>, with the
+ * first value being the length of the UTF-8 encoded name. The name itself is stored in the subsequent records, padded
+ * to the record size.</li>
+ * <li>A record with the tag 0 has not been written. As the regions of the file are mapped before they are written, a
+ * log whose writer was not closed, i.e. because the JVM was killed, ends with such records.</li>
+ * </ul>
+ * Whenever the writer moves on to the next region, the previous region is forced to the storage device and the length
+ * in the header is updated by a background thread, so the measuring thread is not delayed by disk I/O.
+ * <br>
+ * The writer is thread-safe.
+ */
+public class ResponseTimeLogWriter implements ResponseTimeSink, Closeable {
+
+    /**
+     * Size of a single record in bytes.
+     */
+    public static final int RECORD_SIZE = 20;
+
+    private static final Logger LOG = getLogger(ResponseTimeLogWriter.class);
+
+    static final int MAGIC = 0x54515254;
+
+    static final long VERSION = 2L;
+
+    /**
+     * Offset of the length of the forced part of the log within the header
+     */
+    static final int LENGTH_OFFSET = 12;
+
+    /**
+     * Default size of the memory-mapped regions of the file.
+     */
+    static final long DEFAULT_REGION_SIZE = RECORD_SIZE * 1024L * 1024L;
+
+    private final FileChannel channel;
+    private final long regionSize;
+    private final Map<String, Integer> transactions = new HashMap<>();
+
+    /**
+     * The header of the log, only written by the background thread or after it has been stopped
+     */
+    private final MappedByteBuffer header;
+
+    /**
+     * Background thread forcing written regions to the storage device
+     */
+    private final ExecutorService forcer = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "tourniquet-response-time-log");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+    private long count;
+    private boolean closed;
+
+    /**
+     * Creates a new writer for the log file. An existing file is overwritten.
+     *
+     * @param file
+     *         the path to the log file
+     *
+     * @throws IOException
+     *         if the file could not be created
+     */
+    public ResponseTimeLogWriter(Path file) throws IOException {
+
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    ResponseTimeLogWriter(Path file, long regionSize) throws IOException {
+
+        if (regionSize <= 0 || regionSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Region size must be a positive multiple of " + RECORD_SIZE);
+        }
+        this.regionSize = regionSize;
+        this.channel = FileChannel.open(file,
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.TRUNCATE_EXISTING,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+        writeRecord(MAGIC, VERSION, 0L);
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, RECORD_SIZE);
+    }
+
+    @Override
+    public synchronized void accept(final String transaction, final long startEpochNanos, final long durationNanos) {
+
+        if (closed) {
+            throw new IllegalStateException("Response time log is closed");
+        }
+        Integer id = transactions.get(transaction);
+        if (id == null) {
+            id = define(transaction);
+        }
+        writeRecord(id + 1, startEpochNanos, durationNanos);
+        count++;
+    }
+
+    /**
+     * The number of response times written to the log.
+     *
+     * @return the number of written response times
+     */
+    public synchronized long getCount() {
+
+        return count;
+    }
+
+    /**
+     * Forces all written response times to be written to the storage device.
+     */
+    public synchronized void flush() {
+
+        if (!closed) {
+            region.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        forcer.shutdown();
+        try {
+            forcer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        region.force();
+        commit(position);
+        //a file can not be truncated on all platforms while regions of it are mapped
+        final boolean unmapped = unmap(region) & unmap(header);
+        try {
+            channel.truncate(position);
+        } catch (IOException e) {
+            if (unmapped) {
+                throw e;
+            }
+            //the unwritten records at the end of the log are skipped by the reader
+            LOG.debug("Could not truncate response time log with mapped regions", e);
+        }
+        channel.close();
+    }
+
+    private int define(String transaction) {
+
+        final int id = transactions.size();
+        final byte[] name = transaction.getBytes(UTF_8);
+        writeRecord(-id - 1, name.length, 0L);
+        for (int offset = 0; offset < name.length; offset += RECORD_SIZE) {
+            nextRecord();
+            final int length = Math.min(RECORD_SIZE, name.length - offset);
+            region.put(name, offset, length);
+            for (int i = length; i < RECORD_SIZE; i++) {
+                region.put((byte) 0);
+            }
+            position += RECORD_SIZE;
+        }
+        transactions.put(transaction, id);
+        return id;
+    }
+
+    private void writeRecord(int tag, long first, long second) {
+
+        nextRecord();
+        region.putInt(tag).putLong(first).putLong(second);
+        position += RECORD_SIZE;
+    }
+
+    /**
+     * Ensures the current region has space for another record, mapping the next region of the file if necessary.
+     */
+    private void nextRecord() {
+
+        if (region.hasRemaining()) {
+            return;
+        }
+        final MappedByteBuffer written = region;
+        final long length = position;
+        forcer.execute(() -> {
+            written.force();
+            unmap(written);
+            commit(length);
+        });
+        regionStart += regionSize;
+        try {
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map region of response time log", e);
+        }
+    }
+
+    /**
+     * Releases the mapping of a region of the file, so that the file may be truncated. The buffer must not be used
+     * afterwards. As there is no public API for releasing a mapping, the cleaner of the buffer is invoked via
+     * reflection. If this is not possible, the mapping is released once the buffer is garbage collected.
+     *
+     * @param buffer
+     *         the mapped region
+     *
+     * @return <code>true</code> if the mapping was released
+     */
+    static boolean unmap(MappedByteBuffer buffer) {
+
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                //Java 9 and later
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                //Java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.debug("Could not unmap region of response time log", e);
+            return false;
+        }
+    }
+
+    /**
+     * Records the length of the part of the log that is written to the storage device in the header.
+     *
+     * @param length
+     *         the number of bytes written
+     */
+    private void commit(long length) {
+
+        header.putLong(LENGTH_OFFSET, length);
+        header.force();
+    }
+}
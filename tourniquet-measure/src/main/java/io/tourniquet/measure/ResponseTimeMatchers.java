@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+
+import org.hamcrest.Matcher;
+
+/**
+ * Matchers to verify performance budgets against the response times recorded in {@link ResponseTimes}. All values are
+ * calculated from the aggregated {@link ResponseTimeStatistics} of a transaction. Example:
+ * <pre>
+ *     assertThat(ResponseTimes.current(), p99("login", lessThan(Duration.ofMillis(200))));
+ *     assertThat(ResponseTimes.current(), throughput("search", greaterThan(500.0)));
+ *     assertThat(ResponseTimes.current(), errorRate("search", lessThan(1.0)));
+ * </pre>
+ */
+public final class ResponseTimeMatchers {
+
+    private ResponseTimeMatchers() {
+
+    }
+
+    /**
+     * Matcher to verify the response time below which the given percentage of the response times of a transaction
+     * fall.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param percentile
+     *         the percentile to verify, in the range of 0.0 to 100.0
+     * @param matcher
+     *         the matcher for the response time at the percentile
+     *
+     * @return a matcher for {@link ResponseTimes}
+     */
+    public static Matcher<ResponseTimes> percentile(String transaction,
+                                                    double percentile,
+                                                    Matcher<? super Duration> matcher) {
+
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be within 0.0 and 100.0, but was " + percentile);
+        }
+        return new TransactionStatisticsMatcher<>("p" + formatPercentile(percentile),
+                                                  transaction,
+                                                  (rts, stats) -> stats.getPercentile(percentile),
+                                                  matcher);
+    }
+
+    /**
+     * Matcher to verify the median response time of a transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param matcher
+     *         the matcher for the median response time
+     *
+     * @return a matcher for {@link ResponseTimes}
+     */
+    public static Matcher<ResponseTimes> p50(String transaction, Matcher<? super Duration> matcher) {
+
+        return percentile(transaction, 50.0, matcher);
+    }
+
+    /**
+     * Matcher to verify the 95th percentile of the response times of a transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param matcher
+     *         the matcher for the response time at the 95th percentile
+     *
+     * @return a matcher for {@link ResponseTimes}
+     */
+    public static Matcher<ResponseTimes> p95(String transaction, Matcher<? super Duration> matcher) {
+
+        return percentile(transaction, 95.0, matcher);
+    }
+
+    /**
+     * Matcher to verify the 99th percentile of the response times of a transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param matcher
+     *         the matcher for the response time at the 99th percentile
+     *
+     * @return a matcher for {@link ResponseTimes}
+     */
+    public static Matcher<ResponseTimes> p99(String transaction, Matcher<? super Duration> matcher) {
+
+        return percentile(transaction, 99.0, matcher);
+    }
+
+    /**
+     * Matcher to verify the maximum response time of a transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param matcher
+     *         the matcher for the maximum response time
+     *
+     * @return a matcher for {@link ResponseTimes}
+     */
+    public static Matcher<ResponseTimes> maxResponseTime(String transaction, Matcher<? super Duration> matcher) {
+
+        return new TransactionStatisticsMatcher<>("max",
+                                                  transaction,
+                                                  (rts, stats) -> stats.getMax(),
+                                                  matcher);
+    }
+
+    /**
+     * Matcher to verify the throughput of a transaction, that is the number of response times recorded per second
+     * within the time span covered by the response times.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param matcher
+     *         the matcher for the throughput per second
+     *
+     * @return a matcher for {@link ResponseTimes}
+     *
+     * @see ResponseTimeStatistics#getThroughput()
+     */
+    public static Matcher<ResponseTimes> throughput(String transaction, Matcher<? super Double> matcher) {
+
+        return new TransactionStatisticsMatcher<>("throughput/s",
+                                                  transaction,
+                                                  (rts, stats) -> stats.getThroughput(),
+                                                  matcher);
+    }
+
+    /**
+     * Matcher to verify the error rate of a transaction, that is the percentage of the response times of a transaction
+     * that were recorded as failure. Failures are recorded for transactions stopped with {@link
+     * ResponseTimeCollector#failTransaction(String, java.time.Instant)}, i.e. for transactions of page objects that
+     * ended with an exception, for failed requests of a {@link LoadGenerator} or explicitly using {@link
+     * ResponseTimes#collectFailure(String)}.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param matcher
+     *         the matcher for the error rate in percent, in the range of 0.0 to 100.0
+     *
+     * @return a matcher for {@link ResponseTimes}
+     */
+    public static Matcher<ResponseTimes> errorRate(String transaction, Matcher<? super Double> matcher) {
+
+        return new TransactionStatisticsMatcher<>("error rate %",
+                                                  transaction,
+                                                  (rts, stats) -> stats.getCount() == 0
+                                                                  ? 0.0
+                                                                  : rts.getFailureCount(transaction) * 100.0
+                                                                          / stats.getCount(),
+                                                  matcher);
+    }
+
+    private static String formatPercentile(double percentile) {
+
+        return percentile == Math.rint(percentile)
+               ? String.valueOf((long) percentile)
+               : String.valueOf(percentile);
+    }
+}
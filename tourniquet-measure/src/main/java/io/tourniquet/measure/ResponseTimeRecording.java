@@ -18,8 +18,16 @@ package io.tourniquet.measure;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 
 import io.tourniquet.junit.rules.ExternalResource;
@@ -36,6 +44,15 @@ public class ResponseTimeRecording extends ExternalResource {
 
     private boolean clearResponseTimesFlag = true;
     private boolean printTransactionsFlag = true;
+    private Duration timelineInterval;
+    private Path timelineFile;
+    private ResponseTimeTimeline.Format timelineFormat;
+    private Path baselineFile;
+    private Path saveBaselineFile;
+    private double regressionPercentile = BaselineComparison.DEFAULT_PERCENTILE;
+    private double regressionTolerance = BaselineComparison.DEFAULT_TOLERANCE;
+    private double regressionSignificance = BaselineComparison.DEFAULT_SIGNIFICANCE;
+    private Baseline baseline;
 
     /**
      * Sets whether to reset the response time table of the current thread after the test.
@@ -64,6 +81,100 @@ public class ResponseTimeRecording extends ExternalResource {
         return this;
     }
 
+    /**
+     * Enables the recording of a timeline of the response times of the current thread during the test.
+     * @param interval
+     *  the interval of a single bucket of the timeline
+     * @return
+     *  this rule
+     */
+    public ResponseTimeRecording recordTimeline(final Duration interval) {
+
+        this.timelineInterval = interval;
+        return this;
+    }
+
+    /**
+     * Sets the file to which the timeline is exported at the end of the test. If no interval was set using
+     * {@link #recordTimeline(Duration)}, the timeline is recorded with an interval of 1 second.
+     * @param file
+     *  the file to write the timeline to
+     * @param format
+     *  the format of the file
+     * @return
+     *  this rule
+     */
+    public ResponseTimeRecording exportTimeline(final Path file, final ResponseTimeTimeline.Format format) {
+
+        this.timelineFile = file;
+        this.timelineFormat = format;
+        if (this.timelineInterval == null) {
+            this.timelineInterval = Duration.ofSeconds(1);
+        }
+        return this;
+    }
+
+    /**
+     * Compares the response times recorded during the test with a baseline of a previous run. The rule fails with an
+     * {@link AssertionError} at the end of the test if a transaction regressed, see {@link BaselineComparison}. If the
+     * baseline file does not exist, no comparison is made.
+     * @param file
+     *  the baseline file written by {@link #saveBaseline(Path)} in a previous run
+     * @return
+     *  this rule
+     */
+    public ResponseTimeRecording compareToBaseline(final Path file) {
+
+        this.baselineFile = file;
+        return this;
+    }
+
+    /**
+     * Sets the tolerated increase of a percentile of the response times when comparing to the baseline. Default is an
+     * increase of the 95th percentile by 10%.
+     * @param percentile
+     *  the percentile to compare, in the range of 0.0 to 100.0
+     * @param relativeIncrease
+     *  the tolerated increase relative to the baseline, i.e. 0.1 for 10%
+     * @return
+     *  this rule
+     */
+    public ResponseTimeRecording regressionTolerance(final double percentile, final double relativeIncrease) {
+
+        this.regressionPercentile = percentile;
+        this.regressionTolerance = relativeIncrease;
+        return this;
+    }
+
+    /**
+     * Sets the significance level of the statistical test when comparing to the baseline. Default is 0.01.
+     * @param significance
+     *  the significance level
+     * @return
+     *  this rule
+     */
+    public ResponseTimeRecording regressionSignificance(final double significance) {
+
+        this.regressionSignificance = significance;
+        return this;
+    }
+
+    /**
+     * Saves the statistics of the response times recorded during the test as baseline at the end of the test. The
+     * baseline is saved after it was compared, so the same file may be used for comparing and saving. If the response
+     * times regressed compared to the baseline, no baseline is saved, so a regression is reported again in the next
+     * run instead of becoming the new baseline.
+     * @param file
+     *  the file to write the baseline to
+     * @return
+     *  this rule
+     */
+    public ResponseTimeRecording saveBaseline(final Path file) {
+
+        this.saveBaselineFile = file;
+        return this;
+    }
+
     @Override
     protected void beforeClass() throws Throwable {
         before();
@@ -71,6 +182,14 @@ public class ResponseTimeRecording extends ExternalResource {
 
     @Override
     protected void before() throws Throwable {
+        if(baselineFile != null && Files.exists(baselineFile)){
+            baseline = Baseline.read(baselineFile);
+        } else if(baselineFile != null) {
+            LOG.warn("Baseline {} does not exist, response times are not compared", baselineFile);
+        }
+        if(timelineInterval != null){
+            ResponseTimes.current().enableTimeline(timelineInterval);
+        }
         collector.startCollecting();
     }
 
@@ -92,9 +211,60 @@ public class ResponseTimeRecording extends ExternalResource {
                 }
             }
         }
+        if(timelineFile != null){
+            exportTimeline();
+        }
+        final List<BaselineComparison.TransactionComparison> regressions = compareToBaseline();
+        if(saveBaselineFile != null && regressions.isEmpty()){
+            saveBaseline();
+        } else if(saveBaselineFile != null) {
+            LOG.warn("Response times regressed, baseline {} is not saved", saveBaselineFile);
+        }
         if(clearResponseTimesFlag) {
             ResponseTimes.current().clear();
+            if(timelineInterval != null) {
+                ResponseTimes.current().disableTimeline();
+            }
+        }
+        if(!regressions.isEmpty()){
+            throw new AssertionError("Response times regressed compared to baseline " + baselineFile + ":\n"
+                                             + regressions.stream()
+                                                          .map(Object::toString)
+                                                          .collect(Collectors.joining("\n")));
+        }
+    }
+
+    private List<BaselineComparison.TransactionComparison> compareToBaseline() {
+        if(baseline == null){
+            return Collections.emptyList();
+        }
+        final List<BaselineComparison.TransactionComparison> comparisons =
+                BaselineComparison.against(baseline)
+                                  .withTolerance(regressionPercentile, regressionTolerance)
+                                  .withSignificance(regressionSignificance)
+                                  .compare(ResponseTimes.current().getStatistics());
+        comparisons.forEach(c -> LOG.info("Baseline comparison {}", c));
+        return comparisons.stream()
+                          .filter(BaselineComparison.TransactionComparison::isRegression)
+                          .collect(Collectors.toList());
+    }
+
+    private void saveBaseline() {
+        try {
+            Baseline.of(ResponseTimes.current().getStatistics()).write(saveBaselineFile);
+        } catch (IOException e) {
+            LOG.error("Could not save baseline to {}", saveBaselineFile, e);
         }
     }
 
+    private void exportTimeline() {
+        ResponseTimes.current().getTimeline().ifPresent(timeline -> {
+            try(Writer writer = Files.newBufferedWriter(timelineFile, StandardCharsets.UTF_8)) {
+                timeline.write(writer, timelineFormat);
+            } catch (IOException e) {
+                LOG.error("Could not export timeline to {}", timelineFile, e);
+            }
+        });
+    }
+
 }
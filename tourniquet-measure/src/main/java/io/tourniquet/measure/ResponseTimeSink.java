@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.function.Consumer;
+
+/**
+ * Consumer of finished response times that accepts the measures as primitive values. When registered using {@link
+ * ResponseTimes#onMeasureEnd(Consumer)}, measures recorded by transaction id are passed to the sink without creating
+ * {@link ResponseTime} objects.
+ */
+@FunctionalInterface
+public interface ResponseTimeSink extends Consumer<ResponseTime> {
+
+    /**
+     * Accepts a finished response time.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param startEpochNanos
+     *         the start of the transaction in nanoseconds since 1970-01-01T00:00:00Z
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     */
+    void accept(String transaction, long startEpochNanos, long durationNanos);
+
+    @Override
+    default void accept(ResponseTime responseTime) {
+
+        accept(responseTime.getTransaction(),
+               NanoTime.toEpochNanos(responseTime.getStart()),
+               responseTime.getDuration().toNanos());
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Aggregated statistics of the response times of a single transaction. The statistics are an immutable snapshot
+ * of a high dynamic range histogram. All durations are accurate to three significant digits with a resolution of
+ * one microsecond.
+ */
+public final class ResponseTimeStatistics {
+
+    private final String transaction;
+    private final Histogram histogram;
+    private final long firstStartEpochNanos;
+    private final long lastEndEpochNanos;
+
+    /**
+     * Creates the statistics for a transaction from a histogram of recorded durations.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param histogram
+     *         the histogram containing the durations in nanoseconds. The histogram must not be modified after creating
+     *         the statistics
+     */
+    ResponseTimeStatistics(final String transaction, final Histogram histogram) {
+
+        this(transaction, histogram, Long.MAX_VALUE, Long.MIN_VALUE);
+    }
+
+    /**
+     * Creates the statistics for a transaction from a histogram of recorded durations and the time span covered by the
+     * recorded response times.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param histogram
+     *         the histogram containing the durations in nanoseconds. The histogram must not be modified after creating
+     *         the statistics
+     * @param firstStartEpochNanos
+     *         the earliest start of all response times in nanoseconds since the epoch
+     * @param lastEndEpochNanos
+     *         the latest end of all response times in nanoseconds since the epoch
+     */
+    ResponseTimeStatistics(final String transaction,
+                           final Histogram histogram,
+                           final long firstStartEpochNanos,
+                           final long lastEndEpochNanos) {
+
+        this.transaction = transaction;
+        this.histogram = histogram;
+        this.firstStartEpochNanos = firstStartEpochNanos;
+        this.lastEndEpochNanos = lastEndEpochNanos;
+    }
+
+    /**
+     * The name of the transaction that was measured
+     *
+     * @return the name of the transaction
+     */
+    public String getTransaction() {
+
+        return transaction;
+    }
+
+    /**
+     * The number of recorded response times.
+     *
+     * @return the total number of recorded response times
+     */
+    public long getCount() {
+
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * The shortest recorded response time.
+     *
+     * @return the minimum duration or {@link Duration#ZERO} if no response time was recorded
+     */
+    public Duration getMin() {
+
+        return Duration.ofNanos(histogram.getMinValue());
+    }
+
+    /**
+     * The longest recorded response time.
+     *
+     * @return the maximum duration or {@link Duration#ZERO} if no response time was recorded
+     */
+    public Duration getMax() {
+
+        return Duration.ofNanos(histogram.getMaxValue());
+    }
+
+    /**
+     * The arithmetic mean of all recorded response times.
+     *
+     * @return the mean duration or {@link Duration#ZERO} if no response time was recorded
+     */
+    public Duration getMean() {
+
+        return Duration.ofNanos((long) histogram.getMean());
+    }
+
+    /**
+     * The standard deviation of all recorded response times.
+     *
+     * @return the standard deviation as duration
+     */
+    public Duration getStdDeviation() {
+
+        return Duration.ofNanos((long) histogram.getStdDeviation());
+    }
+
+    /**
+     * The response time below which the given percentage of all recorded response times fall.
+     *
+     * @param percentile
+     *         the percentile to determine, in the range of 0.0 to 100.0, i.e. 99.0 for the 99th percentile.
+     *
+     * @return the duration at the given percentile
+     */
+    public Duration getPercentile(double percentile) {
+
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be within 0.0 and 100.0, but was " + percentile);
+        }
+        return Duration.ofNanos(histogram.getValueAtPercentile(percentile));
+    }
+
+    /**
+     * The time span covered by the recorded response times, from the earliest start to the latest end of all response
+     * times.
+     *
+     * @return the time span or {@link Duration#ZERO} if the time span is unknown
+     */
+    public Duration getTimeSpan() {
+
+        if (lastEndEpochNanos <= firstStartEpochNanos) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(lastEndEpochNanos - firstStartEpochNanos);
+    }
+
+    /**
+     * The number of response times recorded per second within the time span covered by the response times.
+     *
+     * @return the throughput per second or 0.0 if the time span is unknown
+     */
+    public double getThroughput() {
+
+        final long span = getTimeSpan().toNanos();
+        return span == 0 ? 0.0 : getCount() * 1_000_000_000.0 / span;
+    }
+
+    long getFirstStartEpochNanos() {
+
+        return firstStartEpochNanos;
+    }
+
+    long getLastEndEpochNanos() {
+
+        return lastEndEpochNanos;
+    }
+
+    /**
+     * Provides a copy of the underlying histogram with the durations in nanoseconds.
+     *
+     * @return a copy of the histogram
+     */
+    public Histogram getHistogram() {
+
+        return histogram.copy();
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder(128).append("ResponseTimeStatistics{")
+                                                       .append("transaction='").append(transaction).append('\'')
+                                                       .append(", count=").append(getCount())
+                                                       .append(", min=").append(getMin())
+                                                       .append(", mean=").append(getMean())
+                                                       .append(", p50=").append(getPercentile(50.0))
+                                                       .append(", p95=").append(getPercentile(95.0))
+                                                       .append(", p99=").append(getPercentile(99.0))
+                                                       .append(", max=").append(getMax())
+                                                       .append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Storage of the response times recorded by a {@link ResponseTimes} collection. The store defines how much of the
+ * recorded response times is kept in memory. Implementations must be thread-safe.
+ */
+interface ResponseTimeStore {
+
+    /**
+     * Stores the response time of a started, but not yet finished transaction.
+     *
+     * @param responseTime
+     *         the unfinished response time
+     */
+    void started(ResponseTime responseTime);
+
+    /**
+     * Stores the response time of a finished transaction.
+     *
+     * @param responseTime
+     *         the finished response time
+     */
+    void finished(ResponseTime responseTime);
+
+    /**
+     * Stores the duration of a finished transaction that was measured using {@link System#nanoTime()}.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param startNanos
+     *         the start of the transaction as value of {@link System#nanoTime()}
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     */
+    void record(String transaction, long startNanos, long durationNanos);
+
+    /**
+     * Provides all response times held by this store.
+     *
+     * @return a map of transaction names and the response times of that transactions
+     */
+    Map<String, List<ResponseTime>> getResponseTimes();
+
+    /**
+     * Provides the aggregated statistics of the finished response times held by this store.
+     *
+     * @return a map of transaction names and the statistics of that transactions
+     */
+    Map<String, ResponseTimeStatistics> getStatistics();
+
+    /**
+     * Provides the aggregated statistics of the finished response times of a single transaction. Stores should
+     * override this method to avoid aggregating the response times of all transactions.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the statistics of the transaction or the empty optional if the store holds no finished response time of
+     * the transaction
+     */
+    default Optional<ResponseTimeStatistics> getStatistics(String transaction) {
+
+        return Optional.ofNullable(getStatistics().get(transaction));
+    }
+
+    /**
+     * Applies a cleanup strategy to the response times held by the store. Stores that do not hold individual
+     * response times ignore the strategy.
+     *
+     * @param cleanupStrategy
+     *         the strategy to apply
+     */
+    void cleanup(Consumer<Map<UUID, ResponseTime>> cleanupStrategy);
+
+    /**
+     * Removes all response times from this store.
+     */
+    void clear();
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Time series of response times, binning the response times of each transaction into buckets of a fixed interval by
+ * the time the transaction ended. The buckets are maintained incrementally while response times are collected, so the
+ * evolution of latency and throughput over a run, i.e. warm-up phases, pauses or degradation, can be analyzed without
+ * keeping the individual response times.
+ * <br>
+ * To keep the footprint of long runs with short intervals small, the buckets record the durations with two
+ * significant digits and a bucket is compacted into its compressed form as soon as a transaction ended two intervals
+ * later. A bucket is only expanded again if a late response time has to be added to it.
+ */
+public final class ResponseTimeTimeline {
+
+    /**
+     * The number of significant value digits of the durations recorded in a bucket.
+     */
+    static final int SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * The formats the timeline can be exported to
+     */
+    public enum Format {
+        /**
+         * Comma separated values with a header line, one line per bucket. Durations are in milliseconds.
+         */
+        CSV,
+        /**
+         * A JSON array with one object per bucket. Durations are in milliseconds.
+         */
+        JSON
+    }
+
+    private final long intervalNanos;
+
+    private final Map<String, TransactionBuckets> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new timeline.
+     *
+     * @param interval
+     *         the interval of a single bucket
+     */
+    ResponseTimeTimeline(Duration interval) {
+
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive, but was " + interval);
+        }
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * The interval of a single bucket
+     *
+     * @return the bucket interval
+     */
+    public Duration getInterval() {
+
+        return Duration.ofNanos(intervalNanos);
+    }
+
+    /**
+     * Records the duration of a finished transaction in the bucket covering the end of the transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param startEpochNanos
+     *         the start of the transaction in nanoseconds since the epoch
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     */
+    void record(String transaction, long startEpochNanos, long durationNanos) {
+
+        final long bucket = Math.floorDiv(startEpochNanos + Math.max(0L, durationNanos), intervalNanos);
+        TransactionBuckets txBuckets = buckets.get(transaction);
+        if (txBuckets == null) {
+            txBuckets = buckets.computeIfAbsent(transaction, tx -> new TransactionBuckets());
+        }
+        txBuckets.record(bucket, startEpochNanos, durationNanos);
+    }
+
+    /**
+     * Removes all buckets from the timeline
+     */
+    void clear() {
+
+        buckets.clear();
+    }
+
+    /**
+     * The names of all transactions recorded in the timeline
+     *
+     * @return the transaction names in alphabetical order
+     */
+    public Set<String> getTransactions() {
+
+        return Collections.unmodifiableSet(new TreeSet<>(buckets.keySet()));
+    }
+
+    /**
+     * Provides a snapshot of the buckets of a transaction. Intervals in which no transaction ended are omitted.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the buckets of the transaction in chronological order
+     */
+    public List<TimelineBucket> getBuckets(String transaction) {
+
+        final TransactionBuckets txBuckets = buckets.get(transaction);
+        if (txBuckets == null) {
+            return Collections.emptyList();
+        }
+        final List<TimelineBucket> result = new ArrayList<>(txBuckets.buckets.size());
+        txBuckets.buckets.forEach((bucket, b) -> result.add(new TimelineBucket(
+                NanoTime.ofEpochNanos(bucket * intervalNanos),
+                getInterval(),
+                b.toStatistics(transaction))));
+        return result;
+    }
+
+    /**
+     * The number of buckets of a transaction that are kept as histograms instead of being compacted.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the number of buckets that are not compacted
+     */
+    int getExpandedBucketCount(String transaction) {
+
+        final TransactionBuckets txBuckets = buckets.get(transaction);
+        if (txBuckets == null) {
+            return 0;
+        }
+        return (int) txBuckets.buckets.values().stream().filter(b -> !b.isCompacted()).count();
+    }
+
+    /**
+     * Writes the timeline of all transactions in the specified format.
+     *
+     * @param writer
+     *         the writer to write the timeline to
+     * @param format
+     *         the format of the output
+     *
+     * @throws IOException
+     *         if the timeline could not be written
+     */
+    public void write(Writer writer, Format format) throws IOException {
+
+        if (format == Format.JSON) {
+            writeJson(writer);
+        } else {
+            writeCsv(writer);
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+
+        writer.write("transaction,start,count,throughput,p50,p95,max\n");
+        for (String tx : getTransactions()) {
+            for (TimelineBucket bucket : getBuckets(tx)) {
+                writer.write(escapeCsv(tx));
+                writer.write(',');
+                writer.write(bucket.getStart().toString());
+                writer.write(',');
+                writer.write(String.valueOf(bucket.getCount()));
+                writer.write(',');
+                writer.write(String.valueOf(bucket.getThroughput()));
+                writer.write(',');
+                writer.write(millis(bucket.getStatistics().getPercentile(50.0)));
+                writer.write(',');
+                writer.write(millis(bucket.getStatistics().getPercentile(95.0)));
+                writer.write(',');
+                writer.write(millis(bucket.getStatistics().getMax()));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void writeJson(Writer writer) throws IOException {
+
+        writer.write('[');
+        boolean first = true;
+        for (String tx : getTransactions()) {
+            for (TimelineBucket bucket : getBuckets(tx)) {
+                writer.write(first ? "\n" : ",\n");
+                first = false;
+                writer.write("{\"transaction\":");
+                writer.write(escapeJson(tx));
+                writer.write(",\"start\":\"");
+                writer.write(bucket.getStart().toString());
+                writer.write("\",\"count\":");
+                writer.write(String.valueOf(bucket.getCount()));
+                writer.write(",\"throughput\":");
+                writer.write(String.valueOf(bucket.getThroughput()));
+                writer.write(",\"p50\":");
+                writer.write(millis(bucket.getStatistics().getPercentile(50.0)));
+                writer.write(",\"p95\":");
+                writer.write(millis(bucket.getStatistics().getPercentile(95.0)));
+                writer.write(",\"max\":");
+                writer.write(millis(bucket.getStatistics().getMax()));
+                writer.write('}');
+            }
+        }
+        writer.write("\n]\n");
+    }
+
+    private static String millis(Duration duration) {
+
+        return String.valueOf(duration.toNanos() / 1_000_000.0);
+    }
+
+    private static String escapeCsv(String value) {
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String escapeJson(String value) {
+
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * The buckets of a single transaction ordered by time. Whenever the first response time of a new interval is
+     * recorded, all buckets that are at least two intervals older are compacted. Compacted buckets that were expanded
+     * again by late response times are compacted again on the next new interval.
+     */
+    private static final class TransactionBuckets {
+
+        private final ConcurrentNavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+        /**
+         * The most recent bucket a response time was recorded in
+         */
+        private final AtomicLong latest = new AtomicLong(Long.MIN_VALUE);
+
+        /**
+         * All buckets before this bucket are compacted, unless a late response time was recorded in them
+         */
+        private final AtomicLong compactedUntil = new AtomicLong(Long.MIN_VALUE);
+
+        /**
+         * Compacted buckets that were expanded again by a late response time
+         */
+        private final Set<Long> expanded = ConcurrentHashMap.newKeySet();
+
+        void record(long bucket, long startEpochNanos, long durationNanos) {
+
+            Bucket b = buckets.get(bucket);
+            if (b == null) {
+                b = buckets.computeIfAbsent(bucket, k -> new Bucket());
+            }
+            if (b.record(startEpochNanos, durationNanos)) {
+                expanded.add(bucket);
+            }
+            long current = latest.get();
+            while (bucket > current) {
+                if (latest.compareAndSet(current, bucket)) {
+                    compactBefore(bucket - 1);
+                    break;
+                }
+                current = latest.get();
+            }
+        }
+
+        private void compactBefore(long bucket) {
+
+            final long from = compactedUntil.getAndAccumulate(bucket, Math::max);
+            if (from < bucket) {
+                buckets.subMap(from, true, bucket, false).values().forEach(Bucket::compact);
+            }
+            if (!expanded.isEmpty()) {
+                expanded.removeIf(key -> {
+                    if (key < bucket) {
+                        buckets.get(key).compact();
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+    }
+
+    /**
+     * The durations of the transactions that ended within one interval. While response times are recorded, the bucket
+     * keeps a histogram, once compacted only the compressed form of the histogram is kept.
+     */
+    private static final class Bucket {
+
+        private Histogram histogram = Histograms.newHistogram(SIGNIFICANT_DIGITS);
+        private byte[] compressed;
+        private long firstStart = Long.MAX_VALUE;
+        private long lastEnd = Long.MIN_VALUE;
+
+        /**
+         * Records a response time into the bucket.
+         *
+         * @return <code>true</code> if the bucket was compacted and had to be expanded to record the response time
+         */
+        synchronized boolean record(long startEpochNanos, long durationNanos) {
+
+            final boolean wasCompacted = histogram == null;
+            if (wasCompacted) {
+                histogram = expand();
+                compressed = null;
+            }
+            Histograms.record(histogram, durationNanos);
+            firstStart = Math.min(firstStart, startEpochNanos);
+            lastEnd = Math.max(lastEnd, startEpochNanos + Math.max(0L, durationNanos));
+            return wasCompacted;
+        }
+
+        synchronized boolean isCompacted() {
+
+            return histogram == null;
+        }
+
+        synchronized void compact() {
+
+            if (histogram != null) {
+                final ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+                final int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+                compressed = Arrays.copyOf(buffer.array(), length);
+                histogram = null;
+            }
+        }
+
+        synchronized ResponseTimeStatistics toStatistics(String transaction) {
+
+            return new ResponseTimeStatistics(transaction,
+                                              histogram == null ? expand() : histogram.copy(),
+                                              firstStart,
+                                              lastEnd);
+        }
+
+        private Histogram expand() {
+
+            try {
+                final Histogram expanded = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(compressed),
+                                                                                  Histograms.LOWEST_DISCERNIBLE_VALUE);
+                expanded.setAutoResize(true);
+                return expanded;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Compacted bucket is corrupt", e);
+            }
+        }
+    }
+
+    /**
+     * The response times of a single transaction that ended within one interval of the timeline.
+     */
+    public static final class TimelineBucket {
+
+        private final Instant start;
+        private final Duration interval;
+        private final ResponseTimeStatistics statistics;
+
+        TimelineBucket(final Instant start, final Duration interval, final ResponseTimeStatistics statistics) {
+
+            this.start = start;
+            this.interval = interval;
+            this.statistics = statistics;
+        }
+
+        /**
+         * The start of the interval covered by this bucket
+         *
+         * @return the start of the bucket
+         */
+        public Instant getStart() {
+
+            return start;
+        }
+
+        /**
+         * The end of the interval covered by this bucket
+         *
+         * @return the end of the bucket (exclusive)
+         */
+        public Instant getEnd() {
+
+            return start.plus(interval);
+        }
+
+        /**
+         * The number of transactions that ended within the interval
+         *
+         * @return the number of response times in this bucket
+         */
+        public long getCount() {
+
+            return statistics.getCount();
+        }
+
+        /**
+         * The number of transactions that ended per second within the interval
+         *
+         * @return the throughput per second
+         */
+        public double getThroughput() {
+
+            return statistics.getCount() * 1_000_000_000.0 / interval.toNanos();
+        }
+
+        /**
+         * The statistics of the response times of the transactions that ended within the interval
+         *
+         * @return the statistics of this bucket
+         */
+        public ResponseTimeStatistics getStatistics() {
+
+            return statistics;
+        }
+    }
+}
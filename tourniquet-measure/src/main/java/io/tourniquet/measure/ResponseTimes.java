@@ -18,15 +18,8 @@ package io.tourniquet.measure;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +33,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -61,22 +55,50 @@ public final class ResponseTimes {
     /**
      * Global collector
      */
-    private static final ResponseTimes GLOBAL_RESPONSE_TIMES = new ResponseTimes();
+    private static final ResponseTimes GLOBAL_RESPONSE_TIMES = new ResponseTimes(true);
     /**
      * Flag to indicate, that response times should be collected globally, which is disabled by default
      */
     private static final AtomicBoolean GLOBAL_COLLECTION_ENABLED = new AtomicBoolean(false);
 
-    private static final ThreadLocal<ResponseTimes> LOCAL = ThreadLocal.withInitial(ResponseTimes::new);
+    private static final ThreadLocal<ResponseTimes> LOCAL = ThreadLocal.withInitial(() -> new ResponseTimes(false));
+
+    /**
+     * Flag to indicate, that the response times are recorded by many threads concurrently, which is the case for the
+     * global collector.
+     */
+    private final boolean striped;
+
+    /**
+     * The store holding the collected response times, depending on the collection mode.
+     */
+    private final AtomicReference<ResponseTimeStore> store = new AtomicReference<>();
+
+    /**
+     * The number of failed transactions per transaction name.
+     */
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    /**
+     * The continuously maintained statistics per transaction, <code>null</code> if live statistics are disabled.
+     */
+    private final AtomicReference<Map<String, ResponseTimeAggregate>> liveStatistics = new AtomicReference<>();
+
     /**
-     * ResponseTime collection.
+     * The timeline of the collected response times, <code>null</code> if no timeline is recorded.
      */
-    private final Map<UUID, ResponseTime> times = new ConcurrentHashMap<>();
+    private final AtomicReference<ResponseTimeTimeline> timeline = new AtomicReference<>();
 
     /**
-     * Default consumer putting a response time into the global table
+     * The aggregated statistics of the spans per path.
      */
-    private final Consumer<ResponseTime> defaultConsumer = rt -> times.put(rt.getUuid(), rt);
+    private final Map<String, SpanAggregate> spans = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean spanStatisticsEnabled = new AtomicBoolean(false);
+
+    private final AtomicReference<CollectionMode> collectionMode = new AtomicReference<>(CollectionMode.RAW);
+
+    private final AtomicReference<RetentionPolicy> retentionPolicy = new AtomicReference<>(RetentionPolicy.unlimited());
 
     private final AtomicReference<Consumer<ResponseTime>> startTxConsumer = new AtomicReference<>();
 
@@ -88,8 +110,25 @@ public final class ResponseTimes {
 
     private final AtomicBoolean forwardToGlobal = new AtomicBoolean(false);
 
-    private ResponseTimes() {
+    private ResponseTimes(boolean striped) {
+
+        this.striped = striped;
+        this.store.set(newStore());
+    }
+
+    /**
+     * Creates a new store for the current collection mode and retention policy. The store of a collector that is shared
+     * among threads records the response times of each thread into a separate stripe that are merged when the response
+     * times are read.
+     *
+     * @return a new, empty store
+     */
+    private ResponseTimeStore newStore() {
 
+        final ResponseTimeStore newStore = collectionMode.get() == CollectionMode.HISTOGRAM
+                                           ? new HistogramResponseTimeStore()
+                                           : retentionPolicy.get().newStore();
+        return striped ? new StripedResponseTimeStore(newStore) : newStore;
     }
 
     /**
@@ -104,7 +143,8 @@ public final class ResponseTimes {
     }
 
     /**
-     * A global collector shared by all threads.
+     * A global collector shared by all threads. Every thread records into its own buffer, so that recording threads
+     * do not contend with each other. The buffers are merged when the response times or statistics are read.
      *
      * @return the global response time collector
      */
@@ -118,7 +158,158 @@ public final class ResponseTimes {
      */
     public void clear() {
 
-        times.clear();
+        store.get().clear();
+        failures.clear();
+        spans.clear();
+        Optional.ofNullable(timeline.get()).ifPresent(ResponseTimeTimeline::clear);
+        Optional.ofNullable(liveStatistics.get()).ifPresent(Map::clear);
+    }
+
+    /**
+     * Sets the mode how the response times are collected. In {@link CollectionMode#RAW} mode (default) all response
+     * times are kept and are accessible via {@link #getResponseTimes()}. In {@link CollectionMode#HISTOGRAM} mode,
+     * the response times are aggregated per transaction in constant memory and are only accessible via {@link
+     * #getStatistics()}. Changing the mode discards all response times collected so far.
+     *
+     * @param mode
+     *         the collection mode to use
+     */
+    public void setCollectionMode(CollectionMode mode) {
+
+        Objects.requireNonNull(mode, "Collection mode must not be null");
+        if (collectionMode.getAndSet(mode) != mode) {
+            store.set(newStore());
+        }
+    }
+
+    /**
+     * The mode how the response times are collected.
+     *
+     * @return the current collection mode
+     */
+    public CollectionMode getCollectionMode() {
+
+        return collectionMode.get();
+    }
+
+    /**
+     * Sets the policy which response times are retained in the {@link CollectionMode#RAW} collection mode. The default
+     * policy is to retain all response times. Other policies bound the number of response times retained per
+     * transaction and only retain finished response times. Changing the policy discards all response times collected
+     * so far.
+     *
+     * @param policy
+     *         the retention policy to apply
+     */
+    public void setRetentionPolicy(RetentionPolicy policy) {
+
+        Objects.requireNonNull(policy, "Retention policy must not be null");
+        if (retentionPolicy.getAndSet(policy) != policy) {
+            store.set(newStore());
+        }
+    }
+
+    /**
+     * The policy which response times are retained in the {@link CollectionMode#RAW} collection mode.
+     *
+     * @return the current retention policy
+     */
+    public RetentionPolicy getRetentionPolicy() {
+
+        return retentionPolicy.get();
+    }
+
+    /**
+     * Enables the recording of a timeline, binning the finished response times of each transaction into buckets of the
+     * specified interval. The timeline is recorded in addition to the response times and independent of the collection
+     * mode. Enabling the timeline discards any previously recorded timeline.
+     *
+     * @param interval
+     *         the interval of a single bucket of the timeline
+     */
+    public void enableTimeline(Duration interval) {
+
+        Objects.requireNonNull(interval, "Interval must not be null");
+        timeline.set(new ResponseTimeTimeline(interval));
+    }
+
+    /**
+     * Disables the recording of the timeline and discards the recorded timeline.
+     */
+    public void disableTimeline() {
+
+        timeline.set(null);
+    }
+
+    /**
+     * The timeline of the collected response times.
+     *
+     * @return the timeline or the empty optional if no timeline is recorded
+     */
+    public Optional<ResponseTimeTimeline> getTimeline() {
+
+        return Optional.ofNullable(timeline.get());
+    }
+
+    /**
+     * Enables the continuous aggregation of the finished response times per transaction. In contrast to {@link
+     * #getStatistics()}, which calculates the statistics from the retained response times in the {@link
+     * CollectionMode#RAW} mode, the live statistics are maintained incrementally while response times are collected,
+     * so they can be read frequently, i.e. by a monitoring system, at constant cost. The live statistics cover all
+     * response times collected since they were enabled, regardless of the retention policy. Disabling the live
+     * statistics discards them.
+     *
+     * @param enabled
+     *         <code>true</code> if the live statistics should be maintained, <code>false</code> if not.
+     */
+    public void enableLiveStatistics(boolean enabled) {
+
+        if (enabled) {
+            liveStatistics.compareAndSet(null, new ConcurrentHashMap<>());
+        } else {
+            liveStatistics.set(null);
+        }
+    }
+
+    /**
+     * Returns the live statistics of all response times collected since the live statistics were enabled.
+     *
+     * @return a map of the statistics. The map contains the transaction names as key and the statistics of the
+     * response times of that transaction as value. The map is empty if live statistics are not enabled.
+     *
+     * @see #enableLiveStatistics(boolean)
+     */
+    public Map<String, ResponseTimeStatistics> getLiveStatistics() {
+
+        final Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        Optional.ofNullable(liveStatistics.get())
+                .ifPresent(live -> live.forEach((tx, aggregate) -> result.put(tx, aggregate.toStatistics(tx))));
+        return result;
+    }
+
+    /**
+     * Enables the aggregation of the spans recorded by a {@link ResponseTimeCollector}. If enabled, the total and self
+     * time of nested transactions are aggregated per span path and are accessible via {@link #getSpanStatistics()}.
+     *
+     * @param enabled
+     *         <code>true</code> if the spans should be aggregated, <code>false</code> if not.
+     */
+    public void enableSpanStatistics(boolean enabled) {
+
+        spanStatisticsEnabled.set(enabled);
+    }
+
+    /**
+     * Returns the aggregated statistics of the spans recorded while span statistics were enabled.
+     *
+     * @return a map of the span statistics. The map contains the span paths as key and the statistics of the spans with
+     * that path as value.
+     */
+    public Map<String, SpanStatistics> getSpanStatistics() {
+
+        final Map<String, SpanStatistics> result = new HashMap<>();
+        spans.forEach((path, aggregate) -> result.put(path, aggregate.toStatistics()));
+        return result;
     }
 
     /**
@@ -146,7 +337,9 @@ public final class ResponseTimes {
     }
 
     /**
-     * Overrides the default consumer that handles response times on the beginning of a transaction
+     * Overrides the default consumer that handles response times on the beginning of a transaction. The consumer is
+     * invoked on the measuring thread, a consumer that may block should be wrapped in an {@link
+     * AsyncResponseTimeConsumer}.
      *
      * @param responseTimeConsumer
      *         the consumer to process response times
@@ -157,7 +350,9 @@ public final class ResponseTimes {
     }
 
     /**
-     * Overrides the default consumer that handles response times on the end of a transaction
+     * Overrides the default consumer that handles response times on the end of a transaction. The consumer is
+     * invoked on the measuring thread, a consumer that may block should be wrapped in an {@link
+     * AsyncResponseTimeConsumer}.
      *
      * @param responseTimeConsumer
      *         the consumer to process response times
@@ -168,7 +363,9 @@ public final class ResponseTimes {
     }
 
     /**
-     * Sets a cleanup strategy how to cleanup the collected times. Default strategy will keep all response times.
+     * Sets a cleanup strategy how to cleanup the collected times. Default strategy will keep all response times. The
+     * strategy only applies to the {@link CollectionMode#RAW} mode with the unlimited {@link RetentionPolicy}. Consider
+     * using a bounded {@link RetentionPolicy} instead.
      *
      * @param cleanupStrategy
      *         the cleanup strategy to be operated on the response time map.
@@ -181,7 +378,7 @@ public final class ResponseTimes {
         Optional.ofNullable(cleanupStrategy).ifPresent(cs -> {
             Objects.requireNonNull(interval);
             final long period = interval.toMillis();
-            this.cleanupStrategy.set(this.scheduler.scheduleAtFixedRate(() -> cs.accept(this.times),
+            this.cleanupStrategy.set(this.scheduler.scheduleAtFixedRate(() -> this.store.get().cleanup(cs),
                                                                         period,
                                                                         period,
                                                                         TimeUnit.MILLISECONDS));
@@ -221,7 +418,7 @@ public final class ResponseTimes {
 
     void startTx(final ResponseTime responseTime) {
 
-        defaultConsumer.accept(responseTime);
+        store.get().started(responseTime);
         Optional.ofNullable(startTxConsumer.get()).ifPresent(c -> c.accept(responseTime));
         if (isGlobalCollectionEnabled()) {
             global().startTx(responseTime);
@@ -258,7 +455,12 @@ public final class ResponseTimes {
         if (!responseTime.isFinished()) {
             throw new AssertionError("Collecting of unfinished responseTimes is not allowed");
         }
-        defaultConsumer.accept(responseTime);
+        store.get().finished(responseTime);
+        if (timeline.get() != null || liveStatistics.get() != null) {
+            aggregate(responseTime.getTransaction(),
+                      NanoTime.toEpochNanos(responseTime.getStart()),
+                      responseTime.getDuration().toNanos());
+        }
         Optional.ofNullable(stopTxConsumer.get()).ifPresent(c -> c.accept(responseTime));
         if (isGlobalCollectionEnabled()) {
             global().collect(responseTime);
@@ -266,6 +468,89 @@ public final class ResponseTimes {
         return responseTime;
     }
 
+    /**
+     * Records a finished transaction into the incrementally maintained timeline and live statistics, if enabled.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param startEpochNanos
+     *         the start of the transaction in nanoseconds since the epoch
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     */
+    private void aggregate(String transaction, long startEpochNanos, long durationNanos) {
+
+        final ResponseTimeTimeline currentTimeline = timeline.get();
+        if (currentTimeline != null) {
+            currentTimeline.record(transaction, startEpochNanos, durationNanos);
+        }
+        final Map<String, ResponseTimeAggregate> live = liveStatistics.get();
+        if (live != null) {
+            ResponseTimeAggregate aggregate = live.get(transaction);
+            if (aggregate == null) {
+                aggregate = live.computeIfAbsent(transaction, tx -> ResponseTimeAggregate.newConcurrentAggregate());
+            }
+            aggregate.record(startEpochNanos, durationNanos);
+        }
+    }
+
+    /**
+     * Collects a finished span into the span statistics, if span statistics are enabled. The response time of the span
+     * has to be collected separately.
+     *
+     * @param span
+     *         the finished span
+     */
+    void collectSpan(final Span span) {
+
+        if (spanStatisticsEnabled.get()) {
+            SpanAggregate aggregate = spans.get(span.getPath());
+            if (aggregate == null) {
+                aggregate = spans.computeIfAbsent(span.getPath(), path -> new SpanAggregate(span));
+            }
+            aggregate.record(span);
+        }
+        if (isGlobalCollectionEnabled()) {
+            global().collectSpan(span);
+        }
+    }
+
+    /**
+     * Collects a completed transaction that was measured using {@link System#nanoTime()}. In {@link
+     * CollectionMode#HISTOGRAM} mode and without a consumer for the end of measures or with a {@link ResponseTimeSink}
+     * as consumer, collecting the transaction does not allocate any objects.
+     *
+     * @param transactionId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     * @param startNanos
+     *         the start of the transaction as value of {@link System#nanoTime()}
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     */
+    public void collect(int transactionId, long startNanos, long durationNanos) {
+
+        final String transaction = TransactionRegistry.nameOf(transactionId);
+        final Consumer<ResponseTime> consumer = stopTxConsumer.get();
+        if (consumer == null) {
+            store.get().record(transaction, startNanos, durationNanos);
+        } else if (consumer instanceof ResponseTimeSink) {
+            store.get().record(transaction, startNanos, durationNanos);
+            ((ResponseTimeSink) consumer).accept(transaction, NanoTime.toEpochNanos(startNanos), durationNanos);
+        } else {
+            final ResponseTime responseTime = new ResponseTime(transaction,
+                                                               NanoTime.toInstant(startNanos),
+                                                               Duration.ofNanos(durationNanos));
+            store.get().finished(responseTime);
+            consumer.accept(responseTime);
+        }
+        if (timeline.get() != null || liveStatistics.get() != null) {
+            aggregate(transaction, NanoTime.toEpochNanos(startNanos), durationNanos);
+        }
+        if (isGlobalCollectionEnabled()) {
+            global().collect(transactionId, startNanos, durationNanos);
+        }
+    }
+
     /**
      * Collects a completed time measure for a specific transaction.
      *
@@ -282,23 +567,117 @@ public final class ResponseTimes {
     }
 
     /**
-     * Returns all recorded response times.
+     * Returns all recorded response times. In {@link CollectionMode#HISTOGRAM} mode no single response times are
+     * recorded and the result is always empty.
      *
      * @return a map of the response times. The map contains the transaction names as key, and a list of measured
      * responseTimes for that transaction as value.
      */
     public Map<String, List<ResponseTime>> getResponseTimes() {
 
-        final Map<String, List<ResponseTime>> result = new HashMap<>();
-        times.values().stream().forEach(trt -> {
-            if (!result.containsKey(trt.getTransaction())) {
-                result.put(trt.getTransaction(), new ArrayList<>());
-            }
-            result.get(trt.getTransaction()).add(trt);
-        });
+        return store.get().getResponseTimes();
+    }
+
+    /**
+     * Returns the aggregated statistics of all finished response times per transaction. In {@link
+     * CollectionMode#HISTOGRAM} mode the statistics are taken from the continuously maintained histograms, in {@link
+     * CollectionMode#RAW} mode they are calculated from the recorded or retained response times.
+     *
+     * @return a map of the statistics. The map contains the transaction names as key and the statistics of the
+     * response times of that transaction as value.
+     */
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        return store.get().getStatistics();
+    }
+
+    /**
+     * Returns the aggregated statistics of all finished response times of a single transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the statistics of the transaction or the empty optional if no response time was recorded for the
+     * transaction
+     */
+    public Optional<ResponseTimeStatistics> getStatistics(String transaction) {
+
+        return store.get().getStatistics(transaction);
+    }
+
+    /**
+     * Records the failure of a transaction. Failures are counted separately from the response times, the response time
+     * of a failed transaction should still be collected, so that the failure count can be related to the total number
+     * of transactions.
+     *
+     * @param transaction
+     *         the name of the failed transaction
+     */
+    public void collectFailure(String transaction) {
+
+        final LongAdder counter = failures.get(transaction);
+        if (counter != null) {
+            counter.increment();
+        } else {
+            failures.computeIfAbsent(transaction, tx -> new LongAdder()).increment();
+        }
+        if (isGlobalCollectionEnabled()) {
+            global().collectFailure(transaction);
+        }
+    }
+
+    /**
+     * Returns the number of failures recorded for a transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the number of failures of the transaction
+     */
+    public long getFailureCount(String transaction) {
+
+        final LongAdder counter = failures.get(transaction);
+        return counter == null ? 0L : counter.sum();
+    }
+
+    /**
+     * Returns the number of failures of all transactions with recorded failures.
+     *
+     * @return a map of transaction names and the number of failures of that transaction
+     */
+    public Map<String, Long> getFailureCounts() {
+
+        final Map<String, Long> result = new HashMap<>();
+        failures.forEach((tx, counter) -> result.put(tx, counter.sum()));
         return result;
     }
 
+    /**
+     * Exports all recorded response times in a form that can be passed across classloader boundaries. The exported form
+     * is a map of transaction names to primitive arrays. This method is used by {@link
+     * #getCurrentResponseTimes(ClassLoader)} and {@link #getGlobalResponseTimes(ClassLoader)} and is not intended to be
+     * used directly.
+     *
+     * @return the encoded response times
+     */
+    public Map<String, long[]> exportResponseTimes() {
+
+        return ResponseTimeCodec.encodeResponseTimes(getResponseTimes());
+    }
+
+    /**
+     * Exports the statistics of all recorded response times in a form that can be passed across classloader
+     * boundaries. The exported form is a map of transaction names to compressed histograms. This method is used by
+     * {@link #getCurrentStatistics(ClassLoader)} and {@link #getGlobalStatistics(ClassLoader)} and is not intended to
+     * be used directly.
+     *
+     * @return the encoded statistics
+     */
+    public Map<String, byte[]> exportStatistics() {
+
+        return ResponseTimeCodec.encodeStatistics(getStatistics());
+    }
+
     /**
      * Collects response times collected by the current thread in another classloader hierarchy.
      * @param cl
@@ -308,7 +687,7 @@ public final class ResponseTimes {
      */
     public static Map<String, List<ResponseTime>> getCurrentResponseTimes(ClassLoader cl) {
 
-        return getResponseTimeObject(cl, "current");
+        return ResponseTimeCodec.decodeResponseTimes(export(cl, "current", "exportResponseTimes"));
     }
 
     /**
@@ -320,38 +699,59 @@ public final class ResponseTimes {
      */
     public static Map<String, List<ResponseTime>> getGlobalResponseTimes(ClassLoader cl) {
 
-        return getResponseTimeObject(cl, "global");
+        return ResponseTimeCodec.decodeResponseTimes(export(cl, "global", "exportResponseTimes"));
     }
 
-    private static Map<String, List<ResponseTime>> getResponseTimeObject(final ClassLoader cl,
-                                                                         final String methodName) {
+    /**
+     * Collects the statistics of the response times collected by the current thread in another classloader hierarchy.
+     * @param cl
+     *  the classloader from which the statistics should be collected
+     * @return
+     *  the collected statistics
+     */
+    public static Map<String, ResponseTimeStatistics> getCurrentStatistics(ClassLoader cl) {
 
-        try {
-            final Class<?> responseTimesClass = cl.loadClass(ResponseTimes.class.getName());
-            final Object oCurrent = responseTimesClass.getMethod(methodName).invoke(null);
-            final Object oResponseTimes = responseTimesClass.getMethod("getResponseTimes").invoke(oCurrent);
-            return transfer(oResponseTimes);
-        } catch (Exception e) {
-            LOG.error("Unable to retrieve response times", e);
-        }
-        return Collections.emptyMap();
+        return ResponseTimeCodec.decodeStatistics(export(cl, "current", "exportStatistics"));
     }
 
     /**
-     * Tansfers a given object by serializing and deserializing from one classloader hierarchy to another, given both
-     * classloader hierarchies contain the same classes.
+     * Collects the statistics of the response times collected by the global collector in another classloader
+     * hierarchy.
+     * @param cl
+     *  the classloader from which the statistics should be collected
+     * @return
+     *  the collected statistics
+     */
+    public static Map<String, ResponseTimeStatistics> getGlobalStatistics(ClassLoader cl) {
+
+        return ResponseTimeCodec.decodeStatistics(export(cl, "global", "exportStatistics"));
+    }
+
+    /**
+     * Invokes an export method on a collector of another classloader hierarchy. The exported data consists only of
+     * classes of the bootstrap classloader so it can be used in this classloader hierarchy without being transferred.
      *
-     * @param object
-     *         the Object to transfer
+     * @param cl
+     *         the classloader from which the data should be exported
+     * @param collectorName
+     *         the name of the static method to obtain the collector
+     * @param exportMethodName
+     *         the name of the method to export the data
      *
-     * @return the transferred object
+     * @return a modifiable map of the exported data or an empty map if the export failed
      */
-    private static <TARGET_TYPE> TARGET_TYPE transfer(Object object) throws IOException, ClassNotFoundException {
+    @SuppressWarnings("unchecked")
+    private static <T> Map<String, T> export(final ClassLoader cl,
+                                             final String collectorName,
+                                             final String exportMethodName) {
 
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        final ObjectOutputStream oos = new ObjectOutputStream(baos);
-        oos.writeObject(object);
-        final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
-        return (TARGET_TYPE) ois.readObject();
+        try {
+            final Class<?> responseTimesClass = cl.loadClass(ResponseTimes.class.getName());
+            final Object oCollector = responseTimesClass.getMethod(collectorName).invoke(null);
+            return (Map<String, T>) responseTimesClass.getMethod(exportMethodName).invoke(oCollector);
+        } catch (Exception e) {
+            LOG.error("Unable to retrieve response times", e);
+        }
+        return new HashMap<>();
     }
 }
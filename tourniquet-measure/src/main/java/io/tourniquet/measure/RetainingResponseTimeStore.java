@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Store retaining the finished response times of each transaction in a bounded buffer as defined by a {@link
+ * RetentionPolicy}. Unfinished response times are not retained.
+ */
+class RetainingResponseTimeStore implements ResponseTimeStore {
+
+    private final Map<String, RetentionBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final Supplier<RetentionBuffer> newBuffer;
+
+    /**
+     * Creates a new store.
+     *
+     * @param newBuffer
+     *         factory for the buffer of each transaction
+     */
+    RetainingResponseTimeStore(final Supplier<RetentionBuffer> newBuffer) {
+
+        this.newBuffer = newBuffer;
+    }
+
+    @Override
+    public void started(final ResponseTime responseTime) {
+        //only finished response times are retained
+    }
+
+    @Override
+    public void finished(final ResponseTime responseTime) {
+
+        buffer(responseTime.getTransaction()).add(responseTime);
+    }
+
+    @Override
+    public void record(final String transaction, final long startNanos, final long durationNanos) {
+
+        finished(new ResponseTime(transaction, NanoTime.toInstant(startNanos), Duration.ofNanos(durationNanos)));
+    }
+
+    private RetentionBuffer buffer(String transaction) {
+
+        final RetentionBuffer buffer = buffers.get(transaction);
+        if (buffer != null) {
+            return buffer;
+        }
+        return buffers.computeIfAbsent(transaction, tx -> newBuffer.get());
+    }
+
+    @Override
+    public Map<String, List<ResponseTime>> getResponseTimes() {
+
+        final Map<String, List<ResponseTime>> result = new HashMap<>();
+        buffers.forEach((tx, buffer) -> {
+            final List<ResponseTime> snapshot = buffer.snapshot();
+            if (!snapshot.isEmpty()) {
+                result.put(tx, snapshot);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        final Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        getResponseTimes().forEach((tx, rts) -> result.put(tx, aggregate(tx, rts)));
+        return result;
+    }
+
+    @Override
+    public Optional<ResponseTimeStatistics> getStatistics(final String transaction) {
+
+        return Optional.ofNullable(buffers.get(transaction))
+                       .map(RetentionBuffer::snapshot)
+                       .filter(rts -> !rts.isEmpty())
+                       .map(rts -> aggregate(transaction, rts));
+    }
+
+    private static ResponseTimeStatistics aggregate(String transaction, List<ResponseTime> responseTimes) {
+
+        final ResponseTimeAggregate aggregate = ResponseTimeAggregate.newAggregate();
+        responseTimes.forEach(aggregate::record);
+        return aggregate.toStatistics(transaction);
+    }
+
+    @Override
+    public void cleanup(final Consumer<Map<UUID, ResponseTime>> cleanupStrategy) {
+        //the retention policy takes care of evicting response times
+    }
+
+    @Override
+    public void clear() {
+
+        buffers.clear();
+    }
+}
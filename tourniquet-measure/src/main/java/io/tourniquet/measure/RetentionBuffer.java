@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.List;
+
+/**
+ * Buffer retaining the finished response times of a single transaction according to a {@link RetentionPolicy}.
+ * Implementations must be thread-safe.
+ */
+interface RetentionBuffer {
+
+    /**
+     * Adds a finished response time to the buffer, evicting other response times if necessary.
+     *
+     * @param responseTime
+     *         the response time to add
+     */
+    void add(ResponseTime responseTime);
+
+    /**
+     * Provides the response times currently retained by the buffer.
+     *
+     * @return a copy of the retained response times
+     */
+    List<ResponseTime> snapshot();
+}
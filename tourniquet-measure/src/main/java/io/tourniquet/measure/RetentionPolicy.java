@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Policy defining which of the finished response times of a transaction are retained in memory in the {@link
+ * CollectionMode#RAW} collection mode. Except for the {@link #unlimited()} policy, every policy bounds the number of
+ * response times kept per transaction and evicts response times as new ones are recorded, so that no periodic
+ * cleanup is required.
+ */
+public abstract class RetentionPolicy {
+
+    private static final RetentionPolicy UNLIMITED = new RetentionPolicy() {
+
+        @Override
+        ResponseTimeStore newStore() {
+
+            return new RawResponseTimeStore();
+        }
+
+        @Override
+        public String toString() {
+
+            return "RetentionPolicy{unlimited}";
+        }
+    };
+
+    private static final RetentionPolicy NONE = new RetentionPolicy() {
+
+        @Override
+        ResponseTimeStore newStore() {
+
+            return new DiscardingResponseTimeStore();
+        }
+
+        @Override
+        public String toString() {
+
+            return "RetentionPolicy{none}";
+        }
+    };
+
+    RetentionPolicy() {
+
+    }
+
+    /**
+     * Policy to retain no response times at all. Use this policy if the response times are processed solely by a
+     * consumer, i.e. a {@link ResponseTimeLogWriter}, that is registered using {@link
+     * ResponseTimes#onMeasureEnd(java.util.function.Consumer)}.
+     *
+     * @return the policy to retain no response times
+     */
+    public static RetentionPolicy none() {
+
+        return NONE;
+    }
+
+    /**
+     * Policy to retain all response times, including unfinished ones. This is the default policy. Without defining a
+     * cleanup strategy, the response times have to be cleared manually.
+     *
+     * @return the policy to retain all response times
+     */
+    public static RetentionPolicy unlimited() {
+
+        return UNLIMITED;
+    }
+
+    /**
+     * Policy to retain only the latest response times of each transaction. The response times are kept in a ring
+     * buffer of fixed capacity per transaction, overwriting the oldest response time when the buffer is full.
+     *
+     * @param capacity
+     *         the maximum number of response times retained per transaction
+     *
+     * @return the policy to retain the latest response times
+     */
+    public static RetentionPolicy latest(int capacity) {
+
+        requirePositive(capacity);
+        return new Bounded("latest=" + capacity, () -> new RingRetentionBuffer(capacity));
+    }
+
+    /**
+     * Policy to retain only the response times of each transaction that finished within a sliding time window.
+     * Response times that finished before the window are evicted.
+     *
+     * @param window
+     *         the duration of the time window, i.e. the last 5 minutes
+     *
+     * @return the policy to retain the response times of the time window
+     */
+    public static RetentionPolicy timeWindow(Duration window) {
+
+        return timeWindow(window, Clock.systemUTC());
+    }
+
+    static RetentionPolicy timeWindow(Duration window, Clock clock) {
+
+        Objects.requireNonNull(window, "Window must not be null");
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive, but was " + window);
+        }
+        return new Bounded("timeWindow=" + window, () -> new TimeWindowRetentionBuffer(window, clock));
+    }
+
+    /**
+     * Policy to retain a uniform random sample of the response times of each transaction. Every recorded response
+     * time of a transaction has the same probability of being retained, regardless of when it was recorded.
+     *
+     * @param size
+     *         the maximum number of response times retained per transaction
+     *
+     * @return the policy to retain a random sample of response times
+     */
+    public static RetentionPolicy reservoir(int size) {
+
+        requirePositive(size);
+        return new Bounded("reservoir=" + size, () -> new ReservoirRetentionBuffer(size));
+    }
+
+    private static void requirePositive(int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+        }
+    }
+
+    /**
+     * Creates a new store retaining the response times according to this policy.
+     *
+     * @return a new, empty store
+     */
+    abstract ResponseTimeStore newStore();
+
+    /**
+     * Policy retaining the response times of each transaction in a bounded {@link RetentionBuffer}.
+     */
+    private static final class Bounded extends RetentionPolicy {
+
+        private final String description;
+        private final Supplier<RetentionBuffer> buffers;
+
+        Bounded(final String description, final Supplier<RetentionBuffer> buffers) {
+
+            this.description = description;
+            this.buffers = buffers;
+        }
+
+        @Override
+        ResponseTimeStore newStore() {
+
+            return new RetainingResponseTimeStore(buffers);
+        }
+
+        @Override
+        public String toString() {
+
+            return "RetentionPolicy{" + description + '}';
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of fixed capacity retaining the latest response times. When the buffer is full, the oldest response
+ * time is overwritten.
+ */
+class RingRetentionBuffer implements RetentionBuffer {
+
+    private final ResponseTime[] ring;
+    private long count;
+
+    RingRetentionBuffer(int capacity) {
+
+        this.ring = new ResponseTime[capacity];
+    }
+
+    @Override
+    public synchronized void add(final ResponseTime responseTime) {
+
+        ring[(int) (count++ % ring.length)] = responseTime;
+    }
+
+    @Override
+    public synchronized List<ResponseTime> snapshot() {
+
+        final int size = (int) Math.min(count, ring.length);
+        final List<ResponseTime> result = new ArrayList<>(size);
+        final long oldest = count - size;
+        for (long i = oldest; i < count; i++) {
+            result.add(ring[(int) (i % ring.length)]);
+        }
+        return result;
+    }
+}
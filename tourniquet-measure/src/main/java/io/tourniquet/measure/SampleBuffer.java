@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+/**
+ * Fixed-capacity buffer of response time samples backed by preallocated primitive arrays. Adding a sample to the
+ * buffer does not allocate any objects. The buffer is not thread-safe and must only be used by a single thread.
+ */
+final class SampleBuffer {
+
+    private final int[] transactions;
+    private final long[] starts;
+    private final long[] durations;
+    private int size;
+
+    /**
+     * Creates a new sample buffer
+     *
+     * @param capacity
+     *         the maximum number of samples the buffer can hold
+     */
+    SampleBuffer(int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+        }
+        this.transactions = new int[capacity];
+        this.starts = new long[capacity];
+        this.durations = new long[capacity];
+    }
+
+    /**
+     * Adds a sample to the buffer. The buffer must not be full.
+     *
+     * @param transactionId
+     *         the id of the transaction
+     * @param startNanos
+     *         the start of the transaction as value of {@link System#nanoTime()}
+     * @param durationNanos
+     *         the duration of the transaction in nanoseconds
+     *
+     * @return <code>true</code> if the buffer is full after adding the sample
+     */
+    boolean add(int transactionId, long startNanos, long durationNanos) {
+
+        transactions[size] = transactionId;
+        starts[size] = startNanos;
+        durations[size] = durationNanos;
+        return ++size == transactions.length;
+    }
+
+    /**
+     * Writes all buffered samples to the response times collection and empties the buffer.
+     *
+     * @param responseTimes
+     *         the collection to write the samples to
+     */
+    void drainTo(ResponseTimes responseTimes) {
+
+        for (int i = 0; i < size; i++) {
+            responseTimes.collect(transactions[i], starts[i], durations[i]);
+        }
+        size = 0;
+    }
+
+    /**
+     * The number of buffered samples.
+     *
+     * @return the number of samples in the buffer
+     */
+    int size() {
+
+        return size;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded ring buffer that is written by a single thread and consumed by any thread. Each entry consists of a kind,
+ * an object and two primitive values, so that measures can be buffered without creating objects for them. Only one
+ * thread at a time consumes the entries, concurrent consumers do not block but return immediately.
+ * <br>
+ * The buffer keeps a weak reference to the thread writing into it, so that buffers of terminated threads can be
+ * drained and discarded.
+ */
+final class SingleWriterBuffer {
+
+    /**
+     * Consumer of the entries of a buffer.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+
+        void accept(byte kind, Object item, long first, long second);
+    }
+
+    private final WeakReference<Thread> owner;
+
+    private final int mask;
+    private final byte[] kinds;
+    private final Object[] items;
+    private final long[] firsts;
+    private final long[] seconds;
+
+    /**
+     * Position of the next entry to be consumed.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Position of the next entry to be written.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Creates a new buffer for the specified thread.
+     *
+     * @param owner
+     *         the thread writing into the buffer
+     * @param capacity
+     *         the number of entries of the buffer, it is rounded up to the next power of 2
+     */
+    SingleWriterBuffer(Thread owner, int capacity) {
+
+        final int size = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.owner = new WeakReference<>(owner);
+        this.mask = size - 1;
+        this.kinds = new byte[size];
+        this.items = new Object[size];
+        this.firsts = new long[size];
+        this.seconds = new long[size];
+    }
+
+    /**
+     * Appends an entry to the buffer. This method must only be invoked by the owning thread.
+     *
+     * @return <code>true</code> if the entry was appended, <code>false</code> if the buffer is full
+     */
+    boolean offer(byte kind, Object item, long first, long second) {
+
+        final long t = tail.get();
+        if (t - head.get() == items.length) {
+            return false;
+        }
+        final int index = (int) (t & mask);
+        kinds[index] = kind;
+        items[index] = item;
+        firsts[index] = first;
+        seconds[index] = second;
+        //publishes the entry to the consumer
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Orders the publication of all entries offered so far before any subsequent read of a volatile field by the
+     * owner thread. Only required if the owner has to check a condition set by another thread after publishing an
+     * entry, i.e. whether the buffer is still consumed.
+     */
+    void fence() {
+
+        tail.set(tail.get());
+    }
+
+    /**
+     * Passes published entries to the consumer and removes them from the buffer.
+     *
+     * @param consumer
+     *         the consumer of the entries
+     * @param max
+     *         the maximum number of entries to consume
+     *
+     * @return the number of consumed entries or -1 if another thread is currently consuming the buffer
+     */
+    int drainTo(EntryConsumer consumer, int max) {
+
+        if (!draining.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            final long t = tail.get();
+            long h = head.get();
+            int count = 0;
+            while (h < t && count < max) {
+                final int index = (int) (h & mask);
+                final byte kind = kinds[index];
+                final Object item = items[index];
+                final long first = firsts[index];
+                final long second = seconds[index];
+                items[index] = null;
+                h++;
+                count++;
+                //frees the slot for the writer before the consumer is invoked, in case the consumer fails
+                head.lazySet(h);
+                consumer.accept(kind, item, first, second);
+            }
+            return count;
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Passes all published entries to the consumer, waiting for a concurrent consumer to finish first.
+     *
+     * @param consumer
+     *         the consumer of the entries
+     */
+    void drainFully(EntryConsumer consumer) {
+
+        while (drainTo(consumer, Integer.MAX_VALUE) < 0) {
+            Thread.yield();
+        }
+    }
+
+    int capacity() {
+
+        return items.length;
+    }
+
+    long size() {
+
+        return tail.get() - head.get();
+    }
+
+    boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * Indicates whether the thread that owned this buffer has terminated.
+     *
+     * @return <code>true</code> if the thread will not write any more entries into the buffer
+     */
+    boolean isOrphaned() {
+
+        final Thread thread = owner.get();
+        return thread == null || !thread.isAlive();
+    }
+}
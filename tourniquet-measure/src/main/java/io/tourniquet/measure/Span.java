@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * A transaction within a hierarchy of transactions recorded by a {@link ResponseTimeCollector}. A span that is started
+ * while another span is open becomes a child of that span. The total time of a span is the duration of the transaction,
+ * the self time is the total time minus the total time of all child spans that finished before the span, that is the
+ * time spent in the transaction itself.
+ */
+public final class Span {
+
+    /**
+     * Separator of the transaction names in the path of a span
+     */
+    public static final char PATH_SEPARATOR = '/';
+
+    private final Span parent;
+    private final String path;
+    private ResponseTime responseTime;
+    private long childNanos;
+    /**
+     * The Flight Recorder event of the span, <code>null</code> if no event is recorded
+     */
+    private final Object event;
+
+    Span(final ResponseTime responseTime, final Span parent) {
+
+        this.responseTime = responseTime;
+        this.parent = parent;
+        this.path = parent == null
+                    ? responseTime.getTransaction()
+                    : parent.getPath() + PATH_SEPARATOR + responseTime.getTransaction();
+        this.event = TransactionEvents.begin(responseTime.getTransaction(), path);
+    }
+
+    /**
+     * The name of the transaction of this span
+     *
+     * @return the transaction name
+     */
+    public String getTransaction() {
+
+        return responseTime.getTransaction();
+    }
+
+    /**
+     * The span that was open when this span was started.
+     *
+     * @return the parent span or the empty optional if this span is a root span
+     */
+    public Optional<Span> getParent() {
+
+        return Optional.ofNullable(parent);
+    }
+
+    /**
+     * The path of the span consisting of the transaction names of all parent spans and this span, separated by {@link
+     * #PATH_SEPARATOR}
+     *
+     * @return the path of the span
+     */
+    public String getPath() {
+
+        return path;
+    }
+
+    /**
+     * The response time of the transaction of this span.
+     *
+     * @return the response time, which is unfinished as long as the span is open
+     */
+    public ResponseTime getResponseTime() {
+
+        return responseTime;
+    }
+
+    /**
+     * The start of the span
+     *
+     * @return the start time
+     */
+    public Instant getStart() {
+
+        return responseTime.getStart();
+    }
+
+    /**
+     * Indicates whether the span is finished
+     *
+     * @return <code>true</code> if the span is finished
+     */
+    public boolean isFinished() {
+
+        return responseTime.isFinished();
+    }
+
+    /**
+     * The total time of the span, including the time of its child spans
+     *
+     * @return the duration of the span or {@link TimeMeasure#NEGATIVE} if the span is not finished
+     */
+    public Duration getTotalTime() {
+
+        return responseTime.getDuration();
+    }
+
+    /**
+     * The time spent in the span itself, excluding the time of the child spans that finished before this span.
+     *
+     * @return the self time of the span or {@link TimeMeasure#NEGATIVE} if the span is not finished
+     */
+    public Duration getSelfTime() {
+
+        if (!isFinished()) {
+            return TimeMeasure.NEGATIVE;
+        }
+        return Duration.ofNanos(Math.max(0L, responseTime.getDuration().toNanos() - childNanos));
+    }
+
+    /**
+     * Finishes the span and adds its total time to the child time of the parent span, if the parent is not yet
+     * finished. The Flight Recorder event of the span is committed.
+     *
+     * @param end
+     *         the end of the span
+     *
+     * @return the finished response time of the span
+     */
+    ResponseTime finish(Instant end) {
+
+        responseTime = responseTime.finish(end);
+        TransactionEvents.end(event);
+        if (parent != null && !parent.isFinished()) {
+            parent.childNanos += responseTime.getDuration().toNanos();
+        }
+        return responseTime;
+    }
+
+    @Override
+    public String toString() {
+
+        return "Span{path='" + path + "', start=" + getStart() + ", total=" + getTotalTime() + ", self="
+                + getSelfTime() + '}';
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+/**
+ * Incremental aggregation of the total and self time of all spans with the same path.
+ */
+final class SpanAggregate {
+
+    private final String path;
+    private final String parentPath;
+    private final String transaction;
+    private final ResponseTimeAggregate totalTime = ResponseTimeAggregate.newConcurrentAggregate();
+    private final ResponseTimeAggregate selfTime = ResponseTimeAggregate.newConcurrentAggregate();
+
+    SpanAggregate(final Span span) {
+
+        this.path = span.getPath();
+        this.parentPath = span.getParent().map(Span::getPath).orElse(null);
+        this.transaction = span.getTransaction();
+    }
+
+    /**
+     * Records a finished span
+     *
+     * @param span
+     *         the span to record
+     */
+    void record(Span span) {
+
+        final long start = NanoTime.toEpochNanos(span.getStart());
+        totalTime.record(start, span.getTotalTime().toNanos());
+        selfTime.record(start, span.getSelfTime().toNanos());
+    }
+
+    /**
+     * Creates an immutable snapshot of the aggregate
+     *
+     * @return the statistics of the recorded spans
+     */
+    SpanStatistics toStatistics() {
+
+        return new SpanStatistics(path,
+                                  parentPath,
+                                  totalTime.toStatistics(transaction),
+                                  selfTime.toStatistics(transaction));
+    }
+}
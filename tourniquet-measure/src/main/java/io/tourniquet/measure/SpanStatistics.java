@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.util.Optional;
+
+/**
+ * Aggregated statistics of all spans with the same path. The statistics distinguish between the total time of the
+ * spans, including the time of nested spans, and the self time, the time spent in the spans themselves.
+ */
+public final class SpanStatistics {
+
+    private final String path;
+    private final String parentPath;
+    private final ResponseTimeStatistics totalTime;
+    private final ResponseTimeStatistics selfTime;
+
+    SpanStatistics(final String path,
+                   final String parentPath,
+                   final ResponseTimeStatistics totalTime,
+                   final ResponseTimeStatistics selfTime) {
+
+        this.path = path;
+        this.parentPath = parentPath;
+        this.totalTime = totalTime;
+        this.selfTime = selfTime;
+    }
+
+    /**
+     * The path of the spans
+     *
+     * @return the path consisting of the transaction names of the parent spans and the spans, separated by {@link
+     * Span#PATH_SEPARATOR}
+     */
+    public String getPath() {
+
+        return path;
+    }
+
+    /**
+     * The name of the transaction of the spans, that is the last element of the path
+     *
+     * @return the name of the transaction
+     */
+    public String getTransaction() {
+
+        return totalTime.getTransaction();
+    }
+
+    /**
+     * The path of the parent spans.
+     *
+     * @return the path of the parent spans or the empty optional if the spans are root spans
+     */
+    public Optional<String> getParentPath() {
+
+        return Optional.ofNullable(parentPath);
+    }
+
+    /**
+     * The statistics of the total time of the spans
+     *
+     * @return the statistics of the total time
+     */
+    public ResponseTimeStatistics getTotalTime() {
+
+        return totalTime;
+    }
+
+    /**
+     * The statistics of the self time of the spans
+     *
+     * @return the statistics of the self time
+     */
+    public ResponseTimeStatistics getSelfTime() {
+
+        return selfTime;
+    }
+
+    @Override
+    public String toString() {
+
+        return "SpanStatistics{path='" + path + "', total=" + totalTime + ", self=" + selfTime + '}';
+    }
+}
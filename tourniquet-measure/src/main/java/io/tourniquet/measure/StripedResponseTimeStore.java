@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Store for response times that are recorded by many threads concurrently. Every recording thread writes into its own
+ * stripe, a bounded {@link SingleWriterBuffer}, so that recording threads never contend with each other. The stripes
+ * are merged into a central store when the response times are read, or by the writing thread itself when its stripe is
+ * full.
+ * <br>
+ * Stripes of terminated threads are removed when they are merged. As threads may be short-lived, i.e. one virtual
+ * thread per task, the stripes are also merged whenever the number of stripes has doubled since the last merge, so
+ * that the stripes of terminated threads do not pile up until the response times are read.
+ */
+class StripedResponseTimeStore implements ResponseTimeStore {
+
+    /**
+     * Number of entries a single stripe can buffer before it has to be merged into the central store. Must be a power
+     * of 2.
+     */
+    static final int STRIPE_CAPACITY = 256;
+
+    /**
+     * Number of stripes that may be registered before the stripes of terminated threads are removed.
+     */
+    static final int MIN_REAP_THRESHOLD = 64;
+
+    private static final byte STARTED = 1;
+    private static final byte FINISHED = 2;
+    private static final byte RECORDED = 3;
+
+    /**
+     * The central store into which the stripes are merged
+     */
+    private final ResponseTimeStore central;
+
+    private final Set<SingleWriterBuffer> stripes = ConcurrentHashMap.newKeySet();
+
+    private final ThreadLocal<SingleWriterBuffer> localStripe = ThreadLocal.withInitial(this::newStripe);
+
+    /**
+     * Number of stripes at which registering a new stripe merges all stripes
+     */
+    private volatile int reapThreshold = MIN_REAP_THRESHOLD;
+
+    StripedResponseTimeStore(final ResponseTimeStore central) {
+
+        this.central = central;
+    }
+
+    private SingleWriterBuffer newStripe() {
+
+        final SingleWriterBuffer stripe = new SingleWriterBuffer(Thread.currentThread(), STRIPE_CAPACITY);
+        stripes.add(stripe);
+        if (stripes.size() >= reapThreshold) {
+            merge();
+            reapThreshold = Math.max(MIN_REAP_THRESHOLD, stripes.size() * 2);
+        }
+        return stripe;
+    }
+
+    @Override
+    public void started(final ResponseTime responseTime) {
+
+        append(STARTED, responseTime, 0L, 0L);
+    }
+
+    @Override
+    public void finished(final ResponseTime responseTime) {
+
+        append(FINISHED, responseTime, 0L, 0L);
+    }
+
+    @Override
+    public void record(final String transaction, final long startNanos, final long durationNanos) {
+
+        append(RECORDED, transaction, startNanos, durationNanos);
+    }
+
+    /**
+     * Appends an entry to the stripe of the current thread. If the stripe is full, the current thread merges the stripe
+     * into the central store before appending.
+     */
+    private void append(byte kind, Object item, long start, long duration) {
+
+        final SingleWriterBuffer stripe = localStripe.get();
+        while (!stripe.offer(kind, item, start, duration)) {
+            if (stripe.drainTo(this::mergeEntry, Integer.MAX_VALUE) < 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, List<ResponseTime>> getResponseTimes() {
+
+        merge();
+        return central.getResponseTimes();
+    }
+
+    @Override
+    public Map<String, ResponseTimeStatistics> getStatistics() {
+
+        merge();
+        return central.getStatistics();
+    }
+
+    @Override
+    public Optional<ResponseTimeStatistics> getStatistics(final String transaction) {
+
+        merge();
+        return central.getStatistics(transaction);
+    }
+
+    @Override
+    public void cleanup(final Consumer<Map<UUID, ResponseTime>> cleanupStrategy) {
+
+        merge();
+        central.cleanup(cleanupStrategy);
+    }
+
+    @Override
+    public void clear() {
+
+        stripes.forEach(stripe -> stripe.drainFully((kind, item, start, duration) -> { }));
+        central.clear();
+    }
+
+    /**
+     * Merges the entries of all stripes into the central store. Stripes of terminated threads are removed once they are
+     * merged.
+     */
+    void merge() {
+
+        stripes.forEach(stripe -> {
+            stripe.drainFully(this::mergeEntry);
+            if (stripe.isOrphaned() && stripe.isEmpty()) {
+                stripes.remove(stripe);
+            }
+        });
+    }
+
+    private void mergeEntry(byte kind, Object item, long start, long duration) {
+
+        switch (kind) {
+            case STARTED:
+                central.started((ResponseTime) item);
+                break;
+            case FINISHED:
+                central.finished((ResponseTime) item);
+                break;
+            case RECORDED:
+                central.record((String) item, start, duration);
+                break;
+            default:
+                throw new IllegalStateException("Unknown entry kind " + kind);
+        }
+    }
+
+    /**
+     * The number of stripes currently registered.
+     *
+     * @return the number of stripes
+     */
+    int getStripeCount() {
+
+        return stripes.size();
+    }
+}
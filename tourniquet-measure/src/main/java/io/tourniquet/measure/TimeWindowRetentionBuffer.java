@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Buffer retaining the response times that finished within a sliding time window. The response times are kept in
+ * the order they finished, so expired response times are evicted from the head of the buffer. Response times are
+ * usually added in that order. Response times that are added out of order, i.e. when finished concurrently or merged
+ * from the buffers of multiple threads, are inserted at the position of their end.
+ */
+class TimeWindowRetentionBuffer implements RetentionBuffer {
+
+    private final Deque<ResponseTime> window = new ArrayDeque<>();
+    private final Duration duration;
+    private final Clock clock;
+
+    TimeWindowRetentionBuffer(Duration duration, Clock clock) {
+
+        this.duration = duration;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void add(final ResponseTime responseTime) {
+
+        final Instant end = end(responseTime);
+        if (window.isEmpty() || !end.isBefore(end(window.peekLast()))) {
+            window.addLast(responseTime);
+        } else {
+            final Deque<ResponseTime> later = new ArrayDeque<>();
+            while (!window.isEmpty() && end.isBefore(end(window.peekLast()))) {
+                later.push(window.removeLast());
+            }
+            window.addLast(responseTime);
+            window.addAll(later);
+        }
+        evictExpired();
+    }
+
+    @Override
+    public synchronized List<ResponseTime> snapshot() {
+
+        evictExpired();
+        return new ArrayList<>(window);
+    }
+
+    private void evictExpired() {
+
+        final Instant threshold = clock.instant().minus(duration);
+        while (!window.isEmpty() && end(window.peekFirst()).isBefore(threshold)) {
+            window.removeFirst();
+        }
+    }
+
+    private static Instant end(ResponseTime responseTime) {
+
+        return responseTime.getStart().plus(responseTime.getDuration());
+    }
+}
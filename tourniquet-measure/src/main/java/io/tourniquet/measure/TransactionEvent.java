@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of a transaction recorded by a {@link ResponseTimeCollector}. The event spans the
+ * duration of the transaction and is recorded in the thread executing the transaction, so that the transaction can be
+ * correlated with other events of a recording, such as garbage collections, lock contention or I/O. This class must
+ * only be accessed via {@link TransactionEvents} as it can not be loaded on JVMs without Flight Recorder.
+ */
+@Name(TransactionEvent.NAME)
+@Label("Transaction")
+@Category("Tourniquet")
+@Description("A transaction measured by Tourniquet")
+@StackTrace(false)
+final class TransactionEvent extends Event {
+
+    /**
+     * The name of the event type
+     */
+    static final String NAME = "io.tourniquet.Transaction";
+
+    /**
+     * The registered type of the event. Its enablement is maintained by Flight Recorder, so it can be checked before
+     * an event is allocated.
+     */
+    private static final EventType TYPE = EventType.getEventType(TransactionEvent.class);
+
+    @Label("Transaction")
+    @Description("The name of the transaction")
+    String transaction;
+
+    @Label("Path")
+    @Description("The names of the enclosing transactions and the transaction itself")
+    String path;
+
+    /**
+     * Begins an event for a transaction if the event type is enabled in a running recording.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param path
+     *         the path of the transaction
+     *
+     * @return the begun event or <code>null</code> if the event type is not enabled
+     */
+    static Object begin(String transaction, String path) {
+
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final TransactionEvent event = new TransactionEvent();
+        event.transaction = transaction;
+        event.path = path;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins an event for a transaction started by id if the event type is enabled in a running recording. No object
+     * is allocated if the event type is not enabled.
+     *
+     * @param transactionId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     *
+     * @return the begun event or <code>null</code> if the event type is not enabled
+     */
+    static Object begin(int transactionId) {
+
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final TransactionEvent event = new TransactionEvent();
+        event.transaction = TransactionRegistry.nameOf(transactionId);
+        event.path = event.transaction;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits an event.
+     *
+     * @param event
+     *         an event returned by {@link #begin(String, String)}
+     */
+    static void commit(Object event) {
+
+        ((TransactionEvent) event).commit();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+/**
+ * Emits Java Flight Recorder events for transactions. The events are only emitted if the JVM supports Flight Recorder
+ * and the event type {@value TransactionEvent#NAME} is enabled in a running recording, otherwise beginning an event
+ * has nearly no cost. Flight Recorder events can be turned off completely by setting the system property {@value
+ * #DISABLED_PROPERTY} to <code>true</code>.
+ */
+final class TransactionEvents {
+
+    /**
+     * System property to disable the Flight Recorder events
+     */
+    static final String DISABLED_PROPERTY = "tourniquet.jfr.disabled";
+
+    /**
+     * Indicates whether Flight Recorder is available and events are not disabled. If not available, the {@link
+     * TransactionEvent} class is never loaded.
+     */
+    static final boolean AVAILABLE = isAvailable();
+
+    private TransactionEvents() {
+
+    }
+
+    private static boolean isAvailable() {
+
+        if (Boolean.getBoolean(DISABLED_PROPERTY)) {
+            return false;
+        }
+        try {
+            Class.forName("jdk.jfr.Event", false, TransactionEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Begins an event for a transaction.
+     *
+     * @param transaction
+     *         the name of the transaction
+     * @param path
+     *         the path of the transaction within its enclosing transactions
+     *
+     * @return a handle for the event that has to be passed to {@link #end(Object)} or <code>null</code> if no event
+     * is recorded
+     */
+    static Object begin(String transaction, String path) {
+
+        return AVAILABLE ? TransactionEvent.begin(transaction, path) : null;
+    }
+
+    /**
+     * Begins an event for a transaction started by id. The name of the transaction is only resolved if the event is
+     * recorded.
+     *
+     * @param transactionId
+     *         the id of the transaction as provided by the {@link TransactionRegistry}
+     *
+     * @return a handle for the event that has to be passed to {@link #end(Object)} or <code>null</code> if no event
+     * is recorded
+     */
+    static Object begin(int transactionId) {
+
+        return AVAILABLE ? TransactionEvent.begin(transactionId) : null;
+    }
+
+    /**
+     * Ends the event of a transaction.
+     *
+     * @param event
+     *         the handle returned by {@link #begin(String, String)}, may be <code>null</code>
+     */
+    static void end(Object event) {
+
+        if (event != null) {
+            TransactionEvent.commit(event);
+        }
+    }
+}
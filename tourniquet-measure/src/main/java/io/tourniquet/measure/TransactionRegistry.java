@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of interned transaction names. Every transaction name is associated with a unique, dense numeric id that
+ * can be used for the allocation-free recording of response times. The ids are stable for the lifetime of the
+ * classloader that loaded this class.
+ * <br>
+ * Typical usage is to determine the id of a transaction once and use it for every measurement:
+ * <pre>
+ *     private static final int LOGIN = TransactionRegistry.idOf("login");
+ * </pre>
+ */
+public final class TransactionRegistry {
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private static volatile String[] names = new String[64];
+
+    private static int size;
+
+    private TransactionRegistry() {
+
+    }
+
+    /**
+     * Determines the id of a transaction. If the transaction is not yet registered, it is registered with a new id.
+     *
+     * @param transaction
+     *         the name of the transaction
+     *
+     * @return the id of the transaction
+     */
+    public static int idOf(String transaction) {
+
+        Objects.requireNonNull(transaction, "Transaction must not be null");
+        final Integer id = IDS.get(transaction);
+        if (id != null) {
+            return id;
+        }
+        return register(transaction);
+    }
+
+    /**
+     * Determines the name of a transaction by its id.
+     *
+     * @param id
+     *         the id of the transaction as returned by {@link #idOf(String)}
+     *
+     * @return the name of the transaction
+     *
+     * @throws IllegalArgumentException
+     *         if no transaction with the specified id is registered
+     */
+    public static String nameOf(int id) {
+
+        final String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("No transaction registered for id " + id);
+        }
+        return current[id];
+    }
+
+    private static synchronized int register(String transaction) {
+
+        final Integer existing = IDS.get(transaction);
+        if (existing != null) {
+            return existing;
+        }
+        final int id = size++;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = transaction;
+        //the volatile write publishes the name before the id is visible to other threads
+        names = current;
+        IDS.put(transaction, id);
+        return id;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+/**
+ * Matcher verifying a single statistical value of a transaction recorded in {@link ResponseTimes}. The value is
+ * derived from the aggregated {@link ResponseTimeStatistics} of the transaction, which are taken from the
+ * continuously maintained aggregate of that transaction, so the matcher does not have to process the individual
+ * response times. The statistics are obtained once per match.
+ *
+ * @param <T>
+ *         the type of the statistical value
+ */
+final class TransactionStatisticsMatcher<T> extends TypeSafeDiagnosingMatcher<ResponseTimes> {
+
+    private final String feature;
+    private final String transaction;
+    private final BiFunction<ResponseTimes, ResponseTimeStatistics, T> valueFunction;
+    private final Matcher<? super T> valueMatcher;
+
+    /**
+     * @param feature
+     *         a description of the statistical value, i.e. "p99"
+     * @param transaction
+     *         the name of the transaction
+     * @param valueFunction
+     *         the function to determine the statistical value
+     * @param valueMatcher
+     *         the matcher for the statistical value
+     */
+    TransactionStatisticsMatcher(final String feature,
+                                 final String transaction,
+                                 final BiFunction<ResponseTimes, ResponseTimeStatistics, T> valueFunction,
+                                 final Matcher<? super T> valueMatcher) {
+
+        this.feature = feature;
+        this.transaction = transaction;
+        this.valueFunction = valueFunction;
+        this.valueMatcher = valueMatcher;
+    }
+
+    @Override
+    protected boolean matchesSafely(final ResponseTimes responseTimes, final Description mismatch) {
+
+        final Optional<ResponseTimeStatistics> stats = responseTimes.getStatistics(transaction);
+        if (!stats.isPresent()) {
+            mismatch.appendText("no response times of transaction ").appendValue(transaction).appendText(" recorded");
+            return false;
+        }
+        final T value = valueFunction.apply(responseTimes, stats.get());
+        if (!valueMatcher.matches(value)) {
+            mismatch.appendText(feature).appendText(" of transaction ").appendValue(transaction).appendText(" ");
+            valueMatcher.describeMismatch(value, mismatch);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void describeTo(final Description description) {
+
+        description.appendText(feature)
+                   .appendText(" of transaction ")
+                   .appendValue(transaction)
+                   .appendText(" ")
+                   .appendDescriptionOf(valueMatcher);
+    }
+}
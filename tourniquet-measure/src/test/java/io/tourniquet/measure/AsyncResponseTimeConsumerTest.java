@@ -0,0 +1,273 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link AsyncResponseTimeConsumer}
+ */
+public class AsyncResponseTimeConsumerTest {
+
+    /**
+     * The class under test
+     */
+    private AsyncResponseTimeConsumer subject;
+
+    @After
+    public void tearDown() throws Exception {
+        if (subject != null) {
+            subject.close();
+        }
+        ResponseTimes.current().onMeasureEnd(null);
+        ResponseTimes.current().clear();
+    }
+
+    @Test
+    public void testAccept_dispatchedOnBackgroundThread() throws Exception {
+        //prepare
+        List<ResponseTime> received = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        subject = AsyncResponseTimeConsumer.of(rt -> {
+            received.add(rt);
+            threads.add(Thread.currentThread());
+        }).start();
+        ResponseTime rt = new ResponseTime("tx", Instant.now(), Duration.ofMillis(10));
+
+        //act
+        subject.accept(rt);
+        subject.accept("tx2", NanoTime.toEpochNanos(Instant.now()), 20_000_000L);
+
+        //assert
+        assertTrue(subject.flush(Duration.ofSeconds(5)));
+        assertEquals(2, received.size());
+        assertSame(rt, received.get(0));
+        assertEquals("tx2", received.get(1).getTransaction());
+        assertEquals(Duration.ofMillis(20), received.get(1).getDuration());
+        assertNotEquals(Thread.currentThread(), threads.get(0));
+        assertEquals(2, subject.getDispatchedCount());
+        assertEquals(0, subject.getPendingCount());
+    }
+
+    @Test
+    public void testAccept_batches() throws Exception {
+        //prepare
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        subject = AsyncResponseTimeConsumer.batching(batch -> batchSizes.add(batch.size())).withBatchSize(4);
+
+        //act
+        for (int i = 0; i < 10; i++) {
+            subject.accept("tx", 0L, i);
+        }
+        subject.start();
+
+        //assert
+        assertTrue(subject.flush(Duration.ofSeconds(5)));
+        assertEquals(3, batchSizes.size());
+        assertEquals(Integer.valueOf(4), batchSizes.get(0));
+        assertEquals(Integer.valueOf(4), batchSizes.get(1));
+        assertEquals(Integer.valueOf(2), batchSizes.get(2));
+    }
+
+    @Test
+    public void testAccept_dropWhenFull() throws Exception {
+        //prepare
+        //the consumer is not started, so no response time is dispatched
+        subject = AsyncResponseTimeConsumer.of(rt -> {})
+                                           .withCapacity(4)
+                                           .withBatchSize(1)
+                                           .withOverflowPolicy(AsyncResponseTimeConsumer.OverflowPolicy.DROP);
+
+        //act
+        for (int i = 0; i < 10; i++) {
+            subject.accept("tx", 0L, i);
+        }
+
+        //assert
+        assertEquals(6, subject.getDroppedCount());
+        assertEquals(4, subject.getPendingCount());
+    }
+
+    @Test
+    public void testAccept_blockWhenFull() throws Exception {
+        //prepare
+        List<ResponseTime> received = Collections.synchronizedList(new ArrayList<>());
+        subject = AsyncResponseTimeConsumer.of(received::add).withCapacity(2).start();
+
+        //act
+        for (int i = 0; i < 100; i++) {
+            subject.accept("tx", 0L, i);
+        }
+
+        //assert
+        assertTrue(subject.flush(Duration.ofSeconds(5)));
+        assertEquals(100, received.size());
+        assertEquals(0, subject.getDroppedCount());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testAccept_blockWhenFull_notStarted() throws Exception {
+        //prepare
+        List<ResponseTime> received = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        subject = AsyncResponseTimeConsumer.of(rt -> {
+            received.add(rt);
+            threads.add(Thread.currentThread());
+        }).withCapacity(2);
+
+        //act
+        for (int i = 0; i < 10; i++) {
+            subject.accept("tx", 0L, i);
+        }
+
+        //assert
+        assertEquals(8, received.size());
+        assertEquals(2, subject.getPendingCount());
+        assertEquals(0, subject.getDroppedCount());
+        assertEquals(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void testClose_concurrentProducers_noResponseTimeLost() throws Exception {
+        //prepare
+        List<ResponseTime> received = Collections.synchronizedList(new ArrayList<>());
+        subject = AsyncResponseTimeConsumer.of(received::add).withCapacity(16).start();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    subject.accept("tx", 0L, i);
+                }
+            });
+        }
+
+        //act
+        subject.close();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        //assert
+        assertEquals(40_000, received.size() + subject.getDroppedCount());
+        assertEquals(received.size(), subject.getDispatchedCount());
+    }
+
+    @Test
+    public void testAccept_multipleThreads() throws Exception {
+        //prepare
+        List<ResponseTime> received = new ArrayList<>();
+        subject = AsyncResponseTimeConsumer.of(received::add).withCapacity(16).start();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        //act
+        for (int t = 0; t < 4; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    subject.accept("tx", 0L, i);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        subject.close();
+
+        //assert
+        assertEquals(4000, received.size());
+        assertEquals(4000, subject.getDispatchedCount());
+    }
+
+    @Test
+    public void testAccept_failingConsumer() throws Exception {
+        //prepare
+        subject = AsyncResponseTimeConsumer.of(rt -> {
+            throw new IllegalStateException("expected failure");
+        }).start();
+
+        //act
+        subject.accept("tx", 0L, 1L);
+
+        //assert
+        assertTrue(subject.flush(Duration.ofSeconds(5)));
+        assertEquals(1, subject.getFailedCount());
+        assertEquals(0, subject.getDispatchedCount());
+    }
+
+    @Test
+    public void testClose_dropsLaterResponseTimes() throws Exception {
+        //prepare
+        List<ResponseTime> received = new ArrayList<>();
+        subject = AsyncResponseTimeConsumer.of(received::add).start();
+        subject.accept("tx", 0L, 1L);
+
+        //act
+        subject.close();
+        subject.accept("tx", 0L, 2L);
+
+        //assert
+        assertEquals(1, received.size());
+        assertEquals(1, subject.getDroppedCount());
+    }
+
+    @Test
+    public void testOnMeasureEnd() throws Exception {
+        //prepare
+        List<ResponseTime> received = Collections.synchronizedList(new ArrayList<>());
+        subject = AsyncResponseTimeConsumer.of(received::add).start();
+        ResponseTimes.current().onMeasureEnd(subject);
+        int txId = TransactionRegistry.idOf("asyncTx");
+
+        //act
+        ResponseTimes.current().collect(txId, System.nanoTime(), 1_000_000L);
+        ResponseTimes.current().stopTx(ResponseTimes.current().startTx("otherTx"));
+
+        //assert
+        assertTrue(subject.flush(Duration.ofSeconds(5)));
+        assertEquals(2, received.size());
+        assertEquals("asyncTx", received.get(0).getTransaction());
+        assertEquals("otherTx", received.get(1).getTransaction());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStart_twice() throws Exception {
+        //prepare
+        subject = AsyncResponseTimeConsumer.of(rt -> {}).start();
+
+        //act
+        subject.start();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithCapacity_invalid() throws Exception {
+        //act
+        AsyncResponseTimeConsumer.of(rt -> {}).withCapacity(0);
+    }
+}
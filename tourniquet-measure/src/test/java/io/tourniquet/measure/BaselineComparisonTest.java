@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link BaselineComparison}
+ */
+public class BaselineComparisonTest {
+
+    private final Random random = new Random(42);
+
+    private ResponseTimeStatistics statistics(String tx, int count, double meanMillis, double stdDevMillis) {
+        ResponseTimeAggregate aggregate = ResponseTimeAggregate.newAggregate();
+        for (int i = 0; i < count; i++) {
+            double millis = Math.max(0.0, meanMillis + random.nextGaussian() * stdDevMillis);
+            aggregate.record(i * 1_000_000L, (long) (millis * 1_000_000L));
+        }
+        return aggregate.toStatistics(tx);
+    }
+
+    private static Map<String, ResponseTimeStatistics> map(ResponseTimeStatistics... statistics) {
+        Map<String, ResponseTimeStatistics> result = new HashMap<>();
+        for (ResponseTimeStatistics s : statistics) {
+            result.put(s.getTransaction(), s);
+        }
+        return result;
+    }
+
+    @Test
+    public void testCompare_sameDistribution() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx", 1000, 100, 10)));
+
+        //act
+        List<BaselineComparison.TransactionComparison> result = BaselineComparison.against(baseline)
+                                                                                  .compare(map(statistics("tx",
+                                                                                                          1000,
+                                                                                                          100,
+                                                                                                          10)));
+
+        //assert
+        assertEquals(1, result.size());
+        assertFalse(result.get(0).isRegression());
+        assertTrue(result.get(0).getPValue() > 0.01);
+    }
+
+    @Test
+    public void testCompare_slower() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx", 1000, 100, 10)));
+
+        //act
+        List<BaselineComparison.TransactionComparison> result = BaselineComparison.against(baseline)
+                                                                                  .regressions(map(statistics("tx",
+                                                                                                              1000,
+                                                                                                              130,
+                                                                                                              10)));
+
+        //assert
+        assertEquals(1, result.size());
+        BaselineComparison.TransactionComparison tx = result.get(0);
+        assertEquals("tx", tx.getTransaction());
+        assertTrue(tx.isRegression());
+        assertTrue(tx.getPValue() < 0.0001);
+        assertTrue(tx.getStatistic() > 0.8);
+        assertEquals(0.3, tx.getRelativeIncrease(), 0.05);
+        assertEquals(30.0, tx.getPercentileDelta(50.0).toNanos() / 1_000_000.0, 3.0);
+    }
+
+    @Test
+    public void testCompare_faster() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx", 1000, 100, 10)));
+
+        //act
+        List<BaselineComparison.TransactionComparison> result = BaselineComparison.against(baseline)
+                                                                                  .compare(map(statistics("tx",
+                                                                                                          1000,
+                                                                                                          70,
+                                                                                                          10)));
+
+        //assert
+        assertFalse(result.get(0).isRegression());
+        assertEquals(0.0, result.get(0).getStatistic(), 0.01);
+        assertTrue(result.get(0).getPercentileDelta(50.0).isNegative());
+    }
+
+    @Test
+    public void testCompare_significantButTolerated() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx", 10_000, 100, 10)));
+        Map<String, ResponseTimeStatistics> current = map(statistics("tx", 10_000, 103, 10));
+
+        //act
+        BaselineComparison.TransactionComparison result = BaselineComparison.against(baseline)
+                                                                            .compare(current)
+                                                                            .get(0);
+
+        //assert
+        assertTrue(result.getPValue() < 0.01);
+        assertFalse(result.isRegression());
+    }
+
+    @Test
+    public void testCompare_tolerance() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx", 10_000, 100, 10)));
+        Map<String, ResponseTimeStatistics> current = map(statistics("tx", 10_000, 103, 10));
+
+        //act
+        List<BaselineComparison.TransactionComparison> result = BaselineComparison.against(baseline)
+                                                                                  .withTolerance(50.0, 0.01)
+                                                                                  .regressions(current);
+
+        //assert
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testCompare_unknownTransactions() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx1", 100, 100, 10)));
+
+        //act
+        List<BaselineComparison.TransactionComparison> result = BaselineComparison.against(baseline)
+                                                                                  .compare(map(statistics("tx2",
+                                                                                                          100,
+                                                                                                          100,
+                                                                                                          10)));
+
+        //assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testMaxCdfExcess_disjoint() throws Exception {
+        //prepare
+        ResponseTimeStatistics fast = statistics("tx", 100, 10, 0);
+        ResponseTimeStatistics slow = statistics("tx", 100, 20, 0);
+
+        //act
+        double slower = BaselineComparison.maxCdfExcess(fast.getHistogram(), slow.getHistogram());
+        double faster = BaselineComparison.maxCdfExcess(slow.getHistogram(), fast.getHistogram());
+
+        //assert
+        assertEquals(1.0, slower, 0.0001);
+        assertEquals(0.0, faster, 0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithSignificance_invalid() throws Exception {
+        //act
+        BaselineComparison.against(Baseline.of(Collections.emptyMap())).withSignificance(1.5);
+    }
+
+    @Test
+    public void testToString() throws Exception {
+        //prepare
+        Baseline baseline = Baseline.of(map(statistics("tx", 100, 100, 0)));
+
+        //act
+        String result = BaselineComparison.against(baseline).compare(map(statistics("tx", 100, 200, 0))).get(0)
+                                          .toString();
+
+        //assert
+        assertTrue(result, result.startsWith("tx: p95.0 PT0.1"));
+        assertTrue(result, result.contains("(+100.0%)"));
+        assertTrue(result, result.contains(Duration.ofMillis(200).toString().substring(0, 5)));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the {@link Baseline}
+ */
+public class BaselineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ResponseTimeStatistics statistics(String tx, int count, long millis) {
+        ResponseTimeAggregate aggregate = ResponseTimeAggregate.newAggregate();
+        for (int i = 0; i < count; i++) {
+            aggregate.record(i * 1_000_000_000L, (millis + i) * 1_000_000L);
+        }
+        return aggregate.toStatistics(tx);
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        //prepare
+        Map<String, ResponseTimeStatistics> stats = new HashMap<>();
+        stats.put("tx1", statistics("tx1", 10_000, 100));
+        stats.put("tx2", statistics("tx2", 5, 20));
+        Path file = folder.getRoot().toPath().resolve("baseline.tqb");
+
+        //act
+        Baseline.of(stats).write(file);
+        Baseline baseline = Baseline.read(file);
+
+        //assert
+        assertEquals(2, baseline.getStatistics().size());
+        ResponseTimeStatistics tx1 = baseline.getStatistics("tx1").get();
+        assertEquals(10_000, tx1.getCount());
+        assertEquals(stats.get("tx1").getPercentile(95.0), tx1.getPercentile(95.0));
+        assertEquals(stats.get("tx1").getTimeSpan(), tx1.getTimeSpan());
+        assertEquals(5, baseline.getStatistics("tx2").get().getCount());
+        assertFalse(baseline.getStatistics("tx3").isPresent());
+        //the file contains histograms, not the samples
+        assertTrue(Files.size(file) < 10_000);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_noBaselineFile() throws Exception {
+        //prepare
+        Path file = folder.newFile("other.txt").toPath();
+        Files.write(file, "some text content".getBytes());
+
+        //act
+        Baseline.read(file);
+    }
+}
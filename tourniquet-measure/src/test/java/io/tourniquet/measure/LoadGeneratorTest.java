@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link LoadGenerator}
+ */
+public class LoadGeneratorTest {
+
+    @After
+    public void tearDown() throws Exception {
+        ResponseTimes.current().clear();
+    }
+
+    @Test
+    public void testFixedRate_recordsToCurrentResponseTimes() throws Exception {
+        //prepare
+        AtomicInteger executions = new AtomicInteger();
+
+        //act
+        LoadResult result = LoadGenerator.fixedRate(executions::incrementAndGet, 100)
+                                         .withTransaction("rate")
+                                         .run(Duration.ofMillis(500));
+
+        //assert
+        assertEquals(50, result.getCount());
+        assertEquals(50, executions.get());
+        assertEquals(0, result.getErrorCount());
+        assertEquals(50, ResponseTimes.current().getResponseTimes().get("rate").size());
+        assertTrue(result.getThroughput() > 0.0);
+    }
+
+    @Test
+    public void testFixedRate_correctsCoordinatedOmission() throws Exception {
+        //prepare
+        ResponseTimes target = ResponseTimes.current();
+
+        //act
+        //each execution takes twice the interval, so a single thread falls behind the intended schedule
+        LoadResult result = LoadGenerator.fixedRate(() -> {
+            TimeUnit.MILLISECONDS.sleep(20);
+            return null;
+        }, 100).withThreads(1).recordTo(target).run(Duration.ofMillis(200));
+
+        //assert
+        assertEquals(20, result.getCount());
+        assertTrue(result.getServiceTime().getMax().compareTo(Duration.ofMillis(100)) < 0);
+        assertTrue(result.getLatency().getMax().compareTo(Duration.ofMillis(200)) > 0);
+        assertEquals(result.getLatency().getCount(), target.getStatistics("load").get().getCount());
+    }
+
+    @Test
+    public void testFixedConcurrency_countsErrors() throws Exception {
+        //prepare
+        AtomicInteger executions = new AtomicInteger();
+
+        //act
+        LoadResult result = LoadGenerator.fixedConcurrency(() -> {
+            if (executions.incrementAndGet() % 2 == 0) {
+                throw new Exception("expected");
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+            return null;
+        }, 4).run(Duration.ofMillis(100));
+
+        //assert
+        assertEquals(executions.get(), result.getCount());
+        assertEquals(executions.get() / 2, result.getErrorCount());
+        assertEquals(result.getErrorCount(), ResponseTimes.current().getFailureCount("load"));
+        assertTrue(result.getCount() >= 4);
+    }
+
+    @Test
+    public void testFixedConcurrency_virtualThreads() throws Exception {
+        //prepare
+        AtomicInteger executions = new AtomicInteger();
+
+        //act
+        LoadResult result = LoadGenerator.fixedConcurrency(() -> {
+            executions.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(10);
+            return null;
+        }, 100).withVirtualThreads().run(Duration.ofMillis(100));
+
+        //assert
+        assertEquals(executions.get(), result.getCount());
+        assertTrue(result.getCount() >= 100);
+    }
+
+    @Test
+    public void testRun_propagatesCollector() throws Exception {
+        //prepare
+        ResponseTimeCollector collector = new ResponseTimeCollector();
+        collector.startCollecting();
+
+        //act
+        LoadResult result;
+        try {
+            result = LoadGenerator.fixedRate(() -> {
+                ResponseTimeCollector.startTx("inner");
+                ResponseTimeCollector.stopTx("inner");
+                return null;
+            }, 100).run(Duration.ofMillis(100));
+        } finally {
+            collector.stopCollecting();
+        }
+
+        //assert
+        assertEquals(result.getCount(), ResponseTimes.current().getResponseTimes().get("inner").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedRate_invalidRate() throws Exception {
+        //act
+        LoadGenerator.fixedRate(() -> null, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedConcurrency_invalidConcurrency() throws Exception {
+        //act
+        LoadGenerator.fixedConcurrency(() -> null, 0);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MeasureExecutors}
+ */
+public class MeasureExecutorsTest {
+
+    @After
+    public void tearDown() throws Exception {
+        ResponseTimeCollector.current().ifPresent(ResponseTimeCollector::stopCollecting);
+        ResponseTimes.current().clear();
+    }
+
+    @Test
+    public void testNewVirtualThreadExecutor() throws Exception {
+        //prepare
+        ExecutorService executor = MeasureExecutors.newVirtualThreadExecutor();
+
+        //act
+        Future<String> result = executor.submit(() -> "done");
+
+        //assert
+        assertEquals("done", result.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPropagating() throws Exception {
+        //prepare
+        new ResponseTimeCollector().startCollecting();
+        ExecutorService executor = MeasureExecutors.propagating(MeasureExecutors.newVirtualThreadExecutor());
+
+        //act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(() -> {
+                ResponseTimeCollector.startTx("task");
+                ResponseTimeCollector.stopTx("task");
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //assert
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(50, ResponseTimes.current().getResponseTimes().get("task").size());
+    }
+}
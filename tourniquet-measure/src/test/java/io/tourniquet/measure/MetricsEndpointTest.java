@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MetricsEndpoint}
+ */
+public class MetricsEndpointTest {
+
+    private ResponseTimes responseTimes = ResponseTimes.current();
+
+    /**
+     * The class under test
+     */
+    private MetricsEndpoint subject;
+
+    @After
+    public void tearDown() throws Exception {
+        if (subject != null) {
+            subject.close();
+        }
+        responseTimes.enableLiveStatistics(false);
+        responseTimes.clear();
+    }
+
+    @Test
+    public void testStart_enablesLiveStatistics() throws Exception {
+        //prepare
+
+        //act
+        subject = MetricsEndpoint.start(responseTimes, 0);
+        responseTimes.collect(new ResponseTime("tx", Instant.now(), Duration.ofMillis(10)));
+
+        //assert
+        assertTrue(subject.getPort() > 0);
+        assertEquals(1, responseTimes.getLiveStatistics().get("tx").getCount());
+    }
+
+    @Test
+    public void testScrape() throws Exception {
+        //prepare
+        subject = MetricsEndpoint.start(responseTimes, 0);
+        responseTimes.collect(new ResponseTime("tx", Instant.now(), Duration.ofMillis(100)));
+        responseTimes.collect(new ResponseTime("tx", Instant.now(), Duration.ofMillis(300)));
+        responseTimes.collectFailure("tx");
+
+        //act
+        HttpURLConnection con = (HttpURLConnection) subject.getUri().toURL().openConnection();
+        String body;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(con.getInputStream(),
+                                                                              StandardCharsets.UTF_8))) {
+            body = reader.lines().collect(Collectors.joining("\n"));
+        }
+
+        //assert
+        assertEquals(200, con.getResponseCode());
+        assertEquals(MetricsEndpoint.CONTENT_TYPE, con.getContentType());
+        assertTrue(body, body.contains("# TYPE tourniquet_response_time_seconds summary"));
+        assertTrue(body, body.contains("tourniquet_response_time_seconds_count{transaction=\"tx\"} 2"));
+        assertEquals(0.3, sample(body, "tourniquet_response_time_seconds{transaction=\"tx\",quantile=\"0.99\"}"), 0.001);
+        assertEquals(0.4, sample(body, "tourniquet_response_time_seconds_sum{transaction=\"tx\"}"), 0.001);
+        assertTrue(body, body.contains("tourniquet_failures_total{transaction=\"tx\"} 1"));
+    }
+
+    private static double sample(String metrics, String name) {
+
+        return Arrays.stream(metrics.split("\n"))
+                     .filter(line -> line.startsWith(name + ' '))
+                     .map(line -> Double.parseDouble(line.substring(name.length() + 1)))
+                     .findFirst()
+                     .orElseThrow(() -> new AssertionError(name + " not found in " + metrics));
+    }
+
+    @Test
+    public void testScrape_notGet() throws Exception {
+        //prepare
+        subject = MetricsEndpoint.start(responseTimes, 0);
+
+        //act
+        HttpURLConnection con = (HttpURLConnection) subject.getUri().toURL().openConnection();
+        con.setRequestMethod("DELETE");
+
+        //assert
+        assertEquals(405, con.getResponseCode());
+    }
+
+    @Test
+    public void testWriteMetrics_escapedLabels() throws Exception {
+        //prepare
+        subject = MetricsEndpoint.start(responseTimes, 0);
+        responseTimes.collect(new ResponseTime("a\"b\\c\nd", Instant.now(), Duration.ofMillis(10)));
+        StringWriter writer = new StringWriter();
+
+        //act
+        subject.writeMetrics(writer);
+
+        //assert
+        String metrics = writer.toString();
+        assertTrue(metrics, metrics.contains("tourniquet_response_time_max_seconds{transaction=\"a\\\"b\\\\c\\nd\"}"));
+        assertTrue(metrics, metrics.contains("tourniquet_failures_total{transaction=\"a\\\"b\\\\c\\nd\"} 0"));
+    }
+}
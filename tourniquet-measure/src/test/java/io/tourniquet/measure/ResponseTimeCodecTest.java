@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ResponseTimeCodec}
+ */
+public class ResponseTimeCodecTest {
+
+    @Test
+    public void testEncodeDecodeResponseTimes() throws Exception {
+        //prepare
+        Instant start = Instant.parse("2016-01-01T12:00:00.123456789Z");
+        ResponseTime finished = new ResponseTime("tx1", start, Duration.ofMillis(100));
+        ResponseTime unfinished = new ResponseTime("tx1", start);
+        ResponseTime other = new ResponseTime("tx2", start, Duration.ofNanos(42));
+        Map<String, List<ResponseTime>> rts = new HashMap<>();
+        rts.put("tx1", Arrays.asList(finished, unfinished));
+        rts.put("tx2", Collections.singletonList(other));
+
+        //act
+        Map<String, long[]> encoded = ResponseTimeCodec.encodeResponseTimes(rts);
+        assertEquals(2 * ResponseTimeCodec.LONGS_PER_RESPONSE_TIME, encoded.get("tx1").length);
+        Map<String, List<ResponseTime>> decoded = ResponseTimeCodec.decodeResponseTimes(encoded);
+
+        //assert
+        assertTrue(encoded.isEmpty());
+        assertEquals(2, decoded.size());
+        ResponseTime decodedFinished = decoded.get("tx1").get(0);
+        assertEquals(finished.getUuid(), decodedFinished.getUuid());
+        assertEquals("tx1", decodedFinished.getTransaction());
+        assertEquals(start, decodedFinished.getStart());
+        assertEquals(Duration.ofMillis(100), decodedFinished.getDuration());
+        assertTrue(decodedFinished.isFinished());
+        ResponseTime decodedUnfinished = decoded.get("tx1").get(1);
+        assertEquals(unfinished.getUuid(), decodedUnfinished.getUuid());
+        assertFalse(decodedUnfinished.isFinished());
+        assertEquals(Duration.ofNanos(42), decoded.get("tx2").get(0).getDuration());
+    }
+
+    @Test
+    public void testEncodeDecodeStatistics() throws Exception {
+        //prepare
+        ResponseTimeStore store = new RawResponseTimeStore();
+        store.finished(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(10)));
+        store.finished(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(20)));
+        store.finished(new ResponseTime("tx2", Instant.now(), Duration.ofMillis(30)));
+        Map<String, ResponseTimeStatistics> stats = store.getStatistics();
+
+        //act
+        Map<String, byte[]> encoded = ResponseTimeCodec.encodeStatistics(stats);
+        Map<String, ResponseTimeStatistics> decoded = ResponseTimeCodec.decodeStatistics(encoded);
+
+        //assert
+        assertEquals(2, decoded.size());
+        assertEquals(2, decoded.get("tx1").getCount());
+        assertEquals(stats.get("tx1").getMax(), decoded.get("tx1").getMax());
+        assertEquals(stats.get("tx1").getMean(), decoded.get("tx1").getMean());
+        assertEquals(1, decoded.get("tx2").getCount());
+        assertEquals(stats.get("tx1").getTimeSpan(), decoded.get("tx1").getTimeSpan());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeStatistics_invalidHistogram() throws Exception {
+        //prepare
+        Map<String, byte[]> encoded = Collections.singletonMap("tx", new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+
+        //act
+        ResponseTimeCodec.decodeStatistics(encoded);
+    }
+}
@@ -20,11 +20,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
@@ -56,6 +62,8 @@ public class ResponseTimeCollectorTest {
         ResponseTimes.current().onMeasureStart(null);
         ResponseTimes.current().onMeasureEnd(null);
         ResponseTimes.current().clear();
+        ResponseTimes.current().setCollectionMode(CollectionMode.RAW);
+        ResponseTimes.current().enableSpanStatistics(false);
     }
 
     @Test
@@ -219,4 +227,332 @@ public class ResponseTimeCollectorTest {
         assertEquals("test", rt.getTransaction());
         assertTrue(rt.getDuration().compareTo(Duration.ofMillis(95)) > 0);
     }
+
+    @Test
+    public void testFailTransaction() throws Exception {
+        //prepare
+        subject.startCollecting();
+        subject.startTransaction("test");
+
+        //act
+        subject.failTransaction("test", Instant.now());
+
+        //assert
+        subject.stopCollecting();
+        ResponseTime rt = rtEndRef.get();
+        assertNotNull(rt);
+        assertEquals("test", rt.getTransaction());
+        assertEquals(1L, ResponseTimes.current().getFailureCount("test"));
+        assertEquals(1L, ResponseTimes.current().getStatistics("test").get().getCount());
+    }
+
+    @Test
+    public void testStartStopTransaction_txId() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("test");
+        subject.startCollecting();
+
+        //act
+        subject.startTransaction(txId);
+        subject.stopTransaction(txId);
+
+        //assert
+        subject.stopCollecting();
+        ResponseTime rt = rtEndRef.get();
+        assertNotNull(rt);
+        assertEquals("test", rt.getTransaction());
+        assertTrue(rt.isFinished());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStopTransaction_txId_notStarted() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("notStarted");
+        subject.startCollecting();
+
+        //act
+        subject.stopTransaction(txId);
+    }
+
+    @Test
+    public void testStartTransaction_txId_reentered() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("reentered");
+        subject.startTransaction(txId);
+
+        //act
+        try {
+            subject.startTransaction(txId);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            //assert
+            //the outer transaction is still open and can be stopped
+            subject.stopTransaction(txId);
+        }
+    }
+
+    @Test
+    public void testRecord_bufferedUntilFlush() throws Exception {
+        //prepare
+        ResponseTimes.current().onMeasureEnd(null);
+        int txId = TransactionRegistry.idOf("test");
+        subject.startCollecting();
+        long start = System.nanoTime();
+
+        //act
+        subject.record(txId, start, start + 100_000_000L);
+
+        //assert
+        assertTrue(ResponseTimes.current().getResponseTimes().isEmpty());
+        subject.flush();
+        List<ResponseTime> rts = ResponseTimes.current().getResponseTimes().get("test");
+        assertEquals(1, rts.size());
+        assertEquals(Duration.ofMillis(100), rts.get(0).getDuration());
+    }
+
+    @Test
+    public void testRecord_flushedWhenBufferFull() throws Exception {
+        //prepare
+        ResponseTimes.current().onMeasureEnd(null);
+        ResponseTimes.current().setCollectionMode(CollectionMode.HISTOGRAM);
+        int txId = TransactionRegistry.idOf("test");
+        ResponseTimeCollector collector = new ResponseTimeCollector(4);
+        long start = System.nanoTime();
+
+        //act
+        for (int i = 0; i < 9; i++) {
+            collector.record(txId, start, start + 1_000_000L);
+        }
+
+        //assert
+        assertEquals(8, ResponseTimes.current().getStatistics("test").get().getCount());
+        collector.stopCollecting();
+        assertEquals(9, ResponseTimes.current().getStatistics("test").get().getCount());
+    }
+
+    @Test
+    public void testStartStopTx_txId() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("test");
+        subject.startCollecting();
+
+        //act
+        ResponseTimeCollector.startTx(txId);
+        ResponseTimeCollector.stopTx(txId);
+
+        //assert
+        subject.stopCollecting();
+        ResponseTime rt = rtEndRef.get();
+        assertNotNull(rt);
+        assertEquals("test", rt.getTransaction());
+    }
+
+    @Test
+    public void testPropagate_runnable() throws Exception {
+        //prepare
+        subject.startCollecting();
+        Runnable task = ResponseTimeCollector.propagate(() -> {
+            ResponseTimeCollector.startTx("child");
+            ResponseTimeCollector.stopTx("child");
+        });
+
+        //act
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        //assert
+        List<ResponseTime> rts = ResponseTimes.current().getResponseTimes().get("child");
+        assertNotNull(rts);
+        assertEquals(1, rts.size());
+    }
+
+    @Test
+    public void testPropagate_callable_transactionIds() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("childTx");
+        subject.startCollecting();
+        Callable<String> task = ResponseTimeCollector.propagate(() -> {
+            ResponseTimeCollector.startTx(txId);
+            ResponseTimeCollector.stopTx(txId);
+            return "done";
+        });
+
+        //act
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        String result;
+        try {
+            result = executor.submit(task).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        //assert
+        assertEquals("done", result);
+        assertEquals(1, ResponseTimes.current().getResponseTimes().get("childTx").size());
+    }
+
+    @Test
+    public void testPropagate_moreSamplesThanChildBuffer_allCollected() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("childSamples");
+        subject.startCollecting();
+        Runnable task = ResponseTimeCollector.propagate(() -> {
+            for (int i = 0; i < ResponseTimeCollector.CHILD_BUFFER_CAPACITY * 3 + 1; i++) {
+                ResponseTimeCollector.startTx(txId);
+                ResponseTimeCollector.stopTx(txId);
+            }
+        });
+
+        //act
+        task.run();
+
+        //assert
+        assertEquals(ResponseTimeCollector.CHILD_BUFFER_CAPACITY * 3 + 1,
+                     ResponseTimes.current().getResponseTimes().get("childSamples").size());
+    }
+
+    @Test
+    public void testPropagate_restoresPreviousCollector() throws Exception {
+        //prepare
+        subject.startCollecting();
+        AtomicReference<ResponseTimeCollector> inner = new AtomicReference<>();
+        Runnable task = ResponseTimeCollector.propagate(() -> inner.set(ResponseTimeCollector.current().get()));
+
+        //act
+        task.run();
+
+        //assert
+        assertNotNull(inner.get());
+        assertTrue(inner.get() != subject);
+        assertEquals(subject, ResponseTimeCollector.current().get());
+    }
+
+    @Test
+    public void testPropagate_noCollector() throws Exception {
+        //prepare
+        Runnable task = () -> {};
+
+        //act
+        Runnable result = ResponseTimeCollector.propagate(task);
+
+        //assert
+        assertEquals(task, result);
+    }
+
+    @Test
+    public void testNestedTransactions_sameName() throws Exception {
+        //prepare
+        Instant start = Instant.now();
+        subject.startCollecting();
+
+        //act
+        subject.startTransaction("step");
+        subject.startTransaction("step");
+        Span inner = subject.currentSpan().get();
+        subject.stopTransaction("step", start.plusSeconds(5));
+        Span outer = subject.currentSpan().get();
+        subject.stopTransaction("step", start.plusSeconds(10));
+
+        //assert
+        assertFalse(subject.currentSpan().isPresent());
+        assertEquals(2, ResponseTimes.current().getResponseTimes().get("step").size());
+        assertEquals(inner.getParent().get(), outer);
+        assertEquals("step/step", inner.getPath());
+        assertEquals("step", outer.getPath());
+        assertTrue(outer.getSelfTime().compareTo(Duration.ofSeconds(6)) < 0);
+        assertTrue(outer.getSelfTime().compareTo(Duration.ofSeconds(4)) > 0);
+    }
+
+    @Test
+    public void testInterleavedTransactions() throws Exception {
+        //prepare
+        subject.startCollecting();
+
+        //act
+        subject.startTransaction("a");
+        subject.startTransaction("b");
+        subject.stopTransaction("a");
+
+        //assert
+        assertFalse(subject.currentSpan().isPresent());
+        assertEquals(1, ResponseTimes.current().getResponseTimes().get("a").size());
+        assertEquals(1, ResponseTimes.current().getResponseTimes().get("b").size());
+        try {
+            subject.stopTransaction("b");
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            //expected, b was stopped with a
+        }
+    }
+
+    @Test
+    public void testStopTransaction_nestedTransactionsOpen_stoppedWithOuter() throws Exception {
+        //prepare
+        Instant start = Instant.now();
+        subject.startCollecting();
+        subject.startTransaction("outer");
+        subject.startTransaction("middle");
+        Span middle = subject.currentSpan().get();
+        subject.startTransaction("inner");
+        Span inner = subject.currentSpan().get();
+        Span outer = middle.getParent().get();
+
+        //act
+        subject.stopTransaction("middle", start.plusSeconds(5));
+        subject.stopTransaction("outer", start.plusSeconds(10));
+
+        //assert
+        assertFalse(subject.currentSpan().isPresent());
+        assertTrue(inner.isFinished());
+        assertTrue(middle.isFinished());
+        assertEquals(inner.getTotalTime().toMillis(), middle.getTotalTime().toMillis(), 50);
+        assertTrue(middle.getSelfTime().compareTo(Duration.ofMillis(50)) < 0);
+        assertTrue(outer.getSelfTime().compareTo(Duration.ofSeconds(6)) < 0);
+        assertTrue(outer.getSelfTime().compareTo(Duration.ofSeconds(4)) > 0);
+    }
+
+    @Test
+    public void testSpanStatistics() throws Exception {
+        //prepare
+        Instant start = Instant.now();
+        ResponseTimes.current().enableSpanStatistics(true);
+        subject.startCollecting();
+
+        //act
+        for (int i = 0; i < 3; i++) {
+            subject.startTransaction("page");
+            subject.startTransaction("login");
+            subject.stopTransaction("login", start.plusMillis(300));
+            subject.startTransaction("submit");
+            subject.stopTransaction("submit", start.plusMillis(500));
+            subject.stopTransaction("page", start.plusMillis(600));
+        }
+
+        //assert
+        Map<String, SpanStatistics> stats = ResponseTimes.current().getSpanStatistics();
+        assertEquals(3, stats.size());
+        SpanStatistics page = stats.get("page");
+        assertEquals(3, page.getTotalTime().getCount());
+        assertFalse(page.getParentPath().isPresent());
+        SpanStatistics login = stats.get("page/login");
+        assertEquals("login", login.getTransaction());
+        assertEquals("page", login.getParentPath().get());
+        assertEquals(3, stats.get("page/submit").getSelfTime().getCount());
+        //the page itself took less than the time until the login ended
+        assertTrue(page.getSelfTime().getMax().compareTo(login.getTotalTime().getMin()) < 0);
+    }
+
+    @Test
+    public void testSpanStatistics_disabled() throws Exception {
+        //prepare
+        subject.startCollecting();
+
+        //act
+        subject.startTransaction("page");
+        subject.stopTransaction("page");
+
+        //assert
+        assertTrue(ResponseTimes.current().getSpanStatistics().isEmpty());
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the {@link ResponseTimeLogWriter} and {@link ResponseTimeLogReader}
+ */
+public class ResponseTimeLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() throws Exception {
+        ResponseTimes.current().onMeasureEnd(null);
+        ResponseTimes.current().setRetentionPolicy(RetentionPolicy.unlimited());
+    }
+
+    @Test
+    public void testWriteAndReplay() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        Instant start = Instant.parse("2016-01-01T12:00:00.123456789Z");
+
+        //act
+        try (ResponseTimeLogWriter writer = new ResponseTimeLogWriter(file)) {
+            writer.accept(new ResponseTime("tx1", start, Duration.ofMillis(100)));
+            writer.accept("tx2", 42L, 200L);
+            writer.accept(new ResponseTime("tx1", start, Duration.ofMillis(300)));
+            assertEquals(3, writer.getCount());
+        }
+
+        //assert
+        List<ResponseTime> replayed = new ArrayList<>();
+        try (ResponseTimeLogReader reader = new ResponseTimeLogReader(file)) {
+            long count = reader.forEach(replayed::add);
+            assertEquals(3, count);
+        }
+        assertEquals("tx1", replayed.get(0).getTransaction());
+        assertEquals(start, replayed.get(0).getStart());
+        assertEquals(Duration.ofMillis(100), replayed.get(0).getDuration());
+        assertEquals("tx2", replayed.get(1).getTransaction());
+        assertEquals(Instant.ofEpochSecond(0, 42), replayed.get(1).getStart());
+        assertEquals(Duration.ofNanos(200), replayed.get(1).getDuration());
+        assertEquals("tx1", replayed.get(2).getTransaction());
+    }
+
+    @Test
+    public void testWrite_fileTruncatedToRecords() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+
+        //act
+        try (ResponseTimeLogWriter writer = new ResponseTimeLogWriter(file)) {
+            writer.accept("tx", 0L, 1L);
+        }
+
+        //assert
+        //header, definition, name, response time
+        assertEquals(4 * ResponseTimeLogWriter.RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    public void testClose_regionsUnmapped_fileTruncated() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        ResponseTimeLogWriter writer = new ResponseTimeLogWriter(file, ResponseTimeLogWriter.RECORD_SIZE * 2L);
+        for (int i = 0; i < 10; i++) {
+            writer.accept("tx", i, 1L);
+        }
+
+        //act
+        writer.close();
+        writer.flush();
+
+        //assert
+        //header, definition, name and 10 response times
+        assertEquals(13 * ResponseTimeLogWriter.RECORD_SIZE, Files.size(file));
+        assertTrue(Files.deleteIfExists(file));
+    }
+
+    @Test
+    public void testUnmap() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+
+            //act
+            boolean unmapped = ResponseTimeLogWriter.unmap(buffer);
+
+            //assert
+            assertTrue(unmapped);
+        }
+    }
+
+    @Test
+    public void testWrite_multipleRegions_longNames() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        String longName = "a transaction with a name longer than a single record";
+
+        //act
+        try (ResponseTimeLogWriter writer = new ResponseTimeLogWriter(file, ResponseTimeLogWriter.RECORD_SIZE * 3)) {
+            for (int i = 0; i < 100; i++) {
+                writer.accept(i % 2 == 0 ? longName : "tx", i, i);
+            }
+        }
+
+        //assert
+        try (ResponseTimeLogReader reader = new ResponseTimeLogReader(file)) {
+            Map<String, ResponseTimeStatistics> stats = reader.aggregate();
+            assertEquals(2, stats.size());
+            assertEquals(50, stats.get(longName).getCount());
+            assertEquals(50, stats.get("tx").getCount());
+        }
+    }
+
+    @Test
+    public void testRead_writerNotClosed_readUpToLastRecord() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        ResponseTimeLogWriter writer = new ResponseTimeLogWriter(file, ResponseTimeLogWriter.RECORD_SIZE * 4);
+        try {
+            for (int i = 0; i < 10; i++) {
+                writer.accept("tx", i, i);
+            }
+            //the last region is mapped but only partially written
+            assertTrue(Files.size(file) > 13 * ResponseTimeLogWriter.RECORD_SIZE);
+
+            //act
+            try (ResponseTimeLogReader reader = new ResponseTimeLogReader(file)) {
+                List<ResponseTime> replayed = new ArrayList<>();
+                long count = reader.forEach(replayed::add);
+
+                //assert
+                assertEquals(10, count);
+                assertEquals(Duration.ofNanos(9), replayed.get(9).getDuration());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_noLog() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        Files.write(file, "no response time log".getBytes());
+
+        //act
+        new ResponseTimeLogReader(file);
+    }
+
+    @Test
+    public void testStreamFromResponseTimes() throws Exception {
+        //prepare
+        Path file = folder.newFile().toPath();
+        ResponseTimes responseTimes = ResponseTimes.current();
+        responseTimes.setRetentionPolicy(RetentionPolicy.none());
+        int txId = TransactionRegistry.idOf("streamed");
+
+        //act
+        try (ResponseTimeLogWriter writer = new ResponseTimeLogWriter(file)) {
+            responseTimes.onMeasureEnd(writer);
+            responseTimes.stopTx(responseTimes.startTx("streamed"));
+            responseTimes.collect(txId, System.nanoTime(), 1_000_000L);
+        }
+
+        //assert
+        assertTrue(responseTimes.getResponseTimes().isEmpty());
+        try (ResponseTimeLogReader reader = new ResponseTimeLogReader(file)) {
+            assertEquals(2, reader.aggregate().get("streamed").getCount());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static io.tourniquet.measure.ResponseTimeMatchers.errorRate;
+import static io.tourniquet.measure.ResponseTimeMatchers.maxResponseTime;
+import static io.tourniquet.measure.ResponseTimeMatchers.p50;
+import static io.tourniquet.measure.ResponseTimeMatchers.p95;
+import static io.tourniquet.measure.ResponseTimeMatchers.p99;
+import static io.tourniquet.measure.ResponseTimeMatchers.percentile;
+import static io.tourniquet.measure.ResponseTimeMatchers.throughput;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ResponseTimeMatchers}
+ */
+public class ResponseTimeMatchersTest {
+
+    private ResponseTimes subject = ResponseTimes.current();
+
+    @Before
+    public void setUp() throws Exception {
+        //100 response times of 1 to 100 ms, one started every 10 ms
+        Instant start = Instant.parse("2016-01-01T12:00:00Z");
+        for (int i = 1; i <= 100; i++) {
+            subject.collect(new ResponseTime("login", start.plusMillis((i - 1) * 10L), Duration.ofMillis(i)));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        subject.clear();
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        assertThat(subject, p50("login", lessThan(Duration.ofMillis(51))));
+        assertThat(subject, p95("login", lessThan(Duration.ofMillis(96))));
+        assertThat(subject, p99("login", greaterThan(Duration.ofMillis(98))));
+        assertThat(subject, percentile("login", 99.9, greaterThan(Duration.ofMillis(99))));
+        assertThat(subject, maxResponseTime("login", lessThan(Duration.ofMillis(101))));
+        assertThat(subject, not(p99("login", lessThan(Duration.ofMillis(50)))));
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        //100 response times within 990ms + 100ms
+        assertThat(subject, throughput("login", closeTo(100 / 1.09, 0.1)));
+    }
+
+    @Test
+    public void testErrorRate() throws Exception {
+        //prepare
+        subject.collectFailure("login");
+
+        //assert
+        assertThat(subject, errorRate("login", closeTo(1.0, 0.001)));
+        assertThat(subject, not(errorRate("login", lessThan(1.0))));
+        assertEquals(1, subject.getFailureCount("login"));
+    }
+
+    @Test
+    public void testUnknownTransaction_mismatch() throws Exception {
+        //prepare
+        Matcher<ResponseTimes> matcher = p99("unknown", lessThan(Duration.ofMillis(200)));
+        StringDescription mismatch = new StringDescription();
+
+        //act
+        boolean result = matcher.matches(subject);
+        matcher.describeMismatch(subject, mismatch);
+
+        //assert
+        assertEquals(false, result);
+        assertThat(mismatch.toString(), containsString("no response times of transaction \"unknown\" recorded"));
+    }
+
+    @Test
+    public void testDescription() throws Exception {
+        //prepare
+        Matcher<ResponseTimes> matcher = p99("login", lessThan(Duration.ofMillis(50)));
+        StringDescription mismatch = new StringDescription();
+
+        //act
+        matcher.describeMismatch(subject, mismatch);
+
+        //assert
+        assertEquals("p99 of transaction \"login\" a value less than <PT0.05S>", StringDescription.toString(matcher));
+        assertThat(mismatch.toString(), containsString("p99 of transaction \"login\""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentile_invalid() throws Exception {
+        percentile("login", 100.1, lessThan(Duration.ofMillis(1)));
+    }
+}
@@ -16,15 +16,22 @@
 
 package io.tourniquet.measure;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -43,6 +50,9 @@ public class ResponseTimeRecordingTest {
 
     private ResponseTimes responseTimes = ResponseTimes.current();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @After
     public void tearDown() throws Exception {
         responseTimes.current().clear();
@@ -101,4 +111,132 @@ public class ResponseTimeRecordingTest {
         }
     }
 
+    @Test
+    public void testExportTimeline() throws Throwable {
+        //prepare
+        Path file = folder.newFile("timeline.csv").toPath();
+        subject.recordTimeline(Duration.ofSeconds(1)).exportTimeline(file, ResponseTimeTimeline.Format.CSV);
+
+        //act
+        subject.before();
+        try {
+            ResponseTimeCollector.startTx("test");
+            ResponseTimeCollector.stopTx("test");
+        } finally {
+            subject.after();
+        }
+
+        //assert
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith("test,"));
+        assertFalse(responseTimes.getTimeline().isPresent());
+    }
+
+    private void collect(String tx, int count, long millis) {
+        for (int i = 0; i < count; i++) {
+            responseTimes.collect(new ResponseTime(tx, Instant.now(), Duration.ofMillis(millis + i % 10)));
+        }
+    }
+
+    @Test
+    public void testSaveBaseline() throws Throwable {
+        //prepare
+        Path file = folder.getRoot().toPath().resolve("baseline.tqb");
+        subject.saveBaseline(file);
+
+        //act
+        subject.before();
+        try {
+            collect("test", 100, 100);
+        } finally {
+            subject.after();
+        }
+
+        //assert
+        Baseline baseline = Baseline.read(file);
+        assertEquals(100, baseline.getStatistics("test").get().getCount());
+    }
+
+    @Test
+    public void testCompareToBaseline_noRegression() throws Throwable {
+        //prepare
+        Path file = folder.getRoot().toPath().resolve("baseline.tqb");
+        collect("test", 100, 100);
+        Baseline.of(responseTimes.getStatistics()).write(file);
+        responseTimes.clear();
+        subject.compareToBaseline(file);
+
+        //act
+        subject.before();
+        try {
+            collect("test", 100, 101);
+        } finally {
+            subject.after();
+        }
+
+        //assert
+        assertTrue(responseTimes.getResponseTimes().isEmpty());
+    }
+
+    @Test
+    public void testCompareToBaseline_noRegression_baselineSaved() throws Throwable {
+        //prepare
+        Path file = folder.getRoot().toPath().resolve("baseline.tqb");
+        collect("test", 100, 100);
+        Baseline.of(responseTimes.getStatistics()).write(file);
+        responseTimes.clear();
+        subject.compareToBaseline(file).saveBaseline(file);
+
+        //act
+        subject.before();
+        try {
+            collect("test", 50, 101);
+        } finally {
+            subject.after();
+        }
+
+        //assert
+        assertEquals(50, Baseline.read(file).getStatistics("test").get().getCount());
+    }
+
+    @Test
+    public void testCompareToBaseline_regression() throws Throwable {
+        //prepare
+        Path file = folder.getRoot().toPath().resolve("baseline.tqb");
+        collect("test", 100, 100);
+        Baseline.of(responseTimes.getStatistics()).write(file);
+        responseTimes.clear();
+        subject.compareToBaseline(file).saveBaseline(file);
+
+        //act
+        subject.before();
+        collect("test", 100, 150);
+        try {
+            subject.after();
+            fail("AssertionError expected");
+        } catch (AssertionError e) {
+            //assert
+            assertTrue(e.getMessage(), e.getMessage().contains("test: p95.0"));
+        }
+        //the regressed run does not overwrite the baseline
+        assertEquals(100.0, Baseline.read(file).getStatistics("test").get().getMin().toMillis(), 1.0);
+    }
+
+    @Test
+    public void testCompareToBaseline_missingBaseline() throws Throwable {
+        //prepare
+        subject.compareToBaseline(folder.getRoot().toPath().resolve("missing.tqb"));
+
+        //act
+        subject.before();
+        try {
+            collect("test", 100, 100);
+        } finally {
+            subject.after();
+        }
+
+        //assert
+        assertTrue(responseTimes.getResponseTimes().isEmpty());
+    }
 }
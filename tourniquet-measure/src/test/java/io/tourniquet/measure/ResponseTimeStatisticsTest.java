@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResponseTimeStatisticsTest {
+
+    /**
+     * The class under test
+     */
+    private ResponseTimeStatistics subject;
+
+    private Histogram histogram;
+
+    @Before
+    public void setUp() throws Exception {
+        histogram = Histograms.newHistogram();
+        for (int i = 1; i <= 100; i++) {
+            Histograms.record(histogram, Duration.ofMillis(i).toNanos());
+        }
+        subject = new ResponseTimeStatistics("tx", histogram);
+    }
+
+    @Test
+    public void testGetTransaction() throws Exception {
+        assertEquals("tx", subject.getTransaction());
+    }
+
+    @Test
+    public void testGetCount() throws Exception {
+        assertEquals(100, subject.getCount());
+    }
+
+    @Test
+    public void testGetMinMax() throws Exception {
+        assertEquals(1.0, subject.getMin().toNanos() / 1_000_000.0, 0.01);
+        assertEquals(100.0, subject.getMax().toNanos() / 1_000_000.0, 0.1);
+    }
+
+    @Test
+    public void testGetMean() throws Exception {
+        assertEquals(50.5, subject.getMean().toNanos() / 1_000_000.0, 0.1);
+    }
+
+    @Test
+    public void testGetPercentile() throws Exception {
+        assertEquals(50.0, subject.getPercentile(50.0).toNanos() / 1_000_000.0, 0.1);
+        assertEquals(99.0, subject.getPercentile(99.0).toNanos() / 1_000_000.0, 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetPercentile_outOfRange() throws Exception {
+        subject.getPercentile(100.1);
+    }
+
+    @Test
+    public void testGetMin_empty() throws Exception {
+        ResponseTimeStatistics empty = new ResponseTimeStatistics("tx", Histograms.newHistogram());
+
+        assertEquals(0, empty.getCount());
+        assertEquals(Duration.ZERO, empty.getMin());
+        assertEquals(Duration.ZERO, empty.getMean());
+    }
+
+    @Test
+    public void testGetThroughput() throws Exception {
+        //prepare
+        ResponseTimeStatistics stats = new ResponseTimeStatistics("tx", histogram, 0L, 2_000_000_000L);
+
+        //act
+        double throughput = stats.getThroughput();
+
+        //assert
+        assertEquals(Duration.ofSeconds(2), stats.getTimeSpan());
+        assertEquals(50.0, throughput, 0.0001);
+    }
+
+    @Test
+    public void testGetThroughput_unknownTimeSpan() throws Exception {
+        assertEquals(Duration.ZERO, subject.getTimeSpan());
+        assertEquals(0.0, subject.getThroughput(), 0.0);
+    }
+
+    @Test
+    public void testGetHistogram_copy() throws Exception {
+        Histogram copy = subject.getHistogram();
+
+        assertNotSame(histogram, copy);
+        assertEquals(histogram.getTotalCount(), copy.getTotalCount());
+    }
+
+    @Test
+    public void testToString() throws Exception {
+        assertTrue(subject.toString().startsWith("ResponseTimeStatistics{transaction='tx', count=100"));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ResponseTimeTimeline}
+ */
+public class ResponseTimeTimelineTest {
+
+    private static final Instant T0 = Instant.parse("2016-01-01T12:00:00Z");
+
+    /**
+     * The class under test
+     */
+    private ResponseTimeTimeline subject = new ResponseTimeTimeline(Duration.ofSeconds(1));
+
+    @After
+    public void tearDown() throws Exception {
+        ResponseTimes.current().disableTimeline();
+        ResponseTimes.current().clear();
+    }
+
+    private void record(String tx, Instant start, Duration duration) {
+        subject.record(tx, NanoTime.toEpochNanos(start), duration.toNanos());
+    }
+
+    @Test
+    public void testGetBuckets_binnedByEnd() throws Exception {
+        //prepare
+        record("tx", T0, Duration.ofMillis(100));
+        record("tx", T0.plusMillis(500), Duration.ofMillis(300));
+        //ends in the second bucket
+        record("tx", T0.plusMillis(800), Duration.ofMillis(400));
+        //ends in the fourth bucket, the third is empty
+        record("tx", T0.plusMillis(3100), Duration.ofMillis(10));
+
+        //act
+        List<ResponseTimeTimeline.TimelineBucket> buckets = subject.getBuckets("tx");
+
+        //assert
+        assertEquals(3, buckets.size());
+        assertEquals(T0, buckets.get(0).getStart());
+        assertEquals(T0.plusSeconds(1), buckets.get(0).getEnd());
+        assertEquals(2, buckets.get(0).getCount());
+        assertEquals(2.0, buckets.get(0).getThroughput(), 0.0001);
+        assertEquals(300.0, buckets.get(0).getStatistics().getMax().toNanos() / 1_000_000.0, 3.0);
+        assertEquals(T0.plusSeconds(1), buckets.get(1).getStart());
+        assertEquals(1, buckets.get(1).getCount());
+        assertEquals(T0.plusSeconds(3), buckets.get(2).getStart());
+    }
+
+    @Test
+    public void testGetBuckets_compactedBuckets() throws Exception {
+        //prepare
+        record("tx", T0, Duration.ofMillis(100));
+        record("tx", T0, Duration.ofMillis(300));
+        record("tx", T0.plusSeconds(1), Duration.ofMillis(10));
+        //compacts the first bucket
+        record("tx", T0.plusSeconds(2), Duration.ofMillis(10));
+
+        //act
+        List<ResponseTimeTimeline.TimelineBucket> compacted = subject.getBuckets("tx");
+        //a late response time expands the compacted bucket again
+        record("tx", T0.plusMillis(500), Duration.ofMillis(200));
+        List<ResponseTimeTimeline.TimelineBucket> expanded = subject.getBuckets("tx");
+
+        //assert
+        assertEquals(3, compacted.size());
+        assertEquals(2, compacted.get(0).getCount());
+        assertEquals(100.0, compacted.get(0).getStatistics().getMin().toNanos() / 1_000_000.0, 1.0);
+        assertEquals(300.0, compacted.get(0).getStatistics().getMax().toNanos() / 1_000_000.0, 3.0);
+        assertEquals(3, expanded.get(0).getCount());
+        assertEquals(T0, expanded.get(0).getStart());
+        assertEquals(1, expanded.get(2).getCount());
+    }
+
+    @Test
+    public void testRecord_lateResponseTime_compactedAgainOnNextInterval() throws Exception {
+        //prepare
+        record("tx", T0, Duration.ofMillis(100));
+        record("tx", T0.plusSeconds(1), Duration.ofMillis(10));
+        //compacts the first bucket
+        record("tx", T0.plusSeconds(2), Duration.ofMillis(10));
+        //expands the first bucket again
+        record("tx", T0.plusMillis(500), Duration.ofMillis(200));
+        int expandedByLateRecord = subject.getExpandedBucketCount("tx");
+
+        //act
+        record("tx", T0.plusSeconds(3), Duration.ofMillis(10));
+
+        //assert
+        assertEquals(3, expandedByLateRecord);
+        //only the two most recent buckets are kept expanded
+        assertEquals(2, subject.getExpandedBucketCount("tx"));
+        assertEquals(2, subject.getBuckets("tx").get(0).getCount());
+    }
+
+    @Test
+    public void testGetBuckets_unknownTransaction() throws Exception {
+        assertTrue(subject.getBuckets("unknown").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNew_invalidInterval() throws Exception {
+        new ResponseTimeTimeline(Duration.ZERO);
+    }
+
+    @Test
+    public void testWrite_csv() throws Exception {
+        //prepare
+        record("b", T0, Duration.ofMillis(100));
+        record("a,1", T0, Duration.ofMillis(200));
+        StringWriter out = new StringWriter();
+
+        //act
+        subject.write(out, ResponseTimeTimeline.Format.CSV);
+
+        //assert
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("transaction,start,count,throughput,p50,p95,max", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("\"a,1\",2016-01-01T12:00:00Z,1,1.0,"));
+        assertTrue(lines[2], lines[2].startsWith("b,2016-01-01T12:00:00Z,1,1.0,"));
+    }
+
+    @Test
+    public void testWrite_json() throws Exception {
+        //prepare
+        record("tx\"1", T0, Duration.ofMillis(100));
+        record("tx\"1", T0.plusSeconds(1), Duration.ofMillis(100));
+        StringWriter out = new StringWriter();
+
+        //act
+        subject.write(out, ResponseTimeTimeline.Format.JSON);
+
+        //assert
+        String json = out.toString();
+        assertTrue(json, json.startsWith("[\n{\"transaction\":\"tx\\\"1\",\"start\":\"2016-01-01T12:00:00Z\","));
+        assertTrue(json, json.contains("\"count\":1,\"throughput\":1.0,\"p50\":"));
+        assertTrue(json, json.contains("},\n{\"transaction\":\"tx\\\"1\",\"start\":\"2016-01-01T12:00:01Z\""));
+        assertTrue(json, json.endsWith("}\n]\n"));
+    }
+
+    @Test
+    public void testResponseTimes_recordsTimeline() throws Exception {
+        //prepare
+        ResponseTimes responseTimes = ResponseTimes.current();
+        responseTimes.enableTimeline(Duration.ofSeconds(1));
+        int txId = TransactionRegistry.idOf("timelineTx");
+
+        //act
+        responseTimes.collect(new ResponseTime("timelineTx", T0, Duration.ofMillis(10)));
+        responseTimes.collect(txId, System.nanoTime(), 1_000L);
+
+        //assert
+        ResponseTimeTimeline timeline = responseTimes.getTimeline().get();
+        assertEquals(2, timeline.getBuckets("timelineTx").size());
+        responseTimes.clear();
+        assertTrue(timeline.getBuckets("timelineTx").isEmpty());
+        responseTimes.disableTimeline();
+        assertFalse(responseTimes.getTimeline().isPresent());
+    }
+}
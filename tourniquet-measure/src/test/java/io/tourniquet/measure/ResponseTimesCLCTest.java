@@ -67,4 +67,35 @@ public class ResponseTimesCLCTest {
         }
 
     }
+
+    @Test
+    public void testGetCurrentStatisticsRetrieval() throws Exception {
+        //prepare
+        try(TestClassLoader cl = new TestClassLoader(singletonList(resolver.resolve("/test.zip")))) {
+            Result result = JUnitRunner.runClass("io.tourniquet.measure.MockTest", () -> cl);
+            assertEquals(2, result.getRunCount());
+            //act
+            Map<String, ResponseTimeStatistics> stats = ResponseTimes.getCurrentStatistics(cl);
+            //assert
+            assertNotNull(stats);
+            assertEquals(1, stats.size());
+            assertEquals(3, stats.get("current").getCount());
+        }
+    }
+
+    @Test
+    public void testGlobalStatisticsRetrieval() throws Exception {
+        //prepare
+        try(TestClassLoader cl = new TestClassLoader(singletonList(resolver.resolve("/test.zip")))) {
+            Result result = JUnitRunner.runClass("io.tourniquet.measure.MockTest", () -> cl);
+            assertEquals(2, result.getRunCount());
+            //act
+            Map<String, ResponseTimeStatistics> stats = ResponseTimes.getGlobalStatistics(cl);
+            //assert
+            assertNotNull(stats);
+            assertEquals(2, stats.size());
+            assertEquals(9, stats.get("global").getCount());
+            assertEquals(3, stats.get("local").getCount());
+        }
+    }
 }
@@ -21,11 +21,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -48,6 +50,9 @@ public class ResponseTimesTest {
         subject.onMeasureEnd(null);
         subject.setCleanupStrategy(null, null);
         subject.enableForwardToGlobal(false);
+        subject.setCollectionMode(CollectionMode.RAW);
+        subject.setRetentionPolicy(RetentionPolicy.unlimited());
+        subject.enableLiveStatistics(false);
         ResponseTimes.global().clear();
         ResponseTimes.enableGlobalCollection(false);
     }
@@ -279,4 +284,233 @@ public class ResponseTimesTest {
         assertEquals(4, middle);
         assertEquals(0, after);
     }
+
+    @Test
+    public void testSetCollectionMode_histogram() throws Exception {
+        //prepare
+
+        //act
+        subject.setCollectionMode(CollectionMode.HISTOGRAM);
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(100)));
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(200)));
+        subject.collect(new ResponseTime("tx2", Instant.now(), Duration.ofMillis(300)));
+        subject.startTx("tx3");
+
+        //assert
+        assertEquals(CollectionMode.HISTOGRAM, subject.getCollectionMode());
+        assertTrue(subject.getResponseTimes().isEmpty());
+        Map<String, ResponseTimeStatistics> stats = subject.getStatistics();
+        assertEquals(2, stats.size());
+        assertEquals(2, stats.get("tx1").getCount());
+        assertEquals(1, stats.get("tx2").getCount());
+    }
+
+    @Test
+    public void testSetCollectionMode_discardsCollectedTimes() throws Exception {
+        //prepare
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(100)));
+
+        //act
+        subject.setCollectionMode(CollectionMode.HISTOGRAM);
+
+        //assert
+        assertTrue(subject.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void testGetStatistics_rawMode() throws Exception {
+        //prepare
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(100)));
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(300)));
+        subject.startTx("tx1");
+
+        //act
+        Optional<ResponseTimeStatistics> stats = subject.getStatistics("tx1");
+
+        //assert
+        assertTrue(stats.isPresent());
+        assertEquals(2, stats.get().getCount());
+        assertEquals(100, stats.get().getMin().toMillis(), 1);
+        assertEquals(300, stats.get().getMax().toMillis(), 1);
+        assertEquals(200, stats.get().getMean().toMillis(), 1);
+        assertFalse(subject.getStatistics("tx2").isPresent());
+    }
+
+    @Test
+    public void testGetStatistics_rawMode_singleTransaction() throws Exception {
+        //prepare
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(100)));
+        subject.collect(new ResponseTime("tx2", Instant.now(), Duration.ofMillis(200)));
+        assumeTrue(subject.getStatistics("tx1").isPresent());
+
+        //act
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(300)));
+
+        //assert
+        assertEquals(2, subject.getStatistics("tx1").get().getCount());
+        assertEquals(300, subject.getStatistics("tx1").get().getMax().toMillis(), 1);
+        subject.clear();
+        assertFalse(subject.getStatistics("tx1").isPresent());
+    }
+
+    @Test
+    public void testGetStatistics_rawMode_cleanedUpResponseTimesExcluded() throws Exception {
+        //prepare
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(100)));
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(900)));
+        subject.setCleanupStrategy(times -> times.values().removeIf(rt -> rt.getDuration().toMillis() > 500),
+                                   Duration.ofMillis(10));
+
+        //act
+        Thread.sleep(100);
+        subject.setCleanupStrategy(null, null);
+
+        //assert
+        assertEquals(1, subject.getResponseTimes().get("tx1").size());
+        assertEquals(1, subject.getStatistics("tx1").get().getCount());
+        assertEquals(100, subject.getStatistics("tx1").get().getMax().toMillis(), 1);
+    }
+
+    @Test
+    public void testClear_histogramMode() throws Exception {
+        //prepare
+        subject.setCollectionMode(CollectionMode.HISTOGRAM);
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(100)));
+        assumeFalse(subject.getStatistics().isEmpty());
+
+        //act
+        subject.clear();
+
+        //assert
+        assertTrue(subject.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void testCollect_txId() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("tx1");
+        long start = System.nanoTime();
+
+        //act
+        subject.collect(txId, start, 100_000_000L);
+
+        //assert
+        List<ResponseTime> rts = subject.getResponseTimes().get("tx1");
+        assertEquals(1, rts.size());
+        assertEquals(Duration.ofMillis(100), rts.get(0).getDuration());
+    }
+
+    @Test
+    public void testCollect_txId_histogramMode_withConsumer() throws Exception {
+        //prepare
+        AtomicReference<ResponseTime> rtRef = new AtomicReference<>();
+        subject.setCollectionMode(CollectionMode.HISTOGRAM);
+        subject.onMeasureEnd(rtRef::set);
+        int txId = TransactionRegistry.idOf("tx1");
+
+        //act
+        subject.collect(txId, System.nanoTime(), 100_000_000L);
+
+        //assert
+        assertNotNull(rtRef.get());
+        assertEquals("tx1", rtRef.get().getTransaction());
+        assertEquals(1, subject.getStatistics("tx1").get().getCount());
+    }
+
+    @Test
+    public void testSetRetentionPolicy_latest() throws Exception {
+        //prepare
+
+        //act
+        subject.setRetentionPolicy(RetentionPolicy.latest(2));
+        subject.startTx("tx1");
+        for (int i = 0; i < 5; i++) {
+            subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(i)));
+        }
+        subject.collect(new ResponseTime("tx2", Instant.now(), Duration.ofMillis(100)));
+
+        //assert
+        Map<String, List<ResponseTime>> rts = subject.getResponseTimes();
+        assertEquals(2, rts.get("tx1").size());
+        assertEquals(1, rts.get("tx2").size());
+        assertEquals(2, subject.getStatistics("tx1").get().getCount());
+    }
+
+    @Test
+    public void testSetRetentionPolicy_global() throws Exception {
+        //prepare
+        ResponseTimes global = ResponseTimes.global();
+        global.setRetentionPolicy(RetentionPolicy.latest(2));
+
+        //act
+        try {
+            for (int i = 0; i < 5; i++) {
+                global.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(i)));
+            }
+
+            //assert
+            assertEquals(2, global.getResponseTimes().get("tx1").size());
+        } finally {
+            global.setRetentionPolicy(RetentionPolicy.unlimited());
+        }
+    }
+
+    @Test
+    public void testGetLiveStatistics_disabled() throws Exception {
+        //prepare
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(10)));
+
+        //act
+        Map<String, ResponseTimeStatistics> stats = subject.getLiveStatistics();
+
+        //assert
+        assertTrue(stats.isEmpty());
+    }
+
+    @Test
+    public void testGetLiveStatistics_enabled() throws Exception {
+        //prepare
+        subject.enableLiveStatistics(true);
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(10)));
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(20)));
+        subject.collect(new ResponseTime("tx2", Instant.now(), Duration.ofMillis(30)));
+
+        //act
+        Map<String, ResponseTimeStatistics> stats = subject.getLiveStatistics();
+
+        //assert
+        assertEquals(2, stats.size());
+        assertEquals(2, stats.get("tx1").getCount());
+        assertEquals(1, stats.get("tx2").getCount());
+        assertEquals(20.0, stats.get("tx1").getMax().toNanos() / 1_000_000.0, 0.1);
+    }
+
+    @Test
+    public void testGetLiveStatistics_clear() throws Exception {
+        //prepare
+        subject.enableLiveStatistics(true);
+        subject.collect(new ResponseTime("tx1", Instant.now(), Duration.ofMillis(10)));
+
+        //act
+        subject.clear();
+
+        //assert
+        assertTrue(subject.getLiveStatistics().isEmpty());
+    }
+
+    @Test
+    public void testGetFailureCounts() throws Exception {
+        //prepare
+        subject.collectFailure("tx1");
+        subject.collectFailure("tx1");
+        subject.collectFailure("tx2");
+
+        //act
+        Map<String, Long> failures = subject.getFailureCounts();
+
+        //assert
+        assertEquals(2, failures.size());
+        assertEquals(Long.valueOf(2), failures.get("tx1"));
+        assertEquals(Long.valueOf(1), failures.get("tx2"));
+    }
 }
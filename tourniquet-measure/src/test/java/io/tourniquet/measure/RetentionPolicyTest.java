@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class RetentionPolicyTest {
+
+    @Test
+    public void testUnlimited_singleton() throws Exception {
+        assertSame(RetentionPolicy.unlimited(), RetentionPolicy.unlimited());
+    }
+
+    @Test
+    public void testLatest_retainsLatest() throws Exception {
+        //prepare
+        ResponseTimeStore store = RetentionPolicy.latest(3).newStore();
+
+        //act
+        for (int i = 0; i < 5; i++) {
+            store.finished(responseTime(Instant.now(), i));
+        }
+
+        //assert
+        List<ResponseTime> retained = retained(store);
+        assertEquals(3, retained.size());
+        assertEquals(2, retained.get(0).getDuration().toMillis());
+        assertEquals(3, retained.get(1).getDuration().toMillis());
+        assertEquals(4, retained.get(2).getDuration().toMillis());
+    }
+
+    @Test
+    public void testLatest_notFull() throws Exception {
+        //prepare
+        ResponseTimeStore store = RetentionPolicy.latest(3).newStore();
+
+        //act
+        store.finished(responseTime(Instant.now(), 1));
+
+        //assert
+        assertEquals(1, retained(store).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLatest_invalidCapacity() throws Exception {
+        RetentionPolicy.latest(0);
+    }
+
+    @Test
+    public void testTimeWindow_evictsExpired() throws Exception {
+        //prepare
+        Instant start = Instant.parse("2016-01-01T12:00:00Z");
+        AtomicReference<Instant> now = new AtomicReference<>(start);
+        ResponseTimeStore store = RetentionPolicy.timeWindow(Duration.ofMinutes(5), clock(now)).newStore();
+
+        //act
+        store.finished(responseTime(start, 10));
+        now.set(start.plus(Duration.ofMinutes(3)));
+        store.finished(responseTime(now.get(), 20));
+        now.set(start.plus(Duration.ofMinutes(6)));
+
+        //assert
+        List<ResponseTime> retained = retained(store);
+        assertEquals(1, retained.size());
+        assertEquals(20, retained.get(0).getDuration().toMillis());
+    }
+
+    @Test
+    public void testTimeWindow_outOfOrder_evictsExpired() throws Exception {
+        //prepare
+        Instant start = Instant.parse("2016-01-01T12:00:00Z");
+        AtomicReference<Instant> now = new AtomicReference<>(start.plus(Duration.ofMinutes(4)));
+        ResponseTimeStore store = RetentionPolicy.timeWindow(Duration.ofMinutes(5), clock(now)).newStore();
+
+        //act
+        store.finished(responseTime(start.plus(Duration.ofMinutes(3)), 30));
+        store.finished(responseTime(start, 10));
+        store.finished(responseTime(start.plus(Duration.ofMinutes(2)), 20));
+        now.set(start.plus(Duration.ofMinutes(6)));
+
+        //assert
+        List<ResponseTime> retained = retained(store);
+        assertEquals(2, retained.size());
+        assertEquals(20, retained.get(0).getDuration().toMillis());
+        assertEquals(30, retained.get(1).getDuration().toMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTimeWindow_invalidWindow() throws Exception {
+        RetentionPolicy.timeWindow(Duration.ZERO);
+    }
+
+    @Test
+    public void testReservoir_boundedSize() throws Exception {
+        //prepare
+        ResponseTimeStore store = RetentionPolicy.reservoir(100).newStore();
+
+        //act
+        for (int i = 0; i < 10000; i++) {
+            store.finished(responseTime(Instant.now(), i));
+        }
+
+        //assert
+        List<ResponseTime> retained = retained(store);
+        assertEquals(100, retained.size());
+        //a uniform sample of 0..9999 should contain elements beyond the first 100
+        assertTrue(retained.stream().anyMatch(rt -> rt.getDuration().toMillis() >= 100));
+    }
+
+    @Test
+    public void testReservoir_notFull() throws Exception {
+        //prepare
+        ResponseTimeStore store = RetentionPolicy.reservoir(100).newStore();
+
+        //act
+        store.finished(responseTime(Instant.now(), 1));
+        store.finished(responseTime(Instant.now(), 2));
+
+        //assert
+        assertEquals(2, retained(store).size());
+    }
+
+    @Test
+    public void testNone_retainsNothing() throws Exception {
+        //prepare
+        ResponseTimeStore store = RetentionPolicy.none().newStore();
+
+        //act
+        store.finished(responseTime(Instant.now(), 1));
+
+        //assert
+        assertTrue(store.getResponseTimes().isEmpty());
+    }
+
+    @Test
+    public void testUnlimited_retainsAll() throws Exception {
+        //prepare
+        ResponseTimeStore store = RetentionPolicy.unlimited().newStore();
+
+        //act
+        for (int i = 0; i < 1000; i++) {
+            store.finished(responseTime(Instant.now(), i));
+        }
+
+        //assert
+        assertEquals(1000, retained(store).size());
+    }
+
+    private static List<ResponseTime> retained(ResponseTimeStore store) {
+        return store.getResponseTimes().getOrDefault("tx", Collections.emptyList());
+    }
+
+    private static ResponseTime responseTime(Instant start, long durationMillis) {
+        return new ResponseTime("tx", start, Duration.ofMillis(durationMillis));
+    }
+
+    private static Clock clock(AtomicReference<Instant> now) {
+        return new Clock() {
+            @Override
+            public java.time.ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StripedResponseTimeStoreTest {
+
+    @Test
+    public void testGetResponseTimes_multipleThreads() throws Exception {
+        //prepare
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(new RawResponseTimeStore());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        //act
+        for (int i = 0; i < 4; i++) {
+            pool.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    subject.finished(new ResponseTime("tx", Instant.now(), Duration.ofMillis(j)));
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        //assert
+        Map<String, List<ResponseTime>> times = subject.getResponseTimes();
+        assertEquals(4000, times.get("tx").size());
+    }
+
+    @Test
+    public void testGetStatistics_histogram_multipleThreads() throws Exception {
+        //prepare
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(new HistogramResponseTimeStore());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        //act
+        for (int i = 0; i < 4; i++) {
+            pool.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    subject.record("tx", System.nanoTime(), 1_000_000L);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        //assert
+        assertEquals(4000, subject.getStatistics().get("tx").getCount());
+    }
+
+    @Test
+    public void testStartedAndFinishedByDifferentThreads() throws Exception {
+        //prepare
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(new RawResponseTimeStore());
+        ResponseTime started = new ResponseTime("tx", Instant.now());
+        Thread starter = new Thread(() -> subject.started(started));
+        starter.start();
+        starter.join();
+
+        //act
+        subject.finished(started.finish());
+
+        //assert
+        List<ResponseTime> times = subject.getResponseTimes().get("tx");
+        assertEquals(1, times.size());
+        assertTrue(times.get(0).isFinished());
+    }
+
+    @Test
+    public void testAppend_fullStripeIsMergedByWriter() throws Exception {
+        //prepare
+        HistogramResponseTimeStore central = new HistogramResponseTimeStore();
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(central);
+
+        //act
+        for (int i = 0; i <= StripedResponseTimeStore.STRIPE_CAPACITY; i++) {
+            subject.record("tx", System.nanoTime(), 1_000_000L);
+        }
+
+        //assert
+        assertEquals(StripedResponseTimeStore.STRIPE_CAPACITY, central.getStatistics().get("tx").getCount());
+        assertEquals(StripedResponseTimeStore.STRIPE_CAPACITY + 1, subject.getStatistics().get("tx").getCount());
+    }
+
+    @Test
+    public void testMerge_removesStripesOfTerminatedThreads() throws Exception {
+        //prepare
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(new RawResponseTimeStore());
+        Thread writer = new Thread(() -> subject.finished(new ResponseTime("tx", Instant.now(), Duration.ZERO)));
+        writer.start();
+        writer.join();
+        assertEquals(1, subject.getStripeCount());
+
+        //act
+        subject.merge();
+
+        //assert
+        assertEquals(0, subject.getStripeCount());
+        assertEquals(1, subject.getResponseTimes().get("tx").size());
+    }
+
+    @Test
+    public void testNewStripe_terminatedStripesReapedOnRegistration() throws Exception {
+        //prepare
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(new HistogramResponseTimeStore());
+        int threads = StripedResponseTimeStore.MIN_REAP_THRESHOLD * 4;
+
+        //act
+        for (int i = 0; i < threads; i++) {
+            Thread writer = new Thread(() -> subject.record("tx", System.nanoTime(), 1_000_000L));
+            writer.start();
+            writer.join();
+        }
+
+        //assert
+        assertTrue(subject.getStripeCount() < StripedResponseTimeStore.MIN_REAP_THRESHOLD);
+        assertEquals(threads, subject.getStatistics().get("tx").getCount());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        //prepare
+        StripedResponseTimeStore subject = new StripedResponseTimeStore(new RawResponseTimeStore());
+        subject.finished(new ResponseTime("tx", Instant.now(), Duration.ZERO));
+        subject.getResponseTimes();
+        subject.finished(new ResponseTime("tx", Instant.now(), Duration.ZERO));
+
+        //act
+        subject.clear();
+
+        //assert
+        assertTrue(subject.getResponseTimes().isEmpty());
+    }
+}
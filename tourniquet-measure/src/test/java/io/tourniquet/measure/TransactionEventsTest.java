@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the Flight Recorder events emitted by the {@link ResponseTimeCollector}
+ */
+public class TransactionEventsTest {
+
+    private ResponseTimeCollector collector = new ResponseTimeCollector();
+
+    private Path recordingFile;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(TransactionEvents.AVAILABLE);
+        recordingFile = Files.createTempFile("tourniquet", ".jfr");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        collector.stopCollecting();
+        ResponseTimes.current().clear();
+        if (recordingFile != null) {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    private List<RecordedEvent> record(Runnable transactions) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable(TransactionEvent.NAME);
+            recording.start();
+            transactions.run();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        return RecordingFile.readAllEvents(recordingFile)
+                            .stream()
+                            .filter(e -> TransactionEvent.NAME.equals(e.getEventType().getName()))
+                            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testBegin_notRecording() throws Exception {
+        //prepare
+
+        //act
+        Object event = TransactionEvents.begin("tx", "tx");
+
+        //assert
+        assertNull(event);
+    }
+
+    @Test
+    public void testBegin_txId_notRecording() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("jfrTx");
+
+        //act
+        Object event = TransactionEvents.begin(txId);
+
+        //assert
+        assertNull(event);
+    }
+
+    @Test
+    public void testNestedTransactions() throws Exception {
+        //prepare
+        collector.startCollecting();
+
+        //act
+        List<RecordedEvent> events = record(() -> {
+            collector.startTransaction("outer");
+            collector.startTransaction("inner");
+            collector.stopTransaction("inner");
+            collector.stopTransaction("outer");
+        });
+
+        //assert
+        assertEquals(2, events.size());
+        RecordedEvent inner = events.stream()
+                                    .filter(e -> "inner".equals(e.getString("transaction")))
+                                    .findFirst()
+                                    .get();
+        RecordedEvent outer = events.stream()
+                                    .filter(e -> "outer".equals(e.getString("transaction")))
+                                    .findFirst()
+                                    .get();
+        assertEquals("outer/inner", inner.getString("path"));
+        assertEquals("outer", outer.getString("path"));
+        assertEquals(Thread.currentThread().getName(), inner.getThread().getJavaName());
+        assertTrue(outer.getDuration().compareTo(inner.getDuration()) >= 0);
+    }
+
+    @Test
+    public void testTransactionById() throws Exception {
+        //prepare
+        int txId = TransactionRegistry.idOf("jfrTx");
+        collector.startCollecting();
+
+        //act
+        List<RecordedEvent> events = record(() -> {
+            collector.startTransaction(txId);
+            collector.stopTransaction(txId);
+        });
+
+        //assert
+        assertEquals(1, events.size());
+        assertEquals("jfrTx", events.get(0).getString("transaction"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        //prepare
+        collector.startCollecting();
+
+        //act
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.disable(TransactionEvent.NAME);
+            recording.start();
+            collector.startTransaction("tx");
+            collector.stopTransaction("tx");
+            recording.stop();
+            recording.dump(recordingFile);
+            events = RecordingFile.readAllEvents(recordingFile)
+                                  .stream()
+                                  .filter(e -> TransactionEvent.NAME.equals(e.getEventType().getName()))
+                                  .collect(Collectors.toList());
+        }
+
+        //assert
+        assertTrue(events.isEmpty());
+    }
+}
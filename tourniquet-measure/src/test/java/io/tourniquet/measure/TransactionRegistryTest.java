@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2016 DevCon5 GmbH, info@devcon5.ch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.tourniquet.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class TransactionRegistryTest {
+
+    @Test
+    public void testIdOf_sameName_sameId() throws Exception {
+        //prepare
+
+        //act
+        int id1 = TransactionRegistry.idOf("registryTx1");
+        int id2 = TransactionRegistry.idOf("registryTx1");
+
+        //assert
+        assertEquals(id1, id2);
+    }
+
+    @Test
+    public void testIdOf_differentName_differentId() throws Exception {
+        //prepare
+
+        //act
+        int id1 = TransactionRegistry.idOf("registryTx2");
+        int id2 = TransactionRegistry.idOf("registryTx3");
+
+        //assert
+        assertNotEquals(id1, id2);
+    }
+
+    @Test
+    public void testNameOf() throws Exception {
+        //prepare
+        int id = TransactionRegistry.idOf("registryTx4");
+
+        //act
+        String name = TransactionRegistry.nameOf(id);
+
+        //assert
+        assertEquals("registryTx4", name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNameOf_unknownId() throws Exception {
+        TransactionRegistry.nameOf(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testIdOf_concurrentRegistration() throws Exception {
+        //prepare
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        //act
+        IntStream.range(0, 1000).parallel().forEach(i -> ids.add(TransactionRegistry.idOf("concurrentTx" + i % 200)));
+
+        //assert
+        assertEquals(200, ids.size());
+        ids.forEach(id -> assertEquals(id.intValue(), TransactionRegistry.idOf(TransactionRegistry.nameOf(id))));
+    }
+}
@@ -32,7 +32,7 @@ public final class TransactionHelper {
 
     /**
      * Adds transaction support to the page. The transaction support captures execution time of methods annotated with
-     * {@link Transaction}
+     * {@link Transaction}. Transactions of methods that throw an exception are counted as failures.
      *
      * @param <T>
      *
@@ -44,8 +44,10 @@ public final class TransactionHelper {
     public static <T extends TransactionSupport> T addTransactionSupport(TransactionSupport transactionSupport) {
         return (T) Enhancer.create(transactionSupport.getClass(), (MethodInterceptor) (obj, method, args, proxy) -> {
             final Optional<String> txName = getTxName(transactionSupport, method);
+            //the transaction is only ended if it has been started
+            txName.ifPresent(transactionSupport::txBegin);
+            boolean failed = true;
             try {
-                txName.ifPresent(transactionSupport::txBegin);
                 Object result = method.invoke(transactionSupport, args);
                 //dynamically enhance return values, if they are transactionSupport and not yet enhanced
                 //this is required, i.e. if method return 'this' or create new objects which will
@@ -53,9 +55,14 @@ public final class TransactionHelper {
                 if (!isCGLibProxy(result) && result instanceof TransactionSupport) {
                     result = addTransactionSupport(transactionSupport);
                 }
+                failed = false;
                 return result;
             } finally {
-                txName.ifPresent(transactionSupport::txEnd);
+                if (failed) {
+                    txName.ifPresent(transactionSupport::txFail);
+                } else {
+                    txName.ifPresent(transactionSupport::txEnd);
+                }
             }
         });
     }
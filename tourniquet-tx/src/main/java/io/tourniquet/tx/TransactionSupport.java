@@ -46,4 +46,15 @@ public interface TransactionSupport {
         Instant now = Instant.now();
         ResponseTimeCollector.current().ifPresent(rtc -> rtc.stopTransaction(txName, now));
     }
+
+    /**
+     * Method to stop a transaction that ended with an exception. The transaction is stopped with
+     * {@link #txEnd(String)} and additionally counted as failure of the transaction.
+     * @param txName
+     *  the name of the transaction that failed
+     */
+    default void txFail(String txName) {
+        txEnd(txName);
+        ResponseTimeCollector.current().ifPresent(rtc -> rtc.collectFailure(txName));
+    }
 }
@@ -20,14 +20,24 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import io.tourniquet.measure.ResponseTime;
 import io.tourniquet.measure.ResponseTimeCollector;
 import io.tourniquet.measure.ResponseTimes;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -93,6 +103,94 @@ public class TransactionHelperTest {
         assertEquals("CustomName_CustomTx", rt.getTransaction());
     }
 
+    @Test
+    public void testAddTransactionSupport_exceptionThrown_failureCollected() throws Exception {
+        //prepare
+        NamedTransaction etx = TransactionHelper.addTransactionSupport(new NamedTransaction());
+        etx.namedTx();
+
+        //act
+        try {
+            etx.failingTx();
+            fail("Exception expected");
+        } catch (Exception e) { //NOSONAR
+            //expected
+        }
+
+        //assert
+        ResponseTime rt = rtEndRef.get();
+        assertNotNull(rt);
+        assertEquals("CustomName_FailingTx", rt.getTransaction());
+        assertEquals(0L, ResponseTimes.current().getFailureCount("CustomName_CustomTx"));
+        assertEquals(1L, ResponseTimes.current().getFailureCount("CustomName_FailingTx"));
+    }
+
+    @Test
+    public void testAddTransactionSupport_exceptionThrown_txEndInvoked() throws Exception {
+        //prepare
+        EndRecordingTransaction tx = new EndRecordingTransaction();
+        EndRecordingTransaction etx = TransactionHelper.addTransactionSupport(tx);
+
+        //act
+        try {
+            etx.failingTx();
+            fail("Exception expected");
+        } catch (Exception e) { //NOSONAR
+            //expected
+        }
+
+        //assert
+        assertEquals("CustomName_FailingTx", tx.ended.get());
+        assertEquals(1L, ResponseTimes.current().getFailureCount("CustomName_FailingTx"));
+    }
+
+    @Test
+    public void testAddTransactionSupport_txBeginFails_exceptionNotMasked() throws Exception {
+        //prepare
+        FailingBeginTransaction etx = TransactionHelper.addTransactionSupport(new FailingBeginTransaction());
+
+        //act
+        try {
+            etx.namedTx();
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            //assert
+            assertEquals("begin failed", e.getMessage());
+        }
+        assertEquals(0L, ResponseTimes.current().getFailureCount("CustomName_CustomTx"));
+    }
+
+    @Test
+    public void testAddTransactionSupport_flightRecorderEvent() throws Exception {
+        //prepare
+        assumeTrue(FlightRecorder.isAvailable());
+        NamedTransaction etx = TransactionHelper.addTransactionSupport(new NamedTransaction());
+        Path file = Files.createTempFile("tx", ".jfr");
+
+        //act
+        try (Recording recording = new Recording()) {
+            recording.enable("io.tourniquet.Transaction");
+            recording.start();
+            etx.namedTx();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        //assert
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file)
+                                                      .stream()
+                                                      .filter(e -> e.getEventType()
+                                                                    .getName()
+                                                                    .equals("io.tourniquet.Transaction"))
+                                                      .collect(Collectors.toList());
+            assertEquals(1, events.size());
+            assertEquals("CustomName_CustomTx", events.get(0).getString("transaction"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void testGetTxName_unnamedTx() throws Exception {
         //prepare
@@ -187,11 +285,37 @@ public class TransactionHelperTest {
         public void namedTx(){}
         public void noTx(){}
 
+        @Transaction("FailingTx")
+        public void failingTx(){
+            throw new IllegalStateException("failed");
+        }
+
         public NamedTransaction someOperation(){
             return this;
         }
     }
 
+    @Transaction("CustomName")
+    public static class EndRecordingTransaction extends NamedTransaction {
+
+        final AtomicReference<String> ended = new AtomicReference<>();
+
+        @Override
+        public void txEnd(final String txName) {
+            ended.set(txName);
+            super.txEnd(txName);
+        }
+    }
+
+    @Transaction("CustomName")
+    public static class FailingBeginTransaction extends NamedTransaction {
+
+        @Override
+        public void txBegin(final String txName) {
+            throw new IllegalStateException("begin failed");
+        }
+    }
+
     public static class NoTransaction {
         public void noTx(){}
     }